@@ -13,6 +13,7 @@ repositories {
 dependencies {
     implementation(project(":JTCEMUCommon"))
 
+    testImplementation(testFixtures(project(":JTCEMUCommon")))
     testImplementation(platform("org.junit:junit-bom:5.9.1"))
     testImplementation("org.junit.jupiter:junit-jupiter")
 }
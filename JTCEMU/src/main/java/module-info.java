@@ -2,9 +2,12 @@ module JTCEMU {
     requires java.logging;
     requires java.naming;
     requires java.desktop;
+    requires java.management;
+    requires jdk.jfr;
 
     requires JTCEMUCommon;
 
     opens org.jens_mueller.jtcemu.platform.se;
     exports org.jens_mueller.jtcemu.platform.se;
+    exports org.jens_mueller.jtcemu.platform.se.metrics to java.management, jdk.jfr;
 }
\ No newline at end of file
@@ -11,6 +11,7 @@ package org.jens_mueller.jtcemu.platform.se;
 import org.jens_mueller.jtcemu.base.AppContext;
 import org.jens_mueller.jtcemu.base.JTCSys;
 import org.jens_mueller.jtcemu.base.JTCUtil;
+import org.jens_mueller.jtcemu.platform.se.base.CmdLineRunner;
 import org.jens_mueller.jtcemu.platform.se.base.TopFrm;
 import org.jens_mueller.jtcemu.platform.se.tools.assembler.CmdLineAssembler;
 
@@ -62,6 +63,8 @@ public class Main {
             "  -V oder --version            Versionsnummer anzeigen",
             "  --as oder --assembler        Assembler starten",
             "  --as -h                      Hilfe zum Assembler anzeigen",
+            "  --run <Datei>                Programm ohne Fenster ausf\u00FChren",
+            "  --run -h                     Hilfe zur Programmausf\u00FChrung anzeigen",
             ""};
 
 
@@ -147,6 +150,12 @@ public class Main {
                 } else {
                     exitFailure();
                 }
+            } else if (arg.equalsIgnoreCase("--run")) {
+                if (CmdLineRunner.execute(args, argIdx)) {
+                    exitSuccess();
+                } else {
+                    exitFailure();
+                }
             } else if (arg.startsWith("-")) {
                 printlnErr(String.format("Unbekannte Option \'%s\'", arg));
             }
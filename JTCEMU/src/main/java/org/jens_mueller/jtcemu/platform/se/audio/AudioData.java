@@ -5,6 +5,13 @@
  *
  * Unterstuetzung fuer gespeicherte Audiodaten,
  * Intern werden die Audiodaten im CSW-Format gespeichert.
+ *
+ * Die CSW-Daten einer Aufnahme werden nicht im Arbeitsspeicher gehalten,
+ * sondern ueber einen Puffer fester Groesse fortlaufend
+ * in eine temporaere Datei geschrieben.
+ * Somit belegen auch stundenlange Aufnahmen kaum Arbeitsspeicher.
+ * Beim Speichern und Abspielen werden die Daten
+ * ebenfalls nur stromweise aus der temporaeren Datei gelesen.
  */
 
 package org.jens_mueller.jtcemu.platform.se.audio;
@@ -14,12 +21,20 @@ import org.jens_mueller.jtcemu.base.JTCUtil;
 
 import javax.sound.sampled.*;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
 
 
 public class AudioData
 {
   public static final String CSW_MAGIC = "Compressed Square Wave\u001A";
 
+  // Die CSW-Version 2 speichert die Anzahl der Samples mit 4 Bytes.
+  private static final long MAX_SAMPLE_COUNT = 0xFFFFFFFFL;
+
+  private static final int SPOOL_BUF_SIZE = 0x4000;
+
 
   private static class DataBuf extends ByteArrayOutputStream
   {
@@ -59,11 +74,7 @@ public class AudioData
     {
       int rv = -1;
       if( this.curSampleCount == 0 ) {
-	this.curPhase       = !this.curPhase;
-	this.curSampleCount = this.in.read();
-	if( this.curSampleCount == 0 ) {
-	  this.curSampleCount = readInt4( in );
-	}
+	readNextPulse();
       }
       if( this.curSampleCount > 0 ) {
 	--this.curSampleCount;
@@ -80,38 +91,59 @@ public class AudioData
       return read( buf, 0, buf.length );
     }
 
+    /*
+     * Die Samples eines Impulses haben alle denselben Wert
+     * und werden deshalb blockweise in den Puffer geschrieben.
+     */
     @Override
     public int read( byte[] buf, int offs, int len ) throws IOException
     {
       int rv = 0;
-      if( len > 0 ) {
-	int b = read();
-	if( b < 0 ) {
-	  rv = -1;
-	} else {
-	  buf[ offs++ ] = (byte) b;
-	  rv            = 1;
-	  while( --len > 0 ) {
-	    b = read();
-	    if( b < 0 ) {
-	      break;
-	    }
-	    buf[ offs++ ] = (byte) b;
-	    rv++;
+      while( len > 0 ) {
+	if( this.curSampleCount == 0 ) {
+	  readNextPulse();
+	}
+	if( this.curSampleCount <= 0 ) {
+	  if( rv == 0 ) {
+	    rv = -1;
 	  }
+	  break;
 	}
+	int n = (int) Math.min( this.curSampleCount, (long) len );
+	Arrays.fill(
+		buf,
+		offs,
+		offs + n,
+		(byte) (this.curPhase ?
+				AudioOut.PHASE_1_VALUE
+				: AudioOut.PHASE_0_VALUE) );
+	this.curSampleCount -= n;
+	offs                += n;
+	len                 -= n;
+	rv                  += n;
       }
       return rv;
     }
+
+    private void readNextPulse() throws IOException
+    {
+      this.curPhase       = !this.curPhase;
+      this.curSampleCount = this.in.read();
+      if( this.curSampleCount == 0 ) {
+	this.curSampleCount = readInt4( in );
+      }
+    }
   };
 
 
-  private int     sampleRate;
-  private long    sampleCount;
-  private long    pendingSampleCount;
-  private boolean initialPhase;
-  private boolean lastPhase;
-  private DataBuf cswBuf;
+  private int         sampleRate;
+  private long        sampleCount;
+  private long        pendingSampleCount;
+  private boolean     initialPhase;
+  private boolean     lastPhase;
+  private File        spoolFile;
+  private FileChannel spoolChannel;
+  private ByteBuffer  spoolBuf;
 
 
   public AudioData( int sampleRate )
@@ -121,11 +153,15 @@ public class AudioData
     this.pendingSampleCount = 0;
     this.initialPhase       = false;
     this.lastPhase          = false;
-    this.cswBuf             = new DataBuf();
+    this.spoolFile          = null;
+    this.spoolChannel       = null;
+    this.spoolBuf           = ByteBuffer.allocate( SPOOL_BUF_SIZE );
   }
 
 
-  public void addSamples( int sampleCount, boolean phase ) throws IOException
+  public synchronized void addSamples(
+				int     sampleCount,
+				boolean phase ) throws IOException
   {
     if( sampleCount > 0 ) {
       if( (this.sampleCount > 0) || (this.pendingSampleCount > 0) ) {
@@ -145,28 +181,48 @@ public class AudioData
   }
 
 
-  public AudioInputStream createAudioInputStream()
+  public synchronized AudioInputStream createAudioInputStream()
+							throws IOException
   {
     return new AudioInputStream(
 			new CSWInputStream(
-				this.cswBuf.createInputStream(),
+				openSpoolInputStream(),
 				this.initialPhase ),
 			createAudioFormat( this.sampleRate ),
 			this.sampleCount );
   }
 
 
-  public void finish( int trailingSampleCount ) throws IOException
+  /*
+   * Die Methode gibt die temporaere Datei frei.
+   * Anschliessend koennen die Audiodaten nicht mehr gelesen werden.
+   */
+  public synchronized void dispose()
+  {
+    JTCUtil.closeSilently( this.spoolChannel );
+    this.spoolChannel = null;
+    if( this.spoolFile != null ) {
+      if( !this.spoolFile.delete() ) {
+	this.spoolFile.deleteOnExit();
+      }
+      this.spoolFile = null;
+    }
+  }
+
+
+  public synchronized void finish( int trailingSampleCount )
+							throws IOException
   {
     if( this.pendingSampleCount < trailingSampleCount ) {
       writePendingSamplesToCSWBuf();
     }
     this.pendingSampleCount = trailingSampleCount;
     writePendingSamplesToCSWBuf();
+    flushSpoolBuf();
   }
 
 
-  public long getSampleCount()
+  public synchronized long getSampleCount()
   {
     return this.sampleCount;
   }
@@ -218,7 +274,7 @@ public class AudioData
   }
 
 
-  public void writeToFile( File file ) throws IOException
+  public synchronized void writeToFile( File file ) throws IOException
   {
     boolean done  = false;
     String  fName = file.getName();
@@ -276,6 +332,25 @@ public class AudioData
   }
 
 
+  private void flushSpoolBuf() throws IOException
+  {
+    if( this.spoolBuf.position() > 0 ) {
+      if( this.spoolChannel == null ) {
+	this.spoolFile = File.createTempFile( "jtcemu", ".csw" );
+	this.spoolFile.deleteOnExit();
+	this.spoolChannel = (new RandomAccessFile(
+					this.spoolFile,
+					"rw" )).getChannel();
+      }
+      this.spoolBuf.flip();
+      while( this.spoolBuf.hasRemaining() ) {
+	this.spoolChannel.write( this.spoolBuf );
+      }
+      this.spoolBuf.clear();
+    }
+  }
+
+
   // CSW-Signatur wurde bereits gelesen
   private static AudioInputStream getAudioInputStreamFromCSW(
 					InputStream in ) throws IOException
@@ -422,6 +497,27 @@ public class AudioData
   }
 
 
+  /*
+   * Die Methode oeffnet einen Eingabestrom auf die bisher
+   * geschriebenen CSW-Daten.
+   * Da die temporaere Datei nur angehaengt wird,
+   * bleibt der gelesene Bereich unveraendert.
+   */
+  private InputStream openSpoolInputStream() throws IOException
+  {
+    flushSpoolBuf();
+    InputStream in = null;
+    if( this.spoolChannel != null ) {
+      in = new BufferedInputStream(
+		new FileInputStream( this.spoolFile ),
+		SPOOL_BUF_SIZE );
+    } else {
+      in = new ByteArrayInputStream( new byte[ 0 ] );
+    }
+    return in;
+  }
+
+
   private static void throwUnsupportedCompression( int v ) throws IOException
   {
     throw new IOException(
@@ -452,7 +548,8 @@ public class AudioData
 
   private void writeToCSWFile( File file ) throws IOException
   {
-    OutputStream out = null;
+    flushSpoolBuf();
+    FileOutputStream out = null;
     try {
       out = new FileOutputStream( file );
 
@@ -481,8 +578,23 @@ public class AudioData
       // Encoding Application
       writeFixLengthASCII( out, AppContext.getAppName(), 16, 0 );
 
-      // CSW-Daten
-      this.cswBuf.writeTo( out );
+      // CSW-Daten direkt aus der temporaeren Datei kopieren
+      if( this.spoolChannel != null ) {
+	FileChannel dstChannel = out.getChannel();
+	long        size       = this.spoolChannel.size();
+	long        pos        = 0;
+	while( pos < size ) {
+	  long n = this.spoolChannel.transferTo(
+						pos,
+						size - pos,
+						dstChannel );
+	  if( n <= 0 ) {
+	    throw new IOException( "Audiodaten konnten nicht"
+					+ " vollst\u00E4ndig kopiert werden" );
+	  }
+	  pos += n;
+	}
+      }
 
       // fertig
       out.close();
@@ -528,16 +640,23 @@ public class AudioData
 
   private void writePendingSamplesToCSWBuf() throws IOException
   {
+    if( this.sampleCount + this.pendingSampleCount > MAX_SAMPLE_COUNT ) {
+      throw new IOException(
+			"Menge der gespeicherten Audiodaten zu gro\u00DF" );
+    }
+    if( this.spoolBuf.remaining() < 5 ) {
+      flushSpoolBuf();
+    }
     if( this.pendingSampleCount > 0xFF ) {
-      this.cswBuf.write( 0 );
-      writeInt4( this.cswBuf, this.pendingSampleCount );
+      long v = this.pendingSampleCount;
+      this.spoolBuf.put( (byte) 0 );
+      for( int i = 0; i < 4; i++ ) {
+	this.spoolBuf.put( (byte) v );
+	v >>= 8;
+      }
     } else {
-      this.cswBuf.write( (int) this.pendingSampleCount );
+      this.spoolBuf.put( (byte) this.pendingSampleCount );
     }
     this.sampleCount += this.pendingSampleCount;
-    if( this.sampleCount > Integer.MAX_VALUE ) {
-      throw new IOException(
-			"Menge der gespeicherten Audiodaten zu gro\u00DF" );
-    }
   }
 }
@@ -37,7 +37,7 @@ public abstract class AudioIO
   protected Z8                 z8;
   protected int                cyclesPerSecond;
   protected int                frameRate;
-  protected boolean            stopRequested;
+  protected volatile boolean   stopRequested;
 
   private static volatile DataLine cpuSyncLine = null;
 
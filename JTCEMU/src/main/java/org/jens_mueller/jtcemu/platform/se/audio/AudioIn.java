@@ -18,21 +18,18 @@ import java.io.IOException;
 
 public abstract class AudioIn extends AudioIO implements AudioReader
 {
-  protected int     minValue;
-  protected int     maxValue;
   protected int     sampleSizeInBits;
   protected int     sampleSizeInBytes;
   protected boolean bigEndian;
   protected boolean dataSigned;
 
+  private PhaseDetector phaseDetector;
   private float        thresholdRelValue;
   private int          thresholdAbsValue;
   private volatile int selectedChannel;
   private int          sampleBitMask;
   private int          sampleSignMask;
   private int          channels;
-  private int          adjustPeriodLen;
-  private int          adjustPeriodCnt;
   private int          volStMinValue;
   private int          volStMaxValue;
   private int          volStDecPerFrame;
@@ -51,21 +48,18 @@ public abstract class AudioIn extends AudioIO implements AudioReader
 		float      thresholdRelValue )
   {
     super( audioInFld, z8 );
+    this.phaseDetector     = new PhaseDetector();
     this.thresholdRelValue = thresholdRelValue;
     this.thresholdAbsValue = 0;
     this.volStDecPerFrame  = 0;
     this.volStMinValue     = 0;
     this.volStMaxValue     = 0;
-    this.minValue          = 0;
-    this.maxValue          = 0;
     this.selectedChannel   = 0;
     this.sampleBitMask     = 0;
     this.sampleSignMask    = 0;
     this.sampleSizeInBits  = 0;
     this.sampleSizeInBytes = 0;
     this.channels          = 0;
-    this.adjustPeriodLen   = 0;
-    this.adjustPeriodCnt   = 0;
     this.begCycles         = 0;
     this.lastCycles        = 0;
     this.maxCycles         = 0;
@@ -90,6 +84,16 @@ public abstract class AudioIn extends AudioIO implements AudioReader
   }
 
 
+  /*
+   * Position des zuletzt gelesenen Frames in dem Puffer,
+   * den readFrame() zurueckgibt
+   */
+  protected int getFrameOffset()
+  {
+    return 0;
+  }
+
+
   public int getChannels()
   {
     return this.channels;
@@ -109,7 +113,8 @@ public abstract class AudioIn extends AudioIO implements AudioReader
     int    value     = -1;
     byte[] frameData = readFrame();
     if( frameData != null ) {
-      int offset = this.selectedChannel * this.sampleSizeInBytes;
+      int offset = getFrameOffset()
+			+ (this.selectedChannel * this.sampleSizeInBytes);
       if( offset + this.sampleSizeInBytes <= frameData.length ) {
 	value = 0;
 	if( this.bigEndian ) {
@@ -155,19 +160,9 @@ public abstract class AudioIn extends AudioIO implements AudioReader
     this.sampleBitMask     = ((1 << sampleSizeInBits) - 1);
     this.sampleSignMask    = (1 << (sampleSizeInBits - 1));
 
-    /*
-     * Min-/Max-Regelung initialisieren
-     *
-     * Nach einer Periodenlaenge werden die Minimum- und Maximum-Werte
-     * zueinander um einen Schritt angenaehert,
-     * um so einen dynamischen Mittelwert errechnen zu koennen.
-     */
-    this.adjustPeriodLen = (int) this.frameRate / 256;
-    if( this.adjustPeriodLen < 1 ) {
-      this.adjustPeriodLen = 1;
-    }
-    this.adjustPeriodCnt  = this.adjustPeriodLen;
-    this.firstCall        = true;
+    // Min-/Max-Regelung initialisieren
+    this.phaseDetector.setFrameRate( this.frameRate );
+    this.firstCall = true;
 
     // Wertebereich der Pegelanzeige
     int mask = (1 << sampleSizeInBits);
@@ -208,16 +203,7 @@ public abstract class AudioIn extends AudioIO implements AudioReader
   {
     int v = readSamples();
     if( v != -1 ) {
-      int d = this.maxValue - this.minValue;
-      if( this.lastPhase ) {
-	if( v < this.minValue + (d / 3) ) {
-	  this.lastPhase = false;
-	}
-      } else {
-	if( v > this.maxValue - (d / 3) ) {
-	  this.lastPhase = true;
-	}
-      }
+      this.lastPhase = this.phaseDetector.updPhase( v );
     }
     return this.lastPhase;
   }
@@ -288,19 +274,6 @@ public abstract class AudioIn extends AudioIO implements AudioReader
 		  v = readFrameAndGetSample();
 		  if( v != -1 ) {
 
-		    // dynamische Mittelwertbestimmung
-		    if( this.adjustPeriodCnt > 0 ) {
-		      --this.adjustPeriodCnt;
-		    } else {
-		      this.adjustPeriodCnt = this.adjustPeriodLen;
-		      if( this.minValue < this.maxValue ) {
-			this.minValue++;
-		      }
-		      if( this.maxValue > this.minValue ) {
-			--this.maxValue;
-		      }
-		    }
-
 		    // Wenn gelesener Wert negativ ist, Zahl korrigieren
 		    if( this.dataSigned
 			&& ((v & this.sampleSignMask) != 0) )
@@ -308,13 +281,8 @@ public abstract class AudioIn extends AudioIO implements AudioReader
 		      v |= ~this.sampleBitMask;
 		    }
 
-		    // Minimum-/Maximum-Werte und Mittelwert aktualisieren
-		    if( v < this.minValue ) {
-		      this.minValue = v;
-		    }
-		    else if( v > this.maxValue ) {
-		      this.maxValue = v;
-		    }
+		    // dynamische Mittelwertbestimmung
+		    this.phaseDetector.addSample( v );
 		    rv = v;
 		  }
 		} while( --i > 0 );
@@ -22,6 +22,13 @@ import java.io.IOException;
 
 public class AudioInFile extends AudioIn
 {
+  /*
+   * Die Audiodaten werden blockweise gelesen,
+   * damit bei hoher Emulationsgeschwindigkeit
+   * nicht fuer jedes einzelne Frame der Stream aufgerufen wird.
+   */
+  private static final int FRAMES_PER_BLOCK = 0x1000;
+
   private static final String TEXT_NO_MONITOR_LINE =
 	"Audiokanal zum Mith\u00F6ren konnte nicht ge\u00F6ffnet werden.";
 
@@ -30,7 +37,11 @@ public class AudioInFile extends AudioIn
 
   private File             file;
   private AudioInputStream in;
-  private byte[]           frameBuf;
+  private byte[]           blockBuf;
+  private int              blockLen;
+  private int              frameSize;
+  private int              frameOffs;
+  private int              nextFrameOffs;
   private long             framePos;
   private long             frameLen;
   private volatile boolean pause;
@@ -52,7 +63,11 @@ public class AudioInFile extends AudioIn
     super( audioInFld, z8, thresholdValue );
     this.file           = file;
     this.in             = null;
-    this.frameBuf       = null;
+    this.blockBuf       = null;
+    this.blockLen       = 0;
+    this.frameSize      = 0;
+    this.frameOffs      = 0;
+    this.nextFrameOffs  = 0;
     this.framePos       = 0;
     this.frameLen       = -1;
     this.pause          = true;
@@ -101,10 +116,14 @@ public class AudioInFile extends AudioIn
   protected void checkOpenSource() throws IOException
   {
     if( (this.in == null) && !this.stopRequested ) {
-      this.in         = AudioData.openFile( this.file );
-      AudioFormat fmt = this.in.getFormat();
-      this.frameLen   = this.in.getFrameLength();
-      this.frameBuf   = new byte[ fmt.getFrameSize() ];
+      this.in            = AudioData.openFile( this.file );
+      AudioFormat fmt    = this.in.getFormat();
+      this.frameLen      = this.in.getFrameLength();
+      this.frameSize     = Math.max( fmt.getFrameSize(), 1 );
+      this.blockBuf      = new byte[ this.frameSize * FRAMES_PER_BLOCK ];
+      this.blockLen      = 0;
+      this.frameOffs     = 0;
+      this.nextFrameOffs = 0;
       setAudioFormat( fmt );
     }
   }
@@ -135,13 +154,25 @@ public class AudioInFile extends AudioIn
   }
 
 
+  @Override
+  protected int getFrameOffset()
+  {
+    return this.frameOffs;
+  }
+
+
   @Override
   protected byte[] readFrame() throws IOException, InterruptedException
   {
     AudioInputStream in  = this.in;
-    byte[]           buf = this.frameBuf;
+    byte[]           buf = this.blockBuf;
     if( (in != null) && (buf != null) && !this.pause ) {
-      if( in.read( buf ) == buf.length ) {
+      if( this.nextFrameOffs + this.frameSize > this.blockLen ) {
+	fillBlock( in, buf );
+      }
+      if( this.nextFrameOffs + this.frameSize <= this.blockLen ) {
+	this.frameOffs     = this.nextFrameOffs;
+	this.nextFrameOffs += this.frameSize;
 	this.framePos++;
       } else {
 	requestStop();
@@ -291,6 +322,27 @@ public class AudioInFile extends AudioIn
 
 	/* --- private Methoden --- */
 
+  /*
+   * Die Methode liest den naechsten Block.
+   * Ein unvollstaendiges Frame am Dateiende wird ignoriert.
+   */
+  private void fillBlock(
+			AudioInputStream in,
+			byte[]           buf ) throws IOException
+  {
+    int len = 0;
+    while( len < buf.length ) {
+      int n = in.read( buf, len, buf.length - len );
+      if( n <= 0 ) {
+	break;
+      }
+      len += n;
+    }
+    this.blockLen      = len - (len % this.frameSize);
+    this.nextFrameOffs = 0;
+  }
+
+
   private void closeMonitor( String errorText )
   {
     if( this.monitorLine != null ) {
@@ -6,38 +6,94 @@
  * Ausgangsseitige Emulation
  * des Kassettenrecorderanschlusses und des Lautsprechers
  *
- * Die Ausgabe erfolgt als Rechteckkurve
+ * Die Ausgabe erfolgt als Rechteckkurve,
+ * auf den Audiokanal bandbegrenzt mit 16 Bit (siehe BandLimitedSynth).
+ *
+ * Der CPU-Emulations-Thread traegt nur die Phasenwechsel
+ * mit ihrer Taktzyklenzahl in einen Ringpuffer ein.
+ * Die Samples werden in einem eigenen Thread erzeugt,
+ * sodass die CPU-Emulation nie auf den Audiokanal warten muss.
+ * Gibt es nichts zu tun, legt sich der Audio-Thread
+ * fuer hoechstens PARK_NANOS schlafen
+ * und wird bei einem neuen Phasenwechsel sofort geweckt.
  */
 
 package org.jens_mueller.jtcemu.platform.se.audio;
 
+import org.jens_mueller.jtcemu.base.AppContext;
 import org.jens_mueller.jtcemu.base.AudioWriter;
+import org.jens_mueller.jtcemu.platform.se.metrics.EmuMetrics;
 import org.jens_mueller.z8.Z8;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.Mixer;
 import javax.sound.sampled.SourceDataLine;
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 
-public class AudioOut extends AudioIO implements AudioWriter
+public class AudioOut extends AudioIO implements AudioWriter, Runnable
 {
   public static final int PHASE_0_VALUE = 0;
   public static final int PHASE_1_VALUE = 200;
 
-  private boolean        lineRequested;
-  private boolean        firstCall;
-  private boolean        firstPhase;
-  private boolean        recordingEnabled;
-  private long           begCycles;
-  private long           lastCycles;
-  private long           maxCycles;
-  private long           totalFrameCnt;
-  private int            audioPos;
-  private byte[]         audioBuf;
-  private Mixer          mixer;
-  private SourceDataLine dataLine;
-  private AudioData      recordedData;
+  /*
+   * Groesse des Ringpuffers fuer die Phasenwechsel (Zweierpotenz),
+   * Jeder Eintrag enthaelt die Taktzyklenzahl (Bit 1 bis 63)
+   * und die neue Phase (Bit 0).
+   */
+  private static final int EVENT_BUF_SIZE = 0x10000;
+  private static final int EVENT_BUF_MASK = EVENT_BUF_SIZE - 1;
+
+  /*
+   * Liegt die Ausgabe auf den Audiokanal mehr als 1/MAX_DELAY_DIV Sekunden
+   * hinter der Emulation zurueck, werden Samples verworfen,
+   * damit die Verzoegerung nicht immer groesser wird.
+   */
+  private static final int MAX_DELAY_DIV = 4;
+
+  /*
+   * Auch ohne Phasenwechsel muessen mit fortschreitender Zeit
+   * Samples erzeugt werden,
+   * weshalb der Audio-Thread spaetestens nach dieser Zeit aufwacht.
+   */
+  private static final long PARK_NANOS = 5000000L;
+
+  /*
+   * Durch die bandbegrenzte Ausgabe genuegt fuer den Audiokanal
+   * eine niedrige Abtastrate, weshalb diese bevorzugt wird.
+   */
+  private static final int[] preferredOutLineFrameRates = {
+					22050, 24000, 44100, 48000 };
+
+  // Abstand zwischen den beiden Pegeln bei 16 Bit
+  private static final int LINE_AMPLITUDE = 0x6000;
+
+  private volatile boolean        lineRequested;
+  private boolean                 firstCall;
+  private boolean                 firstPhase;
+  private boolean                 lastPhase;
+  private boolean                 recordingEnabled;
+  private long                    begCycles;
+  private long                    maxCycles;
+  private long                    totalFrameCnt;
+  private long                    lineSkipFrames;
+  private boolean                 lineWritten;
+  private int                     audioPos;
+  private byte[]                  audioBuf;
+  private Mixer                   mixer;
+  private volatile SourceDataLine dataLine;
+  private AudioData               recordedData;
+  private BandLimitedSynth        synth;
+  private long[]                  eventBuf;
+  private AtomicInteger           eventWritePos;
+  private AtomicInteger           eventReadPos;
+  private AtomicLong              curCycles;
+  private boolean                 eventBufOverflow;
+  private volatile boolean        threadParked;
+  private volatile Thread         thread;
 
 
   protected AudioOut(
@@ -52,15 +108,25 @@ public class AudioOut extends AudioIO implements AudioWriter
     this.lineRequested    = lineRequested;
     this.mixer            = mixer;
     this.firstCall        = true;
+    this.lastPhase        = false;
     this.recordingEnabled = false;
     this.begCycles        = 0;
-    this.lastCycles       = 0;
     this.maxCycles        = 0;
     this.totalFrameCnt    = 0;
+    this.lineSkipFrames   = 0;
+    this.lineWritten      = false;
     this.audioPos         = 0;
     this.audioBuf         = null;
     this.dataLine         = null;
     this.recordedData     = null;
+    this.synth            = null;
+    this.eventBuf         = new long[ EVENT_BUF_SIZE ];
+    this.eventWritePos    = new AtomicInteger( 0 );
+    this.eventReadPos     = new AtomicInteger( 0 );
+    this.curCycles        = new AtomicLong( 0 );
+    this.eventBufOverflow = false;
+    this.threadParked     = false;
+    this.thread           = null;
 
     if( record ) {
       setAudioFormat( frameRate > 0 ? frameRate : 44100, 1, 1 );
@@ -104,77 +170,161 @@ public class AudioOut extends AudioIO implements AudioWriter
   }
 
 
+	/* --- ueberschriebene Methoden --- */
+
+  @Override
+  public void requestStop()
+  {
+    super.requestStop();
+    Thread thread = this.thread;
+    if( thread != null ) {
+      LockSupport.unpark( thread );
+    }
+  }
+
+
 	/* --- AudioWriter --- */
 
   /*
    * Die Methode wird im CPU-Emulations-Thread aufgerufen
    * und besagt, dass am entsprechenden Ausgabetor ein Wert anliegt.
+   * Sie blockiert nie, sondern traegt nur Phasenwechsel
+   * in den Ringpuffer ein.
+   * Laeuft der Ringpuffer ueber, gehen Phasenwechsel verloren,
+   * was in den Kennzahlen einmal je Ueberlauf gezaehlt wird.
    */
   @Override
   public void writePhase( boolean phase )
   {
-    try {
+    long cycles = this.z8.getTotalCycles();
+    if( this.firstCall ) {
       if( this.stopRequested ) {
+	checkFireFinished();
+      } else {
+	this.firstCall  = false;
+	this.firstPhase = phase;
+	this.lastPhase  = phase;
+	this.begCycles  = cycles;
+	this.curCycles.set( cycles );
+	Thread thread = new Thread(
+				this,
+				AppContext.getAppName() + " audio out" );
+	thread.setDaemon( true );
+	this.thread = thread;
+	thread.start();
+      }
+    } else if( phase != this.lastPhase ) {
+      int pos = this.eventWritePos.get();
+      if( pos - this.eventReadPos.get() < EVENT_BUF_SIZE ) {
+	this.eventBuf[ pos & EVENT_BUF_MASK ] = (cycles << 1)
+							| (phase ? 1L : 0L);
+	this.eventWritePos.set( pos + 1 );
+	this.lastPhase        = phase;
+	this.eventBufOverflow = false;
+	if( this.threadParked ) {
+	  LockSupport.unpark( this.thread );
+	}
+      } else if( !this.eventBufOverflow ) {
+	this.eventBufOverflow = true;
+	EmuMetrics.audioEventOverflow();
+      }
+    }
+    this.curCycles.lazySet( cycles );
+  }
+
+
+	/* --- Runnable --- */
+
+  /*
+   * Die Methode laeuft im Audio-Thread,
+   * liest die Phasenwechsel aus dem Ringpuffer
+   * und erzeugt daraus die Samples.
+   */
+  @Override
+  public void run()
+  {
+    try {
+      if( this.lineRequested && (this.dataLine == null) ) {
+	this.dataLine      = openSourceDataLine();
 	this.lineRequested = false;
+      }
+      this.maxCycles = 0x7FFFFFFF00000000L / (this.frameRate + 1);
+      this.audioFld.fireSetVolumeLimits( 0, 0xFF );
+      boolean phase = this.firstPhase;
+      if( this.dataLine != null ) {
+	this.synth = new BandLimitedSynth(
+				this.frameRate,
+				this.cyclesPerSecond,
+				LINE_AMPLITUDE,
+				phase );
+      }
+      while( !this.stopRequested ) {
+	long cycles = this.curCycles.get();
 	if( this.dataLine != null ) {
-	  closeDataLine( this.dataLine );
-	  this.dataLine = null;
+	  checkLineDelay( cycles );
 	}
-	if( this.recordedData != null ) {
-	  // 100 ms Pause am Ende
-	  if( this.recordingEnabled ) {
-	    this.recordedData.finish( this.frameRate / 10 );
-	    this.recordingEnabled = false;
+	int     readPos = this.eventReadPos.get();
+	int     endPos  = this.eventWritePos.get();
+	boolean written = false;
+	while( !this.stopRequested && (readPos != endPos) ) {
+	  long event       = this.eventBuf[ readPos & EVENT_BUF_MASK ];
+	  long eventCycles = event >>> 1;
+	  written |= writeSamplesUntil( eventCycles, phase );
+	  phase = ((event & 1L) != 0);
+	  if( this.synth != null ) {
+	    this.synth.addStep( eventCycles - this.begCycles, phase );
 	  }
+	  readPos++;
+	  this.eventReadPos.lazySet( readPos );
 	}
-	checkFireFinished();
-      } else {
-	if( this.lineRequested && (this.dataLine == null) ) {
-	  this.dataLine      = openSourceDataLine();
-	  this.lineRequested = false;
+	if( !this.stopRequested ) {
+	  written |= writeSamplesUntil( cycles, phase );
 	}
-	if( this.firstCall ) {
-	  this.firstCall  = false;
-	  this.firstPhase = phase;
-	  this.begCycles  = this.z8.getTotalCycles();
-	  this.lastCycles = this.begCycles;
-	  this.maxCycles  = 0x7FFFFFFF00000000L / (this.frameRate + 1);
-	  this.audioFld.fireSetVolumeLimits( 0, 0xFF );
-	} else {
-	  long curCycles = this.z8.getTotalCycles();
-	  long allCycles = curCycles - this.begCycles;
-	  if( (allCycles < 0) || (allCycles > this.maxCycles) ) {
-	    requestStop();
-	  } else {
-	    int nFrames = (int) ((allCycles * this.frameRate
-						/ this.cyclesPerSecond)
-					- this.totalFrameCnt);
-	    if( nFrames > 0 ) {
-	      long diffCycles = curCycles - this.lastCycles;
-	      if( diffCycles > 0 ) {
-		if( this.dataLine != null ) {
-		  this.z8.setSpeedUnlimitedFor( (int) (diffCycles * 8) );
-		}
-		writeSamples( nFrames, phase );
-		this.totalFrameCnt += nFrames;
-		this.lastCycles = curCycles;
-	      }
-	    }
+	if( !written ) {
+	  /*
+	   * Nach dem Setzen von threadParked wird nochmals geprueft,
+	   * damit ein gerade eingetragener Phasenwechsel
+	   * nicht verschlafen wird.
+	   */
+	  this.threadParked = true;
+	  if( !this.stopRequested
+	      && (this.eventReadPos.get() == this.eventWritePos.get()) )
+	  {
+	    LockSupport.parkNanos( this, PARK_NANOS );
 	  }
+	  this.threadParked = false;
 	}
       }
     }
     catch( IOException ex ) {
       setErrorText( ex.getMessage() );
-      requestStop();
     }
     catch( Exception ex ) {
       /*
        * z.B. InterruptedException bei Programmbeendigung oder
        * eine andere Exception bei Abziehen eines aktiven USB-Audiogeraetes
        */
-      requestStop();
     }
+    this.stopRequested = true;
+    this.lineRequested = false;
+    SourceDataLine line = this.dataLine;
+    if( line != null ) {
+      closeDataLine( line );
+      this.dataLine = null;
+    }
+    if( this.recordedData != null ) {
+      // 100 ms Pause am Ende
+      if( this.recordingEnabled ) {
+	try {
+	  this.recordedData.finish( this.frameRate / 10 );
+	}
+	catch( IOException ex ) {
+	  setErrorText( ex.getMessage() );
+	}
+	this.recordingEnabled = false;
+      }
+    }
+    checkFireFinished();
   }
 
 
@@ -186,8 +336,8 @@ public class AudioOut extends AudioIO implements AudioWriter
     if( this.frameRate > 0 ) {
       line = openSourceDataLine( this.frameRate );
     } else {
-      for( int i = 0; i < preferredLineFrameRates.length; i++ ) {
-	line = openSourceDataLine( preferredLineFrameRates[ i ] );
+      for( int i = 0; i < preferredOutLineFrameRates.length; i++ ) {
+	line = openSourceDataLine( preferredOutLineFrameRates[ i ] );
 	if( line != null ) {
 	  break;
 	}
@@ -196,7 +346,7 @@ public class AudioOut extends AudioIO implements AudioWriter
     if( line != null ) {
       if( this.frameRate == 0 ) {
 	/*
-	 * Der Audiokanal selbst hat zwar 8 Bit,
+	 * Der Audiokanal selbst hat zwar 16 Bit,
 	 * aber der logische Informationsgehalt nur 1 Bit.
 	 * Deshalb soll auch nur 1 Bit angezeigt werden.
          */
@@ -211,8 +361,10 @@ public class AudioOut extends AudioIO implements AudioWriter
        * Damit die Implementierung des Blockens ausserhalb
        * der SourceDataLine.write-Methode funktioniert,
        * muss der externe Puffer kleiner als der interne sein.
+       * Ein Sample belegt 2 Bytes.
        */
-      this.audioBuf = new byte[ Math.min( line.getBufferSize() / 4, 512 ) ];
+      this.audioBuf = new byte[
+			Math.min( line.getBufferSize() / 4, 512 ) & ~1 ];
       this.audioPos = 0;
     } else {
       setErrorText( ERROR_NO_LINE );
@@ -226,11 +378,62 @@ public class AudioOut extends AudioIO implements AudioWriter
 				int frameRate ) throws IOException
   {
     return openSourceDataLine(
-		new AudioFormat( (float) frameRate, 8, 1, false, false ),
+		new AudioFormat( (float) frameRate, 16, 1, true, false ),
 		this.mixer );
   }
 
 
+  /*
+   * Die Methode erzeugt die Samples bis zu der uebergebenen
+   * Taktzyklenzahl.
+   *
+   * Rueckgabewert: true, wenn Samples erzeugt wurden
+   */
+  private boolean writeSamplesUntil(
+			long    cycles,
+			boolean phase )
+		throws IOException, InterruptedException
+  {
+    boolean rv        = false;
+    long    allCycles = cycles - this.begCycles;
+    if( (allCycles < 0) || (allCycles > this.maxCycles) ) {
+      requestStop();
+    } else {
+      long nFrames = (allCycles * this.frameRate / this.cyclesPerSecond)
+						- this.totalFrameCnt;
+      while( nFrames > 0 ) {
+	int n = (int) Math.min( nFrames, 0x10000L );
+	writeSamples( n, phase );
+	nFrames            -= n;
+	this.totalFrameCnt += n;
+	rv                  = true;
+      }
+    }
+    return rv;
+  }
+
+
+  /*
+   * Wenn die Emulation schneller als in Echtzeit laeuft
+   * oder der Audio-Thread nicht hinterherkommt,
+   * werden die zu alten Samples nicht auf den Audiokanal ausgegeben.
+   * Die Aufzeichnung bleibt dagegen vollstaendig.
+   */
+  private void checkLineDelay( long cycles )
+  {
+    long allCycles = cycles - this.begCycles;
+    if( (allCycles >= 0) && (allCycles <= this.maxCycles) ) {
+      long delayFrames = (allCycles * this.frameRate / this.cyclesPerSecond)
+				- this.totalFrameCnt
+				- this.lineSkipFrames;
+      int maxDelayFrames = this.frameRate / MAX_DELAY_DIV;
+      if( delayFrames > maxDelayFrames ) {
+	this.lineSkipFrames += (delayFrames - (maxDelayFrames / 2));
+      }
+    }
+  }
+
+
   private void writeSamples(
 			int     nSamples,
 			boolean phase )
@@ -242,8 +445,18 @@ public class AudioOut extends AudioIO implements AudioWriter
     // Daten in Audiokanal schreiben
     SourceDataLine line     = this.dataLine;
     byte[]         audioBuf = this.audioBuf;
-    if( (line != null) && (audioBuf != null) && (nSamples > 0) ) {
+    BandLimitedSynth synth  = this.synth;
+    if( (line != null) && (audioBuf != null) && (synth != null) ) {
       for( int i = 0; i < nSamples; i++ ) {
+	/*
+	 * Auch verworfene Samples muessen erzeugt werden,
+	 * damit die Pegelwechsel im Differenzenpuffer abgearbeitet werden.
+	 */
+	int sample = synth.nextSample();
+	if( this.lineSkipFrames > 0 ) {
+	  --this.lineSkipFrames;
+	  continue;
+	}
 	if( this.audioPos >= audioBuf.length ) {
 	  if( line.available() < audioBuf.length ) {
 	    int n = 0;
@@ -260,16 +473,29 @@ public class AudioOut extends AudioIO implements AudioWriter
 	      }
 	    } while( line.available() < audioBuf.length );
 	  }
-	  if( line != null ) {
-	    if( this.stopRequested ) {
-	      line.flush();
-	    } else {
-	      line.write( audioBuf, 0, audioBuf.length );
+	  if( line == null ) {
+	    // Audiokanal geschlossen, nur noch aufzeichnen
+	    break;
+	  }
+	  if( this.stopRequested ) {
+	    line.flush();
+	  } else {
+	    /*
+	     * Ist der interne Puffer bereits vollstaendig leer,
+	     * ist die Ausgabe abgerissen.
+	     */
+	    if( this.lineWritten
+		&& (line.available() >= line.getBufferSize()) )
+	    {
+	      EmuMetrics.audioUnderrun();
 	    }
+	    line.write( audioBuf, 0, audioBuf.length );
+	    this.lineWritten = true;
 	  }
 	  this.audioPos = 0;
 	}
-	audioBuf[ this.audioPos++ ] = (byte) value;
+	audioBuf[ this.audioPos++ ] = (byte) sample;
+	audioBuf[ this.audioPos++ ] = (byte) (sample >> 8);
       }
     }
 
@@ -371,6 +371,7 @@ public class AudioOutFld
       this.recordedData = this.audioOut.getRecordedData();
       if( this.recordedData != null ) {
 	if( this.recordedData.getSampleCount() <= 0 ) {
+	  this.recordedData.dispose();
 	  this.recordedData = null;
 	}
       }
@@ -401,6 +402,10 @@ public class AudioOutFld
 						getSelectedMixer()
 						: null,
 					recRequested );
+	  if( this.recordedData != null ) {
+	    cancelAudioPlayer();
+	    this.recordedData.dispose();
+	  }
 	  this.recordedData  = null;
 	  this.recordedSaved = false;
 	  this.audioOut      = audioOut;
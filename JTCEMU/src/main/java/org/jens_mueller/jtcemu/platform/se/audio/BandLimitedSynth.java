@@ -0,0 +1,158 @@
+/*
+ * Jugend+Technik-Computer-Emulator
+ *
+ * Bandbegrenzte Erzeugung einer Rechteckkurve
+ *
+ * Jeder Pegelwechsel wird nicht als harter Sprung,
+ * sondern als tiefpassgefilterter Impuls (gefensterte si-Funktion)
+ * in einen Differenzenpuffer eingetragen.
+ * Die Samples entstehen durch Aufsummieren dieses Puffers.
+ * Die Position des Impulses wird dabei mit Bruchteilen
+ * eines Samples beruecksichtigt,
+ * sodass auch bei niedrigen Abtastraten keine Aliasing-Effekte
+ * durch das Runden auf ganze Samples entstehen.
+ *
+ * Die Ausgabe ist gegenueber den Pegelwechseln
+ * um KERNEL_LEN / 2 Samples verzoegert.
+ */
+
+package org.jens_mueller.jtcemu.platform.se.audio;
+
+
+public class BandLimitedSynth
+{
+  // Anzahl der Samples, auf die ein Pegelwechsel verteilt wird
+  public static final int KERNEL_LEN = 16;
+
+  // Aufloesung innerhalb eines Samples
+  private static final int PHASE_BITS = 6;
+  private static final int PHASES     = 1 << PHASE_BITS;
+
+  // Festkommaformat der Impulstabelle
+  private static final int KERNEL_BITS = 15;
+  private static final int KERNEL_UNIT = 1 << KERNEL_BITS;
+
+  // Grenzfrequenz bezogen auf die Abtastrate
+  private static final double CUTOFF = 0.45;
+
+  private static final int BUF_SIZE = 64;
+  private static final int BUF_MASK = BUF_SIZE - 1;
+
+  private static int[][] kernels = null;
+
+  private int   frameRate;
+  private int   cyclesPerSecond;
+  private int   amplitude;
+  private int[] deltaBuf;
+  private long  framePos;
+  private int   sum;
+
+
+  /*
+   * amplitude: Abstand zwischen den beiden Pegeln,
+   *            die Ausgabe liegt symmetrisch um 0
+   */
+  public BandLimitedSynth(
+			int     frameRate,
+			int     cyclesPerSecond,
+			int     amplitude,
+			boolean phase )
+  {
+    this.frameRate       = frameRate;
+    this.cyclesPerSecond = cyclesPerSecond;
+    this.amplitude       = amplitude;
+    this.deltaBuf        = new int[ BUF_SIZE ];
+    this.framePos        = 0;
+    this.sum             = (phase ? amplitude : -amplitude)
+					* (KERNEL_UNIT / 2);
+    createKernels();
+  }
+
+
+  /*
+   * Die Methode traegt einen Pegelwechsel ein.
+   * Die Taktzyklenzahl ist relativ zum Beginn der Ausgabe
+   * und darf nicht vor dem naechsten auszugebenden Sample liegen.
+   * Da der Differenzenpuffer nur BUF_SIZE Samples fasst,
+   * darf sie auch hoechstens BUF_SIZE - KERNEL_LEN Samples
+   * danach liegen, d.h., die Samples bis zum Pegelwechsel
+   * muessen vorher abgeholt werden (siehe AudioOut).
+   */
+  public void addStep( long cycles, boolean phase )
+  {
+    long t        = cycles * this.frameRate;
+    long frameIdx = t / this.cyclesPerSecond;
+    int  phaseIdx = (int) ((t % this.cyclesPerSecond) * PHASES
+						/ this.cyclesPerSecond);
+    if( frameIdx >= this.framePos ) {
+      int[] kernel = kernels[ phaseIdx ];
+      int   delta  = (phase ? this.amplitude : -this.amplitude);
+      int   pos    = (int) frameIdx;
+      for( int i = 0; i < KERNEL_LEN; i++ ) {
+	this.deltaBuf[ (pos + i) & BUF_MASK ] += delta * kernel[ i ];
+      }
+    }
+  }
+
+
+  /*
+   * Die Methode liefert das naechste Sample
+   * als vorzeichenbehafteten Wert.
+   */
+  public int nextSample()
+  {
+    int idx = (int) this.framePos & BUF_MASK;
+    this.sum += this.deltaBuf[ idx ];
+    this.deltaBuf[ idx ] = 0;
+    this.framePos++;
+    return this.sum >> KERNEL_BITS;
+  }
+
+
+	/* --- private Methoden --- */
+
+  /*
+   * Die Impulstabelle wird fuer jede Teilposition innerhalb
+   * eines Samples so normiert, dass die Summe exakt KERNEL_UNIT ergibt.
+   * Damit kehrt die Ausgabe nach jedem Pegelwechsel
+   * genau auf den Ruhepegel zurueck und es entsteht keine Drift.
+   */
+  private static synchronized void createKernels()
+  {
+    if( kernels == null ) {
+      int[][] a = new int[ PHASES ][];
+      for( int p = 0; p < PHASES; p++ ) {
+	double[] v   = new double[ KERNEL_LEN ];
+	double   sum = 0.0;
+	for( int i = 0; i < KERNEL_LEN; i++ ) {
+	  double x = (double) (i - (KERNEL_LEN / 2) + 1)
+				- ((double) p / (double) PHASES);
+	  double s = 2.0 * CUTOFF;
+	  if( x != 0.0 ) {
+	    s = Math.sin( 2.0 * Math.PI * CUTOFF * x ) / (Math.PI * x);
+	  }
+	  // Blackman-Fenster ueber die Kernel-Laenge
+	  double w = (x + (KERNEL_LEN / 2)) / KERNEL_LEN;
+	  if( (w > 0.0) && (w < 1.0) ) {
+	    s *= 0.42
+		- (0.5 * Math.cos( 2.0 * Math.PI * w ))
+		+ (0.08 * Math.cos( 4.0 * Math.PI * w ));
+	  } else {
+	    s = 0.0;
+	  }
+	  v[ i ] = s;
+	  sum += s;
+	}
+	int[] kernel = new int[ KERNEL_LEN ];
+	int   rest   = KERNEL_UNIT;
+	for( int i = 0; i < KERNEL_LEN; i++ ) {
+	  kernel[ i ] = (int) Math.round( v[ i ] * KERNEL_UNIT / sum );
+	  rest -= kernel[ i ];
+	}
+	kernel[ (KERNEL_LEN / 2) - 1 ] += rest;
+	a[ p ] = kernel;
+      }
+      kernels = a;
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * (c) 2007-2021 Jens Mueller
+ *
+ * Jugend+Technik-Computer-Emulator
+ *
+ * Ermittlung der Phase eines Audiosignals
+ * ueber eine dynamische Min-/Max-Regelung mit Hysterese
+ *
+ * Die Regelung wurde aus AudioIn herausgeloest und wird sowohl
+ * fuer die Emulation des Toneingangs als auch fuer das Dekodieren
+ * von Sound- und Tape-Dateien verwendet.
+ */
+
+package org.jens_mueller.jtcemu.platform.se.audio;
+
+
+class PhaseDetector
+{
+  private int     minValue;
+  private int     maxValue;
+  private int     adjustPeriodLen;
+  private int     adjustPeriodCnt;
+  private boolean phase;
+
+
+  PhaseDetector()
+  {
+    this.minValue        = 0;
+    this.maxValue        = 0;
+    this.adjustPeriodLen = 1;
+    this.adjustPeriodCnt = 1;
+    this.phase           = false;
+  }
+
+
+  /*
+   * Nach einer Periodenlaenge werden die Minimum- und Maximum-Werte
+   * zueinander um einen Schritt angenaehert,
+   * um so einen dynamischen Mittelwert errechnen zu koennen.
+   */
+  void setFrameRate( int frameRate )
+  {
+    this.adjustPeriodLen = Math.max( frameRate / 256, 1 );
+    this.adjustPeriodCnt = this.adjustPeriodLen;
+  }
+
+
+  /*
+   * Die Methode nimmt ein Sample mit bereits korrigiertem Vorzeichen
+   * in die Min-/Max-Regelung auf.
+   */
+  void addSample( int v )
+  {
+    if( this.adjustPeriodCnt > 0 ) {
+      --this.adjustPeriodCnt;
+    } else {
+      this.adjustPeriodCnt = this.adjustPeriodLen;
+      if( this.minValue < this.maxValue ) {
+	this.minValue++;
+      }
+      if( this.maxValue > this.minValue ) {
+	--this.maxValue;
+      }
+    }
+    if( v < this.minValue ) {
+      this.minValue = v;
+    }
+    else if( v > this.maxValue ) {
+      this.maxValue = v;
+    }
+  }
+
+
+  int getMaxValue()
+  {
+    return this.maxValue;
+  }
+
+
+  int getMinValue()
+  {
+    return this.minValue;
+  }
+
+
+  /*
+   * Die Methode ermittelt anhand eines Samples die Phase.
+   * Damit Rauschen keine Phasenwechsel erzeugt,
+   * muss der Wert dazu das untere bzw. obere Drittel
+   * des aktuellen Wertebereichs erreichen.
+   */
+  boolean updPhase( int v )
+  {
+    int d = this.maxValue - this.minValue;
+    if( this.phase ) {
+      if( v < this.minValue + (d / 3) ) {
+	this.phase = false;
+      }
+    } else {
+      if( v > this.maxValue - (d / 3) ) {
+	this.phase = true;
+      }
+    }
+    return this.phase;
+  }
+}
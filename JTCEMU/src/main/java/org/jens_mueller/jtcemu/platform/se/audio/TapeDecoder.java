@@ -0,0 +1,778 @@
+/*
+ * Jugend+Technik-Computer-Emulator
+ *
+ * Dekodieren einer Sound- oder Tape-Datei
+ *
+ * Die Datei wird in einem Durchgang blockweise gelesen
+ * und in eine Tabelle der Pegelwechsel (Flanken) umgewandelt.
+ * Anschliessend werden daraus entsprechend dem Aufzeichnungsformat
+ * des Betriebssystems direkt die Bytes und Bloecke dekodiert
+ * und die Pruefsummen kontrolliert,
+ * d.h., es muss keine Laderoutine emuliert werden.
+ * Die Zeitverhaeltnisse werden soweit moeglich aus der Aufzeichnung
+ * selbst ermittelt, damit Abweichungen der Bandgeschwindigkeit
+ * toleriert werden.
+ *
+ * Aufzeichnungsformate:
+ *
+ * 2K-System und BASIC des EMR-ES 1988 (SIO):
+ *   Serielle Uebertragung ueber die SIO des U883,
+ *   ein Bit dauert 16 Halbwellen des Tons,
+ *   1 Start-Bit, 8 Datenbits (niederwertigstes zuerst), 2 Stop-Bits,
+ *   Ton: 1-Bit bzw. Ruhepegel, Stille: 0-Bit,
+ *   die Uebertragung endet mit dem ersten Nullbyte.
+ *   Da das Format keine Pruefsumme kennt,
+ *   werden nur Rahmenfehler erkannt.
+ *
+ * Monitor des EMR-ES 1988 (ES1988):
+ *   Bloecke zu 128 Bytes aehnlich dem KC 85, je Block Vorton,
+ *   danach Blocknummer, 128 Datenbytes und Pruefsumme
+ *   (Summe der Datenbytes), vor jedem Byte ein Trennzeichen,
+ *   jedes Bit als Vollschwingung (0: 2400 Hz, 1: 1200 Hz,
+ *   Trennzeichen: 600 Hz), niederwertigstes Bit zuerst.
+ *   Block 1 ist der Dateikopf im Format einer JTC-Datei,
+ *   der letzte Block hat die Nummer FF.
+ *
+ * ES 2.3 und ES 4.0 (ES23):
+ *   Je Block Synchronimpuls (1 Einheit High, 4 Einheiten Low),
+ *   danach 133 Bytes, hoechstwertiges Bit zuerst,
+ *   jedes Bit als zwei Halbwellen zu je 1 Einheit (0-Bit)
+ *   bzw. 2 Einheiten (1-Bit).
+ *   Bytes: 2x Blocknummer, 2x Pruefsumme, Blockart, 128 Datenbytes,
+ *   Blockart FC: Datenblock, FA: letzter Datenblock mit der Anzahl
+ *   der gueltigen Datenbytes im letzten Byte, FE: Ende.
+ *   Die Pruefsumme ist die Summe ueber Blockart und Datenbytes
+ *   mit Rueckfuehrung des Uebertrags.
+ */
+
+package org.jens_mueller.jtcemu.platform.se.audio;
+
+import org.jens_mueller.jtcemu.base.JTCSys;
+import org.jens_mueller.jtcemu.base.JTCUtil;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+
+public class TapeDecoder
+{
+  public enum Format { SIO, ES1988, ES23 };
+
+
+  public static class Block
+  {
+    private int    blockNum;
+    private byte[] data;
+    private long   framePos;
+    private String errorText;
+
+    private Block( int blockNum, byte[] data, long framePos )
+    {
+      this.blockNum  = blockNum;
+      this.data      = data;
+      this.framePos  = framePos;
+      this.errorText = null;
+    }
+
+    /*
+     * Rueckgabewert:
+     *   Blocknummer bzw. -1 bei einer SIO-Uebertragung
+     */
+    public int getBlockNum()
+    {
+      return this.blockNum;
+    }
+
+    public byte[] getData()
+    {
+      return this.data;
+    }
+
+    public String getErrorText()
+    {
+      return this.errorText;
+    }
+
+    public long getFramePos()
+    {
+      return this.framePos;
+    }
+
+    public boolean hasError()
+    {
+      return this.errorText != null;
+    }
+  };
+
+
+  /*
+   * Zeiten der Aufzeichnungsformate bei 4 MHz,
+   * nur fuer das Erkennen des Formats und der Synchronisation,
+   * die Bits werden anhand der gemessenen Zeiten unterschieden
+   */
+  private static final double ES23_UNIT_SECONDS      = 500.0 / 4000000.0;
+  private static final int    ES23_BLOCK_LEN         = 133;
+  private static final int    ES1988_BLOCK_LEN       = 128;
+  private static final int    ES1988_MIN_LEADER      = 32;
+  private static final int    SIO_HALF_WAVES_PER_BIT = 16;
+  private static final int    SIO_MIN_LEADER_BITS    = 10;
+
+  private Format      format;
+  private int         frameRate;
+  private long        frameCount;
+  private int[]       edgeFrames;
+  private int         edgeCount;
+  private List<Block> blocks;
+  private byte[]      data;
+  private String      fileName;
+  private int         begAddr;
+
+
+  /*
+   * Die Methode liest und dekodiert eine Sound- oder Tape-Datei
+   * entsprechend dem Aufzeichnungsformat des Betriebssystems.
+   * Beim EMR-ES 1988 wird zuerst das Monitor-Format versucht
+   * und, wenn darin nichts gefunden wurde, das BASIC-Format.
+   */
+  public static TapeDecoder decode(
+				File          file,
+				JTCSys.OSType osType ) throws IOException
+  {
+    TapeDecoder      decoder = null;
+    AudioInputStream in      = null;
+    try {
+      in      = AudioData.openFile( file );
+      decoder = decode( in, osType );
+      in.close();
+      in = null;
+    }
+    finally {
+      JTCUtil.closeSilently( in );
+    }
+    if( decoder.edgeCount == 0 ) {
+      throw new IOException( file.getPath()
+			+ ": Datei enth\u00E4lt keine Audiodaten" );
+    }
+    return decoder;
+  }
+
+
+  public static TapeDecoder decode(
+			AudioInputStream in,
+			JTCSys.OSType    osType ) throws IOException
+  {
+    TapeDecoder decoder = new TapeDecoder();
+    decoder.readEdges( in );
+    switch( osType ) {
+      case ES23:
+      case ES40:
+	decoder.decodeES23();
+	break;
+      case ES1988:
+	decoder.decodeES1988();
+	if( decoder.blocks.isEmpty() ) {
+	  decoder.decodeSIO();
+	}
+	break;
+      default:
+	decoder.decodeSIO();
+    }
+    return decoder;
+  }
+
+
+  /*
+   * Rueckgabewert:
+   *   Anfangsadresse aus dem Dateikopf oder -1,
+   *   wenn das Format keinen Dateikopf hat
+   */
+  public int getBegAddr()
+  {
+    return this.begAddr;
+  }
+
+
+  public List<Block> getBlocks()
+  {
+    return Collections.unmodifiableList( this.blocks );
+  }
+
+
+  /*
+   * Rueckgabewert:
+   *   Nutzdaten aller Datenbloecke ohne Dateikopf,
+   *   so wie sie die Laderoutine in den Arbeitsspeicher schreibt
+   */
+  public byte[] getData()
+  {
+    return this.data;
+  }
+
+
+  public int getErrorCount()
+  {
+    int n = 0;
+    for( Block block : this.blocks ) {
+      if( block.hasError() ) {
+	n++;
+      }
+    }
+    return n;
+  }
+
+
+  public String getFileName()
+  {
+    return this.fileName;
+  }
+
+
+  public Format getFormat()
+  {
+    return this.format;
+  }
+
+
+  public long getFrameCount()
+  {
+    return this.frameCount;
+  }
+
+
+  public int getFrameRate()
+  {
+    return this.frameRate;
+  }
+
+
+	/* --- Konstruktor --- */
+
+  private TapeDecoder()
+  {
+    this.format     = null;
+    this.frameRate  = 0;
+    this.frameCount = 0;
+    this.edgeFrames = new int[ 0x10000 ];
+    this.edgeCount  = 0;
+    this.blocks     = new ArrayList<>();
+    this.data       = new byte[ 0 ];
+    this.fileName   = null;
+    this.begAddr    = -1;
+  }
+
+
+	/* --- private Methoden --- */
+
+  private void addEdge( long framePos ) throws IOException
+  {
+    if( framePos > Integer.MAX_VALUE ) {
+      throw new IOException( "Audiodatei zu lang" );
+    }
+    if( this.edgeCount >= this.edgeFrames.length ) {
+      this.edgeFrames = Arrays.copyOf(
+				this.edgeFrames,
+				this.edgeFrames.length * 2 );
+    }
+    this.edgeFrames[ this.edgeCount++ ] = (int) framePos;
+  }
+
+
+  /*
+   * ES 2.3 und ES 4.0:
+   * Der Synchronimpuls wird wie in der Laderoutine
+   * an einer Halbwelle von mindestens 3 Einheiten erkannt.
+   * Die Grenze zwischen 0- und 1-Bit liegt bei 80 Prozent
+   * der gemessenen Laenge des Synchronimpulses.
+   */
+  private void decodeES23()
+  {
+    this.format = Format.ES23;
+
+    double  minSync    = 3.0 * ES23_UNIT_SECONDS * this.frameRate;
+    double  maxSync    = 8.0 * ES23_UNIT_SECONDS * this.frameRate;
+    int     lastNum    = 0xFF;
+    int     idx        = 0;
+    boolean endFound   = false;
+    byte[]  blockBytes = new byte[ ES23_BLOCK_LEN ];
+    ByteArrayOutputStream buf = new ByteArrayOutputStream( 0x4000 );
+    while( idx + 1 < this.edgeCount ) {
+      int syncLen = getHalfWave( idx );
+      idx++;
+      if( (syncLen < minSync) || (syncLen > maxSync) ) {
+	continue;
+      }
+      int    syncIdx   = idx;
+      long   framePos  = this.edgeFrames[ idx - 1 ];
+      double threshold = 0.8 * (double) syncLen;
+      int    nBytes    = 0;
+      while( nBytes < ES23_BLOCK_LEN ) {
+	int b = 0;
+	int i = 0;
+	while( i < 8 ) {
+	  if( idx + 2 >= this.edgeCount ) {
+	    break;
+	  }
+	  int bitLen = getHalfWave( idx ) + getHalfWave( idx + 1 );
+	  if( bitLen > 2 * syncLen ) {
+	    break;
+	  }
+	  b = (b << 1) | (bitLen > threshold ? 1 : 0);
+	  idx += 2;
+	  i++;
+	}
+	if( i < 8 ) {
+	  break;
+	}
+	blockBytes[ nBytes++ ] = (byte) b;
+      }
+      int blockNum = (int) blockBytes[ 0 ] & 0xFF;
+      int blockTyp = (int) blockBytes[ 4 ] & 0xFF;
+      if( (nBytes < 5)
+	  || ((blockTyp != 0xFA) && (blockTyp != 0xFC) && (blockTyp != 0xFE))
+	  || ((blockBytes[ 0 ] != blockBytes[ 1 ])
+	      && (blockBytes[ 2 ] != blockBytes[ 3 ])) )
+      {
+	/*
+	 * kein Block, sondern z.B. Tastaturpiepen oder Rauschen,
+	 * Synchronimpuls ab der naechsten Halbwelle weiter suchen
+	 */
+	idx = syncIdx;
+	continue;
+      }
+      byte[] blockData = new byte[ 0 ];
+      if( nBytes == ES23_BLOCK_LEN ) {
+	if( blockTyp == 0xFC ) {
+	  blockData = Arrays.copyOfRange( blockBytes, 5, ES23_BLOCK_LEN );
+	} else if( blockTyp == 0xFA ) {
+	  int n = Math.min(
+			(int) blockBytes[ ES23_BLOCK_LEN - 1 ] & 0x7F,
+			ES23_BLOCK_LEN - 6 );
+	  blockData = Arrays.copyOfRange( blockBytes, 5, 5 + n );
+	}
+      }
+      Block block = new Block( blockNum, blockData, framePos );
+      if( nBytes < ES23_BLOCK_LEN ) {
+	block.errorText = String.format(
+			"Block unvollst\u00E4ndig (%d von %d Bytes)",
+			nBytes,
+			ES23_BLOCK_LEN );
+      } else {
+	int cks = 0;
+	for( int i = 4; i < ES23_BLOCK_LEN; i++ ) {
+	  cks += ((int) blockBytes[ i ] & 0xFF);
+	  if( cks > 0xFF ) {
+	    cks = (cks + 1) & 0xFF;
+	  }
+	}
+	if( (blockBytes[ 2 ] != blockBytes[ 3 ])
+	    || (((int) blockBytes[ 2 ] & 0xFF) != cks) )
+	{
+	  block.errorText = "Pr\u00FCfsummenfehler";
+	} else if( blockBytes[ 0 ] != blockBytes[ 1 ] ) {
+	  block.errorText = "Blocknummer fehlerhaft";
+	} else if( blockNum != ((lastNum + 1) & 0xFF) ) {
+	  block.errorText = String.format(
+				"Block %02X erwartet",
+				(lastNum + 1) & 0xFF );
+	}
+      }
+      lastNum = blockNum;
+      this.blocks.add( block );
+      buf.write( blockData, 0, blockData.length );
+      if( (blockTyp == 0xFE) && !block.hasError() ) {
+	endFound = true;
+	break;
+      }
+    }
+    if( !endFound && !this.blocks.isEmpty() ) {
+      Block block = new Block(
+			(lastNum + 1) & 0xFF,
+			new byte[ 0 ],
+			this.frameCount );
+      block.errorText = "Endeblock fehlt";
+      this.blocks.add( block );
+    }
+    this.data = buf.toByteArray();
+  }
+
+
+  /*
+   * EMR-ES 1988, Monitor:
+   * Die Laenge der Halbwelle eines 1-Bits wird aus dem Vorton ermittelt.
+   * Ein 0-Bit ist halb so lang, ein Trennzeichen doppelt so lang.
+   */
+  private void decodeES1988()
+  {
+    this.format = Format.ES1988;
+
+    int     lastNum    = 0;
+    int     endAddr    = -1;
+    int     idx        = 0;
+    boolean endFound   = false;
+    byte[]  blockBytes = new byte[ ES1988_BLOCK_LEN + 2 ];
+    ByteArrayOutputStream buf = new ByteArrayOutputStream( 0x4000 );
+    while( idx + ES1988_MIN_LEADER < this.edgeCount ) {
+
+      // Vorton suchen
+      double leaderLen = 0.0;
+      int    n         = 0;
+      int    len0      = getHalfWave( idx );
+      while( (idx + n + 1 < this.edgeCount) && (n < ES1988_MIN_LEADER) ) {
+	int len = getHalfWave( idx + n );
+	if( (len < 0.75 * len0) || (len > 1.25 * len0) || (len < 2) ) {
+	  break;
+	}
+	leaderLen += len;
+	n++;
+      }
+      if( n < ES1988_MIN_LEADER ) {
+	idx += Math.max( n, 1 );
+	continue;
+      }
+      leaderLen /= n;
+      idx += n;
+
+      // Ende des Vortons und Trennzeichen suchen
+      while( (idx + 1 < this.edgeCount)
+	     && (getHalfWave( idx ) < 1.5 * leaderLen) )
+      {
+	idx++;
+      }
+      if( (idx + 2 >= this.edgeCount)
+	  || !isES1988Separator( idx, leaderLen ) )
+      {
+	continue;
+      }
+      long framePos = this.edgeFrames[ idx ];
+      idx += 2;
+
+      // Blocknummer, Datenbytes und Pruefsumme lesen
+      int nBytes = 0;
+      while( nBytes < blockBytes.length ) {
+	if( nBytes > 0 ) {
+	  if( (idx + 2 >= this.edgeCount)
+	      || !isES1988Separator( idx, leaderLen ) )
+	  {
+	    break;
+	  }
+	  idx += 2;
+	}
+	int b = 0;
+	int i = 0;
+	while( i < 8 ) {
+	  if( idx + 2 >= this.edgeCount ) {
+	    break;
+	  }
+	  int bitLen = getHalfWave( idx ) + getHalfWave( idx + 1 );
+	  if( bitLen > 3.0 * leaderLen ) {
+	    break;
+	  }
+	  b = (b >> 1) | (bitLen > 1.5 * leaderLen ? 0x80 : 0);
+	  idx += 2;
+	  i++;
+	}
+	if( i < 8 ) {
+	  break;
+	}
+	blockBytes[ nBytes++ ] = (byte) b;
+      }
+      int    blockNum  = (int) blockBytes[ 0 ] & 0xFF;
+      byte[] blockData = Arrays.copyOfRange(
+					blockBytes,
+					1,
+					Math.max( nBytes - 1, 1 ) );
+      Block block = new Block( blockNum, blockData, framePos );
+      if( nBytes < blockBytes.length ) {
+	block.errorText = String.format(
+			"Block unvollst\u00E4ndig (%d von %d Bytes)",
+			Math.max( nBytes - 1, 0 ),
+			ES1988_BLOCK_LEN );
+      } else {
+	int cks = 0;
+	for( int i = 1; i <= ES1988_BLOCK_LEN; i++ ) {
+	  cks += ((int) blockBytes[ i ] & 0xFF);
+	}
+	if( (cks & 0xFF)
+		!= ((int) blockBytes[ ES1988_BLOCK_LEN + 1 ] & 0xFF) )
+	{
+	  block.errorText = "Pr\u00FCfsummenfehler";
+	} else if( (blockNum != 0xFF) && (blockNum != lastNum + 1) ) {
+	  block.errorText = String.format(
+				"Block %02X erwartet",
+				lastNum + 1 );
+	}
+      }
+      if( nBytes > 0 ) {
+	lastNum = blockNum;
+	this.blocks.add( block );
+	if( (blockNum == 1) && (this.begAddr < 0)
+	    && (blockData.length == ES1988_BLOCK_LEN) )
+	{
+	  // Dateikopf
+	  StringBuilder nameBuf = new StringBuilder( 11 );
+	  for( int i = 0; i < 11; i++ ) {
+	    int ch = (int) blockData[ i ] & 0xFF;
+	    if( (ch < 0x20) || (ch > 0x7E) ) {
+	      ch = '_';
+	    }
+	    nameBuf.append( (char) ch );
+	  }
+	  this.fileName = nameBuf.toString().trim();
+	  this.begAddr  = ((blockData[ 18 ] << 8) & 0xFF00)
+				| (blockData[ 17 ] & 0xFF);
+	  endAddr       = ((blockData[ 20 ] << 8) & 0xFF00)
+				| (blockData[ 19 ] & 0xFF);
+	} else {
+	  buf.write( blockData, 0, blockData.length );
+	}
+	if( (blockNum == 0xFF) && !block.hasError() ) {
+	  endFound = true;
+	  break;
+	}
+      }
+    }
+    if( !endFound && !this.blocks.isEmpty() ) {
+      Block block = new Block( 0xFF, new byte[ 0 ], this.frameCount );
+      block.errorText = "Endeblock fehlt";
+      this.blocks.add( block );
+    }
+    this.data = buf.toByteArray();
+    if( (this.begAddr >= 0) && (endAddr >= this.begAddr)
+	&& (this.data.length > endAddr - this.begAddr + 1) )
+    {
+      this.data = Arrays.copyOf( this.data, endAddr - this.begAddr + 1 );
+    }
+  }
+
+
+  /*
+   * 2K-System und BASIC des EMR-ES 1988:
+   * Die Laenge einer Halbwelle des Tons ergibt sich aus dem Mittelwert
+   * der Halbwellen um den Median, da der Ton die meiste Zeit anliegt.
+   * Danach werden aus den Flanken die Zeitabschnitte ohne Ton ermittelt.
+   * Wie beim Laden am Geraet, wo die Laderoutine waehrend des Vortons
+   * gestartet wird, beginnt das Dekodieren erst nach dem Vorton.
+   * Das davor gesendete Fuellbyte wird damit ignoriert.
+   */
+  private void decodeSIO()
+  {
+    this.format = Format.SIO;
+    if( this.edgeCount < 3 ) {
+      return;
+    }
+    int[] halfWaves = new int[ this.edgeCount - 1 ];
+    for( int i = 0; i < halfWaves.length; i++ ) {
+      halfWaves[ i ] = getHalfWave( i );
+    }
+    Arrays.sort( halfWaves );
+    int    median  = Math.max( halfWaves[ halfWaves.length / 2 ], 1 );
+    long   sum     = 0;
+    int    n       = 0;
+    for( int len : halfWaves ) {
+      if( (len >= median / 2) && (len <= median + (median / 2)) ) {
+	sum += len;
+	n++;
+      }
+    }
+    double toneLen = (double) sum / (double) n;
+    double bitLen  = toneLen * SIO_HALF_WAVES_PER_BIT;
+
+    // Pausen ermitteln: Beginn und Ende in Frames
+    List<double[]> pauses   = new ArrayList<>();
+    double         toneBeg  = this.edgeFrames[ 0 ];
+    boolean        leader   = false;
+    for( int i = 0; i + 1 < this.edgeCount; i++ ) {
+      if( getHalfWave( i ) > 3.0 * toneLen ) {
+	double pauseBeg = this.edgeFrames[ i ] + (toneLen / 2.0);
+	if( leader ) {
+	  pauses.add( new double[] { pauseBeg, this.edgeFrames[ i + 1 ] } );
+	} else if( pauseBeg - toneBeg >= SIO_MIN_LEADER_BITS * bitLen ) {
+	  leader = true;
+	  pauses.add( new double[] { pauseBeg, this.edgeFrames[ i + 1 ] } );
+	}
+	toneBeg = this.edgeFrames[ i + 1 ];
+      }
+    }
+    if( !leader ) {
+      return;
+    }
+    pauses.add( new double[] {
+			this.edgeFrames[ this.edgeCount - 1 ] + toneLen,
+			Double.MAX_VALUE } );
+
+    ByteArrayOutputStream buf = new ByteArrayOutputStream( 0x1000 );
+    long framePos    = -1;
+    int  frameErrors = 0;
+    int  pauseIdx    = 0;
+    while( pauseIdx < pauses.size() - 1 ) {
+
+      // Start-Bit: Beginn einer Pause nach dem Ende des letzten Bytes
+      double begPos = pauses.get( pauseIdx )[ 0 ];
+      int    b      = 0;
+      for( int i = 1; i <= 8; i++ ) {
+	b >>= 1;
+	if( isSIOMark( pauses, pauseIdx, begPos + (bitLen * (i + 0.5)) ) ) {
+	  b |= 0x80;
+	}
+      }
+      if( !isSIOMark( pauses, pauseIdx, begPos + (bitLen * 9.5) ) ) {
+	frameErrors++;
+      }
+      if( framePos < 0 ) {
+	framePos = (long) begPos;
+      }
+      buf.write( b );
+      if( b == 0 ) {
+	break;
+      }
+
+      // naechste Pause nach den Stop-Bits suchen
+      double endPos = begPos + (bitLen * 9.5);
+      while( (pauseIdx < pauses.size() - 1)
+	     && (pauses.get( pauseIdx )[ 0 ] < endPos) )
+      {
+	pauseIdx++;
+      }
+    }
+    this.data = buf.toByteArray();
+    if( this.data.length > 0 ) {
+      Block block = new Block( -1, this.data, framePos );
+      if( this.data[ this.data.length - 1 ] != 0 ) {
+	block.errorText = "Ende der \u00DCbertragung fehlt";
+      } else if( frameErrors > 0 ) {
+	block.errorText = String.format( "%d Rahmenfehler", frameErrors );
+      }
+      this.blocks.add( block );
+    }
+  }
+
+
+  private int getHalfWave( int idx )
+  {
+    return this.edgeFrames[ idx + 1 ] - this.edgeFrames[ idx ];
+  }
+
+
+  /*
+   * Ein Trennzeichen besteht aus zwei Halbwellen
+   * mit etwa der doppelten Laenge der Vortonhalbwelle.
+   */
+  private boolean isES1988Separator( int idx, double leaderLen )
+  {
+    int len1 = getHalfWave( idx );
+    int len2 = getHalfWave( idx + 1 );
+    return (len1 >= 1.5 * leaderLen) && (len1 <= 3.0 * leaderLen)
+		&& (len2 >= 1.5 * leaderLen) && (len2 <= 3.0 * leaderLen);
+  }
+
+
+  private static boolean isSIOMark(
+				List<double[]> pauses,
+				int            idx,
+				double         pos )
+  {
+    int n = pauses.size();
+    while( idx < n ) {
+      double[] pause = pauses.get( idx++ );
+      if( pos < pause[ 0 ] ) {
+	break;
+      }
+      if( pos < pause[ 1 ] ) {
+	return false;
+      }
+    }
+    return true;
+  }
+
+
+  /*
+   * Die Methode liest die Audiodaten blockweise
+   * und ermittelt die Pegelwechsel des ersten Kanals
+   * mit derselben Phasenerkennung wie bei der Emulation
+   * des Toneingangs.
+   */
+  private void readEdges( AudioInputStream in ) throws IOException
+  {
+    AudioFormat fmt              = in.getFormat();
+    int         sampleSizeInBits = fmt.getSampleSizeInBits();
+    int         sampleSize       = (sampleSizeInBits + 7) / 8;
+    int         frameSize        = fmt.getFrameSize();
+    boolean     bigEndian        = fmt.isBigEndian();
+    boolean     dataSigned       = (fmt.getEncoding()
+					== AudioFormat.Encoding.PCM_SIGNED);
+    this.frameRate = Math.round( fmt.getFrameRate() );
+    if( (this.frameRate <= 0)
+	|| (sampleSizeInBits < 1) || (sampleSizeInBits > 24)
+	|| (frameSize < sampleSize) )
+    {
+      throw new IOException( "Audioformat wird nicht unterst\u00FCtzt" );
+    }
+    int sampleBitMask  = (1 << sampleSizeInBits) - 1;
+    int sampleSignMask = (1 << (sampleSizeInBits - 1));
+
+    /*
+     * Pegelwechsel werden erst ab einer Mindestamplitude
+     * von 1/16 des Wertebereichs ausgewertet,
+     * damit Rauschen in den Pausen keine Flanken erzeugt.
+     */
+    int minDiff = Math.max( (sampleBitMask + 1) / 16, 1 );
+
+    PhaseDetector phaseDetector = new PhaseDetector();
+    phaseDetector.setFrameRate( this.frameRate );
+
+    byte[]  buf       = new byte[ frameSize * 0x4000 ];
+    long    framePos  = 0;
+    boolean lastPhase = false;
+    int     bufLen    = 0;
+    for(;;) {
+      int n = in.read( buf, bufLen, buf.length - bufLen );
+      if( n <= 0 ) {
+	break;
+      }
+      bufLen += n;
+      int nFrames = bufLen / frameSize;
+      int pos     = 0;
+      for( int i = 0; i < nFrames; i++ ) {
+	int v = 0;
+	if( bigEndian ) {
+	  for( int k = 0; k < sampleSize; k++ ) {
+	    v = (v << 8) | ((int) buf[ pos + k ] & 0xFF);
+	  }
+	} else {
+	  for( int k = sampleSize - 1; k >= 0; --k ) {
+	    v = (v << 8) | ((int) buf[ pos + k ] & 0xFF);
+	  }
+	}
+	v &= sampleBitMask;
+	if( dataSigned && ((v & sampleSignMask) != 0) ) {
+	  v |= ~sampleBitMask;
+	}
+	pos += frameSize;
+
+	phaseDetector.addSample( v );
+	if( phaseDetector.getMaxValue() - phaseDetector.getMinValue()
+							>= minDiff )
+	{
+	  boolean phase = phaseDetector.updPhase( v );
+	  if( phase != lastPhase ) {
+	    lastPhase = phase;
+	    addEdge( framePos );
+	  }
+	}
+	framePos++;
+      }
+      bufLen -= pos;
+      if( bufLen > 0 ) {
+	System.arraycopy( buf, pos, buf, 0, bufLen );
+      }
+    }
+    this.frameCount = framePos;
+  }
+}
@@ -0,0 +1,762 @@
+/*
+ * Jugend+Technik-Computer-Emulator
+ *
+ * Kommandozeilenschnittstelle fuer die Programmausfuehrung
+ * ohne grafische Oberflaeche
+ */
+
+package org.jens_mueller.jtcemu.platform.se.base;
+
+import org.jens_mueller.jtcemu.base.AppContext;
+import org.jens_mueller.jtcemu.base.FileInfo;
+import org.jens_mueller.jtcemu.base.FileLoader;
+import org.jens_mueller.jtcemu.base.JTCSys;
+import org.jens_mueller.jtcemu.base.JTCUtil;
+import org.jens_mueller.jtcemu.base.UserInputException;
+import org.jens_mueller.jtcemu.platform.se.Main;
+import org.jens_mueller.jtcemu.platform.se.audio.TapeDecoder;
+import org.jens_mueller.jtcemu.platform.se.tools.assembler.CmdLineIterator;
+import org.jens_mueller.jtcemu.tools.TextOutput;
+import org.jens_mueller.jtcemu.tools.assembler.AsmLabel;
+import org.jens_mueller.jtcemu.tools.assembler.AsmOptions;
+import org.jens_mueller.jtcemu.tools.assembler.Z8Assembler;
+import org.jens_mueller.z8.Z8;
+import org.jens_mueller.z8.Z8Breakpoint;
+import org.jens_mueller.z8.Z8Profiler;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.awt.image.WritableRaster;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+
+public class CmdLineRunner
+{
+  /*
+   * Zeiten in Taktzyklen (bei 4 MHz intern):
+   * 2 s fuer den Systemstart,
+   * 20 ms Tastendruck, 150 ms bzw. 300 ms (ENTER) Pause danach
+   */
+  private static final long BOOT_CYCLES          = 8000000L;
+  private static final long KEY_PRESSED_CYCLES   = 80000L;
+  private static final long WAIT_AFTER_KEY       = 600000L;
+  private static final long WAIT_AFTER_ENTER     = 1200000L;
+  private static final long DEFAULT_MAX_CYCLES   = 400000000L;
+
+  // Register mit dem BASIC-Programmanfang (2K-System, EMR-ES 1988)
+  private static final int BASIC_BEG_REG = 0x06;
+
+  private static final int OPC_STOP = 0x6F;
+  private static final int OPC_HALT = 0x7F;
+
+  private static final String[] usageLines = {
+	"",
+	"Aufruf:",
+	"  java -jar jtcemu.jar --run [Optionen] <Datei>",
+	"",
+	"Optionen:",
+	"  -h              diese Hilfe anzeigen",
+	"  -y <System>     Betriebssystem: OS2K, ES1988, ES23 oder ES40",
+	"  -r <Gr\u00F6\u00DFe>      RAM-Gr\u00F6\u00DFe: 1K, 2K, 32K oder 64K",
+	"  -l <Adresse>    Ladeadresse (hexadezimal)",
+	"  -s <Adresse>    Programm direkt ab Adresse starten (hexadezimal)",
+	"  -k <Text>       Tastatureingabe nach dem Laden, \\n steht f\u00FCr ENTER",
+	"  -a <Datei>      Sound- oder Tape-Datei dekodieren und laden",
+	"  -c <Anzahl>     max. Anzahl Taktzyklen (Standard: "
+				+ DEFAULT_MAX_CYCLES + ")",
+	"  -b <Adresse>    Anhalten vor Ausf\u00FChrung dieser Adresse",
+	"  -t <Datei>      Bildschirmtext in Datei statt Standardausgabe",
+	"  -i <Datei>      Bildschirmabbild als PNG-Datei speichern",
+	"  -m <Datei>      Speicherabbild %0000-%FFFF speichern",
+	"  -v <Datei>      Bildschirmausgabe als animiertes GIF aufzeichnen",
+	"  -f <Anzahl>     Bilder pro Sekunde bei der Aufzeichnung"
+				+ " (Standard: "
+				+ ScreenRecorder.DEFAULT_FRAMES_PER_SECOND + ")",
+	"  -p <Datei>      Laufzeitprofil je Marke und Adresse speichern",
+	"  -g <Datei>      Aufrufketten f\u00FCr Flame Graphs speichern",
+	"  -n <Datei>      Marken f\u00FCr das Laufzeitprofil"
+				+ " aus Assembler-Quelltext",
+	"",
+	"Die Emulation l\u00E4uft ohne Geschwindigkeitsbremse so lange,",
+	"bis die max. Anzahl Taktzyklen erreicht ist,",
+	"die Anhalteadresse erreicht wird",
+	"oder ein HALT- bzw. STOP-Befehl ausgef\u00FChrt werden soll.",
+	"Mit der Option -a werden die Bl\u00F6cke der Sound- bzw. Tape-Datei",
+	"im Aufzeichnungsformat des Betriebssystems dekodiert",
+	"und nach dem Systemstart in den Arbeitsspeicher geschrieben.",
+	"Die Ladeadresse ist die Anfangsadresse aus dem Dateikopf,",
+	"beim 2K-System und BASIC der BASIC-Programmanfang",
+	"und bei ES 2.3 und ES 4.0 %E000.",
+	"Ohne zu ladende Datei gilt die Option -l f\u00FCr die Sound- bzw. Tape-Datei.",
+	"Fehlerhafte Bl\u00F6cke werden mit ihrer Position in der Datei gemeldet.",
+	"Das Laufzeitprofil umfasst alle Befehle ab dem Laden der Datei.",
+	"" };
+
+  private static volatile String stopReason = null;
+
+
+  public static boolean execute( String[] args, int argIdx )
+  {
+    boolean status       = false;
+    boolean helpFlag     = false;
+    String  osText       = null;
+    String  ramText      = null;
+    String  keyText      = null;
+    String  tapeFileName = null;
+    String  textFileName = null;
+    String  imgFileName  = null;
+    String  memFileName  = null;
+    String  vidFileName  = null;
+    String  profFileName = null;
+    String  stckFileName = null;
+    String  asmFileName  = null;
+    String  fileName     = null;
+    int     loadAddr     = -1;
+    int     startAddr    = -1;
+    int     stopAddr     = -1;
+    int     framesPerSec = ScreenRecorder.DEFAULT_FRAMES_PER_SECOND;
+    long    maxCycles    = DEFAULT_MAX_CYCLES;
+
+    try {
+      CmdLineIterator iter = new CmdLineIterator( args, argIdx );
+      String          arg  = iter.next();
+      while( arg != null ) {
+	if( (arg.length() == 2) && (arg.charAt( 0 ) == '-') ) {
+	  char ch = arg.charAt( 1 );
+	  if( (ch == 'h') || (ch == 'H') ) {
+	    helpFlag = true;
+	  } else {
+	    String value = iter.next();
+	    if( value == null ) {
+	      throwWrongCmdLine();
+	    }
+	    switch( ch ) {
+	      case 'a':
+		tapeFileName = value;
+		break;
+	      case 'b':
+		stopAddr = JTCUtil.parseHex4( value, "Anhalteadresse:" );
+		break;
+	      case 'c':
+		maxCycles = parseCycles( value );
+		break;
+	      case 'f':
+		framesPerSec = parseFramesPerSecond( value );
+		break;
+	      case 'g':
+		stckFileName = value;
+		break;
+	      case 'i':
+		imgFileName = value;
+		break;
+	      case 'k':
+		keyText = value.replace( "\\n", "\n" );
+		break;
+	      case 'l':
+		loadAddr = JTCUtil.parseHex4( value, "Ladeadresse:" );
+		break;
+	      case 'm':
+		memFileName = value;
+		break;
+	      case 'n':
+		asmFileName = value;
+		break;
+	      case 'p':
+		profFileName = value;
+		break;
+	      case 'r':
+		ramText = value.toUpperCase();
+		break;
+	      case 's':
+		startAddr = JTCUtil.parseHex4( value, "Startadresse:" );
+		break;
+	      case 't':
+		textFileName = value;
+		break;
+	      case 'v':
+		vidFileName = value;
+		break;
+	      case 'y':
+		osText = value.toUpperCase();
+		break;
+	      default:
+		throw new IOException(
+			String.format( "Unbekannte Option \'%c\'", ch ) );
+	    }
+	  }
+	} else if( arg.startsWith( "-" ) ) {
+	  throwWrongCmdLine();
+	} else {
+	  if( fileName != null ) {
+	    throw new IOException( "Nur eine Datei erlaubt" );
+	  }
+	  fileName = arg;
+	}
+	arg = iter.next();
+      }
+      if( helpFlag ) {
+	Main.printlnOut();
+	Main.printlnOut( Main.APPINFO + " Programmausf\u00FChrung" );
+	for( String s : usageLines ) {
+	  Main.printlnOut( s );
+	}
+	status = true;
+      } else {
+	if( osText != null ) {
+	  try {
+	    JTCSys.OSType.valueOf( osText );
+	  }
+	  catch( IllegalArgumentException ex ) {
+	    throw new IOException( osText + ": Unbekanntes System" );
+	  }
+	  AppContext.setProperty( JTCSys.PROP_OS, osText );
+	}
+	if( ramText != null ) {
+	  AppContext.setProperty( JTCSys.PROP_RAM_SIZE, ramText );
+	}
+	status = run(
+		fileName != null ? new File( fileName ) : null,
+		loadAddr,
+		startAddr,
+		keyText,
+		tapeFileName != null ? new File( tapeFileName ) : null,
+		stopAddr,
+		maxCycles,
+		textFileName,
+		imgFileName,
+		memFileName,
+		vidFileName,
+		framesPerSec,
+		profFileName,
+		stckFileName,
+		asmFileName != null ? new File( asmFileName ) : null );
+      }
+    }
+    catch( IOException | UserInputException ex ) {
+      Main.printlnErr();
+      Main.printlnErr( Main.APPINFO + " Programmausf\u00FChrung:" );
+      String msg = ex.getMessage();
+      if( msg != null ) {
+	if( !msg.isEmpty() ) {
+	  Main.printlnErr( msg );
+	}
+      }
+      for( String s : usageLines ) {
+	Main.printlnErr( s );
+      }
+      status = false;
+    }
+    return status;
+  }
+
+
+	/* --- private Methoden --- */
+
+  /*
+   * Der Quelltext wird nur uebersetzt,
+   * um die Adressen der Marken zu ermitteln.
+   */
+  private static void addAsmLabels(
+				Z8Profiler profiler,
+				File       asmFile ) throws IOException
+  {
+    AsmOptions options = new AsmOptions();
+    options.setCodeToEmu( false );
+    Z8Assembler asm = new Z8Assembler(
+				null,
+				null,
+				asmFile,
+				options,
+				new TextOutput()
+				{
+				  @Override
+				  public void print( String text )
+				  {
+				    Main.printErr( text );
+				  }
+				  @Override
+				  public void println()
+				  {
+				    Main.printlnErr();
+				  }
+				},
+				false,
+				null );
+    if( asm.assemble() == null ) {
+      throw new IOException( asmFile.getPath()
+			+ ": Marken konnten nicht ermittelt werden" );
+    }
+    AsmLabel[] labels = asm.getSortedLabels();
+    if( labels != null ) {
+      for( AsmLabel label : labels ) {
+	if( label.isAddrLabel() && label.hasIntValue() ) {
+	  profiler.addLabel( label.intValue(), label.getLabelName() );
+	}
+      }
+    }
+  }
+
+
+  private static boolean run(
+			File   file,
+			int    loadAddr,
+			int    startAddr,
+			String keyText,
+			File   tapeFile,
+			int    stopAddr,
+			long   maxCycles,
+			String textFileName,
+			String imgFileName,
+			String memFileName,
+			String videoFileName,
+			int    framesPerSec,
+			String profFileName,
+			String stackFileName,
+			File   asmFile ) throws IOException
+  {
+    stopReason = null;
+
+    JTCSys jtcSys = new JTCSys();
+    String errText = jtcSys.getErrorText();
+    if( errText != null ) {
+      Main.printlnErr( errText );
+    }
+    Z8 z8 = jtcSys.getZ8();
+    z8.setCyclesPerSecond( 0 );
+    z8.runCycles( BOOT_CYCLES );
+
+    // Datei laden
+    int tapeLoadAddr = (file == null ? loadAddr : -1);
+    if( file != null ) {
+      FileInfo        fileInfo = FileInfo.analyzeFile( file );
+      FileInfo.Format fmt      = FileInfo.Format.BIN;
+      int             endAddr  = -1;
+      if( fileInfo != null ) {
+	fmt = fileInfo.getFormat();
+	if( loadAddr < 0 ) {
+	  loadAddr = fileInfo.getBegAddr();
+	  endAddr  = fileInfo.getEndAddr();
+	}
+      }
+      if( loadAddr < 0 ) {
+	loadAddr = FileLoader.DEFAULt_LOAD_ADDR;
+      }
+      FileLoader fileLoader = new FileLoader( jtcSys );
+      String     statusText = fileLoader.loadFile(
+					file,
+					fmt,
+					loadAddr,
+					endAddr,
+					-1 );
+      String msg = fileLoader.getMessage();
+      if( statusText == null ) {
+	throw new IOException( msg != null ?
+			msg
+			: "Datei konnte nicht geladen werden." );
+      }
+      if( msg != null ) {
+	Main.printlnErr( msg );
+      }
+      Main.printlnErr( statusText );
+    }
+
+    // Sound- bzw. Tape-Datei dekodieren und laden
+    boolean tapeErrors = false;
+    if( tapeFile != null ) {
+      tapeErrors = !loadTapeFile( jtcSys, tapeFile, tapeLoadAddr );
+    }
+
+    /*
+     * Anhalten vor HALT, STOP oder der Anhalteadresse:
+     * Die Haltepunkte beenden die Emulation,
+     * bevor der Befehl ausgefuehrt wird.
+     * Da sie an die Adresse bzw. die Operationscodes gebunden sind,
+     * werden sie von der CPU nur dort geprueft.
+     */
+    List<Z8Breakpoint> breakpoints = new ArrayList<>();
+    breakpoints.add( new Z8Breakpoint()
+	  {
+	    @Override
+	    public boolean matches( Z8 z8 )
+	    {
+	      int pc = z8.getPC();
+	      stopReason = String.format(
+			"%s auf %%%04X",
+			z8.getMemByte( pc, false ) == OPC_HALT ? "HALT" : "STOP",
+			pc );
+	      z8.fireQuit();
+	      return false;
+	    }
+
+	    @Override
+	    public boolean matchesOpcode( int opc )
+	    {
+	      return (opc == OPC_HALT) || (opc == OPC_STOP);
+	    }
+	  } );
+    if( stopAddr >= 0 ) {
+      final int stopAddr1 = stopAddr;
+      breakpoints.add( new Z8Breakpoint()
+	  {
+	    @Override
+	    public boolean matches( Z8 z8 )
+	    {
+	      stopReason = String.format( "Anhalteadresse %%%04X", stopAddr1 );
+	      z8.fireQuit();
+	      return false;
+	    }
+
+	    @Override
+	    public int getPCAddr()
+	    {
+	      return stopAddr1;
+	    }
+	  } );
+    }
+
+    /*
+     * Die Bildschirmaufzeichnung beginnt nach dem Laden der Datei.
+     * Die Bilder werden in emulierter Zeit jeweils
+     * zwischen zwei Emulationsabschnitten erfasst (s. runCycles(...)).
+     */
+    ScreenRecorder recorder = null;
+    if( videoFileName != null ) {
+      recorder = new ScreenRecorder(
+				jtcSys,
+				new File( videoFileName ),
+				framesPerSec );
+      recorder.start();
+    }
+    z8.setBreakpoints( breakpoints.toArray( new Z8Breakpoint[ 0 ] ) );
+
+    /*
+     * Das Laufzeitprofil wird in der CPU gefuehrt
+     * und beginnt ebenfalls nach dem Laden der Datei.
+     */
+    Z8Profiler profiler = null;
+    if( (profFileName != null) || (stackFileName != null) ) {
+      profiler = new Z8Profiler();
+      if( asmFile != null ) {
+	addAsmLabels( profiler, asmFile );
+      }
+      z8.setProfiler( profiler );
+    }
+
+    // Programm starten
+    if( startAddr >= 0 ) {
+      z8.setPC( startAddr );
+    }
+    if( keyText != null ) {
+      typeText( jtcSys, recorder, keyText );
+    }
+    runCycles( z8, recorder, maxCycles );
+    if( recorder != null ) {
+      recorder.finish();
+    }
+    if( stopReason == null ) {
+      stopReason = "max. Anzahl Taktzyklen";
+    }
+    Main.printlnErr( String.format(
+			"Emulation beendet: %s, PC=%%%04X, %d Taktzyklen",
+			stopReason,
+			z8.getPC(),
+			z8.getTotalCycles() ) );
+
+    // Ergebnisse ausgeben
+    String screenText = jtcSys.getScreenText();
+    if( textFileName != null ) {
+      writeText( new File( textFileName ), screenText );
+    } else if( screenText != null ) {
+      Main.printlnOut( screenText );
+    }
+    if( imgFileName != null ) {
+      writeScreenImage( jtcSys, new File( imgFileName ) );
+    }
+    if( memFileName != null ) {
+      writeMemDump( jtcSys, new File( memFileName ) );
+    }
+    if( profiler != null ) {
+      z8.setProfiler( null );
+      if( profFileName != null ) {
+	writeProfile( profiler, new File( profFileName ), false );
+      }
+      if( stackFileName != null ) {
+	writeProfile( profiler, new File( stackFileName ), true );
+      }
+    }
+    return !tapeErrors;
+  }
+
+
+  /*
+   * Die Sound- bzw. Tape-Datei wird vollstaendig dekodiert
+   * und die Nutzdaten direkt in den Arbeitsspeicher geschrieben.
+   *
+   * Rueckgabewert:
+   *   false, wenn fehlerhafte Bloecke gefunden wurden
+   */
+  private static boolean loadTapeFile(
+				JTCSys jtcSys,
+				File   file,
+				int    loadAddr ) throws IOException
+  {
+    TapeDecoder decoder = TapeDecoder.decode( file, jtcSys.getOSType() );
+    for( TapeDecoder.Block block : decoder.getBlocks() ) {
+      if( block.hasError() ) {
+	long millis = block.getFramePos() * 1000L / decoder.getFrameRate();
+	if( block.getBlockNum() >= 0 ) {
+	  Main.printlnErr( String.format(
+			"%s: Block %02X bei %d ms: %s",
+			file.getName(),
+			block.getBlockNum(),
+			millis,
+			block.getErrorText() ) );
+	} else {
+	  Main.printlnErr( String.format(
+			"%s: Daten ab %d ms: %s",
+			file.getName(),
+			millis,
+			block.getErrorText() ) );
+	}
+      }
+    }
+    int nErrors = decoder.getErrorCount();
+    Main.printlnErr( String.format(
+			"%s: %d Bl\u00F6cke, %d fehlerhaft, %d Bytes",
+			file.getName(),
+			decoder.getBlocks().size(),
+			nErrors,
+			decoder.getData().length ) );
+    byte[] data = decoder.getData();
+    if( data.length == 0 ) {
+      throw new IOException( file.getPath()
+			+ ": Keine Daten gefunden" );
+    }
+    if( loadAddr < 0 ) {
+      loadAddr = decoder.getBegAddr();
+    }
+    if( loadAddr < 0 ) {
+      if( decoder.getFormat() == TapeDecoder.Format.SIO ) {
+	// BASIC-Programmanfang
+	loadAddr = jtcSys.getZ8().getRegWValue( BASIC_BEG_REG );
+      } else {
+	loadAddr = FileLoader.DEFAULt_LOAD_ADDR;
+      }
+    }
+    FileLoader fileLoader = new FileLoader( jtcSys );
+    String     statusText = fileLoader.loadData( data, loadAddr );
+    String     msg        = fileLoader.getMessage();
+    if( statusText == null ) {
+      throw new IOException( msg != null ?
+			msg
+			: "Sound- bzw. Tape-Datei konnte nicht geladen werden." );
+    }
+    if( msg != null ) {
+      Main.printlnErr( msg );
+    }
+    Main.printlnErr( statusText );
+    return nErrors == 0;
+  }
+
+
+  private static long parseCycles( String text ) throws IOException
+  {
+    long rv = -1;
+    try {
+      rv = Long.parseLong( text.trim() );
+    }
+    catch( NumberFormatException ex ) {}
+    if( rv <= 0 ) {
+      throw new IOException( text + ": Ung\u00FCltige Anzahl Taktzyklen" );
+    }
+    return rv;
+  }
+
+
+  private static int parseFramesPerSecond( String text ) throws IOException
+  {
+    int rv = -1;
+    try {
+      rv = Integer.parseInt( text.trim() );
+    }
+    catch( NumberFormatException ex ) {}
+    if( (rv <= 0) || (rv > ScreenRecorder.MAX_FRAMES_PER_SECOND) ) {
+      throw new IOException( text + ": Ung\u00FCltige Anzahl Bilder pro Sekunde" );
+    }
+    return rv;
+  }
+
+
+  /*
+   * Bei einer Bildschirmaufzeichnung wird in Abschnitten
+   * bis zum jeweils naechsten Bildzeitpunkt emuliert
+   * und nach jedem Abschnitt das Bild erfasst.
+   */
+  private static void runCycles(
+			Z8             z8,
+			ScreenRecorder recorder,
+			long           cycles )
+  {
+    if( recorder != null ) {
+      long endCycles = z8.getTotalCycles() + cycles;
+      while( !z8.wasQuitFired() && (z8.getTotalCycles() < endCycles) ) {
+	z8.runCycles(
+		Math.min( recorder.getNextFrameCycles(), endCycles )
+					- z8.getTotalCycles() );
+	recorder.capture();
+      }
+    } else {
+      z8.runCycles( cycles );
+    }
+  }
+
+
+  private static void throwWrongCmdLine() throws IOException
+  {
+    throw new IOException( "Kommandozeile fehlerhaft" );
+  }
+
+
+  /*
+   * Die Tastatureingabe erfolgt in emulierter Zeit,
+   * damit das Ergebnis unabhaengig von der Rechnergeschwindigkeit ist.
+   */
+  private static void typeText(
+			JTCSys         jtcSys,
+			ScreenRecorder recorder,
+			String         text )
+  {
+    Z8 z8  = jtcSys.getZ8();
+    int len = text.length();
+    for( int i = 0; (i < len) && !z8.wasQuitFired(); i++ ) {
+      long cycles = WAIT_AFTER_KEY;
+      char ch     = text.charAt( i );
+      if( (ch == '\r') || (ch == '\n') ) {
+	jtcSys.keyPressed( JTCSys.Key.ENTER, false );
+	cycles = WAIT_AFTER_ENTER;
+      } else if( (ch >= '\u0000') && (ch <= '~') ) {
+	jtcSys.keyTyped( ch, true );
+      }
+      runCycles( z8, recorder, KEY_PRESSED_CYCLES );
+      jtcSys.keyReleased();
+      runCycles( z8, recorder, cycles );
+    }
+  }
+
+
+  private static void writeMemDump(
+				JTCSys jtcSys,
+				File   file ) throws IOException
+  {
+    OutputStream out = null;
+    try {
+      out = new BufferedOutputStream( new FileOutputStream( file ) );
+      for( int addr = 0; addr < 0x10000; addr++ ) {
+	out.write( jtcSys.getMemByte( addr, false ) );
+      }
+      out.close();
+      out = null;
+    }
+    finally {
+      JTCUtil.closeSilently( out );
+    }
+  }
+
+
+  private static void writeProfile(
+			Z8Profiler profiler,
+			File       file,
+			boolean    foldedStacks ) throws IOException
+  {
+    Writer out = null;
+    try {
+      out = new BufferedWriter(
+		new OutputStreamWriter(
+			new FileOutputStream( file ),
+			StandardCharsets.UTF_8 ) );
+      if( foldedStacks ) {
+	profiler.writeFoldedStacks( out );
+      } else {
+	profiler.writeFlatProfile( out );
+      }
+      out.close();
+      out = null;
+    }
+    finally {
+      JTCUtil.closeSilently( out );
+    }
+  }
+
+
+  private static void writeScreenImage(
+				JTCSys jtcSys,
+				File   file ) throws IOException
+  {
+    int w = jtcSys.getScreenWidth();
+    int h = jtcSys.getScreenHeight();
+    if( (w > 0) && (h > 0) ) {
+      int[]  rgbs = jtcSys.getColorModeRGBs();
+      byte[] r    = new byte[ rgbs.length ];
+      byte[] g    = new byte[ rgbs.length ];
+      byte[] b    = new byte[ rgbs.length ];
+      for( int i = 0; i < rgbs.length; i++ ) {
+	int rgb = rgbs[ i ];
+	if( jtcSys.isMonochrome() ) {
+	  rgb = (i > 0 ? 0xFFFFFF : 0);
+	}
+	r[ i ] = (byte) (rgb >> 16);
+	g[ i ] = (byte) (rgb >> 8);
+	b[ i ] = (byte) rgb;
+      }
+      BufferedImage img = new BufferedImage(
+				w,
+				h,
+				BufferedImage.TYPE_BYTE_INDEXED,
+				new IndexColorModel(
+					4,
+					rgbs.length,
+					r, g, b ) );
+      WritableRaster raster = img.getRaster();
+      for( int y = 0; y < h; y++ ) {
+	for( int x = 0; x < w; x++ ) {
+	  raster.setSample( x, y, 0, jtcSys.getPixelColorNum( x, y ) );
+	}
+      }
+      if( !ImageIO.write( img, "png", file ) ) {
+	throw new IOException( "PNG-Format wird nicht unterst\u00FCtzt" );
+      }
+    }
+  }
+
+
+  private static void writeText(
+			File   file,
+			String text ) throws IOException
+  {
+    Writer out = null;
+    try {
+      out = new OutputStreamWriter(
+			new FileOutputStream( file ),
+			StandardCharsets.UTF_8 );
+      if( text != null ) {
+	out.write( text );
+      }
+      out.close();
+      out = null;
+    }
+    finally {
+      JTCUtil.closeSilently( out );
+    }
+  }
+}
@@ -11,6 +11,7 @@ package org.jens_mueller.jtcemu.platform.se.base;
 import org.jens_mueller.jtcemu.base.CharRaster;
 import org.jens_mueller.jtcemu.base.JTCScreen;
 import org.jens_mueller.jtcemu.base.JTCSys;
+import org.jens_mueller.jtcemu.platform.se.metrics.EmuMetrics;
 
 import javax.swing.*;
 import java.awt.*;
@@ -18,7 +19,9 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionListener;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
 import java.awt.image.IndexColorModel;
+import java.util.Arrays;
 
 
 public class ScreenFld
@@ -31,6 +34,13 @@ public class ScreenFld
     private int scale;
     private int margin;
     private volatile boolean dirty;
+    private boolean repaintAll;
+    private transient BufferedImage screenImg;
+    private byte[] screenImgPixels;
+    private boolean screenImgMonochrome;
+    private long[] screenImgRowMask;
+    private int screenImgDirtyY1;
+    private int screenImgDirtyY2;
     private Color[] colors;
     private Color markXORColor;
     private CharRaster charRaster;
@@ -49,6 +59,13 @@ public class ScreenFld
         this.scale = scale;
         this.margin = 0;
         this.dirty = false;
+        this.repaintAll = false;
+        this.screenImg = null;
+        this.screenImgPixels = null;
+        this.screenImgMonochrome = false;
+        this.screenImgRowMask = null;
+        this.screenImgDirtyY1 = -1;
+        this.screenImgDirtyY2 = -1;
         this.markXORColor = new Color(192, 192, 0);
         this.colors = null;
         this.charRaster = null;
@@ -87,7 +104,7 @@ public class ScreenFld
         this.selectionCharY1 = -1;
         this.selectionCharX2 = -1;
         this.selectionCharY2 = -1;
-        setScreenDirty();
+        setRepaintAll();
     }
 
 
@@ -114,7 +131,7 @@ public class ScreenFld
                             this.colors.length,
                             r, g, b));
             Graphics graphics = img.createGraphics();
-            paint(graphics, w, h, false);
+            paint(graphics, w, h, createScreenSnapshot(), false);
             graphics.dispose();
         }
         return img;
@@ -152,6 +169,35 @@ public class ScreenFld
     }
 
 
+    /*
+     * Die Methode uebernimmt die geaenderten Pixelzeilen
+     * in das Bildschirmabbild und veranlasst das Neuzeichnen
+     * nur dieser Zeilen.
+     * Sie wird vom Timer zur Bildschirmaktualisierung aufgerufen.
+     */
+    public void repaintDirty() {
+        this.dirty = false;
+        boolean changed = updScreenImg();
+        if (this.repaintAll) {
+            this.repaintAll = false;
+            repaint();
+        } else if (changed && (this.screenImgDirtyY1 >= 0)) {
+            int w = getWidth();
+            int h = getHeight();
+            int scale = this.scale;
+            int yOffs = (h - (this.jtcScreenH * scale)) / 2;
+            if (yOffs < 0) {
+                yOffs = 0;
+            }
+            repaint(
+                    0,
+                    yOffs + (this.screenImgDirtyY1 * scale),
+                    w,
+                    (this.screenImgDirtyY2 - this.screenImgDirtyY1 + 1) * scale);
+        }
+    }
+
+
     public void setMargin(int margin) {
         this.margin = margin;
         updPreferredSize();
@@ -208,6 +254,16 @@ public class ScreenFld
     }
 
 
+    /*
+     * Welche Pixelzeilen neu zu zeichnen sind,
+     * wird in repaintDirty() ueber JTCSys.updScreenPixels(...) ermittelt.
+     */
+    @Override
+    public void setScreenDirty(int y1, int y2) {
+        this.dirty = true;
+    }
+
+
     /* --- MouseMotionListener --- */
 
     @Override
@@ -218,7 +274,7 @@ public class ScreenFld
                 if (this.charRaster != null) {
                     this.dragStart = new Point(e.getX(), e.getY());
                     this.dragEnd = null;
-                    setScreenDirty();
+                    setRepaintAll();
                 }
             } else {
                 if (this.charRaster != null) {
@@ -227,7 +283,7 @@ public class ScreenFld
                     this.dragEnd = null;
                     this.dragStart = null;
                 }
-                setScreenDirty();
+                setRepaintAll();
             }
             e.consume();
         }
@@ -250,8 +306,12 @@ public class ScreenFld
 
     @Override
     public void paint(Graphics g) {
-        this.dirty = false;
-        paint(g, getWidth(), getHeight(), true);
+        EmuMetrics.screenPaintBegin();
+        if (this.screenImg == null) {
+            updScreenImg();
+        }
+        paint(g, getWidth(), getHeight(), this.screenImg, true);
+        EmuMetrics.screenPaintEnd();
     }
 
 
@@ -269,22 +329,126 @@ public class ScreenFld
 
     /* --- private Methoden --- */
 
-    private Color getColor(int colorNum) {
-        Color color = Color.BLACK;
-        if (this.jtcSys.isMonochrome()) {
-            if (colorNum > 0) {
-                color = Color.WHITE;
+    private BufferedImage createScreenImg(int w, int h, boolean monochrome) {
+        byte[] r = new byte[256];
+        byte[] g = new byte[256];
+        byte[] b = new byte[256];
+        for (int i = 0; i < r.length; i++) {
+            Color color = Color.BLACK;
+            if (monochrome) {
+                if (i > 0) {
+                    color = Color.WHITE;
+                }
+            } else {
+                if (i < this.colors.length) {
+                    color = this.colors[i];
+                }
             }
-        } else {
-            if ((colorNum >= 0) && (colorNum < this.colors.length)) {
-                color = this.colors[colorNum];
+            r[i] = (byte) color.getRed();
+            g[i] = (byte) color.getGreen();
+            b[i] = (byte) color.getBlue();
+        }
+        return new BufferedImage(
+                w,
+                h,
+                BufferedImage.TYPE_BYTE_INDEXED,
+                new IndexColorModel(8, r.length, r, g, b));
+    }
+
+
+    /*
+     * Die Methode erzeugt ein vollstaendiges Abbild
+     * des aktuellen Bildspeichers, ohne das Abbild der Komponente
+     * und die Merker fuer geaenderte Pixelzeilen zu veraendern.
+     */
+    private BufferedImage createScreenSnapshot() {
+        BufferedImage img = null;
+        int w = this.jtcSys.getScreenWidth();
+        int h = this.jtcSys.getScreenHeight();
+        if ((w > 0) && (h > 0)) {
+            img = createScreenImg(w, h, this.jtcSys.isMonochrome());
+            this.jtcSys.copyScreenPixels(
+                    ((DataBufferByte) img.getRaster()
+                            .getDataBuffer()).getData());
+        }
+        return img;
+    }
+
+
+    private void setRepaintAll() {
+        this.repaintAll = true;
+        this.dirty = true;
+    }
+
+
+    /*
+     * Die Methode uebernimmt die geaenderten Pixelzeilen
+     * aus dem Bildspeicher des Emulators in das Bildschirmabbild.
+     * Bei geaenderter Bildschirmkonfiguration wird das Abbild
+     * neu angelegt und vollstaendig gefuellt.
+     *
+     * Rueckgabewert: true, wenn sich das Abbild geaendert hat
+     */
+    private boolean updScreenImg() {
+        boolean rv = false;
+        int w = this.jtcSys.getScreenWidth();
+        int h = this.jtcSys.getScreenHeight();
+        boolean monochrome = this.jtcSys.isMonochrome();
+        this.screenImgDirtyY1 = -1;
+        this.screenImgDirtyY2 = -1;
+        if ((w > 0) && (h > 0)) {
+            long[] rowMask = this.screenImgRowMask;
+            BufferedImage screenImg = this.screenImg;
+            if ((screenImg == null)
+                    || (screenImg.getWidth() != w)
+                    || (screenImg.getHeight() != h)
+                    || (monochrome != this.screenImgMonochrome)) {
+                screenImg = createScreenImg(w, h, monochrome);
+                this.screenImg = screenImg;
+                this.screenImgPixels = ((DataBufferByte) screenImg.getRaster()
+                        .getDataBuffer()).getData();
+                this.screenImgMonochrome = monochrome;
+                rowMask = new long[(h + 63) / 64];
+                this.screenImgRowMask = rowMask;
+                this.jtcSys.updScreenPixels(rowMask);
+                Arrays.fill(rowMask, -1L);
+                this.repaintAll = true;
+            } else {
+                this.jtcSys.updScreenPixels(rowMask);
+            }
+            byte[] srcPixels = this.jtcSys.getScreenPixels();
+            byte[] dstPixels = this.screenImgPixels;
+            for (int i = 0; i < rowMask.length; i++) {
+                long bits = rowMask[i];
+                while (bits != 0L) {
+                    int y = (i * 64) + Long.numberOfTrailingZeros(bits);
+                    if (y < h) {
+                        int pos = y * w;
+                        if ((pos + w <= srcPixels.length)
+                                && (pos + w <= dstPixels.length)) {
+                            System.arraycopy(srcPixels, pos, dstPixels, pos, w);
+                        }
+                        if (this.screenImgDirtyY1 < 0) {
+                            this.screenImgDirtyY1 = y;
+                        }
+                        this.screenImgDirtyY2 = y;
+                        rv = true;
+                    }
+                    bits &= (bits - 1L);
+                }
+                rowMask[i] = 0L;
             }
         }
-        return color;
+        return rv;
     }
 
 
-    private void paint(Graphics g, int w, int h, boolean withMarking) {
+    private void paint(
+            Graphics g,
+            int w,
+            int h,
+            BufferedImage screenImg,
+            boolean withMarking) {
         if ((w > 0) && (h > 0)) {
 
             // Hintergrund
@@ -311,39 +475,18 @@ public class ScreenFld
                 }
 
                 /*
-                 * Aus Gruenden der Performance werden nebeneinander liegende
-                 * Punkte zusammengefasst und als Linie gezeichnet.
+                 * Der Bildschirminhalt wird als Abbild mit den Farbnummern
+                 * gehalten, in das nur die geaenderten Pixelzeilen
+                 * uebernommen werden, und skaliert gezeichnet.
                  */
-                for (int y = 0; y < baseH; y++) {
-                    Color lastColor = null;
-                    int xColorBeg = -1;
-                    for (int x = 0; x < baseW; x++) {
-                        Color color = getColor(this.jtcSys.getPixelColorNum(x, y));
-                        if ((color != null) && (color != lastColor)) {
-                            if ((lastColor != null)
-                                    && (lastColor != bgColor)
-                                    && (xColorBeg >= 0)) {
-                                g.setColor(lastColor);
-                                g.fillRect(
-                                        xColorBeg * this.scale,
-                                        y * this.scale,
-                                        (x - xColorBeg) * this.scale,
-                                        this.scale);
-                            }
-                            xColorBeg = x;
-                            lastColor = color;
-                        }
-                    }
-                    if ((lastColor != null)
-                            && (lastColor != bgColor)
-                            && (xColorBeg >= 0)) {
-                        g.setColor(lastColor);
-                        g.fillRect(
-                                xColorBeg * this.scale,
-                                y * this.scale,
-                                (baseW - xColorBeg) * this.scale,
-                                this.scale);
-                    }
+                if (screenImg != null) {
+                    g.drawImage(
+                            screenImg,
+                            0,
+                            0,
+                            screenImg.getWidth() * this.scale,
+                            screenImg.getHeight() * this.scale,
+                            this);
                 }
 
                 // Markierter Text
@@ -0,0 +1,407 @@
+/*
+ * Jugend+Technik-Computer-Emulator
+ *
+ * Aufzeichnung der Bildschirmausgabe als animiertes GIF
+ *
+ * Die Bilder werden im Emulations-Thread in emulierter Zeit
+ * jeweils zwischen zwei Emulationsabschnitten mit capture() erfasst
+ * und von einem eigenen Thread in die Datei geschrieben.
+ * Die Aufzeichnung fuehrt dazu einen eigenen Bildspeicher
+ * und einen eigenen Merker fuer geaenderte Pixelzeilen,
+ * sodass sie der Bildschirmanzeige keine Aenderungen wegnimmt.
+ * Unveraenderte Bilder werden nicht kopiert,
+ * sondern verlaengern nur die Anzeigedauer des vorherigen Bildes.
+ */
+
+package org.jens_mueller.jtcemu.platform.se.base;
+
+import org.jens_mueller.jtcemu.base.AppContext;
+import org.jens_mueller.jtcemu.base.JTCSys;
+import org.jens_mueller.jtcemu.base.JTCUtil;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+
+public class ScreenRecorder implements Runnable
+{
+  public static final int DEFAULT_FRAMES_PER_SECOND = 25;
+  public static final int MAX_FRAMES_PER_SECOND     = 50;
+
+  /*
+   * Der Emulations-Thread wartet nur,
+   * wenn der Schreib-Thread so viele Bilder im Rueckstand ist,
+   * und prueft dabei regelmaessig, ob der Schreib-Thread noch laeuft.
+   */
+  private static final int  QUEUE_SIZE        = 64;
+  private static final long QUEUE_WAIT_MILLIS = 100;
+
+  private static final String GIF_METADATA_FORMAT
+					= "javax_imageio_gif_image_1.0";
+
+  private static class Frame
+  {
+    private int    w;
+    private int    h;
+    private byte[] pixels;	// null: Bild unveraendert
+
+    private Frame( int w, int h, byte[] pixels )
+    {
+      this.w      = w;
+      this.h      = h;
+      this.pixels = pixels;
+    }
+  }
+
+  private static final Frame END_FRAME = new Frame( 0, 0, null );
+
+  private JTCSys               jtcSys;
+  private File                 file;
+  private int                  framesPerSecond;
+  private long                 cyclesPerFrame;
+  private long                 nextFrameCycles;
+  private int                  lastW;
+  private int                  lastH;
+  private byte[]               screenPixels;
+  private long[]               screenDirtyRows;
+  private BlockingQueue<Frame> queue;
+  private Thread               thread;
+  private IndexColorModel      colorModel;
+  private boolean              colorModelMono;
+  private volatile boolean     writerDead;
+  private volatile IOException ioException;
+
+
+  public ScreenRecorder( JTCSys jtcSys, File file, int framesPerSecond )
+  {
+    this.jtcSys          = jtcSys;
+    this.file            = file;
+    this.framesPerSecond = Math.max(
+				Math.min( framesPerSecond, MAX_FRAMES_PER_SECOND ),
+				1 );
+    this.cyclesPerFrame  = JTCSys.DEFAULT_Z8_CYCLES_PER_SECOND
+					/ this.framesPerSecond;
+    this.nextFrameCycles = 0;
+    this.lastW           = -1;
+    this.lastH           = -1;
+    this.screenPixels    = new byte[ jtcSys.getScreenPixels().length ];
+    this.screenDirtyRows = null;
+    this.queue           = new ArrayBlockingQueue<>( QUEUE_SIZE );
+    this.thread          = null;
+    this.colorModel      = null;
+    this.colorModelMono  = false;
+    this.writerDead      = false;
+    this.ioException     = null;
+  }
+
+
+  /*
+   * Die Methode wird im Emulations-Thread
+   * zwischen zwei Emulationsabschnitten aufgerufen
+   * und erfasst alle seit dem letzten Aufruf faelligen Bilder.
+   * Ist die Emulation ueber mehrere Bildzeitpunkte hinweggelaufen,
+   * werden die weiteren Bilder als unveraendert eingetragen.
+   */
+  public void capture()
+  {
+    long totalCycles = this.jtcSys.getZ8().getTotalCycles();
+    while( totalCycles >= this.nextFrameCycles ) {
+      this.nextFrameCycles += this.cyclesPerFrame;
+      if( !this.writerDead ) {
+	captureFrame();
+      }
+    }
+  }
+
+
+  /*
+   * Die Methode beendet die Aufzeichnung,
+   * wartet auf das Schreiben der restlichen Bilder
+   * und wirft ggf. einen beim Schreiben aufgetretenen Fehler.
+   */
+  public void finish() throws IOException
+  {
+    if( this.thread != null ) {
+      try {
+	if( enqueue( END_FRAME ) ) {
+	  this.thread.join();
+	}
+      }
+      catch( InterruptedException ex ) {
+	Thread.currentThread().interrupt();
+      }
+      this.thread = null;
+    }
+    if( this.screenDirtyRows != null ) {
+      this.jtcSys.removeScreenDirtyRows( this.screenDirtyRows );
+      this.screenDirtyRows = null;
+    }
+    if( this.ioException != null ) {
+      throw this.ioException;
+    }
+  }
+
+
+  /*
+   * Zeitpunkt in Taktzyklen, zu dem das naechste Bild faellig ist
+   */
+  public long getNextFrameCycles()
+  {
+    return this.nextFrameCycles;
+  }
+
+
+  public void start()
+  {
+    this.nextFrameCycles = this.jtcSys.getZ8().getTotalCycles();
+    this.screenDirtyRows = this.jtcSys.createScreenDirtyRows();
+    this.thread          = new Thread(
+				this,
+				AppContext.getAppName() + " screen recorder" );
+    this.thread.start();
+  }
+
+
+	/* --- Runnable --- */
+
+  @Override
+  public void run()
+  {
+    ImageOutputStream out    = null;
+    ImageWriter       writer = null;
+    try {
+      Iterator<ImageWriter> iter = ImageIO.getImageWritersByFormatName(
+									"gif" );
+      if( !iter.hasNext() ) {
+	throw new IOException( "GIF-Format wird nicht unterst\u00FCtzt" );
+      }
+      writer = iter.next();
+      this.file.delete();
+      out = ImageIO.createImageOutputStream( this.file );
+      if( out == null ) {
+	throw new IOException( this.file.getPath()
+			+ ": Datei kann nicht angelegt werden" );
+      }
+      writer.setOutput( out );
+      writer.prepareWriteSequence( null );
+
+      /*
+       * Die Anzeigedauer eines Bildes steht erst fest,
+       * wenn das naechste geaenderte Bild vorliegt.
+       * Sie wird ueber die Bildnummern berechnet,
+       * damit sich die Rundungsfehler nicht aufsummieren.
+       */
+      BufferedImage pendingImg   = null;
+      long          pendingBeg   = 0;
+      long          frameNum     = 0;
+      boolean       firstWritten = false;
+      for(;;) {
+	Frame frame = this.queue.take();
+	if( (frame == END_FRAME) || (frame.pixels != null) ) {
+	  if( pendingImg != null ) {
+	    writeFrame(
+		writer,
+		pendingImg,
+		toCentis( frameNum ) - toCentis( pendingBeg ),
+		!firstWritten );
+	    firstWritten = true;
+	    pendingImg   = null;
+	  }
+	  if( frame == END_FRAME ) {
+	    break;
+	  }
+	  pendingImg = createImage( frame );
+	  pendingBeg = frameNum;
+	}
+	frameNum++;
+      }
+      writer.endWriteSequence();
+      out.close();
+      out = null;
+    }
+    catch( IOException ex ) {
+      this.ioException = ex;
+    }
+    catch( InterruptedException ex ) {
+      this.ioException = new IOException(
+		this.file.getPath() + ": Aufzeichnung abgebrochen" );
+    }
+    finally {
+      this.writerDead = true;
+      this.queue.clear();
+      if( writer != null ) {
+	writer.dispose();
+      }
+      JTCUtil.closeSilently( out );
+    }
+  }
+
+
+	/* --- private Methoden --- */
+
+  private void captureFrame()
+  {
+    int w = this.jtcSys.getScreenWidth();
+    int h = this.jtcSys.getScreenHeight();
+    if( (w > 0) && (h > 0) ) {
+      h = Math.min( h, this.screenPixels.length / w );
+
+      /*
+       * Bei geaenderter Bildgroesse stimmt die Zeilenlaenge
+       * im eigenen Bildspeicher nicht mehr,
+       * weshalb dann alle Zeilen neu berechnet werden.
+       */
+      boolean changed = false;
+      if( (w != this.lastW) || (h != this.lastH) ) {
+	this.jtcSys.updScreenPixels( this.screenPixels, this.screenDirtyRows );
+	this.jtcSys.copyScreenPixels( this.screenPixels );
+	this.lastW = w;
+	this.lastH = h;
+	changed    = true;
+      } else {
+	changed = this.jtcSys.updScreenPixels(
+					this.screenPixels,
+					this.screenDirtyRows );
+      }
+      byte[] pixels = null;
+      if( changed ) {
+	pixels = new byte[ w * h ];
+	System.arraycopy(
+		this.screenPixels,
+		0,
+		pixels,
+		0,
+		pixels.length );
+      }
+      try {
+	enqueue( new Frame( w, h, pixels ) );
+      }
+      catch( InterruptedException ex ) {
+	Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+
+  private BufferedImage createImage( Frame frame )
+  {
+    boolean mono = this.jtcSys.isMonochrome();
+    if( (this.colorModel == null) || (mono != this.colorModelMono) ) {
+      int[]  rgbs = this.jtcSys.getColorModeRGBs();
+      byte[] r    = new byte[ rgbs.length ];
+      byte[] g    = new byte[ rgbs.length ];
+      byte[] b    = new byte[ rgbs.length ];
+      for( int i = 0; i < rgbs.length; i++ ) {
+	int rgb = rgbs[ i ];
+	if( mono ) {
+	  rgb = (i > 0 ? 0xFFFFFF : 0);
+	}
+	r[ i ] = (byte) (rgb >> 16);
+	g[ i ] = (byte) (rgb >> 8);
+	b[ i ] = (byte) rgb;
+      }
+      this.colorModel     = new IndexColorModel( 4, rgbs.length, r, g, b );
+      this.colorModelMono = mono;
+    }
+    BufferedImage img = new BufferedImage(
+				frame.w,
+				frame.h,
+				BufferedImage.TYPE_BYTE_INDEXED,
+				this.colorModel );
+    byte[] dst = ((DataBufferByte) img.getRaster().getDataBuffer()).getData();
+    System.arraycopy( frame.pixels, 0, dst, 0, frame.w * frame.h );
+    return img;
+  }
+
+
+  /*
+   * Die Methode wartet, bis das Bild in der Warteschlange Platz findet,
+   * gibt aber auf, sobald der Schreib-Thread beendet ist.
+   *
+   * Rueckgabewert: true, wenn das Bild eingetragen wurde
+   */
+  private boolean enqueue( Frame frame ) throws InterruptedException
+  {
+    while( !this.writerDead ) {
+      if( this.queue.offer( frame, QUEUE_WAIT_MILLIS, TimeUnit.MILLISECONDS ) ) {
+	return true;
+      }
+    }
+    return false;
+  }
+
+
+  private static IIOMetadataNode getOrAddNode(
+				IIOMetadataNode parent,
+				String          name )
+  {
+    for( int i = 0; i < parent.getLength(); i++ ) {
+      if( parent.item( i ).getNodeName().equals( name ) ) {
+	return (IIOMetadataNode) parent.item( i );
+      }
+    }
+    IIOMetadataNode node = new IIOMetadataNode( name );
+    parent.appendChild( node );
+    return node;
+  }
+
+
+  /*
+   * Zeitpunkt einer Bildnummer in Hundertstelsekunden,
+   * der Zeiteinheit fuer die Anzeigedauer im GIF-Format
+   */
+  private long toCentis( long frameNum )
+  {
+    return ((frameNum * 100L) + (this.framesPerSecond / 2))
+					/ this.framesPerSecond;
+  }
+
+
+  private static void writeFrame(
+			ImageWriter   writer,
+			BufferedImage img,
+			long          centis,
+			boolean       first ) throws IOException
+  {
+    IIOMetadata metadata = writer.getDefaultImageMetadata(
+			ImageTypeSpecifier.createFromRenderedImage( img ),
+			null );
+    IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(
+							GIF_METADATA_FORMAT );
+
+    IIOMetadataNode gce = getOrAddNode( root, "GraphicControlExtension" );
+    gce.setAttribute( "disposalMethod", "none" );
+    gce.setAttribute( "userInputFlag", "FALSE" );
+    gce.setAttribute( "transparentColorFlag", "FALSE" );
+    gce.setAttribute(
+		"delayTime",
+		Long.toString( Math.min( Math.max( centis, 1L ), 0xFFFFL ) ) );
+    gce.setAttribute( "transparentColorIndex", "0" );
+
+    // Endlosschleife
+    if( first ) {
+      IIOMetadataNode appExts = getOrAddNode( root, "ApplicationExtensions" );
+      IIOMetadataNode appExt  = new IIOMetadataNode( "ApplicationExtension" );
+      appExt.setAttribute( "applicationID", "NETSCAPE" );
+      appExt.setAttribute( "authenticationCode", "2.0" );
+      appExt.setUserObject( new byte[] { 1, 0, 0 } );
+      appExts.appendChild( appExt );
+    }
+    metadata.setFromTree( GIF_METADATA_FORMAT, root );
+    writer.writeToSequence( new IIOImage( img, null, metadata ), null );
+  }
+}
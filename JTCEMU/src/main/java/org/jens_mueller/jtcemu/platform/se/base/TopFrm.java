@@ -13,6 +13,7 @@ import org.jens_mueller.jtcemu.platform.se.Main;
 import org.jens_mueller.jtcemu.platform.se.audio.AudioFrm;
 import org.jens_mueller.jtcemu.platform.se.audio.AudioIO;
 import org.jens_mueller.jtcemu.platform.se.keyboard.KeyboardFrm;
+import org.jens_mueller.jtcemu.platform.se.metrics.EmuMetrics;
 import org.jens_mueller.jtcemu.platform.se.settings.SettingsFrm;
 import org.jens_mueller.jtcemu.platform.se.tools.ReassFrm;
 import org.jens_mueller.jtcemu.platform.se.tools.TextEditFrm;
@@ -82,6 +83,7 @@ public class TopFrm extends BaseFrm
     private static final String ACTION_SPEED = "speed";
     private static final String ACTION_TEXTEDIT = "textedit";
     private static final String ACTION_THANKS = "thanks";
+    private static final String ACTION_TURBO = "turbo";
     private static final String FILE_GROUP_IMAGE = "image";
 
     private static final String DEFAULT_STATUS_TEXT = "Emulator l\u00E4uft...";
@@ -94,6 +96,9 @@ public class TopFrm extends BaseFrm
     private static final int STATUS_REFRESH_MILLIS = 750;
     private static final int STATUS_SHOW_MSG_MILLIS = 5000;
 
+    // Bildschirmaktualisierung im Turbo-Modus hoechstens alle 250 ms
+    private static final int TURBO_SCREEN_REFRESH_MILLIS = 250;
+
     private JTCSys jtcSys;
     private Z8 z8;
     private Map<Integer, JRadioButtonMenuItem> scale2MenuItems;
@@ -102,6 +107,7 @@ public class TopFrm extends BaseFrm
     private Thread emuThread;
     private Clipboard clipboard;
     private boolean screenOutputEnabled;
+    private long screenRefreshMillis;
     private ScreenFld screenFld;
     private javax.swing.Timer screenRefreshTimer;
     private javax.swing.Timer statusRefreshTimer;
@@ -111,6 +117,7 @@ public class TopFrm extends BaseFrm
     private JMenuItem mnuPasteCancel;
     private JMenuItem mnuPause;
     private JMenuItem mnuSpeed;
+    private JCheckBoxMenuItem mnuTurbo;
     private JLabel fldStatusText;
 
 
@@ -120,6 +127,7 @@ public class TopFrm extends BaseFrm
         this.z8 = jtcSys.getZ8();
         this.clipboard = getToolkit().getSystemClipboard();
         this.screenOutputEnabled = false;
+        this.screenRefreshMillis = 0L;
         this.scale2MenuItems = new HashMap<Integer, JRadioButtonMenuItem>();
         this.jtcScreenSize2Scale = new HashMap<Dimension, Integer>();
         this.jtcScreenSize2Scale.put(
@@ -320,6 +328,11 @@ public class TopFrm extends BaseFrm
                 ACTION_SPEED);
         mnuExtra.add(this.mnuSpeed);
 
+        this.mnuTurbo = new JCheckBoxMenuItem("Turbo-Modus");
+        this.mnuTurbo.setActionCommand(ACTION_TURBO);
+        this.mnuTurbo.addActionListener(this);
+        mnuExtra.add(this.mnuTurbo);
+
         this.mnuPause = createJMenuItem(
                 TEXT_PAUSE,
                 KeyEvent.VK_P,
@@ -435,6 +448,10 @@ public class TopFrm extends BaseFrm
                 this);
 
 
+        // Kennzahlen fuer JMX und JFR
+        EmuMetrics.start(this.z8);
+
+
         // Fenstergroesse und -position
         updScreenSize(false);
         setResizable(true);
@@ -593,10 +610,17 @@ public class TopFrm extends BaseFrm
         Object src = e.getSource();
         if (src == this.screenRefreshTimer) {
             boolean screenOutputEnabled = this.jtcSys.isScreenOutputEnabled();
-            if ((screenOutputEnabled != this.screenOutputEnabled)
-                    || this.screenFld.isDirty()) {
+            if (screenOutputEnabled != this.screenOutputEnabled) {
                 this.screenFld.repaint();
                 this.screenOutputEnabled = screenOutputEnabled;
+            } else if (this.screenFld.isDirty()) {
+                long millis = System.currentTimeMillis();
+                if (!this.jtcSys.isTurboMode()
+                        || ((millis - this.screenRefreshMillis)
+                        >= TURBO_SCREEN_REFRESH_MILLIS)) {
+                    this.screenFld.repaintDirty();
+                    this.screenRefreshMillis = millis;
+                }
             }
         } else if (src == this.statusRefreshTimer) {
             updStatusText();
@@ -644,6 +668,8 @@ public class TopFrm extends BaseFrm
                             SettingsFrm.open(this, this.jtcSys);
                         } else if (actionCmd.equals(ACTION_SPEED)) {
                             doSpeed();
+                        } else if (actionCmd.equals(ACTION_TURBO)) {
+                            doTurbo();
                         } else if (actionCmd.equals(ACTION_PAUSE)) {
                             doPause();
                         } else if (actionCmd.equals(ACTION_POWER_ON)) {
@@ -1179,6 +1205,13 @@ public class TopFrm extends BaseFrm
     }
 
 
+    private void doTurbo() {
+        boolean state = this.mnuTurbo.isSelected();
+        this.jtcSys.setTurboMode(state);
+        this.mnuSpeed.setEnabled(!state);
+    }
+
+
     private Dimension getJTCScreenSize() {
         return new Dimension(
                 this.jtcSys.getScreenWidth(),
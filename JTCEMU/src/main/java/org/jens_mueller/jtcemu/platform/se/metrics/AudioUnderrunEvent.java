@@ -0,0 +1,22 @@
+/*
+ * Jugend+Technik-Computer-Emulator
+ *
+ * JFR-Ereignis fuer einen leergelaufenen Audiokanal
+ */
+
+package org.jens_mueller.jtcemu.platform.se.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+
+@Name( "org.jens_mueller.jtcemu.AudioUnderrun" )
+@Label( "Audiokanal leergelaufen" )
+@Category( { "JTCEMU" } )
+@StackTrace( false )
+class AudioUnderrunEvent extends Event
+{
+}
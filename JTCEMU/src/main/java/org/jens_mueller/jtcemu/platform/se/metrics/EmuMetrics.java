@@ -0,0 +1,286 @@
+/*
+ * Jugend+Technik-Computer-Emulator
+ *
+ * Kennzahlen des Emulators
+ *
+ * Ein eigener Thread ermittelt einmal pro Sekunde
+ * aus den Zaehlern der CPU die Geschwindigkeitswerte,
+ * stellt sie ueber JMX bereit und erzeugt dazu ein JFR-Ereignis.
+ * Das Zeichnen der Bildschirmausgabe, leergelaufene Audiokanaele
+ * und uebergelaufene Ringpuffer der Audioausgabe
+ * werden beim Auftreten gezaehlt.
+ * Ist keine JFR-Aufzeichnung aktiv, werden keine Ereignisse erzeugt.
+ */
+
+package org.jens_mueller.jtcemu.platform.se.metrics;
+
+import org.jens_mueller.jtcemu.base.AppContext;
+import org.jens_mueller.z8.Z8;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+public class EmuMetrics implements EmuMetricsMBean, Runnable
+{
+  public static final String OBJECT_NAME
+			= "org.jens_mueller.jtcemu:type=EmuMetrics";
+
+  private static final long INTERVAL_MILLIS = 1000;
+
+  /*
+   * Unterhalb dieses Anteils der Echtzeit
+   * gilt die Emulation als zu langsam.
+   */
+  private static final double MIN_REAL_TIME_RATIO = 0.95;
+
+  private static final int IRQ_COUNT = 6;
+
+  private static final AtomicLong audioEventOverflows = new AtomicLong();
+  private static final AtomicLong audioUnderruns      = new AtomicLong();
+  private static final AtomicLong screenRepaints      = new AtomicLong();
+  private static final AtomicLong screenPaintNanos    = new AtomicLong();
+
+  // nur im Event-Dispatch-Thread verwendet
+  private static ScreenPaintEvent paintEvent    = null;
+  private static long             paintBegNanos = 0;
+
+  private static EmuMetrics instance = null;
+
+  private Z8               z8;
+  private long             lastNanos;
+  private long             lastCycles;
+  private long             lastInsts;
+  private long             lastSleepMillis;
+  private long[]           lastIrqCounts;
+  private volatile double  emulatedMHz;
+  private volatile long    instsPerSecond;
+  private volatile double  realTimeRatio;
+  private volatile boolean behindRealTime;
+
+
+  /*
+   * Der Ringpuffer fuer die Phasenwechsel einer Audioausgabe
+   * ist uebergelaufen, Phasenwechsel gehen verloren.
+   */
+  public static void audioEventOverflow()
+  {
+    audioEventOverflows.incrementAndGet();
+  }
+
+
+  public static void audioUnderrun()
+  {
+    audioUnderruns.incrementAndGet();
+    AudioUnderrunEvent evt = new AudioUnderrunEvent();
+    if( evt.isEnabled() ) {
+      evt.commit();
+    }
+  }
+
+
+  public static void screenPaintBegin()
+  {
+    paintEvent = new ScreenPaintEvent();
+    paintEvent.begin();
+    paintBegNanos = System.nanoTime();
+  }
+
+
+  public static void screenPaintEnd()
+  {
+    screenPaintNanos.addAndGet( System.nanoTime() - paintBegNanos );
+    screenRepaints.incrementAndGet();
+    if( paintEvent != null ) {
+      paintEvent.commit();
+      paintEvent = null;
+    }
+  }
+
+
+  /*
+   * Die Methode startet die Messung und meldet die Kennzahlen
+   * beim JMX-Server der Java-VM an.
+   * Ein Fehler beim Anmelden verhindert nicht die Emulation.
+   */
+  public static synchronized void start( Z8 z8 )
+  {
+    if( instance == null ) {
+      instance = new EmuMetrics( z8 );
+      try {
+	MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+	server.registerMBean( instance, new ObjectName( OBJECT_NAME ) );
+      }
+      catch( JMException | SecurityException ex ) {}
+      Thread thread = new Thread(
+				instance,
+				AppContext.getAppName() + " metrics" );
+      thread.setDaemon( true );
+      thread.start();
+    }
+  }
+
+
+	/* --- EmuMetricsMBean --- */
+
+  @Override
+  public long getAudioEventOverflows()
+  {
+    return audioEventOverflows.get();
+  }
+
+
+  @Override
+  public long getAudioUnderruns()
+  {
+    return audioUnderruns.get();
+  }
+
+
+  @Override
+  public double getEmulatedMHz()
+  {
+    return this.emulatedMHz;
+  }
+
+
+  @Override
+  public long getInstructionsPerSecond()
+  {
+    return this.instsPerSecond;
+  }
+
+
+  @Override
+  public long[] getInterruptCounts()
+  {
+    long[] rv = new long[ IRQ_COUNT ];
+    for( int i = 0; i < rv.length; i++ ) {
+      rv[ i ] = this.z8.getInterruptCount( i );
+    }
+    return rv;
+  }
+
+
+  @Override
+  public double getRealTimeRatio()
+  {
+    return this.realTimeRatio;
+  }
+
+
+  @Override
+  public long getScreenPaintMillis()
+  {
+    return screenPaintNanos.get() / 1000000L;
+  }
+
+
+  @Override
+  public long getScreenRepaints()
+  {
+    return screenRepaints.get();
+  }
+
+
+  @Override
+  public long getSpeedSleepMillis()
+  {
+    return this.z8.getSpeedSleepMillis();
+  }
+
+
+  @Override
+  public boolean isBehindRealTime()
+  {
+    return this.behindRealTime;
+  }
+
+
+	/* --- Runnable --- */
+
+  @Override
+  public void run()
+  {
+    try {
+      for(;;) {
+	Thread.sleep( INTERVAL_MILLIS );
+	update();
+      }
+    }
+    catch( InterruptedException ex ) {}
+  }
+
+
+	/* --- Konstruktor --- */
+
+  private EmuMetrics( Z8 z8 )
+  {
+    this.z8              = z8;
+    this.lastNanos       = System.nanoTime();
+    this.lastCycles      = z8.getTotalCycles();
+    this.lastInsts       = z8.getTotalInstructions();
+    this.lastSleepMillis = z8.getSpeedSleepMillis();
+    this.lastIrqCounts   = getInterruptCounts();
+    this.emulatedMHz     = 0.0;
+    this.instsPerSecond  = 0;
+    this.realTimeRatio   = 0.0;
+    this.behindRealTime  = false;
+  }
+
+
+	/* --- private Methoden --- */
+
+  private void update()
+  {
+    long   nanos       = System.nanoTime();
+    long   cycles      = this.z8.getTotalCycles();
+    long   insts       = this.z8.getTotalInstructions();
+    long   sleepMillis = this.z8.getSpeedSleepMillis();
+    long[] irqCounts   = getInterruptCounts();
+    long   dNanos      = nanos - this.lastNanos;
+    long   dCycles     = cycles - this.lastCycles;
+    long   dInsts      = insts - this.lastInsts;
+
+    /*
+     * Die Zaehler der CPU werden beim Start der Emulation
+     * zurueckgesetzt.
+     * Ein solches Intervall wird nicht ausgewertet.
+     */
+    if( (dNanos > 0) && (dCycles >= 0) && (dInsts >= 0) ) {
+      double mhz             = (double) dCycles * 1000.0 / (double) dNanos;
+      double ratio           = 0.0;
+      int    cyclesPerSecond = this.z8.getCyclesPerSecond();
+      if( (cyclesPerSecond > 0) && !this.z8.isPause() ) {
+	ratio = mhz * 1000000.0 / (double) cyclesPerSecond;
+      }
+      this.emulatedMHz    = mhz;
+      this.instsPerSecond = dInsts * 1000000000L / dNanos;
+      this.realTimeRatio  = ratio;
+      this.behindRealTime = (ratio > 0.0) && (ratio < MIN_REAL_TIME_RATIO);
+
+      SpeedEvent evt = new SpeedEvent();
+      if( evt.isEnabled() ) {
+	evt.emulatedMHz           = mhz;
+	evt.instructionsPerSecond = this.instsPerSecond;
+	evt.realTimeRatio         = ratio;
+	evt.speedSleepTime        = sleepMillis - this.lastSleepMillis;
+	evt.irq0 = irqCounts[ 0 ] - this.lastIrqCounts[ 0 ];
+	evt.irq1 = irqCounts[ 1 ] - this.lastIrqCounts[ 1 ];
+	evt.irq2 = irqCounts[ 2 ] - this.lastIrqCounts[ 2 ];
+	evt.irq3 = irqCounts[ 3 ] - this.lastIrqCounts[ 3 ];
+	evt.irq4 = irqCounts[ 4 ] - this.lastIrqCounts[ 4 ];
+	evt.irq5 = irqCounts[ 5 ] - this.lastIrqCounts[ 5 ];
+	evt.commit();
+      }
+    }
+    this.lastNanos       = nanos;
+    this.lastCycles      = cycles;
+    this.lastInsts       = insts;
+    this.lastSleepMillis = sleepMillis;
+    this.lastIrqCounts   = irqCounts;
+  }
+}
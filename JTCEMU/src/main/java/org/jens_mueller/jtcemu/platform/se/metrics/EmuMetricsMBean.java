@@ -0,0 +1,26 @@
+/*
+ * Jugend+Technik-Computer-Emulator
+ *
+ * JMX-Schnittstelle fuer die Kennzahlen des Emulators
+ *
+ * Die Geschwindigkeitswerte beziehen sich
+ * auf das letzte Messintervall,
+ * alle anderen Werte sind seit dem Programmstart aufsummiert.
+ */
+
+package org.jens_mueller.jtcemu.platform.se.metrics;
+
+
+public interface EmuMetricsMBean
+{
+  public long    getAudioEventOverflows();
+  public long    getAudioUnderruns();
+  public double  getEmulatedMHz();
+  public long    getInstructionsPerSecond();
+  public long[]  getInterruptCounts();
+  public double  getRealTimeRatio();
+  public long    getScreenPaintMillis();
+  public long    getScreenRepaints();
+  public long    getSpeedSleepMillis();
+  public boolean isBehindRealTime();
+}
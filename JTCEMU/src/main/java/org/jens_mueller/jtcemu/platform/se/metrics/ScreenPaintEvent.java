@@ -0,0 +1,22 @@
+/*
+ * Jugend+Technik-Computer-Emulator
+ *
+ * JFR-Ereignis fuer das Zeichnen der Bildschirmausgabe
+ */
+
+package org.jens_mueller.jtcemu.platform.se.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+
+@Name( "org.jens_mueller.jtcemu.ScreenPaint" )
+@Label( "Bildschirmausgabe zeichnen" )
+@Category( { "JTCEMU" } )
+@StackTrace( false )
+class ScreenPaintEvent extends Event
+{
+}
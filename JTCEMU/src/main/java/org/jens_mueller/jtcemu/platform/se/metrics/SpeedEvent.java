@@ -0,0 +1,58 @@
+/*
+ * Jugend+Technik-Computer-Emulator
+ *
+ * JFR-Ereignis mit den Geschwindigkeitswerten eines Messintervalls
+ */
+
+package org.jens_mueller.jtcemu.platform.se.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Percentage;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+
+@Name( "org.jens_mueller.jtcemu.Speed" )
+@Label( "Emulationsgeschwindigkeit" )
+@Category( { "JTCEMU" } )
+@StackTrace( false )
+class SpeedEvent extends Event
+{
+  @Label( "Emulierte Taktfrequenz (MHz)" )
+  double emulatedMHz;
+
+  @Label( "Befehle pro Sekunde" )
+  long instructionsPerSecond;
+
+  @Label( "Echtzeitanteil" )
+  @Description( "Emulierte Zeit bezogen auf die reale Zeit,"
+		+ " 0 bei unbegrenzter Geschwindigkeit oder Pause" )
+  @Percentage
+  double realTimeRatio;
+
+  @Label( "Wartezeit der Geschwindigkeitsbremse" )
+  @Timespan( Timespan.MILLISECONDS )
+  long speedSleepTime;
+
+  @Label( "IRQ0" )
+  long irq0;
+
+  @Label( "IRQ1" )
+  long irq1;
+
+  @Label( "IRQ2" )
+  long irq2;
+
+  @Label( "IRQ3" )
+  long irq3;
+
+  @Label( "IRQ4" )
+  long irq4;
+
+  @Label( "IRQ5" )
+  long irq5;
+}
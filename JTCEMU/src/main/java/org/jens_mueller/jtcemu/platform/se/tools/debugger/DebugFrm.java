@@ -391,6 +391,7 @@ public class DebugFrm extends BaseFrm
     boolean state = super.doClose();
     if( state ) {
       this.z8.setBreakpoints( null );
+      this.z8.getMemory().setMemWatchFlags( null );
       lastLocation = getLocation();
       instance     = null;
     }
@@ -1603,14 +1604,37 @@ public class DebugFrm extends BaseFrm
 
   private void updBreakpointsInZ8()
   {
+    /*
+     * Speicherhaltepunkte werden moeglichst als Speicherueberwachung
+     * direkt beim Zugriff erkannt.
+     * Nur wenn das nicht unterstuetzt wird, muessen sie
+     * vor jedem Befehl ueber den Operationscode geprueft werden.
+     */
+    boolean memWatch = false;
+    int     nMemBPs  = this.memBreakpoints.getSize();
+    if( nMemBPs > 0 ) {
+      byte[] flags = new byte[ 0x10000 ];
+      for( int i = 0; i < nMemBPs; i++ ) {
+	AbstractBreakpoint bp = this.memBreakpoints.getElementAt( i );
+	if( bp.isEnabled() && (bp instanceof MemBreakpoint) ) {
+	  ((MemBreakpoint) bp).addMemWatchFlagsTo( flags );
+	}
+      }
+      memWatch = this.z8.getMemory().setMemWatchFlags( flags );
+    } else {
+      this.z8.getMemory().setMemWatchFlags( null );
+    }
+
     AbstractBreakpoint[] bps = null;
     int n = this.pcBreakpoints.getSize()
-		+ this.memBreakpoints.getSize()
+		+ nMemBPs
 		+ this.regBreakpoints.getSize();
     if( n > 0 ) {
       java.util.List<AbstractBreakpoint> list = new ArrayList<>( n );
       addEnabledBreakpointsTo( list, this.pcBreakpoints );
-      addEnabledBreakpointsTo( list, this.memBreakpoints );
+      if( !memWatch ) {
+	addEnabledBreakpointsTo( list, this.memBreakpoints );
+      }
       addEnabledBreakpointsTo( list, this.regBreakpoints );
       n = list.size();
       if( n > 0 ) {
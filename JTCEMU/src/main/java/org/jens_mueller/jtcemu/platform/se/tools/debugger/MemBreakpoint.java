@@ -9,6 +9,7 @@
 package org.jens_mueller.jtcemu.platform.se.tools.debugger;
 
 import org.jens_mueller.z8.Z8;
+import org.jens_mueller.z8.Z8Memory;
 
 
 public class MemBreakpoint extends AccessBreakpoint
@@ -42,6 +43,27 @@ public class MemBreakpoint extends AccessBreakpoint
   }
 
 
+  /*
+   * Die Methode traegt den Speicherbereich mit dem Zugriffsmodus
+   * in die Flags fuer die Speicherueberwachung ein.
+   */
+  public void addMemWatchFlagsTo( byte[] flags )
+  {
+    int access = 0;
+    if( isRead() ) {
+      access |= Z8Memory.MEM_WATCH_READ;
+    }
+    if( isWrite() ) {
+      access |= Z8Memory.MEM_WATCH_WRITE;
+    }
+    if( access != 0 ) {
+      for( int addr = this.begAddr; addr <= this.endAddr; addr++ ) {
+	flags[ addr & 0xFFFF ] |= (byte) access;
+      }
+    }
+  }
+
+
   public void setValues(
 		int     begAddr,
 		int     endAddr,
@@ -162,6 +184,38 @@ public class MemBreakpoint extends AccessBreakpoint
   }
 
 
+  /*
+   * Nur die in matches(...) ausgewerteten Befehle
+   * koennen auf den Arbeitsspeicher zugreifen.
+   */
+  @Override
+  public boolean matchesOpcode( int opc )
+  {
+    boolean rv = false;
+    switch( opc ) {
+      case 0x50:					// POP R1
+      case 0x51:					// POP IR1
+      case 0x70:					// PUSH R1
+      case 0x71:					// PUSH IR1
+      case 0x82:					// LDE r1,Irr2
+      case 0x83:					// LDEI Ir1,Irr2
+      case 0xC2:					// LDC r1,Irr2
+      case 0xC3:					// LDCI Ir1,Irr2
+      case 0x92:					// LDE Irr2,r1
+      case 0x93:					// LDEI Irr2,Ir1
+      case 0xD2:					// LDC Irr2,r1
+      case 0xD3:					// LDCI Irr2,Ir1
+      case 0xAF:					// RET
+      case 0xBF:					// IRET
+      case 0xD4:					// CALL IRR1
+      case 0xD6:					// CALL DA
+	rv = true;
+	break;
+    }
+    return rv;
+  }
+
+
 	/* --- private Methoden --- */
 
   private boolean matchesAddr( int addr )
@@ -67,6 +67,13 @@ public class PCBreakpoint extends AbstractBreakpoint
   }
 
 
+  @Override
+  public int getPCAddr()
+  {
+    return this.addr;
+  }
+
+
   @Override
   public boolean matches( Z8 z8 )
   {
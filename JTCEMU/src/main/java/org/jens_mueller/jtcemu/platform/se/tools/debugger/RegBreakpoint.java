@@ -11,8 +11,6 @@ package org.jens_mueller.jtcemu.platform.se.tools.debugger;
 import org.jens_mueller.z8.Z8;
 import org.jens_mueller.z8.Z8Reassembler;
 
-import java.util.concurrent.atomic.AtomicBoolean;
-
 
 public class RegBreakpoint extends AccessBreakpoint
 {
@@ -22,7 +20,8 @@ public class RegBreakpoint extends AccessBreakpoint
   private static final int  SPH   = 0xFE;
   private static final int  SPL   = 0xFF;
 
-  private int regNum;
+  private int     regNum;
+  private boolean rpRead;
 
 
   public RegBreakpoint( int regNum, boolean read, boolean write )
@@ -82,13 +81,13 @@ public class RegBreakpoint extends AccessBreakpoint
   @Override
   public boolean matches( Z8 z8 )
   {
-    boolean       rv  = false;
-    AtomicBoolean rv2 = new AtomicBoolean();
-    int           pc  = z8.getPC();
-    int           b0  = z8.getMemByte( pc, false );
-    int           hi0 = b0 & 0xF0;
-    int           lo0 = b0 & 0x0F;
-    int           b1  = z8.getMemByte( (pc + 1) & 0xFFFF, false );
+    boolean rv  = false;
+    int     pc  = z8.getPC();
+    int     b0  = z8.getMemByte( pc, false );
+    int     hi0 = b0 & 0xF0;
+    int     lo0 = b0 & 0x0F;
+    int     b1  = z8.getMemByte( (pc + 1) & 0xFFFF, false );
+    this.rpRead = false;
 
     // Zugriff auf Stackpointer
     if( (matchesReg( SPH ) && !z8.isInternalStackEnabled())
@@ -151,7 +150,7 @@ public class RegBreakpoint extends AccessBreakpoint
 	case 0xF5:					// LD IR2,R1
 	case 0xE7:					// LD IR1,IM
 	  // Nachfolgendes Byte gibt zu lesendes Register an.
-	  if( matchesReg( getRegNum( b1, z8, rv2 ) ) ) {
+	  if( matchesReg( getRegNum( b1, z8 ) ) ) {
 	    rv = true;
 	  }
 	  break;
@@ -162,7 +161,7 @@ public class RegBreakpoint extends AccessBreakpoint
 	case 0xD4:					// CALL IRR1
 	  // Nachfolgendes Byte gibt zu lesendes Doppelregister an.
 	  {
-	    int r = getRegNum( b1, z8, rv2 ) & 0xFE;
+	    int r = getRegNum( b1, z8 ) & 0xFE;
 	    if( matchesReg( r ) || matchesReg( r + 1 ) ) {
 	      rv = true;
 	    }
@@ -183,7 +182,7 @@ public class RegBreakpoint extends AccessBreakpoint
 	case 0xE5:					// LD R2,IR1
 	  // Nachfolgendes Byte gibt zu lesendes Register indirekt an.
 	  {
-	    int r = getRegNum( b1, z8, rv2 );
+	    int r = getRegNum( b1, z8 );
 	    if( matchesReg( r ) || matchesReg( z8.getRegValue( r ) ) ) {
 	      rv = true;
 	    }
@@ -195,7 +194,7 @@ public class RegBreakpoint extends AccessBreakpoint
 	case 0xA1:					// INCW RR1
 	  // Nachfolgendes Byte gibt zu lesendes Doppelegister indirekt an.
 	  {
-	    int r = getRegNum( b1, z8, rv2 ) & 0xFE;
+	    int r = getRegNum( b1, z8 ) & 0xFE;
 	    if( (r == this.regNum) || ((r + 1) == this.regNum) ) {
 	      rv = true;
 	    }
@@ -336,8 +335,8 @@ public class RegBreakpoint extends AccessBreakpoint
 	   */
 	  {
 	    int b2 = z8.getMemByte( (pc + 2) & 0xFFFF, false );
-	    if( matchesReg( getRegNum( b1, z8, rv2 ) )
-		|| matchesReg( getRegNum( b2, z8, rv2 ) ) )
+	    if( matchesReg( getRegNum( b1, z8 ) )
+		|| matchesReg( getRegNum( b2, z8 ) ) )
 	    {
 	      rv = true;
 	    }
@@ -360,10 +359,10 @@ public class RegBreakpoint extends AccessBreakpoint
 	   */
 	  {
 	    int b2 = z8.getMemByte( (pc + 2) & 0xFFFF, false );
-	    int r1 = getRegNum( b1, z8, rv2 );
+	    int r1 = getRegNum( b1, z8 );
 	    if( matchesReg( r1 )
 		|| matchesReg( z8.getRegValue( r1 ) )
-		|| matchesReg( getRegNum( b2, z8, rv2 ) ) )
+		|| matchesReg( getRegNum( b2, z8 ) ) )
 	    {
 	      rv = true;
 	    }
@@ -383,7 +382,7 @@ public class RegBreakpoint extends AccessBreakpoint
 	  // Das dritte Byte gibt das zu lesende Register an.
 	  {
 	    int b2 = z8.getMemByte( (pc + 2) & 0xFFFF, false );
-	    if( matchesReg( getRegNum( b2, z8, rv2 ) ) ) {
+	    if( matchesReg( getRegNum( b2, z8 ) ) ) {
 	      rv = true;
 	    }
 	  }
@@ -402,7 +401,7 @@ public class RegBreakpoint extends AccessBreakpoint
 	  // Das dritte Byte gibt das indirekt zu lesende Register an.
 	  {
 	    int b2 = z8.getMemByte( (pc + 2) & 0xFFFF, false );
-	    int r  = getRegNum( b2, z8, rv2 );
+	    int r  = getRegNum( b2, z8 );
 	    if( matchesReg( r ) || matchesReg( z8.getRegValue( r ) ) ) {
 	      rv = true;
 	    }
@@ -434,7 +433,7 @@ public class RegBreakpoint extends AccessBreakpoint
 	default:
 	  switch( lo0 ) {
 	    case 0x08:					// LD r1,R2
-	      if( matchesReg( getRegNum( b1, z8, rv2 ) ) ) {
+	      if( matchesReg( getRegNum( b1, z8 ) ) ) {
 		rv = true;
 	      }
 	      break;
@@ -679,16 +678,31 @@ public class RegBreakpoint extends AccessBreakpoint
 	}
       }
     }
-    return rv || rv2.get();
+    return rv || this.rpRead;
+  }
+
+
+  /*
+   * Befehle der Spalten xB (JR cc), xD (JP cc bzw. JP DA) und xF
+   * sowie CALL DA haben keine Registeroperanden.
+   * Sie greifen nur auf die Spezialregister ab IMR zu
+   * (IMR, FLAGS, RP, SPH, SPL).
+   */
+  @Override
+  public boolean matchesOpcode( int opc )
+  {
+    int lo = opc & 0x0F;
+    return ((lo != 0x0B) && (lo != 0x0D) && (lo != 0x0F) && (opc != 0xD6))
+		|| (this.regNum >= IMR);
   }
 
 
 	/* --- private Methoden --- */
 
-  private int getRegNum( int r, Z8 z8, AtomicBoolean rv )
+  private int getRegNum( int r, Z8 z8 )
   {
     if( ((r & 0xF0) == 0xC0) && matchesReg( RP ) ) {
-      rv.set( true );
+      this.rpRead = true;
     }
     return z8.getRegNum( r );
   }
@@ -0,0 +1,245 @@
+/*
+ * Jugend+Technik-Computer-Emulator
+ *
+ * Tests fuer das Lesen und Speichern von Audiodaten
+ */
+
+package org.jens_mueller.jtcemu.platform.se.audio;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sound.sampled.AudioInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+class AudioDataTest
+{
+  private static final int[] PULSES = { 3, 300, 1, 255, 70000, 2 };
+
+  private static final int TRAILING_SAMPLES = 2205;
+
+  @TempDir
+  Path tmpDir;
+
+
+  @Test
+  void readsCSWPulsesInBlocks() throws IOException
+  {
+    File file = writeCSWFile( 2, PULSES, false );
+    try( AudioInputStream in = AudioData.openFile( file ) ) {
+      assertEquals( getSampleCount( PULSES ), in.getFrameLength() );
+      assertArrayEquals( createSamples( PULSES, false ), readAll( in, 7 ) );
+    }
+  }
+
+
+  @Test
+  void blockReadMatchesByteRead() throws IOException
+  {
+    File   file = writeCSWFile( 2, PULSES, true );
+    byte[] bytes;
+    try( InputStream in = AudioData.openFile( file ) ) {
+      ByteArrayOutputStream buf = new ByteArrayOutputStream();
+      int b = in.read();
+      while( b >= 0 ) {
+	buf.write( b );
+	b = in.read();
+      }
+      bytes = buf.toByteArray();
+    }
+    assertArrayEquals( createSamples( PULSES, true ), bytes );
+    try( InputStream in = AudioData.openFile( file ) ) {
+      assertArrayEquals( bytes, readAll( in, 0x1000 ) );
+    }
+  }
+
+
+  @Test
+  void countsSamplesOfCSW1File() throws IOException
+  {
+    File file = writeCSWFile( 1, PULSES, false );
+    try( AudioInputStream in = AudioData.openFile( file ) ) {
+      assertEquals( getSampleCount( PULSES ), in.getFrameLength() );
+      assertArrayEquals( createSamples( PULSES, false ), readAll( in, 100 ) );
+    }
+  }
+
+
+  /*
+   * Die Aufnahme ist groesser als der Spool-Puffer,
+   * aufeinanderfolgende Samples gleicher Phase werden zusammengefasst.
+   */
+  @Test
+  void spoolsRecording() throws IOException
+  {
+    int[]     pulses = createRecordingPulses();
+    AudioData data   = record( pulses );
+    try {
+      int[] expected = Arrays.copyOf( pulses, pulses.length + 1 );
+      expected[ pulses.length ] = TRAILING_SAMPLES;
+      assertEquals( getSampleCount( expected ), data.getSampleCount() );
+      try( AudioInputStream in = data.createAudioInputStream() ) {
+	assertEquals( data.getSampleCount(), in.getFrameLength() );
+	assertArrayEquals(
+		createSamples( expected, true ),
+		readAll( in, 0x1000 ) );
+      }
+    }
+    finally {
+      data.dispose();
+    }
+  }
+
+
+  @Test
+  void savesRecordingAsCSWAndWave() throws IOException
+  {
+    AudioData data = record( createRecordingPulses() );
+    try {
+      byte[] samples;
+      try( AudioInputStream in = data.createAudioInputStream() ) {
+	samples = readAll( in, 0x1000 );
+      }
+      for( String fName : new String[] { "rec.csw", "rec.wav" } ) {
+	File file = this.tmpDir.resolve( fName ).toFile();
+	data.writeToFile( file );
+	try( AudioInputStream in = AudioData.openFile( file ) ) {
+	  assertEquals( data.getSampleCount(), in.getFrameLength(), fName );
+	  assertArrayEquals( samples, readAll( in, 0x1000 ), fName );
+	}
+      }
+    }
+    finally {
+      data.dispose();
+    }
+  }
+
+
+	/* --- private Methoden --- */
+
+  /*
+   * Pulse mit Laengen von 1 bis ueber 255 Samples,
+   * die CSW-Daten belegen mehr als 16 KByte
+   */
+  private static int[] createRecordingPulses()
+  {
+    int[] pulses = new int[ 20000 ];
+    for( int i = 0; i < pulses.length; i++ ) {
+      pulses[ i ] = 1 + ((i * 97) % 400);
+    }
+    pulses[ pulses.length - 1 ] = 10;
+    return pulses;
+  }
+
+
+  private static AudioData record( int[] pulses ) throws IOException
+  {
+    AudioData data  = new AudioData( 22050 );
+    boolean   phase = true;
+    for( int n : pulses ) {
+      // in zwei Teilen, die zusammengefasst werden muessen
+      data.addSamples( n / 2, phase );
+      data.addSamples( n - (n / 2), phase );
+      phase = !phase;
+    }
+    data.finish( TRAILING_SAMPLES );
+    return data;
+  }
+
+  private static byte[] createSamples( int[] pulses, boolean initialPhase )
+  {
+    ByteArrayOutputStream buf   = new ByteArrayOutputStream();
+    boolean               phase = initialPhase;
+    for( int n : pulses ) {
+      for( int i = 0; i < n; i++ ) {
+	buf.write( phase ? AudioOut.PHASE_1_VALUE : AudioOut.PHASE_0_VALUE );
+      }
+      phase = !phase;
+    }
+    return buf.toByteArray();
+  }
+
+
+  private static long getSampleCount( int[] pulses )
+  {
+    long n = 0;
+    for( int v : pulses ) {
+      n += v;
+    }
+    return n;
+  }
+
+
+  private static byte[] readAll(
+			InputStream in,
+			int         bufSize ) throws IOException
+  {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[]                buf = new byte[ bufSize ];
+    int n = in.read( buf );
+    while( n > 0 ) {
+      out.write( buf, 0, n );
+      n = in.read( buf );
+    }
+    return out.toByteArray();
+  }
+
+
+  private File writeCSWFile(
+			int     version,
+			int[]   pulses,
+			boolean initialPhase ) throws IOException
+  {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for( char ch : AudioData.CSW_MAGIC.toCharArray() ) {
+      out.write( ch );
+    }
+    out.write( version );
+    out.write( 0 );
+    if( version == 1 ) {
+      writeInt( out, 22050, 2 );
+      out.write( 1 );				// RLE
+      out.write( initialPhase ? 0x01 : 0 );
+      writeInt( out, 0, 3 );
+    } else {
+      writeInt( out, 22050, 4 );
+      writeInt( out, getSampleCount( pulses ), 4 );
+      out.write( 1 );				// RLE
+      out.write( initialPhase ? 0x01 : 0 );
+      out.write( 0 );				// keine Header-Erweiterung
+      for( int i = 0; i < 16; i++ ) {
+	out.write( 0 );
+      }
+    }
+    for( int n : pulses ) {
+      if( n > 0xFF ) {
+	out.write( 0 );
+	writeInt( out, n, 4 );
+      } else {
+	out.write( n );
+      }
+    }
+    Path file = this.tmpDir.resolve( "audio.csw" );
+    Files.write( file, out.toByteArray() );
+    return file.toFile();
+  }
+
+
+  private static void writeInt( ByteArrayOutputStream out, long v, int len )
+  {
+    for( int i = 0; i < len; i++ ) {
+      out.write( (int) v & 0xFF );
+      v >>= 8;
+    }
+  }
+}
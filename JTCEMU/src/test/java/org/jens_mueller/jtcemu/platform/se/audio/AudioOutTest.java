@@ -0,0 +1,246 @@
+/*
+ * Jugend+Technik-Computer-Emulator
+ *
+ * Tests fuer den Audio-Thread der Audioausgabe
+ */
+
+package org.jens_mueller.jtcemu.platform.se.audio;
+
+import org.jens_mueller.jtcemu.base.AppContext;
+import org.jens_mueller.jtcemu.base.JTCSys;
+import org.jens_mueller.jtcemu.base.JTCTestSystem;
+import org.jens_mueller.jtcemu.platform.se.metrics.EmuMetrics;
+import org.jens_mueller.z8.Z8;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import javax.management.ObjectName;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.Mixer;
+import javax.sound.sampled.SourceDataLine;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class AudioOutTest
+{
+  private static final int FRAME_RATE   = 10000;
+  private static final int FRAME_CYCLES = JTCSys.DEFAULT_Z8_CYCLES_PER_SECOND
+							/ FRAME_RATE;
+
+
+  /*
+   * Anzeigefeld ohne Fenster,
+   * bei dem der Audio-Thread beim Erzeugen der ersten Samples
+   * bis zur Freigabe durch den Test angehalten werden kann
+   */
+  private static class BlockingFld extends AudioOutFld
+  {
+    private final CountDownLatch entered  = new CountDownLatch( 1 );
+    private final CountDownLatch released = new CountDownLatch( 1 );
+
+    private BlockingFld( JTCSys jtcSys )
+    {
+      super( null, jtcSys, "test.audio.out.", false );
+    }
+
+    @Override
+    public void fireUpdVolume( int value, boolean volumeStatus )
+    {
+      this.entered.countDown();
+      try {
+	this.released.await();
+      }
+      catch( InterruptedException ex ) {
+	Thread.currentThread().interrupt();
+      }
+    }
+  };
+
+
+  /*
+   * Audioausgabe mit Aufzeichnung auf einen Audiokanal,
+   * der nie freien Platz meldet
+   */
+  private static class StalledLineAudioOut extends AudioOut
+  {
+    private StalledLineAudioOut( AudioOutFld fld, Z8 z8 )
+    {
+      super( fld, z8, FRAME_RATE, true, null, true );
+    }
+
+    @Override
+    protected SourceDataLine openSourceDataLine(
+					AudioFormat format,
+					Mixer       mixer )
+    {
+      return (SourceDataLine) Proxy.newProxyInstance(
+		SourceDataLine.class.getClassLoader(),
+		new Class<?>[] { SourceDataLine.class },
+		(proxy, method, args) -> {
+		  Object rv = null;
+		  switch( method.getName() ) {
+		    case "available":
+		      rv = 0;
+		      break;
+		    case "getBufferSize":
+		      rv = 4096;
+		      break;
+		    case "getFormat":
+		      rv = format;
+		      break;
+		    default:
+		      if( method.getReturnType() == boolean.class ) {
+			rv = false;
+		      } else if( method.getReturnType() == int.class ) {
+			rv = 0;
+		      } else if( method.getReturnType() == long.class ) {
+			rv = 0L;
+		      } else if( method.getReturnType() == float.class ) {
+			rv = 0F;
+		      }
+		  }
+		  return rv;
+		} );
+    }
+  };
+
+
+  @Test
+  @Timeout( 20 )
+  void audioThreadIsDaemon() throws Exception
+  {
+    JTCSys      jtcSys   = JTCTestSystem.bootIdle();
+    BlockingFld fld      = new BlockingFld( jtcSys );
+    AudioOut    audioOut = new AudioOut(
+				fld,
+				jtcSys.getZ8(),
+				FRAME_RATE,
+				false,
+				null,
+				true );
+    fld.released.countDown();
+    audioOut.writePhase( false );
+
+    Thread thread = findAudioThread();
+    assertNotNull( thread );
+    assertTrue( thread.isDaemon() );
+
+    audioOut.requestStop();
+    thread.join();
+    assertFalse( thread.isAlive() );
+  }
+
+
+  @Test
+  @Timeout( 20 )
+  void countsEachOverflowOnce() throws Exception
+  {
+    JTCSys jtcSys = JTCTestSystem.bootIdle();
+    Z8     z8     = jtcSys.getZ8();
+    EmuMetrics.start( z8 );
+    long overflows = getAudioEventOverflows();
+
+    BlockingFld fld      = new BlockingFld( jtcSys );
+    AudioOut    audioOut = new AudioOut(
+				fld,
+				z8,
+				FRAME_RATE,
+				false,
+				null,
+				true );
+    audioOut.writePhase( false );
+    z8.runCycles( 4000 );
+    audioOut.writePhase( true );
+    fld.entered.await();
+
+    /*
+     * Der Audio-Thread haengt,
+     * der Ringpuffer mit 64K Eintraegen laeuft deshalb einmal ueber.
+     */
+    boolean phase = true;
+    for( int i = 0; i < 0x12000; i++ ) {
+      phase = !phase;
+      audioOut.writePhase( phase );
+    }
+    assertEquals( overflows + 1, getAudioEventOverflows() );
+
+    fld.released.countDown();
+    Thread thread = findAudioThread();
+    audioOut.requestStop();
+    if( thread != null ) {
+      thread.join();
+    }
+    assertEquals( overflows + 1, getAudioEventOverflows() );
+  }
+
+
+  /*
+   * Der haengende Audiokanal wird nach etwa einer Sekunde geschlossen.
+   * Der Abschnitt, in dem das passiert, ist laenger als zwei Puffer
+   * und wird trotzdem noch vollstaendig aufgezeichnet.
+   * Da er kuerzer als die Pause am Ende der Aufzeichnung ist,
+   * wird er dabei nicht gekuerzt.
+   */
+  @Test
+  @Timeout( 20 )
+  void recordsRestAfterClosingStalledLine() throws Exception
+  {
+    JTCSys      jtcSys   = JTCTestSystem.bootIdle();
+    Z8          z8       = jtcSys.getZ8();
+    BlockingFld fld      = new BlockingFld( jtcSys );
+    AudioOut    audioOut = new StalledLineAudioOut( fld, z8 );
+    audioOut.writePhase( false );
+    z8.runCycles( 10 * FRAME_CYCLES );
+    audioOut.writePhase( true );
+    fld.entered.await();
+    z8.runCycles( 10 * FRAME_CYCLES );
+    audioOut.writePhase( false );
+    z8.runCycles( 600 * FRAME_CYCLES );
+    audioOut.writePhase( true );
+
+    Thread thread = findAudioThread();
+    fld.released.countDown();
+    if( thread != null ) {
+      thread.join();
+    }
+    assertEquals(
+		AudioIO.ERROR_LINE_CLOSED_BECAUSE_NOT_WORKING,
+		audioOut.getErrorText() );
+
+    // 10 Samples mit 1, 600 mit 0 und die Pause am Ende
+    long nSamples = audioOut.getRecordedData().getSampleCount();
+    assertTrue(
+	(nSamples >= 608 + (FRAME_RATE / 10))
+		&& (nSamples <= 612 + (FRAME_RATE / 10)),
+	"Samples: " + nSamples );
+  }
+
+
+	/* --- private Methoden --- */
+
+  private static Thread findAudioThread()
+  {
+    String name = AppContext.getAppName() + " audio out";
+    for( Thread thread : Thread.getAllStackTraces().keySet() ) {
+      if( thread.getName().equals( name ) && thread.isAlive() ) {
+	return thread;
+      }
+    }
+    return null;
+  }
+
+
+  private static long getAudioEventOverflows() throws Exception
+  {
+    return (Long) ManagementFactory.getPlatformMBeanServer().getAttribute(
+				new ObjectName( EmuMetrics.OBJECT_NAME ),
+				"AudioEventOverflows" );
+  }
+}
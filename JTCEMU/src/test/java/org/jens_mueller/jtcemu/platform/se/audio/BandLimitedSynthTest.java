@@ -0,0 +1,132 @@
+/*
+ * Jugend+Technik-Computer-Emulator
+ *
+ * Tests fuer die bandbegrenzte Erzeugung einer Rechteckkurve
+ */
+
+package org.jens_mueller.jtcemu.platform.se.audio;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class BandLimitedSynthTest
+{
+  private static final int FRAME_RATE        = 22050;
+  private static final int CYCLES_PER_SECOND = 4000000;
+  private static final int AMPLITUDE         = 0x6000;
+
+
+  @Test
+  void settlesOnBothLevels()
+  {
+    BandLimitedSynth synth = createSynth();
+    assertEquals( -AMPLITUDE / 2, synth.nextSample() );
+
+    synth.addStep( 1000, true );
+    int[] samples = nextSamples( synth, 100 );
+    assertEquals( -AMPLITUDE / 2, samples[ 0 ] );
+    assertEquals( AMPLITUDE / 2, samples[ 99 ] );
+  }
+
+
+  @Test
+  void doesNotDriftAfterManySteps()
+  {
+    BandLimitedSynth synth = createSynth();
+    boolean phase  = false;
+    long    cycles = 0;
+    long    frames = 0;
+    int     min    = 0;
+    int     max    = 0;
+    for( int i = 0; i < 10000; i++ ) {
+      cycles += 700 + ((i * 37) % 300);
+      phase = !phase;
+      synth.addStep( cycles, phase );
+      long endFrame = (cycles * FRAME_RATE / CYCLES_PER_SECOND) + 1;
+      while( frames < endFrame ) {
+	int v = synth.nextSample();
+	frames++;
+	min   = Math.min( min, v );
+	max   = Math.max( max, v );
+      }
+    }
+    int[] samples = nextSamples( synth, 100 );
+    assertEquals( phase ? AMPLITUDE / 2 : -AMPLITUDE / 2, samples[ 99 ] );
+
+    // Ueberschwinger begrenzt, 16 Bit werden nicht ueberschritten
+    assertTrue( max <= (AMPLITUDE / 2) * 3 / 2, Integer.toString( max ) );
+    assertTrue( min >= -(AMPLITUDE / 2) * 3 / 2, Integer.toString( min ) );
+    assertTrue( max <= Short.MAX_VALUE );
+  }
+
+
+  /*
+   * Die Flaeche unter der Kurve haengt auch vom Bruchteil
+   * eines Samples ab, an dem der Pegelwechsel liegt.
+   */
+  @Test
+  void keepsSubSamplePosition()
+  {
+    long cyclesPerHalfFrame = CYCLES_PER_SECOND / FRAME_RATE / 2;
+    long area1 = getStepArea( 10000 );
+    long area2 = getStepArea( 10000 + cyclesPerHalfFrame );
+    double diff = (double) (area1 - area2) / (double) AMPLITUDE;
+    assertTrue( (diff > 0.45) && (diff < 0.55), Double.toString( diff ) );
+  }
+
+
+  @Test
+  void ignoresStepBeforeNextSample()
+  {
+    BandLimitedSynth synth = createSynth();
+    nextSamples( synth, 100 );
+    synth.addStep( 0, true );
+    int[] samples = nextSamples( synth, 100 );
+    assertEquals( -AMPLITUDE / 2, samples[ 99 ] );
+  }
+
+
+	/* --- private Methoden --- */
+
+  private static BandLimitedSynth createSynth()
+  {
+    return new BandLimitedSynth(
+			FRAME_RATE,
+			CYCLES_PER_SECOND,
+			AMPLITUDE,
+			false );
+  }
+
+
+  /*
+   * Wie in AudioOut werden vor dem Pegelwechsel
+   * die Samples bis zu dessen Position erzeugt.
+   */
+  private static long getStepArea( long cycles )
+  {
+    BandLimitedSynth synth = createSynth();
+    int              nSkip = (int) (cycles * FRAME_RATE / CYCLES_PER_SECOND);
+    long             area  = 0;
+    for( int v : nextSamples( synth, nSkip ) ) {
+      area += (v + (AMPLITUDE / 2));
+    }
+    synth.addStep( cycles, true );
+    for( int v : nextSamples( synth, 200 - nSkip ) ) {
+      area += (v + (AMPLITUDE / 2));
+    }
+    return area;
+  }
+
+
+  private static int[] nextSamples( BandLimitedSynth synth, int n )
+  {
+    int[] samples = new int[ n ];
+    for( int i = 0; i < n; i++ ) {
+      samples[ i ] = synth.nextSample();
+    }
+    return samples;
+  }
+}
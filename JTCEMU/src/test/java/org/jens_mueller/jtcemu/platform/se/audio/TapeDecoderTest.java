@@ -0,0 +1,477 @@
+/*
+ * Jugend+Technik-Computer-Emulator
+ *
+ * Tests fuer das Dekodieren von Sound-Dateien
+ * in den Aufzeichnungsformaten von ES 2.3 und ES 4.0,
+ * des Monitors des EMR-ES 1988 und der SIO
+ */
+
+package org.jens_mueller.jtcemu.platform.se.audio;
+
+import org.jens_mueller.jtcemu.base.JTCSys;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class TapeDecoderTest
+{
+  // 48 kHz: eine Einheit (125 us) entspricht genau 6 Samples
+  private static final int FRAME_RATE      = 48000;
+  private static final int FRAMES_PER_UNIT = 6;
+
+  // EMR-ES 1988: Halbwellen von 2400, 1200 und 600 Hz
+  private static final int ES1988_BIT0_FRAMES      = 10;
+  private static final int ES1988_BIT1_FRAMES      = 20;
+  private static final int ES1988_SEPARATOR_FRAMES = 40;
+
+  // SIO: Halbwelle des Tons von 2400 Hz, 16 Halbwellen je Bit
+  private static final int SIO_TONE_FRAMES = 10;
+  private static final int SIO_BIT_FRAMES  = 16 * SIO_TONE_FRAMES;
+
+  @TempDir
+  Path tmpDir;
+
+  private boolean phase = false;
+
+
+  @Test
+  void decodesWaveFile() throws IOException
+  {
+    byte[] data = createData( 128 + 10 );
+    ByteArrayOutputStream samples = new ByteArrayOutputStream();
+    writeBlock( samples, 0, 0xFC, Arrays.copyOfRange( data, 0, 128 ), -1 );
+    writeBlock( samples, 1, 0xFA, Arrays.copyOfRange( data, 128, 138 ), -1 );
+    writeBlock( samples, 2, 0xFE, new byte[ 0 ], -1 );
+
+    File file = this.tmpDir.resolve( "tape.wav" ).toFile();
+    AudioSystem.write(
+		createStream( samples ),
+		AudioFileFormat.Type.WAVE,
+		file );
+
+    TapeDecoder decoder = TapeDecoder.decode( file, JTCSys.OSType.ES23 );
+    assertEquals( TapeDecoder.Format.ES23, decoder.getFormat() );
+    assertEquals( FRAME_RATE, decoder.getFrameRate() );
+    assertEquals( 3, decoder.getBlocks().size() );
+    assertEquals( 0, decoder.getErrorCount() );
+    assertArrayEquals( data, decoder.getData() );
+  }
+
+
+  @Test
+  void reportsChecksumError() throws IOException
+  {
+    byte[] data = createData( 128 );
+    ByteArrayOutputStream samples = new ByteArrayOutputStream();
+    writeBlock( samples, 0, 0xFC, data, 17 );
+    writeBlock( samples, 1, 0xFE, new byte[ 0 ], -1 );
+
+    TapeDecoder decoder = TapeDecoder.decode(
+					createStream( samples ),
+					JTCSys.OSType.ES40 );
+    List<TapeDecoder.Block> blocks = decoder.getBlocks();
+    assertEquals( 2, blocks.size() );
+    assertEquals( 1, decoder.getErrorCount() );
+    assertEquals( "Pr\u00FCfsummenfehler", blocks.get( 0 ).getErrorText() );
+    assertFalse( blocks.get( 1 ).hasError() );
+  }
+
+
+  @Test
+  void reportsMissingEndBlock() throws IOException
+  {
+    ByteArrayOutputStream samples = new ByteArrayOutputStream();
+    writeBlock( samples, 0, 0xFC, createData( 128 ), -1 );
+
+    TapeDecoder decoder = TapeDecoder.decode(
+					createStream( samples ),
+					JTCSys.OSType.ES23 );
+    List<TapeDecoder.Block> blocks = decoder.getBlocks();
+    assertEquals( 2, blocks.size() );
+    assertFalse( blocks.get( 0 ).hasError() );
+    assertTrue( blocks.get( 1 ).hasError() );
+    assertEquals( "Endeblock fehlt", blocks.get( 1 ).getErrorText() );
+  }
+
+
+  @Test
+  void decodesES1988Blocks() throws IOException
+  {
+    byte[] data = createData( 200 );
+    byte[] last = Arrays.copyOf( Arrays.copyOfRange( data, 128, 200 ), 128 );
+    ByteArrayOutputStream samples = new ByteArrayOutputStream();
+    writeES1988Header( samples, "TESTPROG", 0xE000, 0xE000 + 200 - 1 );
+    writeES1988Block( samples, 2, Arrays.copyOf( data, 128 ), -1, -1 );
+    writeES1988Block( samples, 0xFF, last, -1, -1 );
+
+    TapeDecoder decoder = TapeDecoder.decode(
+					createStream( samples ),
+					JTCSys.OSType.ES1988 );
+    assertEquals( TapeDecoder.Format.ES1988, decoder.getFormat() );
+    List<TapeDecoder.Block> blocks = decoder.getBlocks();
+    assertEquals( 3, blocks.size() );
+    assertEquals( 1, blocks.get( 0 ).getBlockNum() );
+    assertEquals( 0xFF, blocks.get( 2 ).getBlockNum() );
+    assertEquals( 0, decoder.getErrorCount() );
+    assertEquals( "TESTPROG", decoder.getFileName() );
+    assertEquals( 0xE000, decoder.getBegAddr() );
+    assertArrayEquals( data, decoder.getData() );
+  }
+
+
+  @Test
+  void reportsES1988ChecksumError() throws IOException
+  {
+    ByteArrayOutputStream samples = new ByteArrayOutputStream();
+    writeES1988Header( samples, "CKS", 0xE000, 0xE0FF );
+    writeES1988Block( samples, 2, createData( 128 ), 64, -1 );
+    writeES1988Block( samples, 0xFF, createData( 128 ), -1, -1 );
+
+    TapeDecoder decoder = TapeDecoder.decode(
+					createStream( samples ),
+					JTCSys.OSType.ES1988 );
+    List<TapeDecoder.Block> blocks = decoder.getBlocks();
+    assertEquals( 3, blocks.size() );
+    assertEquals( 1, decoder.getErrorCount() );
+    assertEquals( "Pr\u00FCfsummenfehler", blocks.get( 1 ).getErrorText() );
+    assertFalse( blocks.get( 2 ).hasError() );
+  }
+
+
+  /*
+   * Fehlt das Trennzeichen vor einem Byte,
+   * ist der Block unvollstaendig.
+   */
+  @Test
+  void reportsES1988FramingError() throws IOException
+  {
+    ByteArrayOutputStream samples = new ByteArrayOutputStream();
+    writeES1988Header( samples, "SEP", 0xE000, 0xE0FF );
+    writeES1988Block( samples, 2, createData( 128 ), -1, 50 );
+    writeES1988Block( samples, 0xFF, createData( 128 ), -1, -1 );
+
+    TapeDecoder decoder = TapeDecoder.decode(
+					createStream( samples ),
+					JTCSys.OSType.ES1988 );
+    List<TapeDecoder.Block> blocks = decoder.getBlocks();
+    assertEquals( 3, blocks.size() );
+    assertEquals( 1, decoder.getErrorCount() );
+    assertEquals(
+		"Block unvollst\u00E4ndig (50 von 128 Bytes)",
+		blocks.get( 1 ).getErrorText() );
+    assertFalse( blocks.get( 2 ).hasError() );
+  }
+
+
+  @Test
+  void reportsES1988MissingEndBlock() throws IOException
+  {
+    ByteArrayOutputStream samples = new ByteArrayOutputStream();
+    writeES1988Header( samples, "END", 0xE000, 0xE0FF );
+    writeES1988Block( samples, 2, createData( 128 ), -1, -1 );
+
+    TapeDecoder decoder = TapeDecoder.decode(
+					createStream( samples ),
+					JTCSys.OSType.ES1988 );
+    List<TapeDecoder.Block> blocks = decoder.getBlocks();
+    assertEquals( 3, blocks.size() );
+    assertFalse( blocks.get( 1 ).hasError() );
+    assertEquals( "Endeblock fehlt", blocks.get( 2 ).getErrorText() );
+  }
+
+
+  @Test
+  void decodesSIOTransfer() throws IOException
+  {
+    byte[] data = Arrays.copyOf( createData( 40 ), 41 );
+    data[ 10 ] = (byte) 0xFF;
+    ByteArrayOutputStream samples = new ByteArrayOutputStream();
+    writeSIOTransfer( samples, data, -1 );
+
+    TapeDecoder decoder = TapeDecoder.decode(
+					createStream( samples ),
+					JTCSys.OSType.OS2K );
+    assertEquals( TapeDecoder.Format.SIO, decoder.getFormat() );
+    List<TapeDecoder.Block> blocks = decoder.getBlocks();
+    assertEquals( 1, blocks.size() );
+    assertEquals( -1, blocks.get( 0 ).getBlockNum() );
+    assertEquals( 0, decoder.getErrorCount() );
+    assertArrayEquals( data, decoder.getData() );
+  }
+
+
+  /*
+   * Beim EMR-ES 1988 wird das BASIC-Format versucht,
+   * wenn im Monitor-Format nichts gefunden wurde.
+   */
+  @Test
+  void decodesSIOTransferForES1988() throws IOException
+  {
+    byte[] data = Arrays.copyOf( createData( 20 ), 21 );
+    ByteArrayOutputStream samples = new ByteArrayOutputStream();
+    writeSIOTransfer( samples, data, -1 );
+
+    TapeDecoder decoder = TapeDecoder.decode(
+					createStream( samples ),
+					JTCSys.OSType.ES1988 );
+    assertEquals( TapeDecoder.Format.SIO, decoder.getFormat() );
+    assertEquals( 0, decoder.getErrorCount() );
+    assertArrayEquals( data, decoder.getData() );
+  }
+
+
+  /*
+   * Das SIO-Format kennt keine Pruefsumme,
+   * erkannt werden nur fehlende Stop-Bits.
+   */
+  @Test
+  void reportsSIOFramingError() throws IOException
+  {
+    byte[] data = Arrays.copyOf( createData( 20 ), 21 );
+    ByteArrayOutputStream samples = new ByteArrayOutputStream();
+    writeSIOTransfer( samples, data, 7 );
+
+    TapeDecoder decoder = TapeDecoder.decode(
+					createStream( samples ),
+					JTCSys.OSType.OS2K );
+    List<TapeDecoder.Block> blocks = decoder.getBlocks();
+    assertEquals( 1, blocks.size() );
+    assertEquals( "1 Rahmenfehler", blocks.get( 0 ).getErrorText() );
+    assertArrayEquals( data, decoder.getData() );
+  }
+
+
+  @Test
+  void reportsMissingSIOEnd() throws IOException
+  {
+    byte[] data = createData( 20 );
+    data[ 3 ] = (byte) 0x11;
+    ByteArrayOutputStream samples = new ByteArrayOutputStream();
+    writeSIOTransfer( samples, data, -1 );
+
+    TapeDecoder decoder = TapeDecoder.decode(
+					createStream( samples ),
+					JTCSys.OSType.OS2K );
+    List<TapeDecoder.Block> blocks = decoder.getBlocks();
+    assertEquals( 1, blocks.size() );
+    assertEquals(
+		"Ende der \u00DCbertragung fehlt",
+		blocks.get( 0 ).getErrorText() );
+    assertArrayEquals( data, decoder.getData() );
+  }
+
+
+	/* --- private Methoden --- */
+
+  private static byte[] createData( int len )
+  {
+    byte[] data = new byte[ len ];
+    for( int i = 0; i < len; i++ ) {
+      data[ i ] = (byte) ((i * 37) + 5);
+    }
+    return data;
+  }
+
+
+  private static AudioInputStream createStream( ByteArrayOutputStream samples )
+  {
+    byte[] buf = samples.toByteArray();
+    return new AudioInputStream(
+		new ByteArrayInputStream( buf ),
+		new AudioFormat( FRAME_RATE, 8, 1, true, false ),
+		buf.length );
+  }
+
+
+  /*
+   * Vorton, Synchronimpuls und 133 Bytes eines Blocks,
+   * bei badIdx >= 0 wird das Datenbyte nach der Pruefsummenberechnung
+   * verfaelscht.
+   */
+  private void writeBlock(
+			ByteArrayOutputStream out,
+			int                   blockNum,
+			int                   blockTyp,
+			byte[]                data,
+			int                   badIdx )
+  {
+    byte[] blockBytes = new byte[ 133 ];
+    blockBytes[ 0 ] = (byte) blockNum;
+    blockBytes[ 1 ] = (byte) blockNum;
+    blockBytes[ 4 ] = (byte) blockTyp;
+    System.arraycopy( data, 0, blockBytes, 5, data.length );
+    if( blockTyp == 0xFA ) {
+      blockBytes[ 132 ] = (byte) data.length;
+    }
+    int cks = 0;
+    for( int i = 4; i < blockBytes.length; i++ ) {
+      cks += ((int) blockBytes[ i ] & 0xFF);
+      if( cks > 0xFF ) {
+	cks = (cks + 1) & 0xFF;
+      }
+    }
+    blockBytes[ 2 ] = (byte) cks;
+    blockBytes[ 3 ] = (byte) cks;
+    if( badIdx >= 0 ) {
+      blockBytes[ 5 + badIdx ] ^= 0x01;
+    }
+
+    for( int i = 0; i < 200; i++ ) {
+      writeHalfWave( out, FRAMES_PER_UNIT );
+    }
+    writeHalfWave( out, FRAMES_PER_UNIT );
+    writeHalfWave( out, 4 * FRAMES_PER_UNIT );
+    for( byte b : blockBytes ) {
+      for( int i = 7; i >= 0; --i ) {
+	int units = ((b >> i) & 0x01) != 0 ? 2 : 1;
+	writeHalfWave( out, units * FRAMES_PER_UNIT );
+	writeHalfWave( out, units * FRAMES_PER_UNIT );
+      }
+    }
+    for( int i = 0; i < 20; i++ ) {
+      writeHalfWave( out, FRAMES_PER_UNIT );
+    }
+  }
+
+
+  /*
+   * EMR-ES 1988: Vorton, Blocknummer, 128 Datenbytes und Pruefsumme,
+   * jeweils mit vorangestelltem Trennzeichen,
+   * bei badIdx >= 0 wird das Datenbyte nach der Pruefsummenberechnung
+   * verfaelscht,
+   * bei cutIdx >= 0 fehlt das Trennzeichen vor diesem Datenbyte.
+   */
+  private void writeES1988Block(
+			ByteArrayOutputStream out,
+			int                   blockNum,
+			byte[]                data,
+			int                   badIdx,
+			int                   cutIdx )
+  {
+    byte[] blockBytes = new byte[ 130 ];
+    blockBytes[ 0 ] = (byte) blockNum;
+    System.arraycopy( data, 0, blockBytes, 1, data.length );
+    int cks = 0;
+    for( int i = 1; i <= 128; i++ ) {
+      cks += ((int) blockBytes[ i ] & 0xFF);
+    }
+    blockBytes[ 129 ] = (byte) cks;
+    if( badIdx >= 0 ) {
+      blockBytes[ 1 + badIdx ] ^= 0x01;
+    }
+
+    for( int i = 0; i < 200; i++ ) {
+      writeHalfWave( out, ES1988_BIT1_FRAMES );
+    }
+    for( int i = 0; i < blockBytes.length; i++ ) {
+      int sepFrames = ((cutIdx >= 0) && (i == 1 + cutIdx) ?
+				ES1988_BIT0_FRAMES
+				: ES1988_SEPARATOR_FRAMES);
+      writeHalfWave( out, sepFrames );
+      writeHalfWave( out, sepFrames );
+      int b = blockBytes[ i ];
+      for( int k = 0; k < 8; k++ ) {
+	int frames = ((b >> k) & 0x01) != 0 ?
+				ES1988_BIT1_FRAMES
+				: ES1988_BIT0_FRAMES;
+	writeHalfWave( out, frames );
+	writeHalfWave( out, frames );
+      }
+    }
+    for( int i = 0; i < 20; i++ ) {
+      writeHalfWave( out, ES1988_BIT0_FRAMES );
+    }
+  }
+
+
+  /*
+   * Dateikopf im Format einer JTC-Datei:
+   * Name, Anfangs- und Endadresse
+   */
+  private void writeES1988Header(
+			ByteArrayOutputStream out,
+			String                fileName,
+			int                   begAddr,
+			int                   endAddr )
+  {
+    byte[] header = new byte[ 128 ];
+    Arrays.fill( header, 0, 11, (byte) 0x20 );
+    for( int i = 0; i < fileName.length(); i++ ) {
+      header[ i ] = (byte) fileName.charAt( i );
+    }
+    header[ 17 ] = (byte) begAddr;
+    header[ 18 ] = (byte) (begAddr >> 8);
+    header[ 19 ] = (byte) endAddr;
+    header[ 20 ] = (byte) (endAddr >> 8);
+    writeES1988Block( out, 1, header, -1, -1 );
+  }
+
+
+  /*
+   * SIO: Vorton und die Bytes mit Start- und zwei Stop-Bits,
+   * bei badIdx >= 0 fehlt beim Byte an dieser Position
+   * das erste Stop-Bit (Rahmenfehler).
+   */
+  private void writeSIOTransfer(
+			ByteArrayOutputStream out,
+			byte[]                data,
+			int                   badIdx )
+  {
+    for( int i = 0; i < 20; i++ ) {
+      writeSIOBit( out, true );
+    }
+    for( int i = 0; i < data.length; i++ ) {
+      int b = data[ i ];
+      writeSIOBit( out, false );
+      for( int k = 0; k < 8; k++ ) {
+	writeSIOBit( out, ((b >> k) & 0x01) != 0 );
+      }
+      writeSIOBit( out, i != badIdx );
+      writeSIOBit( out, true );
+    }
+    for( int i = 0; i < 5; i++ ) {
+      writeSIOBit( out, true );
+    }
+  }
+
+
+  // 1-Bit: Ton, 0-Bit: Stille
+  private void writeSIOBit( ByteArrayOutputStream out, boolean mark )
+  {
+    if( mark ) {
+      for( int i = 0; i < 16; i++ ) {
+	writeHalfWave( out, SIO_TONE_FRAMES );
+      }
+    } else {
+      for( int i = 0; i < SIO_BIT_FRAMES; i++ ) {
+	out.write( 0 );
+      }
+    }
+  }
+
+
+  private void writeHalfWave( ByteArrayOutputStream out, int frames )
+  {
+    this.phase = !this.phase;
+    for( int i = 0; i < frames; i++ ) {
+      out.write( this.phase ? 100 : -100 );
+    }
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Jugend+Technik-Computer-Emulator
+ *
+ * Tests fuer die Programmausfuehrung ohne grafische Oberflaeche
+ */
+
+package org.jens_mueller.jtcemu.platform.se.base;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class CmdLineRunnerTest
+{
+  @TempDir
+  Path tmpDir;
+
+  private PrintStream           oldErr;
+  private ByteArrayOutputStream errBuf;
+
+
+  @BeforeEach
+  void captureErr()
+  {
+    this.oldErr = System.err;
+    this.errBuf = new ByteArrayOutputStream();
+    System.setErr( new PrintStream( this.errBuf, true ) );
+  }
+
+
+  @AfterEach
+  void restoreErr()
+  {
+    System.setErr( this.oldErr );
+  }
+
+
+  @Test
+  void stopsAtStopAddress() throws IOException
+  {
+    byte[] prog = {
+		(byte) 0xE6, 0x20, 0x55,	// LD %20,#%55
+		(byte) 0x8D, (byte) 0x80, 0x10,	// JP %8010
+		(byte) 0xFF };			// NOP
+    Path memFile = this.tmpDir.resolve( "mem.bin" );
+    assertTrue( CmdLineRunner.execute(
+			new String[] {
+				"-l", "8000",
+				"-s", "8000",
+				"-b", "8010",
+				"-t", this.tmpDir.resolve( "screen.txt" ).toString(),
+				"-m", memFile.toString(),
+				writeProgram( prog ) },
+			0 ) );
+    assertTrue(
+	getErrText().contains( "Anhalteadresse %8010, PC=%8010" ),
+	getErrText() );
+
+    byte[] mem = Files.readAllBytes( memFile );
+    assertEquals( 0x10000, mem.length );
+    for( int i = 0; i < prog.length; i++ ) {
+      assertEquals( prog[ i ], mem[ 0x8000 + i ] );
+    }
+  }
+
+
+  @Test
+  void stopsBeforeHalt() throws IOException
+  {
+    assertTrue( CmdLineRunner.execute(
+			new String[] {
+				"-l", "8000",
+				"-s", "8000",
+				"-t", this.tmpDir.resolve( "screen.txt" ).toString(),
+				writeProgram( new byte[] {
+					(byte) 0xFF,		// NOP
+					(byte) 0xFF,		// NOP
+					0x7F } ) },		// HALT
+			0 ) );
+    assertTrue(
+	getErrText().contains( "HALT auf %8002, PC=%8002" ),
+	getErrText() );
+  }
+
+
+  @Test
+  void stopsAfterMaxCycles() throws IOException
+  {
+    assertTrue( CmdLineRunner.execute(
+			new String[] {
+				"-l", "8000",
+				"-s", "8000",
+				"-c", "100000",
+				"-t", this.tmpDir.resolve( "screen.txt" ).toString(),
+				writeProgram( new byte[] {
+					(byte) 0x8B, (byte) 0xFE } ) },	// JR $
+			0 ) );
+    assertTrue(
+	getErrText().contains( "max. Anzahl Taktzyklen, PC=%8000" ),
+	getErrText() );
+  }
+
+
+  @Test
+  void writesScreenText() throws IOException
+  {
+    Path textFile = this.tmpDir.resolve( "screen.txt" );
+    assertTrue( CmdLineRunner.execute(
+			new String[] {
+				"-c", "10000000",
+				"-t", textFile.toString() },
+			0 ) );
+    String text = new String(
+			Files.readAllBytes( textFile ),
+			StandardCharsets.ISO_8859_1 );
+    assertTrue( text.contains( "COMP JU+TE" ), text );
+  }
+
+
+  @Test
+  void rejectsUnknownOption()
+  {
+    assertFalse( CmdLineRunner.execute( new String[] { "-x", "1" }, 0 ) );
+    assertTrue( getErrText().contains( "Unbekannte Option 'x'" ) );
+  }
+
+
+	/* --- private Methoden --- */
+
+  private String getErrText()
+  {
+    return new String( this.errBuf.toByteArray() );
+  }
+
+
+  private String writeProgram( byte[] prog ) throws IOException
+  {
+    Path file = this.tmpDir.resolve( "prog.bin" );
+    Files.write( file, prog );
+    return file.toString();
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Jugend+Technik-Computer-Emulator
+ *
+ * Tests fuer die Aufzeichnung der Bildschirmausgabe
+ */
+
+package org.jens_mueller.jtcemu.platform.se.base;
+
+import org.jens_mueller.jtcemu.base.JTCSys;
+import org.jens_mueller.jtcemu.base.JTCTestSystem;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Node;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class ScreenRecorderTest
+{
+  private static final int FRAMES_PER_SECOND = 25;
+  private static final int CYCLES_PER_FRAME
+		= JTCSys.DEFAULT_Z8_CYCLES_PER_SECOND / FRAMES_PER_SECOND;
+
+  @TempDir
+  Path tmpDir;
+
+
+  @Test
+  void writesOnlyChangedFrames() throws IOException
+  {
+    JTCSys         jtcSys   = createIdleSystem();
+    File           file     = this.tmpDir.resolve( "screen.gif" ).toFile();
+    ScreenRecorder recorder = new ScreenRecorder(
+					jtcSys,
+					file,
+					FRAMES_PER_SECOND );
+    recorder.start();
+    for( int i = 0; i < 10; i++ ) {
+      if( (i == 3) || (i == 7) ) {
+	jtcSys.setMemByte( 0xFE00 + (i * 8), false, 0xFF );
+      }
+      jtcSys.getZ8().runCycles( CYCLES_PER_FRAME );
+      recorder.capture();
+    }
+    recorder.finish();
+
+    /*
+     * 11 erfasste Bilder, davon 3 geaendert,
+     * Gesamtdauer 11 * 4/100 Sekunden
+     */
+    ImageReader reader = ImageIO.getImageReadersByFormatName(
+							"gif" ).next();
+    try( ImageInputStream in = ImageIO.createImageInputStream( file ) ) {
+      reader.setInput( in );
+      int nImages = reader.getNumImages( true );
+      assertEquals( 3, nImages );
+
+      int centis = 0;
+      for( int i = 0; i < nImages; i++ ) {
+	centis += getDelayTime( reader, i );
+      }
+      assertEquals( 44, centis );
+      assertEquals( jtcSys.getScreenWidth(), reader.getWidth( 0 ) );
+      assertEquals( jtcSys.getScreenHeight(), reader.getHeight( 0 ) );
+    }
+    finally {
+      reader.dispose();
+    }
+  }
+
+
+  @Test
+  void keepsDisplayDirtyRows() throws IOException
+  {
+    JTCSys jtcSys = createIdleSystem();
+    jtcSys.updScreenPixels( new long[ 3 ] );
+
+    ScreenRecorder recorder = new ScreenRecorder(
+			jtcSys,
+			this.tmpDir.resolve( "screen.gif" ).toFile(),
+			FRAMES_PER_SECOND );
+    recorder.start();
+    jtcSys.setMemByte( 0xFE08, false, 0x81 );
+    jtcSys.getZ8().runCycles( CYCLES_PER_FRAME );
+    recorder.capture();
+    recorder.finish();
+
+    long[] rowMask = new long[ 3 ];
+    assertTrue( jtcSys.updScreenPixels( rowMask ) );
+    assertEquals( 1L << 1, rowMask[ 0 ] );
+  }
+
+
+  @Test
+  @Timeout( 10 )
+  void failsWithoutBlockingOnWriteError() throws IOException
+  {
+    JTCSys         jtcSys   = createIdleSystem();
+    ScreenRecorder recorder = new ScreenRecorder(
+		jtcSys,
+		this.tmpDir.resolve( "fehlt" ).resolve( "screen.gif" ).toFile(),
+		FRAMES_PER_SECOND );
+    recorder.start();
+
+    // mehr Bilder, als in die Warteschlange passen
+    for( int i = 0; i < 200; i++ ) {
+      jtcSys.setMemByte( 0xFE00 + (i % 0x100), false, i );
+      jtcSys.getZ8().runCycles( CYCLES_PER_FRAME );
+      recorder.capture();
+    }
+    assertThrows( IOException.class, recorder::finish );
+  }
+
+
+	/* --- private Methoden --- */
+
+  /*
+   * System im Leerlauf mit geloeschtem Grafikspeicher,
+   * damit jedes Bild gleich aussieht
+   */
+  private static JTCSys createIdleSystem() throws IOException
+  {
+    JTCSys jtcSys = JTCTestSystem.bootIdle();
+    for( int i = 0; i < 0x100; i++ ) {
+      jtcSys.setMemByte( 0xFE00 + i, false, 0 );
+    }
+    return jtcSys;
+  }
+
+
+  private static int getDelayTime(
+			ImageReader reader,
+			int         imgIdx ) throws IOException
+  {
+    Node root = reader.getImageMetadata( imgIdx ).getAsTree(
+					"javax_imageio_gif_image_1.0" );
+    for( Node node = root.getFirstChild();
+	 node != null;
+	 node = node.getNextSibling() )
+    {
+      if( node.getNodeName().equals( "GraphicControlExtension" ) ) {
+	return Integer.parseInt(
+		((IIOMetadataNode) node).getAttribute( "delayTime" ) );
+      }
+    }
+    return 0;
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Jugend+Technik-Computer-Emulator
+ *
+ * Tests fuer die Kennzahlen der Emulation (JMX und JFR)
+ */
+
+package org.jens_mueller.jtcemu.platform.se.metrics;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.jens_mueller.jtcemu.base.JTCSys;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class EmuMetricsTest
+{
+  @Test
+  void publishesCountersViaMBean() throws Exception
+  {
+    EmuMetrics.start( new JTCSys().getZ8() );
+    long repaints    = getLongAttribute( "ScreenRepaints" );
+    long paintMillis = getLongAttribute( "ScreenPaintMillis" );
+    long underruns   = getLongAttribute( "AudioUnderruns" );
+
+    for( int i = 0; i < 3; i++ ) {
+      EmuMetrics.screenPaintBegin();
+      Thread.sleep( 10 );
+      EmuMetrics.screenPaintEnd();
+    }
+    EmuMetrics.audioUnderrun();
+    EmuMetrics.audioUnderrun();
+
+    assertEquals( repaints + 3, getLongAttribute( "ScreenRepaints" ) );
+    assertEquals( underruns + 2, getLongAttribute( "AudioUnderruns" ) );
+    assertTrue( getLongAttribute( "ScreenPaintMillis" ) >= paintMillis + 30 );
+
+    long[] irqCounts = (long[]) getAttribute( "InterruptCounts" );
+    assertEquals( 6, irqCounts.length );
+  }
+
+
+  @Test
+  void recordsJfrEvents() throws Exception
+  {
+    File file = File.createTempFile( "jtcemu", ".jfr" );
+    try {
+      try( Recording recording = new Recording() ) {
+	recording.enable( "org.jens_mueller.jtcemu.ScreenPaint" );
+	recording.enable( "org.jens_mueller.jtcemu.AudioUnderrun" );
+	recording.start();
+	EmuMetrics.screenPaintBegin();
+	EmuMetrics.screenPaintEnd();
+	EmuMetrics.screenPaintBegin();
+	EmuMetrics.screenPaintEnd();
+	EmuMetrics.audioUnderrun();
+	recording.stop();
+	recording.dump( file.toPath() );
+      }
+      int paintEvents    = 0;
+      int underrunEvents = 0;
+      for( RecordedEvent evt : RecordingFile.readAllEvents(
+						file.toPath() ) )
+      {
+	String name = evt.getEventType().getName();
+	if( name.equals( "org.jens_mueller.jtcemu.ScreenPaint" ) ) {
+	  paintEvents++;
+	} else if( name.equals( "org.jens_mueller.jtcemu.AudioUnderrun" ) ) {
+	  underrunEvents++;
+	}
+      }
+      assertEquals( 2, paintEvents );
+      assertEquals( 1, underrunEvents );
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+
+	/* --- private Methoden --- */
+
+  private static Object getAttribute( String name ) throws Exception
+  {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    return server.getAttribute(
+			new ObjectName( EmuMetrics.OBJECT_NAME ),
+			name );
+  }
+
+
+  private static long getLongAttribute( String name ) throws Exception
+  {
+    return ((Long) getAttribute( name )).longValue();
+  }
+}
@@ -1,6 +1,7 @@
 plugins {
     id("java")
     id("java-library")
+    id("java-test-fixtures")
 }
 
 group = "org.sqar.virtualjtc"
@@ -13,41 +13,60 @@ import java.io.IOException;
 
 
 public class ExtROM implements Comparable<ExtROM> {
-    private int begAddr;
-    private int endAddr;
+
+    /*
+     * Inhalt und Adressbereich werden als unveraenderliches Objekt
+     * gemeinsam ausgetauscht.
+     * Dadurch kann der CPU-Emulations-Thread ohne Synchronisation
+     * lesen und sieht trotzdem immer einen konsistenten Zustand.
+     */
+    private static class Content {
+        private final int begAddr;
+        private final int endAddr;
+        private final byte[] fileBytes;
+
+        private Content(int begAddr, byte[] fileBytes) {
+            this.begAddr = begAddr;
+            this.endAddr = (fileBytes != null ?
+                    begAddr + fileBytes.length - 1
+                    : 0);
+            this.fileBytes = fileBytes;
+        }
+    }
+
+
     private int maxSize;
     private File file;
-    private byte[] fileBytes;
-    private String text;
+    private volatile Content content;
+    private volatile String text;
 
 
     public ExtROM(File file, int maxSize) throws IOException {
         this.maxSize = maxSize;
         this.file = file;
-        this.fileBytes = null;
-        this.begAddr = 0;
-        this.endAddr = 0;
+        this.content = new Content(0, null);
         this.text = "%0000  " + this.file.getPath();
         reload();
     }
 
 
-    public synchronized int getBegAddr() {
-        return this.begAddr;
+    public int getBegAddr() {
+        return this.content.begAddr;
     }
 
 
-    public synchronized int getEndAddr() {
-        return this.endAddr;
+    public int getEndAddr() {
+        return this.content.endAddr;
     }
 
 
-    public synchronized int getByte(int addr) {
+    public int getByte(int addr) {
         int rv = 0;
-        if (this.fileBytes != null) {
-            int idx = addr - this.begAddr;
-            if ((idx >= 0) && (idx < this.fileBytes.length)) {
-                rv = (int) this.fileBytes[idx] & 0xFF;
+        Content content = this.content;
+        if (content.fileBytes != null) {
+            int idx = addr - content.begAddr;
+            if ((idx >= 0) && (idx < content.fileBytes.length)) {
+                rv = (int) content.fileBytes[idx] & 0xFF;
             }
         }
         return rv;
@@ -59,30 +78,58 @@ public class ExtROM implements Comparable<ExtROM> {
     }
 
 
-    public void reload() throws IOException {
+    /*
+     * Die Methode liefert den ROM-Inhalt fuer den direkten Zugriff
+     * ueber die Seitentabelle in JTCSys.
+     * Das Array darf nicht veraendert werden.
+     */
+    byte[] getFileBytes() {
+        return this.content.fileBytes;
+    }
+
+
+    /*
+     * Die Methode liefert das Byte an der uebergebenen Adresse
+     * oder -1, wenn die Adresse nicht im Bereich des ROMs liegt.
+     * Adressbereich und Inhalt werden dabei
+     * aus demselben Zustand gelesen.
+     */
+    int getMappedByte(int addr) {
+        int rv = -1;
+        Content content = this.content;
+        if ((addr >= content.begAddr) && (addr <= content.endAddr)) {
+            rv = 0;
+            if (content.fileBytes != null) {
+                int idx = addr - content.begAddr;
+                if ((idx >= 0) && (idx < content.fileBytes.length)) {
+                    rv = (int) content.fileBytes[idx] & 0xFF;
+                }
+            }
+        }
+        return rv;
+    }
+
+
+    public synchronized void reload() throws IOException {
         byte[] fileBytes = JTCUtil.readFile(this.file, this.maxSize);
         if (fileBytes != null) {
-            this.fileBytes = fileBytes;
-            this.endAddr = this.begAddr + this.fileBytes.length - 1;
+            this.content = new Content(this.content.begAddr, fileBytes);
         }
     }
 
 
     public synchronized void setBegAddr(int addr) {
-        this.begAddr = addr;
-        this.endAddr = 0;
-        if (this.fileBytes != null) {
-            this.endAddr = this.begAddr + this.fileBytes.length - 1;
-        }
+        this.content = new Content(addr, this.content.fileBytes);
         this.text = String.format(
                 "%%%04X  %s",
-                this.begAddr,
+                addr,
                 this.file.getPath());
     }
 
 
     public int size() {
-        return this.fileBytes != null ? this.fileBytes.length : 0;
+        byte[] fileBytes = this.content.fileBytes;
+        return fileBytes != null ? fileBytes.length : 0;
     }
 
 
@@ -90,7 +137,7 @@ public class ExtROM implements Comparable<ExtROM> {
 
     @Override
     public int compareTo(ExtROM data) {
-        return data != null ? (this.begAddr - data.begAddr) : -1;
+        return data != null ? (getBegAddr() - data.getBegAddr()) : -1;
     }
 
 
@@ -105,14 +152,15 @@ public class ExtROM implements Comparable<ExtROM> {
             } else {
                 if (o instanceof ExtROM) {
                     rv = true;
-                    ExtROM data = (ExtROM) o;
-                    if (this.begAddr != data.getBegAddr()) {
+                    Content c1 = this.content;
+                    Content c2 = ((ExtROM) o).content;
+                    if (c1.begAddr != c2.begAddr) {
                         rv = false;
                     } else {
-                        if ((this.fileBytes != null) && (data.fileBytes != null)) {
-                            if (this.fileBytes.length == data.fileBytes.length) {
-                                for (int i = 0; i < this.fileBytes.length; i++) {
-                                    if (this.fileBytes[i] != data.fileBytes[i]) {
+                        if ((c1.fileBytes != null) && (c2.fileBytes != null)) {
+                            if (c1.fileBytes.length == c2.fileBytes.length) {
+                                for (int i = 0; i < c1.fileBytes.length; i++) {
+                                    if (c1.fileBytes[i] != c2.fileBytes[i]) {
                                         rv = false;
                                         break;
                                     }
@@ -122,12 +170,12 @@ public class ExtROM implements Comparable<ExtROM> {
                             }
                         } else {
                             int n1 = 0;
-                            if (this.fileBytes != null) {
-                                n1 = this.fileBytes.length;
+                            if (c1.fileBytes != null) {
+                                n1 = c1.fileBytes.length;
                             }
                             int n2 = 0;
-                            if (data.fileBytes != null) {
-                                n2 = data.fileBytes.length;
+                            if (c2.fileBytes != null) {
+                                n2 = c2.fileBytes.length;
                             }
                             if (n1 != n2) {
                                 rv = false;
@@ -84,33 +84,9 @@ public class FileLoader {
                             loadHexFileIntoMem(file, begAddr, endAddr);
                             break;
                     }
-                    if (this.lastLoadedAddr >= begAddr) {
-                        if ((startAddr >= 0) && (startAddr <= 0xFFFF)) {
-                            rv = String.format(
-                                    "Datei nach %%%04X-%%%04X geladen, Start: %%%04X",
-                                    begAddr,
-                                    this.lastLoadedAddr,
-                                    startAddr);
-                        } else {
-                            rv = String.format(
-                                    "Datei nach %%%04X-%%%04X geladen",
-                                    begAddr,
-                                    this.lastLoadedAddr);
-                        }
-                    }
-                }
-                if (this.outOfRam) {
-                    if (rv != null) {
-                        this.msg = "Die Datei konnte nur teilweise geladen werden,\n"
-                                + "da entweder der betreffenden Adressbereich nicht"
-                                + " vollst\u00E4ndig RAM ist\n"
-                                + "oder versucht wurde, \u00FCber das Ende des Adressbereichs"
-                                + " hinaus zu laden.";
-                    } else {
-                        this.msg = "Die Datei konnte nicht geladen werden,\n"
-                                + "da der betreffende Adressbereich kein RAM ist.";
-                    }
+                    rv = createLoadedText(begAddr, startAddr);
                 }
+                checkOutOfRam(rv);
             } catch (IOException ex) {
                 this.msg = ex.getMessage();
                 rv = null;
@@ -120,8 +96,68 @@ public class FileLoader {
     }
 
 
+    /*
+     * Die Methode schreibt bereits dekodierte Daten,
+     * z.B. von einer Audiodatei, in den Arbeitsspeicher.
+     * Im Erfolgsfall wird ein Infotext zurueckgeliefert.
+     */
+    public String loadData(byte[] data, int begAddr) {
+        String rv = null;
+        if ((begAddr < 0) || (begAddr > 0xFFFF)) {
+            this.msg = "Die Daten konnten nicht geladen werden,\n"
+                    + "da die Anfangsadresse nicht bekannt ist.";
+        } else {
+            this.lastLoadedAddr = -1;
+            this.outOfRam = false;
+            int addr = begAddr;
+            for (byte b : data) {
+                setMemByte(addr++, b & 0xFF);
+            }
+            rv = createLoadedText(begAddr, -1);
+            checkOutOfRam(rv);
+        }
+        return rv;
+    }
+
+
     /* --- private Methoden --- */
 
+    private void checkOutOfRam(String loadedText) {
+        if (this.outOfRam) {
+            if (loadedText != null) {
+                this.msg = "Die Datei konnte nur teilweise geladen werden,\n"
+                        + "da entweder der betreffenden Adressbereich nicht"
+                        + " vollst\u00E4ndig RAM ist\n"
+                        + "oder versucht wurde, \u00FCber das Ende des Adressbereichs"
+                        + " hinaus zu laden.";
+            } else {
+                this.msg = "Die Datei konnte nicht geladen werden,\n"
+                        + "da der betreffende Adressbereich kein RAM ist.";
+            }
+        }
+    }
+
+
+    private String createLoadedText(int begAddr, int startAddr) {
+        String rv = null;
+        if (this.lastLoadedAddr >= begAddr) {
+            if ((startAddr >= 0) && (startAddr <= 0xFFFF)) {
+                rv = String.format(
+                        "Datei nach %%%04X-%%%04X geladen, Start: %%%04X",
+                        begAddr,
+                        this.lastLoadedAddr,
+                        startAddr);
+            } else {
+                rv = String.format(
+                        "Datei nach %%%04X-%%%04X geladen",
+                        begAddr,
+                        this.lastLoadedAddr);
+            }
+        }
+        return rv;
+    }
+
+
     private void loadFileIntoMem(
             File file,
             int addr,
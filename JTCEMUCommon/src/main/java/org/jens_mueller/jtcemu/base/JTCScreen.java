@@ -13,4 +13,10 @@ public interface JTCScreen
 {
   public void screenConfigChanged();
   public void setScreenDirty();
+
+  /*
+   * Es haben sich nur die Pixelzeilen y1 bis einschliesslich y2
+   * geaendert.
+   */
+  public void setScreenDirty( int y1, int y2 );
 }
@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
@@ -132,6 +133,62 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
     private static final int BLUE_MASK = 0x02;
     private static final int BRIGHT_MASK = 0x01;
 
+    /*
+     * Bildspeicher mit den Farbnummern aller Bildpunkte
+     *
+     * Der Bildspeicher ist fuer die groesste Bildschirmaufloesung
+     * (ES4.0) ausgelegt und wird zeilenweise mit der aktuellen
+     * Bildschirmbreite belegt.
+     * Schreibzugriffe auf den Bildwiederholspeicher markieren
+     * nur die betroffene Pixelzeile,
+     * neu berechnet wird sie erst in updScreenPixels(...).
+     */
+    private static final int SCREEN_PIXELS_MAX_W = 320;
+    private static final int SCREEN_PIXELS_MAX_H = 192;
+
+    /*
+     * Abbild des Zeichenbildschirms
+     *
+     * Die Zeichencodes des Textbereichs werden bei jedem Schreibzugriff
+     * auf diesen Bereich nachgefuehrt und bei einer tatsaechlichen
+     * Aenderung ein Zaehler erhoeht,
+     * sodass getScreenText() den Speicher nicht jedes Mal neu lesen muss.
+     * Bei 1 oder 2 KByte RAM wird der RAM ab %E000 gespiegelt,
+     * weshalb die Schreibadresse dann zuerst auf die Adresse
+     * im Bildwiederholspeicher umgerechnet wird.
+     * Alle Zugriffe auf das Abbild erfolgen unter der Sperre
+     * von screenTextCells, ueber die auch wartende Threads
+     * von Aenderungen benachrichtigt werden.
+     * Das Ende der Emulation und das Erreichen einer Anzahl Taktzyklen
+     * wird nicht gemeldet, sondern nach spaetestens
+     * SCREEN_TEXT_MAX_WAIT_MILLIS geprueft.
+     */
+    private static final int SCREEN_TEXT_MAX_CELLS = 40 * 24;
+    private static final int SCREEN_TEXT_MAX_WAIT_MILLIS = 100;
+
+    /*
+     * Seitentabelle fuer den Speicherzugriff
+     *
+     * Der Adressraum ist in Seiten zu je 256 Bytes aufgeteilt.
+     * Fuer jede Seite, die vollstaendig auf einen zusammenhaengenden
+     * Bereich eines Byte-Arrays abgebildet werden kann, enthaelt
+     * die Tabelle das Array und die Verschiebung zwischen Adresse
+     * und Array-Index.
+     * Alle anderen Seiten (Tastatur, Bildwiederholspeicher,
+     * teilweise belegte Seiten usw.) werden ueber
+     * die vollstaendige Adressdekodierung behandelt.
+     */
+    private static final int PAGE_SHIFT = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_COUNT = 0x10000 >> PAGE_SHIFT;
+
+    // Seite fuer nicht belegte Adressbereiche
+    private static final byte[] unusedPage = new byte[PAGE_SIZE];
+
+    static {
+        Arrays.fill(unusedPage, (byte) 0xFF);
+    }
+
     private String errorText;
     private volatile ErrorViewer errorViewer;
     private volatile JTCScreen screen;
@@ -152,6 +209,19 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
     private int screenWidth;
     private int screenHeight;
     private CharRaster charRaster;
+    private byte[] screenPixels;
+    private long[] screenDirtyRows;
+    private long[][] screenDirtyRowsExt;
+    private byte[] screenTextCells;
+    private int screenTextBegAddr;
+    private int screenTextEndAddr;
+    private int screenTextRows;
+    private int screenTextCols;
+    private int screenTextRowDist;
+    private volatile boolean screenTextStale;
+    private AtomicLong screenTextChangeCount;
+    private long screenTextCacheCount;
+    private String screenTextCache;
     private byte[] u883rom;
     private byte[] os2k_0800;
     private byte[] es1988_0800;
@@ -174,17 +244,54 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
     private int port3Value;
     private int[] colorModeRGBs;
     private int[] keyMatrixCols;
+    private byte[][] readPages;
+    private int[] readPageOffs;
+    private byte[][] writePages;
+    private int[] writePageOffs;
+    private MemWatch memWatch;
     private boolean ignoreKeyChar;
     private volatile boolean shiftStatusSet;
     private volatile boolean tapeInPhase;
     private volatile boolean tapeOutPhase;
     private volatile boolean loudspeakerPhase;
+    private volatile boolean turboMode;
+    private int turboSavedCyclesPerSecond;
     private boolean videoV;
     private boolean videoB;
     private boolean videoG;
     private boolean videoR;
     private volatile boolean monochrome;
 
+    /*
+     * Speicherueberwachung, die Felder sind final,
+     * damit das Objekt ohne Synchronisation
+     * an den Emulations-Thread uebergeben werden kann.
+     */
+    private static class MemWatch {
+        private final byte[] flags;
+        private final boolean[] pages;
+        private final boolean active;
+
+        private MemWatch(byte[] flags) {
+            this.flags = Arrays.copyOf(flags, 0x10000);
+            this.pages = new boolean[0x10000 >> PAGE_SHIFT];
+            boolean active = false;
+            for (int addr = 0; addr < this.flags.length; addr++) {
+                if (this.flags[addr] != 0) {
+                    this.pages[addr >> PAGE_SHIFT] = true;
+                    active = true;
+                }
+            }
+            this.active = active;
+        }
+
+        private void check(Z8 z8, int addr, int access) {
+            if ((z8 != null) && ((this.flags[addr] & access) != 0)) {
+                z8.memWatchHit();
+            }
+        }
+    }
+
 
     public JTCSys() throws IOException {
         this.errorText = null;
@@ -198,6 +305,19 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
         this.ramR = new byte[0x2000];
         this.screen = null;
         this.charRaster = null;
+        this.screenPixels = new byte[SCREEN_PIXELS_MAX_W * SCREEN_PIXELS_MAX_H];
+        this.screenDirtyRows = new long[(SCREEN_PIXELS_MAX_H + 63) / 64];
+        this.screenDirtyRowsExt = new long[0][];
+        this.screenTextCells = new byte[SCREEN_TEXT_MAX_CELLS];
+        this.screenTextBegAddr = 0xFD00;
+        this.screenTextEndAddr = 0xFD7F;
+        this.screenTextRows = 8;
+        this.screenTextCols = 13;
+        this.screenTextRowDist = 16;
+        this.screenTextStale = true;
+        this.screenTextChangeCount = new AtomicLong();
+        this.screenTextCacheCount = -1L;
+        this.screenTextCache = null;
         this.pasteWorker = null;
         this.tapeReader = null;
         this.tapeWriter = null;
@@ -213,6 +333,8 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
         this.tapeInPhase = false;
         this.tapeOutPhase = false;
         this.loudspeakerPhase = false;
+        this.turboMode = false;
+        this.turboSavedCyclesPerSecond = 0;
         this.videoV = false;
         this.videoB = false;
         this.videoG = false;
@@ -224,6 +346,10 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
         this.newMaxGPRNum = 0;
         this.newRamSize = 0;
         this.keyMatrixCols = new int[0x10];
+        this.readPages = new byte[PAGE_COUNT][];
+        this.readPageOffs = new int[PAGE_COUNT];
+        this.writePages = new byte[PAGE_COUNT][];
+        this.writePageOffs = new int[PAGE_COUNT];
         resetKeyMatrixStatus();
 
         // Farbtabelle fuer Color-Mode
@@ -402,29 +528,105 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
     }
 
 
+    /*
+     * Die Methode liefert den Bildspeicher mit den Farbnummern
+     * aller Bildpunkte (zeilenweise, getScreenWidth() Bytes je Zeile).
+     * Aktuell sind nur die Zeilen,
+     * die mit updScreenPixels(...) neu berechnet wurden.
+     */
+    public byte[] getScreenPixels() {
+        return this.screenPixels;
+    }
+
+
+    /*
+     * Die Methode berechnet alle Pixelzeilen in das uebergebene Feld
+     * (getScreenWidth() Bytes je Zeile), ohne den Bildspeicher
+     * und die Merker fuer geaenderte Pixelzeilen zu veraendern,
+     * z.B. fuer ein einzelnes Bildschirmfoto.
+     */
+    public void copyScreenPixels(byte[] pixels) {
+        int w = Math.min(this.screenWidth, SCREEN_PIXELS_MAX_W);
+        int h = Math.min(this.screenHeight, SCREEN_PIXELS_MAX_H);
+        if (w > 0) {
+            h = Math.min(h, pixels.length / w);
+            for (int y = 0; y < h; y++) {
+                updScreenPixelRow(pixels, y, w);
+            }
+        }
+    }
+
+
+    /*
+     * Die Methode legt einen eigenen Merker fuer geaenderte Pixelzeilen an,
+     * der unabhaengig von der Bildschirmanzeige gefuehrt
+     * und mit updScreenPixels(byte[], long[]) abgearbeitet wird.
+     * Anfangs sind alle Zeilen als geaendert markiert.
+     * Der Merker muss mit removeScreenDirtyRows(...)
+     * wieder abgemeldet werden.
+     */
+    public long[] createScreenDirtyRows() {
+        long[] dirtyRows = new long[this.screenDirtyRows.length];
+        Arrays.fill(dirtyRows, -1L);
+        synchronized (this.screenDirtyRows) {
+            int n = this.screenDirtyRowsExt.length;
+            long[][] a = Arrays.copyOf(this.screenDirtyRowsExt, n + 1);
+            a[n] = dirtyRows;
+            this.screenDirtyRowsExt = a;
+        }
+        return dirtyRows;
+    }
+
+
+    public void removeScreenDirtyRows(long[] dirtyRows) {
+        synchronized (this.screenDirtyRows) {
+            long[][] a = new long[this.screenDirtyRowsExt.length][];
+            int n = 0;
+            for (long[] rows : this.screenDirtyRowsExt) {
+                if (rows != dirtyRows) {
+                    a[n++] = rows;
+                }
+            }
+            this.screenDirtyRowsExt = Arrays.copyOf(a, n);
+        }
+    }
+
+
     public String getScreenText() {
-        String rv = null;
-        if (this.osType == OSType.ES23) {
-            rv = getScreenText(0xF400, 16, 16, 16, 0, 0, 15, 15);
-        } else if (this.osType == OSType.ES40) {
-            rv = getScreenText(0xFC00, 24, 40, 40, 0, 0, 39, 23);
-        } else {
-            rv = getScreenText(0xFD00, 8, 13, 16, 0, 0, 12, 7);
+        synchronized (this.screenTextCells) {
+            if (this.screenTextStale) {
+                fillScreenText();
+            }
+            long count = this.screenTextChangeCount.get();
+            if ((this.screenTextCache == null)
+                    || (count != this.screenTextCacheCount)) {
+                this.screenTextCache = buildScreenText(
+                        0,
+                        0,
+                        this.screenTextCols - 1,
+                        this.screenTextRows - 1);
+                this.screenTextCacheCount = count;
+            }
+            return this.screenTextCache;
         }
-        return rv;
     }
 
 
     public String getScreenText(int x1, int y1, int x2, int y2) {
-        String rv = null;
-        if (this.osType == OSType.ES23) {
-            rv = getScreenText(0xF400, 16, 16, 16, x1, y1, x2, y2);
-        } else if (this.osType == OSType.ES40) {
-            rv = getScreenText(0xFC00, 24, 40, 40, x1, y1, x2, y2);
-        } else {
-            rv = getScreenText(0xFD00, 8, 13, 16, x1, y1, x2, y2);
+        synchronized (this.screenTextCells) {
+            if (this.screenTextStale) {
+                fillScreenText();
+            }
+            return buildScreenText(x1, y1, x2, y2);
         }
-        return rv;
+    }
+
+
+    /*
+     * Der Zaehler wird bei jeder Aenderung des Zeichenbildschirms erhoeht.
+     */
+    public long getScreenTextChangeCount() {
+        return this.screenTextChangeCount.get();
     }
 
 
@@ -433,6 +635,11 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
     }
 
 
+    public boolean containsScreenText(String text) {
+        return getScreenText().contains(text);
+    }
+
+
     public boolean isMonochrome() {
         return this.monochrome;
     }
@@ -453,7 +660,7 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
 
 
     public boolean isScreenOutputEnabled() {
-        boolean rv = (this.osType == OSType.ES40);
+        boolean rv = ((this.osType == OSType.ES40) || this.turboMode);
         if (!rv) {
             if ((this.z8.getTotalCycles() - this.lastScreenCycles) < 400000) {
                 rv = true;
@@ -463,6 +670,11 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
     }
 
 
+    public boolean isTurboMode() {
+        return this.turboMode;
+    }
+
+
     public boolean keyPressed(Key key, boolean shiftDown) {
         boolean rv = false;
         synchronized (this.keyMatrixCols) {
@@ -757,6 +969,74 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
     }
 
 
+    /*
+     * Turbo-Modus:
+     * Die Emulation laeuft mit maximaler Geschwindigkeit,
+     * der Listener vor jedem Befehl wird nur noch fuer das Einlesen
+     * vom Kassettenrecorder benoetigt
+     * und die Audio-Ausgaben erfolgen nicht mehr
+     * durch Abfrage vor jedem Befehl, sondern nur noch bei einem
+     * Phasenwechsel zum Taktzyklenstand des Wechsels.
+     * Geaenderte Pixelzeilen werden weiterhin gemeldet,
+     * die Bildschirmanzeige kann ihre Aktualisierung
+     * anhand von isTurboMode() drosseln.
+     */
+    public synchronized void setTurboMode(boolean state) {
+        if (state != this.turboMode) {
+            if (state) {
+                this.turboSavedCyclesPerSecond = this.z8.getCyclesPerSecond();
+                this.turboMode = true;
+                this.z8.setCyclesPerSecond(0);
+            } else {
+                this.turboMode = false;
+                this.z8.setCyclesPerSecond(this.turboSavedCyclesPerSecond);
+                this.lastScreenCycles = this.z8.getTotalCycles();
+            }
+            checkSetZ8PreExecInstListener();
+        }
+    }
+
+
+    /*
+     * Die Methode berechnet im Bildspeicher alle Pixelzeilen neu,
+     * die seit dem letzten Aufruf geaendert wurden,
+     * und setzt die zugehoerigen Bits in der uebergebenen Zeilenmaske
+     * (Zeile y: Bit y % 64 im Element y / 64).
+     *
+     * Rueckgabewert: true, wenn mindestens eine Zeile geaendert wurde
+     */
+    public boolean updScreenPixels(long[] rowMask) {
+        long[] dirtyRows = new long[this.screenDirtyRows.length];
+        synchronized (this.screenDirtyRows) {
+            for (int i = 0; i < dirtyRows.length; i++) {
+                dirtyRows[i] = this.screenDirtyRows[i];
+                this.screenDirtyRows[i] = 0L;
+            }
+        }
+        return updScreenPixelRows(this.screenPixels, dirtyRows, rowMask);
+    }
+
+
+    /*
+     * Die Methode berechnet in dem uebergebenen Feld alle Pixelzeilen neu,
+     * die in dem mit createScreenDirtyRows() angelegten Merker
+     * als geaendert markiert sind, und setzt den Merker zurueck.
+     * Die Bildschirmanzeige bleibt davon unberuehrt.
+     *
+     * Rueckgabewert: true, wenn mindestens eine Zeile geaendert wurde
+     */
+    public boolean updScreenPixels(byte[] pixels, long[] dirtyRows) {
+        long[] rows = new long[dirtyRows.length];
+        synchronized (this.screenDirtyRows) {
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = dirtyRows[i];
+                dirtyRows[i] = 0L;
+            }
+        }
+        return updScreenPixelRows(pixels, rows, null);
+    }
+
+
     public void startPastingText(String text, PasteObserver observer) {
         boolean done = false;
         if (text != null) {
@@ -773,6 +1053,46 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
     }
 
 
+    /*
+     * Die Methode wartet, bis der Text auf dem Bildschirm erscheint
+     * oder die angegebene Anzahl an Taktzyklen vergangen ist
+     * bzw. die Emulation beendet wurde.
+     * Der Bildschirminhalt wird dabei nur nach einer Aenderung
+     * erneut durchsucht.
+     * Die Methode darf nicht im Emulations-Thread aufgerufen werden.
+     *
+     * Rueckgabewert: true, wenn der Text gefunden wurde
+     */
+    public boolean waitForScreenText(
+            String text,
+            long maxCycles) throws InterruptedException {
+        boolean rv = false;
+        long endCycles = this.z8.getTotalCycles() + maxCycles;
+        long lastCount = -1L;
+        synchronized (this.screenTextCells) {
+            for (; ; ) {
+                if (this.screenTextStale) {
+                    fillScreenText();
+                }
+                long count = this.screenTextChangeCount.get();
+                if (count != lastCount) {
+                    lastCount = count;
+                    if (containsScreenText(text)) {
+                        rv = true;
+                        break;
+                    }
+                }
+                if ((this.z8.getTotalCycles() >= endCycles)
+                        || this.z8.wasQuitFired()) {
+                    break;
+                }
+                this.screenTextCells.wait(SCREEN_TEXT_MAX_WAIT_MILLIS);
+            }
+        }
+        return rv;
+    }
+
+
     public boolean supportsLoudspeaker() {
         return (this.osType == OSType.OS2K);
     }
@@ -801,20 +1121,48 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
     @Override
     public void setPortValue(int port, int value) {
         if (port == 3) {
+            int romBankNum = this.romBankNum;
             if (((value & 0x20) == 0) && ((this.port3Value & 0x20) != 0)) {
-                this.romBankNum = 0;
+                romBankNum = 0;
             } else if (((value & 0x80) == 0) && ((this.port3Value & 0x80) != 0)) {
-                this.romBankNum = (this.romBankNum + 1) & this.romBankMask;
+                romBankNum = (romBankNum + 1) & this.romBankMask;
+            }
+            if (romBankNum != this.romBankNum) {
+                this.romBankNum = romBankNum;
+                updROMBankPages();
             }
             this.port3Value = value;
 
+            boolean tapeOutPhase = this.tapeOutPhase;
+            boolean loudspeakerPhase = this.loudspeakerPhase;
             if (this.osType == OSType.OS2K) {
                 value &= 0xC0;
-                this.tapeOutPhase = (value != 0xC0);
-                this.loudspeakerPhase = (value != 0x40);
+                tapeOutPhase = (value != 0xC0);
+                loudspeakerPhase = (value != 0x40);
             } else {
-                this.tapeOutPhase = ((value & 0x40) != 0);
+                tapeOutPhase = ((value & 0x40) != 0);
+            }
+            if (this.turboMode) {
+                /*
+                 * Im Turbo-Modus werden die Audio-Ausgaben nur bei
+                 * einem Phasenwechsel mit der bis dahin gueltigen
+                 * Phase fortgeschrieben.
+                 */
+                if (tapeOutPhase != this.tapeOutPhase) {
+                    AudioWriter tapeWriter = this.tapeWriter;
+                    if (tapeWriter != null) {
+                        tapeWriter.writePhase(this.tapeOutPhase);
+                    }
+                }
+                if (loudspeakerPhase != this.loudspeakerPhase) {
+                    AudioWriter loudspeaker = this.loudspeaker;
+                    if (loudspeaker != null) {
+                        loudspeaker.writePhase(this.loudspeakerPhase);
+                    }
+                }
             }
+            this.tapeOutPhase = tapeOutPhase;
+            this.loudspeakerPhase = loudspeakerPhase;
         }
     }
 
@@ -826,25 +1174,34 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
         if (z8 == this.z8) {
             switch (reason) {
                 case PRE_INST_EXEC:
+                    boolean turboMode = this.turboMode;
                     if ((z8.getPC() == ADDR_VIDEO_INTERRUPT)
-                            && (this.osType != OSType.ES40)) {
+                            && (this.osType != OSType.ES40)
+                            && !turboMode) {
                         this.lastScreenCycles = z8.getTotalCycles();
                     }
                     AudioReader tapeReader = this.tapeReader;
                     if (tapeReader != null) {
+                        boolean phase = false;
                         if (this.osType == OSType.OS2K) {
-                            this.tapeInPhase = tapeReader.readVolumeStatus();
+                            phase = tapeReader.readVolumeStatus();
                         } else {
-                            this.tapeInPhase = tapeReader.readPhase();
+                            phase = tapeReader.readPhase();
+                        }
+                        if (phase != this.tapeInPhase) {
+                            this.tapeInPhase = phase;
+                            z8.firePortInChanged();
                         }
                     }
-                    AudioWriter tapeWriter = this.tapeWriter;
-                    if (tapeWriter != null) {
-                        tapeWriter.writePhase(this.tapeOutPhase);
-                    }
-                    AudioWriter loudspeaker = this.loudspeaker;
-                    if (loudspeaker != null) {
-                        loudspeaker.writePhase(this.loudspeakerPhase);
+                    if (!turboMode) {
+                        AudioWriter tapeWriter = this.tapeWriter;
+                        if (tapeWriter != null) {
+                            tapeWriter.writePhase(this.tapeOutPhase);
+                        }
+                        AudioWriter loudspeaker = this.loudspeaker;
+                        if (loudspeaker != null) {
+                            loudspeaker.writePhase(this.loudspeakerPhase);
+                        }
                     }
                     break;
 
@@ -869,6 +1226,95 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
     public int getMemByte(int addr, boolean dataMem) {
         addr &= 0xFFFF;
 
+        int rv = 0;
+        int page = addr >> PAGE_SHIFT;
+        byte[] buf = this.readPages[page];
+        if (buf != null) {
+            rv = buf[addr + this.readPageOffs[page]];
+        } else {
+            rv = readMemByte(addr);
+        }
+        MemWatch memWatch = this.memWatch;
+        if ((memWatch != null) && memWatch.pages[page]) {
+            memWatch.check(this.z8, addr, MEM_WATCH_READ);
+        }
+        return rv & 0xFF;
+    }
+
+
+    /*
+     * Befehle koennen aus allen Seiten zwischengespeichert werden,
+     * die ueber die Lesetabelle direkt gelesen werden,
+     * da Schreibzugriffe darauf ueber setMemByte(...) erfolgen
+     * und eine Aenderung der Speicheraufteilung ueber
+     * updMemPages() bzw. updROMBankPages() gemeldet wird.
+     * Ausgenommen ist die letzte Seite, da in ihr der Shift-Status
+     * direkt im RAM gesetzt wird.
+     * Ausgenommen ist ausserdem der gespiegelte Bereich ab %E000
+     * bei 1 oder 2 KByte RAM, da ein Schreibzugriff dort nur
+     * fuer die geschriebene Adresse gemeldet wird
+     * und nicht fuer ihre Spiegelungen.
+     */
+    @Override
+    public boolean isCodeCacheable(int addr) {
+        addr &= 0xFFFF;
+        boolean rv = (addr < 0x10000 - PAGE_SIZE)
+                && (this.readPages[addr >> PAGE_SHIFT] != null);
+        if (((this.ramSize == 0x0400) || (this.ramSize == 0x0800))
+                && (addr >= 0xE000)) {
+            rv = false;
+        }
+        return rv;
+    }
+
+
+    @Override
+    public boolean setMemByte(int addr, boolean dataMem, int v) {
+        addr &= 0xFFFF;
+
+        boolean rv = false;
+        int page = addr >> PAGE_SHIFT;
+        byte[] buf = this.writePages[page];
+        if (buf != null) {
+            buf[addr + this.writePageOffs[page]] = (byte) v;
+            rv = true;
+        } else {
+            rv = writeMemByte(addr, v);
+        }
+        if (addr >= 0xE000) {
+            updScreenText(addr);
+        }
+        this.z8.invalidateCode(addr);
+        MemWatch memWatch = this.memWatch;
+        if ((memWatch != null) && memWatch.pages[page]) {
+            memWatch.check(this.z8, addr, MEM_WATCH_WRITE);
+        }
+        return rv;
+    }
+
+
+    /*
+     * Die ueberwachten Speicherzellen werden zusaetzlich
+     * seitenweise markiert, sodass Zugriffe auf nicht ueberwachte Seiten
+     * nur eine Pruefung kosten.
+     */
+    @Override
+    public boolean setMemWatchFlags(byte[] flags) {
+        MemWatch memWatch = null;
+        if (flags != null) {
+            memWatch = new MemWatch(flags);
+            if (!memWatch.active) {
+                memWatch = null;
+            }
+        }
+        this.memWatch = memWatch;
+        return true;
+    }
+
+
+    /* --- private Methoden --- */
+
+    private int readMemByte(int addr) {
         int rv = 0xFF;
         boolean done = false;
         if ((addr >= 0x2000) && (addr < 0x4000)) {
@@ -880,8 +1326,9 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
         }
         if (!done) {
             for (ExtROM rom : this.extROMs) {
-                if ((addr >= rom.getBegAddr()) && (addr <= rom.getEndAddr())) {
-                    rv = rom.getByte(addr);
+                int b = rom.getMappedByte(addr);
+                if (b >= 0) {
+                    rv = b;
                     done = true;
                     break;
                 }
@@ -944,10 +1391,7 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
     }
 
 
-    @Override
-    public boolean setMemByte(int addr, boolean dataMem, int v) {
-        addr &= 0xFFFF;
-
+    private boolean writeMemByte(int addr, int v) {
         boolean rv = false;
         boolean done = false;
         if ((addr >= 0x2000) && (addr < 0x4000) && (this.romBank != null)) {
@@ -955,7 +1399,7 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
         }
         if (!done) {
             for (ExtROM rom : this.extROMs) {
-                if ((addr >= rom.getBegAddr()) && (addr <= rom.getEndAddr())) {
+                if (rom.getMappedByte(addr) >= 0) {
                     done = true;
                     break;
                 }
@@ -1003,7 +1447,7 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
                         dirty = true;
                     }
                     if (dirty) {
-                        setScreenDirty();
+                        setScreenRowDirty(idx);
                     }
                 } else {
                     if (addr >= ramBegAddr) {
@@ -1023,44 +1467,25 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
                     int a = addr & 0x03FF;
                     if (a >= 0x0100) {
                         this.ram[0xFD00 - 0x0100 + a] = (byte) v;
-                        if ((a >= 0x0200)
-                                && ((this.osType == OSType.OS2K)
-                                || (this.osType == OSType.ES1988))) {
-                            setScreenDirty();
-                        }
+                        setScreenRowDirty(0xFD00 - 0x0100 + a);
                     } else {
                         this.ram[0xE000 + a] = (byte) v;
                     }
-                    if (this.osType == OSType.ES23) {
-                        setScreenDirty();
-                    }
                     rv = true;
                 }
                 if ((ramSize == 0x0800) && (addr >= 0xE000)) {
                     int a = addr & 0x7FF;
                     if (a >= 0x0500) {
                         this.ram[0xFD00 - 0x0500 + a] = (byte) v;
-                        if ((a >= 0x0600)
-                                && ((this.osType == OSType.OS2K)
-                                || (this.osType == OSType.ES1988))) {
-                            setScreenDirty();
-                        }
+                        setScreenRowDirty(0xFD00 - 0x0500 + a);
                     } else {
                         this.ram[0xE000 + a] = (byte) v;
                     }
-                    if (this.osType == OSType.ES23) {
-                        setScreenDirty();
-                    }
                     rv = true;
                 } else if (addr >= ramBegAddr) {
                     this.ram[addr] = (byte) v;
                     rv = true;
-                    if (((addr >= 0xFE00)
-                            && ((this.osType == OSType.OS2K)
-                            || (this.osType == OSType.ES1988)))
-                            || ((addr >= 0xF800) && (this.osType == OSType.ES23))) {
-                        setScreenDirty();
-                    }
+                    setScreenRowDirty(addr);
                 }
             }
         }
@@ -1068,8 +1493,6 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
     }
 
 
-    /* --- private Methoden --- */
-
     private void buildRomBankMask() {
         int mask = 0;
         if (this.romBank != null) {
@@ -1105,10 +1528,13 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
 
 
     private void checkSetZ8PreExecInstListener() {
-        if ((this.osType != OSType.ES40)
-                || (this.tapeReader != null)
-                || (this.tapeWriter != null)
-                || (this.loudspeaker != null)) {
+        boolean state = (this.tapeReader != null);
+        if (!this.turboMode) {
+            state |= ((this.osType != OSType.ES40)
+                    || (this.tapeWriter != null)
+                    || (this.loudspeaker != null));
+        }
+        if (state) {
             this.z8.setPreInstExecListener(this);
         } else {
             this.z8.setPreInstExecListener(null);
@@ -1116,15 +1542,52 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
     }
 
 
-    private String getScreenText(
-            int begAddr,
-            int nRows,
-            int nCols,
-            int rowDist,
-            int x1,
-            int y1,
-            int x2,
-            int y2) {
+    /*
+     * Array-Index im RAM fuer eine Adresse ab %E000,
+     * wenn nur 1 oder 2 KByte RAM emuliert werden
+     */
+    private int getMirroredRAMIdx(int addr) {
+        int rv = addr;
+        if (this.ramSize == 0x0400) {
+            int a = addr & 0x03FF;
+            if (a >= 0x0100) {
+                rv = 0xFD00 - 0x0100 + a;
+            } else {
+                rv = 0xE000 + a;
+            }
+        } else if (this.ramSize == 0x0800) {
+            int a = addr & 0x07FF;
+            if (a >= 0x0500) {
+                rv = 0xFD00 - 0x0500 + a;
+            } else {
+                rv = 0xE000 + a;
+            }
+        }
+        return rv;
+    }
+
+
+    /*
+     * Seite fuer einen Adressbereich, der entweder vollstaendig
+     * im RAM oder vollstaendig ausserhalb des RAMs liegt.
+     * Bei einer teilweise belegten Seite wird null zurueckgeliefert.
+     */
+    private byte[] getRAMPage(int begAddr, int endAddr) {
+        byte[] rv = null;
+        int ramBegAddr = 0x10000 - this.ramSize;
+        if (begAddr >= ramBegAddr) {
+            rv = this.ram;
+        } else if (endAddr < ramBegAddr) {
+            rv = unusedPage;
+        }
+        return rv;
+    }
+
+
+    private String buildScreenText(int x1, int y1, int x2, int y2) {
+        byte[] cells = this.screenTextCells;
+        int nRows = this.screenTextRows;
+        int nCols = this.screenTextCols;
         StringBuilder buf = new StringBuilder(nRows * (nCols + 1));
         int nNL = 0;
         for (int i = y1; i < nRows; i++) {
@@ -1134,13 +1597,13 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
             if (i > y1) {
                 nNL++;
             }
-            int addr = begAddr + (i * rowDist);
+            int idx = i * nCols;
             int nSpaces = 0;
             for (int k = 0; k < nCols; k++) {
                 if ((i == y2) && (k > x2)) {
                     break;
                 }
-                int b = getMemByte(addr++, false);
+                int b = cells[idx++] & 0xFF;
                 if ((i > y1) || (k >= x1)) {
                     if (b == 0x20) {
                         nSpaces++;
@@ -1204,6 +1667,34 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
     }
 
 
+    /*
+     * Die Methode fuellt das Abbild des Zeichenbildschirms
+     * vollstaendig aus dem Speicher.
+     * Sie muss unter der Sperre von screenTextCells aufgerufen werden.
+     */
+    private void fillScreenText() {
+        this.screenTextStale = false;
+        boolean changed = false;
+        int addr = this.screenTextBegAddr;
+        int idx = 0;
+        for (int i = 0; i < this.screenTextRows; i++) {
+            for (int k = 0; k < this.screenTextCols; k++) {
+                byte b = (byte) getMemByte(
+                        addr + (i * this.screenTextRowDist) + k,
+                        false);
+                if (b != this.screenTextCells[idx]) {
+                    this.screenTextCells[idx] = b;
+                    changed = true;
+                }
+                idx++;
+            }
+        }
+        if (changed) {
+            screenTextChanged();
+        }
+    }
+
+
     private void initRAM() {
         if (isRamInitZero()) {
             Arrays.fill(this.ram, (byte) 0);
@@ -1221,6 +1712,30 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
     }
 
 
+    /*
+     * Die Methode prueft, ob ein Schreibzugriff auf die Seite
+     * in writeMemByte(...) eine Bildschirmaktualisierung ausloesen kann.
+     */
+    private boolean isScreenRAMPage(int begAddr) {
+        boolean rv = false;
+        if (this.osType == OSType.ES23) {
+            rv = (begAddr >= 0xF800)
+                    || ((begAddr >= 0xE000)
+                    && ((this.ramSize == 0x0400) || (this.ramSize == 0x0800)));
+        } else if ((this.osType == OSType.OS2K)
+                || (this.osType == OSType.ES1988)) {
+            if (begAddr >= 0xFE00) {
+                rv = true;
+            } else if ((this.ramSize == 0x0400) && (begAddr >= 0xE000)) {
+                rv = ((begAddr & 0x03FF) >= 0x0200);
+            } else if ((this.ramSize == 0x0800) && (begAddr >= 0xE000)) {
+                rv = ((begAddr & 0x07FF) >= 0x0600);
+            }
+        }
+        return rv;
+    }
+
+
     private static ExtROM[] readExtROMs(StringBuilder outErrText) {
         ExtROM[] roms = null;
         int n = AppContext.getIntProperty(PROP_ROM_COUNT, 0);
@@ -1460,6 +1975,7 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
                 this.screenWidth = 320;
                 this.screenHeight = 192;
                 this.charRaster = new CharRaster(40, 24, 8, 8);
+                setScreenTextArea(0xFC00, 24, 40, 40);
                 if (this.romBank != null) {
                     this.rom0800 = this.es40RomBank_0800;
                 } else {
@@ -1472,6 +1988,7 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
                 this.screenWidth = 128;
                 this.screenHeight = 128;
                 this.charRaster = new CharRaster(16, 16, 8, 8);
+                setScreenTextArea(0xF400, 16, 16, 16);
                 this.rom0800 = this.es23_0800;
                 this.rom2000 = new byte[0];
                 break;
@@ -1480,6 +1997,7 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
                 this.screenWidth = 64;
                 this.screenHeight = 64;
                 this.charRaster = new CharRaster(13, 8, 5, 7, 0, 7);
+                setScreenTextArea(0xFD00, 8, 13, 16);
                 this.rom0800 = this.es1988_0800;
                 this.rom2000 = this.es1988_2000;
                 break;
@@ -1488,9 +2006,11 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
                 this.screenWidth = 64;
                 this.screenHeight = 64;
                 this.charRaster = new CharRaster(13, 8, 5, 7, 0, 7);
+                setScreenTextArea(0xFD00, 8, 13, 16);
                 this.rom0800 = this.os2k_0800;
                 this.rom2000 = new byte[0];
         }
+        setAllScreenRowsDirty();
         JTCScreen screen = this.screen;
         if (screen != null) {
             if ((this.monochrome != oldMonochrome)
@@ -1500,6 +2020,7 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
             }
             screen.setScreenDirty();
         }
+        updMemPages();
         checkSetZ8PreExecInstListener();
     }
 
@@ -1510,6 +2031,7 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
             if (this.shiftStatusSet) {
                 this.ram[0xFFFF] = (byte) 0xFF;
                 this.shiftStatusSet = false;
+                setScreenRowDirty(0xFFFF);
             }
         }
     }
@@ -1551,6 +2073,7 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
             default:
                 if ((ch >= 'A') && (ch <= 'Z')) {
                     this.ram[0xFFFF] = (byte) 0;
+                    setScreenRowDirty(0xFFFF);
                 } else {
                     ch = Character.toUpperCase(ch);
                 }
@@ -1559,6 +2082,7 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
                     if (!rv) {
                         if (checkKeyMatrix(keyMatrix2kShift, ch)) {
                             this.ram[0xFFFF] = (byte) 0;
+                            setScreenRowDirty(0xFFFF);
                             rv = true;
                         }
                     }
@@ -1568,6 +2092,7 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
                         // Shift-Ebene identisch zum 2K-System
                         if (checkKeyMatrix(keyMatrix2kShift, ch)) {
                             this.ram[0xFFFF] = (byte) 0;
+                            setScreenRowDirty(0xFFFF);
                             rv = true;
                         }
                     }
@@ -1674,6 +2199,27 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
     }
 
 
+    /*
+     * Die Methode erhoeht den Aenderungszaehler
+     * und weckt die auf eine Aenderung wartenden Threads.
+     * Sie muss unter der Sperre von screenTextCells aufgerufen werden.
+     */
+    private void screenTextChanged() {
+        this.screenTextChangeCount.incrementAndGet();
+        this.screenTextCells.notifyAll();
+    }
+
+
+    private void setAllScreenRowsDirty() {
+        synchronized (this.screenDirtyRows) {
+            Arrays.fill(this.screenDirtyRows, -1L);
+            for (long[] rows : this.screenDirtyRowsExt) {
+                Arrays.fill(rows, -1L);
+            }
+        }
+    }
+
+
     private void setScreenDirty() {
         JTCScreen screen = this.screen;
         if (screen != null) {
@@ -1682,8 +2228,382 @@ public class JTCSys implements Z8IO, Z8Listener, Z8Memory {
     }
 
 
+    private void setScreenDirty(int y1, int y2) {
+        JTCScreen screen = this.screen;
+        if (screen != null) {
+            screen.setScreenDirty(y1, y2);
+        }
+    }
+
+
+    /*
+     * Die Methode markiert die Pixelzeile als geaendert,
+     * in der das Byte des Bildwiederholspeichers dargestellt wird.
+     * Beim ES4.0 ist idx der Index in den Farbebenen,
+     * sonst der Index im RAM.
+     */
+    private void setScreenRowDirty(int idx) {
+        int y = -1;
+        if (this.osType == OSType.ES40) {
+            int yGrp = (idx & 0x7F) / 40;
+            if (yGrp < 3) {
+                y = ((idx >> 7) * 3) + yGrp;
+            }
+        } else if (this.osType == OSType.ES23) {
+            if (idx >= 0xF800) {
+                y = (idx - 0xF800) >> 4;
+            }
+        } else {
+            if (idx >= 0xFE00) {
+                y = (idx - 0xFE00) >> 3;
+            }
+        }
+        if ((y >= 0) && (y < this.screenHeight) && (y < SCREEN_PIXELS_MAX_H)) {
+            long m = (1L << (y & 0x3F));
+            synchronized (this.screenDirtyRows) {
+                this.screenDirtyRows[y >> 6] |= m;
+                for (long[] rows : this.screenDirtyRowsExt) {
+                    rows[y >> 6] |= m;
+                }
+            }
+            setScreenDirty(y, y);
+        }
+    }
+
+
+    private void setScreenTextArea(
+            int begAddr,
+            int nRows,
+            int nCols,
+            int rowDist) {
+        synchronized (this.screenTextCells) {
+            this.screenTextBegAddr = begAddr;
+            this.screenTextEndAddr = begAddr + ((nRows - 1) * rowDist) + nCols - 1;
+            this.screenTextRows = nRows;
+            this.screenTextCols = nCols;
+            this.screenTextRowDist = rowDist;
+            this.screenTextStale = true;
+            screenTextChanged();
+        }
+    }
+
+
+    private void setScreenTextStale() {
+        synchronized (this.screenTextCells) {
+            this.screenTextStale = true;
+            this.screenTextCells.notifyAll();
+        }
+    }
+
+
     private void setShift(boolean state) {
         this.ram[0xFFFF] = (byte) (state ? 0 : 0xFF);
         this.shiftStatusSet = true;
+        setScreenRowDirty(0xFFFF);
+    }
+
+
+    private void updMemPages() {
+        for (int page = 0; page < PAGE_COUNT; page++) {
+            updReadPage(page);
+            updWritePage(page);
+        }
+        setScreenTextStale();
+        this.z8.invalidateCode();
+    }
+
+
+    /*
+     * Die Methode traegt eine Seite in die Lesetabelle ein.
+     * Die Reihenfolge der Pruefungen entspricht der
+     * in der Methode readMemByte(...).
+     */
+    private void updReadPage(int page) {
+        int begAddr = page << PAGE_SHIFT;
+        int endAddr = begAddr + PAGE_SIZE - 1;
+        byte[] buf = null;
+        int offs = 0;
+        boolean done = false;
+        if ((begAddr >= 0x2000) && (endAddr < 0x4000)) {
+            ExtROM romBank = this.romBank;
+            if (romBank != null) {
+                byte[] romBytes = romBank.getFileBytes();
+                int idx = (begAddr - 0x2000) + (this.romBankNum * 0x2000)
+                        - romBank.getBegAddr();
+                if ((romBytes != null)
+                        && (idx >= 0) && (idx + PAGE_SIZE <= romBytes.length)) {
+                    buf = romBytes;
+                    offs = idx - begAddr;
+                }
+                done = true;
+            }
+        }
+        if (!done) {
+            for (ExtROM rom : this.extROMs) {
+                int romBegAddr = rom.getBegAddr();
+                int romEndAddr = rom.getEndAddr();
+                if ((begAddr <= romEndAddr) && (endAddr >= romBegAddr)) {
+                    byte[] romBytes = rom.getFileBytes();
+                    if ((romBytes != null)
+                            && (begAddr >= romBegAddr) && (endAddr <= romEndAddr)) {
+                        buf = romBytes;
+                        offs = -romBegAddr;
+                    }
+                    done = true;
+                    break;
+                }
+            }
+        }
+        if (!done) {
+            if (begAddr < this.u883rom.length) {
+                if (endAddr < this.u883rom.length) {
+                    buf = this.u883rom;
+                }
+            } else if ((begAddr < 0x0800 + this.rom0800.length)
+                    && (endAddr >= 0x0800)) {
+                if ((begAddr >= 0x0800)
+                        && (endAddr < 0x0800 + this.rom0800.length)) {
+                    buf = this.rom0800;
+                    offs = -0x0800;
+                }
+            } else if ((begAddr < 0x2000 + this.rom2000.length)
+                    && (endAddr >= 0x2000)) {
+                if ((begAddr >= 0x2000)
+                        && (endAddr < 0x2000 + this.rom2000.length)) {
+                    buf = this.rom2000;
+                    offs = -0x2000;
+                }
+            } else if ((begAddr >= 0x4000) && (endAddr <= 0x5FFF)) {
+                if (this.osType != OSType.ES40) {
+                    buf = getRAMPage(begAddr, endAddr);
+                }
+            } else if ((begAddr >= 0x6000) && (endAddr < 0x8000)) {
+                if ((this.osType == OSType.ES40) && (endAddr < 0x7000)) {
+                    buf = unusedPage;
+                }
+            } else {
+                if (((this.ramSize == 0x0400) || (this.ramSize == 0x0800))
+                        && (begAddr >= 0xE000)) {
+                    buf = this.ram;
+                    offs = getMirroredRAMIdx(begAddr) - begAddr;
+                } else {
+                    buf = getRAMPage(begAddr, endAddr);
+                }
+            }
+        }
+        if (buf == unusedPage) {
+            offs = -begAddr;
+        }
+        this.readPages[page] = buf;
+        this.readPageOffs[page] = offs;
+    }
+
+
+    private void updROMBankPages() {
+        if (this.romBank != null) {
+            for (int page = 0x2000 >> PAGE_SHIFT;
+                 page < (0x4000 >> PAGE_SHIFT);
+                 page++) {
+                updReadPage(page);
+            }
+            this.z8.invalidateCode(0x2000, 0x3FFF);
+        }
+    }
+
+
+    /*
+     * Die Methode berechnet eine Pixelzeile im Bildspeicher neu.
+     * Die Farbnummern entsprechen denen von getPixelColorNum(x,y).
+     */
+    private void updScreenPixelRow(byte[] pixels, int y, int w) {
+        int pos = y * w;
+        int nBytes = w / 8;
+        if (this.osType == OSType.ES40) {
+            int idx = ((y / 3) * 128) + ((y % 3) * 40);
+            for (int i = 0; i < nBytes; i++) {
+                int v = 0;
+                int b = 0;
+                int g = 0;
+                int r = 0;
+                if (idx < this.ramV.length) {
+                    v = ~this.ramV[idx];
+                    b = ~this.ramB[idx];
+                    g = ~this.ramG[idx];
+                    r = ~this.ramR[idx];
+                }
+                for (int m = 0x80; m != 0; m >>= 1) {
+                    int c = 0;
+                    if ((v & m) != 0) {
+                        c |= BRIGHT_MASK;
+                    }
+                    if ((b & m) != 0) {
+                        c |= BLUE_MASK;
+                    }
+                    if ((g & m) != 0) {
+                        c |= GREEN_MASK;
+                    }
+                    if ((r & m) != 0) {
+                        c |= RED_MASK;
+                    }
+                    pixels[pos++] = (byte) c;
+                }
+                idx++;
+            }
+        } else {
+            int idx = 0;
+            if (this.osType == OSType.ES23) {
+                idx = 0xF800 + (y * 16);
+            } else {
+                idx = 0xFE00 + (y * 8);
+            }
+            for (int i = 0; i < nBytes; i++) {
+                int v = 0xFF;
+                if (idx < this.ram.length) {
+                    v = this.ram[idx];
+                }
+                for (int m = 0x80; m != 0; m >>= 1) {
+                    pixels[pos++] = (byte) ((v & m) == 0 ? 1 : 0);
+                }
+                idx++;
+            }
+        }
+    }
+
+
+    /*
+     * Die Methode berechnet die markierten Pixelzeilen
+     * in dem uebergebenen Feld neu.
+     */
+    private boolean updScreenPixelRows(
+            byte[] pixels,
+            long[] dirtyRows,
+            long[] rowMask) {
+        boolean rv = false;
+        int w = Math.min(this.screenWidth, SCREEN_PIXELS_MAX_W);
+        int h = Math.min(this.screenHeight, SCREEN_PIXELS_MAX_H);
+        if (w > 0) {
+            h = Math.min(h, pixels.length / w);
+        }
+        for (int i = 0; i < dirtyRows.length; i++) {
+            long bits = dirtyRows[i];
+            while (bits != 0L) {
+                int b = Long.numberOfTrailingZeros(bits);
+                int y = (i * 64) + b;
+                if (y < h) {
+                    updScreenPixelRow(pixels, y, w);
+                    if ((rowMask != null) && (i < rowMask.length)) {
+                        rowMask[i] |= (1L << b);
+                    }
+                    rv = true;
+                }
+                bits &= (bits - 1L);
+            }
+        }
+        return rv;
+    }
+
+
+    /*
+     * Die Methode fuehrt nach einem Schreibzugriff ab %E000
+     * das Abbild des Zeichenbildschirms nach.
+     * Bei 1 oder 2 KByte RAM wird die gespiegelte Adresse
+     * auf die im Bildwiederholspeicher umgerechnet.
+     */
+    private void updScreenText(int addr) {
+        if ((this.ramSize == 0x0400) || (this.ramSize == 0x0800)) {
+            addr = getMirroredRAMIdx(addr);
+        }
+        synchronized (this.screenTextCells) {
+            if ((addr >= this.screenTextBegAddr)
+                    && (addr <= this.screenTextEndAddr)) {
+                int offs = addr - this.screenTextBegAddr;
+                int col = offs % this.screenTextRowDist;
+                if (col < this.screenTextCols) {
+                    int idx = ((offs / this.screenTextRowDist) * this.screenTextCols) + col;
+                    byte b = (byte) getMemByte(addr, false);
+                    if (b != this.screenTextCells[idx]) {
+                        this.screenTextCells[idx] = b;
+                        screenTextChanged();
+                    }
+                }
+            }
+        }
+    }
+
+
+    /*
+     * Die Methode traegt eine Seite in die Schreibtabelle ein.
+     * Direkt beschrieben werden nur reine RAM-Seiten,
+     * bei denen das Schreiben keine weiteren Aktionen
+     * (z.B. Bildschirmaktualisierung) ausloest.
+     * Die Reihenfolge der Pruefungen entspricht der
+     * in der Methode writeMemByte(...).
+     */
+    private void updWritePage(int page) {
+        int begAddr = page << PAGE_SHIFT;
+        int endAddr = begAddr + PAGE_SIZE - 1;
+        int ramBegAddr = 0x10000 - this.ramSize;
+        byte[] buf = null;
+        int offs = 0;
+        boolean done = false;
+        if ((begAddr >= 0x2000) && (endAddr < 0x4000) && (this.romBank != null)) {
+            done = true;
+        }
+        if (!done) {
+            for (ExtROM rom : this.extROMs) {
+                if ((begAddr <= rom.getEndAddr()) && (endAddr >= rom.getBegAddr())) {
+                    done = true;
+                    break;
+                }
+            }
+        }
+        if (!done) {
+            if (begAddr >= 0x8000) {
+                if (!isScreenRAMPage(begAddr)) {
+                    if (((this.ramSize == 0x0400) || (this.ramSize == 0x0800))
+                            && (begAddr >= 0xE000)) {
+                        /*
+                         * Bei 1 KByte RAM wird in writeMemByte(...)
+                         * oberhalb des RAM-Anfangs zusaetzlich
+                         * direkt auf die Adresse geschrieben.
+                         * Das kann hier nur abgebildet werden,
+                         * wenn beide Indexe gleich sind.
+                         */
+                        int idx = getMirroredRAMIdx(begAddr);
+                        if ((this.ramSize == 0x0800)
+                                || (begAddr < ramBegAddr)
+                                || (idx == begAddr)) {
+                            buf = this.ram;
+                            offs = idx - begAddr;
+                        }
+                    } else if (begAddr >= ramBegAddr) {
+                        buf = this.ram;
+                    }
+                }
+            } else if (begAddr >= ramBegAddr) {
+                if ((begAddr >= 0x1000) && (endAddr <= 0x17FF)) {
+                    if ((this.osType == OSType.OS2K)
+                            || (this.osType == OSType.ES1988)) {
+                        buf = this.ram;
+                    }
+                } else if ((begAddr >= 0x1800) && (endAddr <= 0x1FFF)) {
+                    if (this.osType != OSType.ES40) {
+                        buf = this.ram;
+                    }
+                } else if ((begAddr >= 0x2000) && (endAddr <= 0x27FF)) {
+                    if (this.osType != OSType.ES1988) {
+                        buf = this.ram;
+                    }
+                } else if ((begAddr >= 0x2800) && (endAddr <= 0x3FFF)) {
+                    buf = this.ram;
+                } else if ((begAddr >= 0x4000) && (endAddr <= 0x5FFF)) {
+                    if (this.osType != OSType.ES40) {
+                        buf = this.ram;
+                    }
+                }
+            }
+        }
+        this.writePages[page] = buf;
+        this.writePageOffs[page] = offs;
     }
-}
+}
\ No newline at end of file
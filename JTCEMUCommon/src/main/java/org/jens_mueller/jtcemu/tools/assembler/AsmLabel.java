@@ -11,13 +11,15 @@ package org.jens_mueller.jtcemu.tools.assembler;
 
 public class AsmLabel implements Comparable<AsmLabel>
 {
-  private String labelName;
-  private Object labelValue;
+  private String  labelName;
+  private Object  labelValue;
+  private boolean addrLabel;
 
   public AsmLabel( String labelName, int labelValue )
   {
     this.labelName  = labelName;
     this.labelValue = Integer.valueOf( labelValue );
+    this.addrLabel  = true;
   }
 
 
@@ -45,6 +47,18 @@ public class AsmLabel implements Comparable<AsmLabel>
   }
 
 
+  /*
+   * Rueckgabewert:
+   *   true:  Die Marke steht vor einem Befehl bzw. vor Daten
+   *          und hat als Wert deren Adresse.
+   *   false: Der Wert der Marke wurde mit EQU festgelegt.
+   */
+  public boolean isAddrLabel()
+  {
+    return this.addrLabel;
+  }
+
+
   public int intValue()
   {
     int rv = 0;
@@ -57,6 +71,12 @@ public class AsmLabel implements Comparable<AsmLabel>
   }
 
 
+  public void setAddrLabel( boolean state )
+  {
+    this.addrLabel = state;
+  }
+
+
   public void setLabelValue( Object value )
   {
     this.labelValue = value;
@@ -1678,12 +1678,14 @@ public class Z8Assembler
     /*
      * Die Marke wurde bereits beim Parsen der Zeile erkannt
      * und der Markentabelle hinzugefuegt.
-     * Hier muss nur der Wert korrigiert werden.
+     * Hier muss nur der Wert korrigiert
+     * und die Marke als Nicht-Adressmarke gekennzeichnet werden.
      * Waehrend der Berechnung des Werts wird die Marke
      * von der Markentabelle entfernt,
      * damit es zu keiner Falschberechnung kommt,
      * falls die Marke selbst im Ausdruck steht.
      */
+    label.setAddrLabel( false );
     this.labels.remove( label.getLabelName() );
     Object value = null;
     try {
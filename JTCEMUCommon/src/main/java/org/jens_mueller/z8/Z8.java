@@ -6,8 +6,11 @@
 
 package org.jens_mueller.z8;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 
 public class Z8 implements Runnable {
@@ -18,6 +21,129 @@ public class Z8 implements Runnable {
     private enum InstType {ADD, ADC, SUB, SBC, OR, AND, TCM, TM, CP, XOR}
 
 
+    /*
+     * Linearer Programmabschnitt, dessen Befehle bereits gelesen
+     * und mit ihren Operanden in jeweils einem int abgelegt sind
+     * (Bits 0-7: Operationscode, Bits 8-23: Operanden).
+     * Ein Abschnitt endet nach einem Sprung-, Aufruf- oder Rueckkehrbefehl.
+     */
+    private static class CodeBlock {
+        private final int begAddr;
+        private final int endAddr;        // erste Adresse hinter dem Abschnitt
+        private final int[] insts;
+        private volatile boolean valid;
+
+        private CodeBlock(int begAddr, int endAddr, int[] insts) {
+            this.begAddr = begAddr;
+            this.endAddr = endAddr;
+            this.insts = insts;
+            this.valid = true;
+        }
+    }
+
+
+    /*
+     * Nach ihren Filtern aufgeteilte Haltepunkte
+     *
+     * An eine Programmadresse gebundene Haltepunkte werden
+     * ueber eine Bitmap mit einem Bit je Adresse gefunden,
+     * sodass an allen anderen Adressen nur ein Bit geprueft wird.
+     * Haltepunkte, die nur bei bestimmten Befehlen zutreffen koennen
+     * (z.B. Speicher- oder Registerzugriffe),
+     * werden je Operationscode abgelegt.
+     */
+    private static class BreakpointTable {
+        private final long[] pcMap;
+        private final int[] pcAddrs;
+        private final Z8Breakpoint[] pcBreakpoints;
+        private final Z8Breakpoint[][] opcBreakpoints;
+        private final Z8Breakpoint[] otherBreakpoints;
+
+        private BreakpointTable(Z8Breakpoint[] breakpoints) {
+            List<Z8Breakpoint> pcList = new ArrayList<>();
+            List<Z8Breakpoint> otherList = new ArrayList<>();
+            List<List<Z8Breakpoint>> opcLists = null;
+            this.pcMap = new long[0x10000 / 64];
+            for (Z8Breakpoint bp : breakpoints) {
+                int addr = bp.getPCAddr();
+                if (addr >= 0) {
+                    addr &= 0xFFFF;
+                    this.pcMap[addr >> 6] |= (1L << (addr & 0x3F));
+                    pcList.add(bp);
+                } else {
+                    boolean allOpcodes = true;
+                    for (int opc = 0; opc < 0x100; opc++) {
+                        if (!bp.matchesOpcode(opc)) {
+                            allOpcodes = false;
+                            break;
+                        }
+                    }
+                    if (allOpcodes) {
+                        otherList.add(bp);
+                    } else {
+                        if (opcLists == null) {
+                            opcLists = new ArrayList<>(0x100);
+                            for (int opc = 0; opc < 0x100; opc++) {
+                                opcLists.add(new ArrayList<>());
+                            }
+                        }
+                        for (int opc = 0; opc < 0x100; opc++) {
+                            if (bp.matchesOpcode(opc)) {
+                                opcLists.get(opc).add(bp);
+                            }
+                        }
+                    }
+                }
+            }
+            this.pcBreakpoints = pcList.toArray(new Z8Breakpoint[0]);
+            this.pcAddrs = new int[this.pcBreakpoints.length];
+            for (int i = 0; i < this.pcAddrs.length; i++) {
+                this.pcAddrs[i] = this.pcBreakpoints[i].getPCAddr() & 0xFFFF;
+            }
+            this.otherBreakpoints = otherList.toArray(new Z8Breakpoint[0]);
+            if (opcLists != null) {
+                this.opcBreakpoints = new Z8Breakpoint[0x100][];
+                for (int opc = 0; opc < 0x100; opc++) {
+                    List<Z8Breakpoint> list = opcLists.get(opc);
+                    if (!list.isEmpty()) {
+                        this.opcBreakpoints[opc] = list.toArray(new Z8Breakpoint[0]);
+                    }
+                }
+            } else {
+                this.opcBreakpoints = null;
+            }
+        }
+
+        private boolean matches(Z8 z8, int pc) {
+            if ((this.pcMap[pc >> 6] & (1L << (pc & 0x3F))) != 0) {
+                for (int i = 0; i < this.pcAddrs.length; i++) {
+                    if ((this.pcAddrs[i] == pc)
+                            && this.pcBreakpoints[i].matches(z8)) {
+                        return true;
+                    }
+                }
+            }
+            if (this.opcBreakpoints != null) {
+                Z8Breakpoint[] bps = this.opcBreakpoints[
+                        z8.memory.getMemByte(pc, false) & 0xFF];
+                if (bps != null) {
+                    for (Z8Breakpoint bp : bps) {
+                        if (bp.matches(z8)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            for (Z8Breakpoint bp : this.otherBreakpoints) {
+                if (bp.matches(z8)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+
     /*
      * Die Tabelle dient zum Entschluesseln der Interrupt-Prioritaet.
      * Dazu werden die unteren 6 Bits des IPR als Index verwendet.
@@ -95,6 +221,145 @@ public class Z8 implements Runnable {
             = {0x01, 0x02, 0x04, 0x08, 0x10, 0x20};
 
 
+    /*
+     * Tabellen fuer die Befehlsausfuehrung mit dem Operationscode als Index:
+     *   instCycleTab:  Taktzyklen (bei Spruengen: Sprung nicht ausgefuehrt,
+     *                  bei PUSH: interner Stack)
+     *   instLengthTab: Befehlslaenge in Bytes einschliesslich Operanden
+     *   instTypeTab:   Art der Operation bei den arithmetischen
+     *                  und logischen Befehlen mit zwei Operanden
+     */
+    private static final int[] instCycleTab = new int[0x100];
+    private static final int[] instLengthTab = new int[0x100];
+    private static final InstType[] instTypeTab = new InstType[0x100];
+
+    // Befehle, mit denen ein Programmabschnitt im Befehls-Cache endet
+    private static final boolean[] instEndsBlockTab = new boolean[0x100];
+
+    private static final int CODE_BLOCK_MAX_INSTS = 32;
+    private static final int CODE_BLOCK_MAX_BYTES = CODE_BLOCK_MAX_INSTS * 3;
+
+    static {
+        // NOP und alle nicht belegten Operationscodes
+        Arrays.fill(instCycleTab, 6);
+        Arrays.fill(instLengthTab, 1);
+
+        // Befehle mit dem Arbeitsregister im oberen Nibble
+        for (int i = 0; i < 0x100; i += 0x10) {
+            setInstInfo(i | 0x08, 2, 6);        // LD r1,R2
+            setInstInfo(i | 0x09, 2, 6);        // LD R2,r1
+            setInstInfo(i | 0x0A, 2, 10);        // DJNZ r1,RA
+            setInstInfo(i | 0x0B, 2, 10);        // JR cc,RA
+            setInstInfo(i | 0x0C, 2, 6);        // LD r1,IM
+            setInstInfo(i | 0x0D, 3, 10);        // JP cc,DA
+            setInstInfo(i | 0x0E, 1, 6);        // INC r1
+            instEndsBlockTab[i | 0x0A] = true;
+            instEndsBlockTab[i | 0x0B] = true;
+            instEndsBlockTab[i | 0x0D] = true;
+        }
+
+        // arithmetische und logische Befehle mit zwei Operanden
+        InstType[] instTypes = {
+                InstType.ADD, InstType.ADC, InstType.SUB, InstType.SBC,
+                InstType.OR, InstType.AND, InstType.TCM, InstType.TM,
+                null, null, InstType.CP, InstType.XOR};
+        for (int i = 0; i < instTypes.length; i++) {
+            InstType instType = instTypes[i];
+            if (instType != null) {
+                int opc = i << 4;
+                setInstInfo(opc | 0x02, 2, 6);        // XYZ r1,r2
+                setInstInfo(opc | 0x03, 2, 6);        // XYZ r1,Ir2
+                setInstInfo(opc | 0x04, 3, 10);        // XYZ R2,R1
+                setInstInfo(opc | 0x05, 3, 10);        // XYZ IR2,R1
+                setInstInfo(opc | 0x06, 3, 10);        // XYZ R1,IM
+                setInstInfo(opc | 0x07, 3, 10);        // XYZ IR1,IM
+                for (int k = 0x02; k <= 0x07; k++) {
+                    instTypeTab[opc | k] = instType;
+                }
+            }
+        }
+
+        // Befehle mit einem Register als Operand
+        setInstInfo(0x00, 2, 6);            // DEC R1
+        setInstInfo(0x01, 2, 6);            // DEC IR1
+        setInstInfo(0x10, 2, 6);            // RLC R1
+        setInstInfo(0x11, 2, 6);            // RLC IR1
+        setInstInfo(0x20, 2, 6);            // INC R1
+        setInstInfo(0x21, 2, 6);            // INC IR1
+        setInstInfo(0x30, 2, 8);            // JP IRR1
+        setInstInfo(0x31, 2, 6);            // SRP IM
+        setInstInfo(0x40, 2, 8);            // DA R1
+        setInstInfo(0x41, 2, 8);            // DA IR1
+        setInstInfo(0x50, 2, 10);            // POP R1
+        setInstInfo(0x51, 2, 10);            // POP IR1
+        setInstInfo(0x60, 2, 6);            // COM R1
+        setInstInfo(0x61, 2, 6);            // COM IR1
+        setInstInfo(0x70, 2, 10);            // PUSH R1
+        setInstInfo(0x71, 2, 12);            // PUSH IR1
+        setInstInfo(0x80, 2, 10);            // DECW RR1
+        setInstInfo(0x81, 2, 10);            // DECW IR1
+        setInstInfo(0x90, 2, 6);            // RL R1
+        setInstInfo(0x91, 2, 6);            // RL IR1
+        setInstInfo(0xA0, 2, 10);            // INCW RR1
+        setInstInfo(0xA1, 2, 10);            // INCW IR1
+        setInstInfo(0xB0, 2, 6);            // CLR R1
+        setInstInfo(0xB1, 2, 6);            // CLR IR1
+        setInstInfo(0xC0, 2, 6);            // RRC R1
+        setInstInfo(0xC1, 2, 6);            // RRC IR1
+        setInstInfo(0xD0, 2, 6);            // SRA R1
+        setInstInfo(0xD1, 2, 6);            // SRA IR1
+        setInstInfo(0xD4, 2, 20);            // CALL IRR1
+        setInstInfo(0xE0, 2, 6);            // RR R1
+        setInstInfo(0xE1, 2, 6);            // RR IR1
+        setInstInfo(0xF0, 2, 8);            // SWAP R1
+        setInstInfo(0xF1, 2, 8);            // SWAP IR1
+
+        // Lade- und Transferbefehle
+        setInstInfo(0x82, 2, 12);            // LDE r1,Irr2
+        setInstInfo(0x83, 2, 18);            // LDEI Ir1,Irr2
+        setInstInfo(0x92, 2, 12);            // LDE Irr2,r1
+        setInstInfo(0x93, 2, 18);            // LDEI Irr2,Ir1
+        setInstInfo(0xC2, 2, 12);            // LDC r1,Irr2
+        setInstInfo(0xC3, 2, 18);            // LDCI Ir1,Irr2
+        setInstInfo(0xC7, 3, 10);            // LD r1,x(r2)
+        setInstInfo(0xD2, 2, 12);            // LDC Irr2,r1
+        setInstInfo(0xD3, 2, 18);            // LDCI Irr2,Ir1
+        setInstInfo(0xD6, 3, 20);            // CALL DA
+        setInstInfo(0xD7, 3, 10);            // LD r2,x(r1)
+        setInstInfo(0xE3, 2, 6);            // LD r1,IR2
+        setInstInfo(0xE4, 3, 10);            // LD R2,R1
+        setInstInfo(0xE5, 3, 10);            // LD R2,IR1
+        setInstInfo(0xE6, 3, 10);            // LD R1,IM
+        setInstInfo(0xE7, 3, 10);            // LD IR1,IM
+        setInstInfo(0xF3, 2, 6);            // LD Ir1,r2
+        setInstInfo(0xF5, 3, 10);            // LD IR2,R1
+
+        // Befehle ohne Operanden
+        setInstInfo(0x8F, 1, 6);            // DI
+        setInstInfo(0x9F, 1, 6);            // EI
+        setInstInfo(0xAF, 1, 14);            // RET
+        setInstInfo(0xBF, 1, 16);            // IRET
+        setInstInfo(0xCF, 1, 6);            // RCF
+        setInstInfo(0xDF, 1, 6);            // SCF
+        setInstInfo(0xEF, 1, 6);            // CCF
+
+        // Spruenge ohne Bedingung, Aufrufe und Rueckkehrbefehle
+        instEndsBlockTab[0x30] = true;        // JP IRR1
+        instEndsBlockTab[0xAF] = true;        // RET
+        instEndsBlockTab[0xBF] = true;        // IRET
+        instEndsBlockTab[0xD4] = true;        // CALL IRR1
+        instEndsBlockTab[0xD6] = true;        // CALL DA
+    }
+
+
+    /*
+     * Art der zuletzt ausgefuehrten Operation,
+     * aus der das V- bzw. H-Flag bei Bedarf berechnet wird
+     */
+    private static final int FLAG_OP_NONE = 0;
+    private static final int FLAG_OP_ADD = 1;
+    private static final int FLAG_OP_SUB = 2;
+
     private static final int SPL = 0xFF;
     private static final int SPH = 0xFE;
     private static final int RP = 0xFD;
@@ -123,6 +388,9 @@ public class Z8 implements Runnable {
     private volatile long cyclesStartMillis = -1;
     private volatile long speedCycles = 0;
     private volatile long totalCycles = 0;
+    private long totalInsts = 0;        // nur im CPU-Thread geschrieben
+    private volatile long speedSleepNanos = 0;  // nur im CPU-Thread geschrieben
+    private final AtomicLongArray interruptCounts = new AtomicLongArray(6);
     private int instCycles = 0;
     private int sioPreDiv = 0;
     private int sioIn = 0;
@@ -148,13 +416,31 @@ public class Z8 implements Runnable {
     private final int[] portOut = new int[4];
     private final int[] portLastOut = new int[4];
     private int port3LastIn = 0xFF;
+    private volatile boolean portInChanged = true;
     private volatile Z8Breakpoint[] breakpoints = null;
+    private volatile BreakpointTable breakpointTable = null;
     private boolean flagC = false;
     private boolean flagD = false;
     private boolean flagH = false;
-    private boolean flagS = false;
     private boolean flagV = false;
-    private boolean flagZ = false;
+
+    /*
+     * Die Flags Z, S, V und H werden erst bei Bedarf ermittelt.
+     * Z und S ergeben sich aus den zuletzt gespeicherten Ergebniswerten
+     * (Z: Bits 0-7 von flagZResult alle 0, S: Bit 7 von flagSResult
+     * gesetzt). Es sind zwei Werte, da ueber das FLAGS-Register
+     * Z und S auch gleichzeitig gesetzt werden koennen.
+     * V und H ergeben sich, sofern flagVOp bzw. flagHOp
+     * nicht FLAG_OP_NONE ist, aus den Operanden der letzten
+     * Addition bzw. Subtraktion, anderenfalls gelten flagV und flagH.
+     */
+    private int flagSResult = 0;
+    private int flagZResult = 0x01;
+    private int flagVOp = FLAG_OP_NONE;
+    private int flagHOp = FLAG_OP_NONE;
+    private int flagOp1 = 0;
+    private int flagOp2 = 0;
+    private int flagOp3 = 0;
     private int[] interruptPriority = null;
     private volatile boolean eiExecuted = false;
     private volatile boolean regInitZero = false;
@@ -165,10 +451,47 @@ public class Z8 implements Runnable {
     private volatile boolean quitFired = false;
     private final Z8Timer timer0 = new Z8Timer();
     private final Z8Timer timer1 = new Z8Timer();
+
+    /*
+     * Die Timer werden nicht nach jedem Befehl weitergezaehlt,
+     * sondern nur, wenn timerCycles den Taktzyklus
+     * des naechsten Nulldurchgangs (timerEventCycles) erreicht hat
+     * oder auf die Timer-Register zugegriffen wird.
+     * timerCycles wird im Gegensatz zu totalCycles nie zurueckgesetzt.
+     */
+    private long timerCycles = 0;
+    private long timerEventCycles = Long.MAX_VALUE;
+
+    /*
+     * Befehls-Cache:
+     * Programmabschnitte aus Speicherbereichen, fuer die
+     * Z8Memory.isCodeCacheable(...) true liefert,
+     * werden nur einmal gelesen und entschluesselt.
+     * codeBlocks enthaelt die Abschnitte mit ihrer Anfangsadresse
+     * als Index, codeSegBlockCounts die Anzahl der Abschnitte,
+     * die einen 256 Byte grossen Speicherbereich beruehren.
+     */
+    private final CodeBlock[] codeBlocks = new CodeBlock[0x10000];
+    private final int[] codeSegBlockCounts = new int[0x100];
+    private CodeBlock curCodeBlock = null;
+    private int curCodeIdx = 0;
+    private int curCodeAddr = -1;
+    private int instOperands = 0;
     private Z8Memory memory = null;
     private Random random = null;
     private volatile Z8Debugger debugger = null;
     private volatile DebugAction debugAction = null;
+    private volatile boolean debugArmed = false;
+
+    /*
+     * Speicherueberwachung: instExec ist nur waehrend der Ausfuehrung
+     * eines Befehls bzw. der Interrupt-Annahme gesetzt,
+     * nicht aber beim Lesen der Befehlsbytes.
+     */
+    private volatile Thread execThread = null;
+    private boolean instExec = false;
+    private volatile boolean memWatchHit = false;
+    private volatile Z8Profiler profiler = null;
     private volatile RunMode runMode = RunMode.RUNNING;
     private final Object waitMonitor = new Object();
 
@@ -205,6 +528,7 @@ public class Z8 implements Runnable {
         this.powerOn = powerOn;
         this.resetFired = true;
         this.debugAction = DebugAction.RUN;
+        updDebugArmed();
         synchronized (this.waitMonitor) {
             if (this.pause) {
                 try {
@@ -217,6 +541,17 @@ public class Z8 implements Runnable {
     }
 
 
+    /*
+     * Diese Methode muss von der Z8IO-Implementierung aufgerufen werden,
+     * wenn sich der Wert eines Eingangsports geaendert hat.
+     * Die Eingangsports werden nur danach neu gelesen
+     * und auf Flanken an P30 bis P33 geprueft.
+     */
+    public void firePortInChanged() {
+        this.portInChanged = true;
+    }
+
+
     public int getCyclesPerSecond() {
         return this.cyclesPerSecond;
     }
@@ -238,6 +573,14 @@ public class Z8 implements Runnable {
     }
 
 
+    /*
+     * Laenge eines Befehls in Bytes einschliesslich der Operanden
+     */
+    public static int getInstLength(int opc) {
+        return instLengthTab[opc & 0xFF];
+    }
+
+
     public int getMaxGPRNum() {
         return this.maxGPRNum;
     }
@@ -309,10 +652,10 @@ public class Z8 implements Runnable {
             rv = switch (r) {
                 case SIO -> this.sioIn;
                 case TMR -> this.regTMR;
-                case T1 -> this.timer1.getCounter();
+                case T1 -> getTimerCounter(this.timer1);
                 case PRE1 ->        // Write Only Register
                         0xFF;
-                case T0 -> this.timer0.getCounter();        // Write Only Register
+                case T0 -> getTimerCounter(this.timer0);        // Write Only Register
                 // Write Only Register
                 // Write Only Register
                 // Write Only Register
@@ -359,6 +702,31 @@ public class Z8 implements Runnable {
     }
 
 
+    public long getTotalInstructions() {
+        return this.totalInsts;
+    }
+
+
+    /*
+     * Anzahl der angenommenen Interrupts der Quelle IRQ0 bis IRQ5
+     * seit dem Anlegen des Objekts
+     */
+    public long getInterruptCount(int irq) {
+        return (irq >= 0) && (irq < this.interruptCounts.length()) ?
+                this.interruptCounts.get(irq)
+                : 0;
+    }
+
+
+    /*
+     * Zeit in Millisekunden, die die Emulation seit dem Anlegen
+     * des Objekts zum Einhalten der Taktfrequenz gewartet hat
+     */
+    public long getSpeedSleepMillis() {
+        return this.speedSleepNanos / 1000000L;
+    }
+
+
     public int getWorkingRegNum(int r) {
         return (this.regRP & 0xF0) | (r & 0x0F);
     }
@@ -369,6 +737,54 @@ public class Z8 implements Runnable {
     }
 
 
+    /*
+     * Die Methoden muessen aufgerufen werden, wenn sich der Inhalt
+     * eines Speicherbereichs geaendert hat, fuer den
+     * Z8Memory.isCodeCacheable(...) true liefert.
+     * Die betroffenen Programmabschnitte werden aus dem
+     * Befehls-Cache entfernt.
+     * Die Zaehler je 256-Byte-Segment werden wie der Cache selbst
+     * nur unter der Sperre von codeBlocks geschrieben.
+     * Da Programmabschnitte nur der Thread anlegt,
+     * der die Befehle ausfuehrt, sieht dieser Thread in den Zaehlern
+     * nie zu wenige Abschnitte und darf sie ohne Sperre pruefen.
+     * Nur andere Threads muessen die Sperre anfordern.
+     */
+    public void invalidateCode() {
+        invalidateCode(0x0000, 0xFFFF);
+    }
+
+
+    public void invalidateCode(int addr) {
+        addr &= 0xFFFF;
+        if ((Thread.currentThread() != this.execThread)
+                || (this.codeSegBlockCounts[addr >> 8] > 0)) {
+            invalidateCode(addr, addr);
+        }
+    }
+
+
+    public void invalidateCode(int begAddr, int endAddr) {
+        synchronized (this.codeBlocks) {
+            for (int seg = begAddr >> 8; seg <= (endAddr >> 8); seg++) {
+                if (this.codeSegBlockCounts[seg] > 0) {
+                    int addr = Math.max(
+                            Math.max(seg << 8, begAddr) - CODE_BLOCK_MAX_BYTES + 1,
+                            0);
+                    int lastAddr = Math.min((seg << 8) | 0xFF, endAddr);
+                    while (addr <= lastAddr) {
+                        CodeBlock block = this.codeBlocks[addr];
+                        if ((block != null) && (block.endAddr > begAddr)) {
+                            removeCodeBlock(block);
+                        }
+                        addr++;
+                    }
+                }
+            }
+        }
+    }
+
+
     public boolean isPause() {
         return this.pause;
     }
@@ -379,6 +795,23 @@ public class Z8 implements Runnable {
     }
 
 
+    /*
+     * Die Methode wird von der Z8Memory-Implementierung aufgerufen,
+     * wenn auf eine ueberwachte Speicherzelle zugegriffen wurde.
+     * Beruecksichtigt werden nur die Zugriffe des gerade ausgefuehrten
+     * Befehls einschliesslich der Interrupt-Annahme,
+     * nicht aber das Lesen der Befehle selbst
+     * oder Zugriffe aus anderen Threads.
+     * Das Anhalten erfolgt nach Ausfuehrung des aktuellen Befehls.
+     */
+    public void memWatchHit() {
+        if (this.instExec && (Thread.currentThread() == this.execThread)) {
+            this.memWatchHit = true;
+            this.debugArmed = true;
+        }
+    }
+
+
     public int pop() {
         int rv = 0;
         if (isInternalStackEnabled()) {
@@ -433,8 +866,12 @@ public class Z8 implements Runnable {
     }
 
 
-    public void setBreakpoints(Z8Breakpoint[] breakpoints) {
+    public synchronized void setBreakpoints(Z8Breakpoint[] breakpoints) {
         this.breakpoints = breakpoints;
+        this.breakpointTable = ((breakpoints != null) && (breakpoints.length > 0)) ?
+                new BreakpointTable(breakpoints)
+                : null;
+        updDebugArmed();
     }
 
 
@@ -456,6 +893,7 @@ public class Z8 implements Runnable {
 
     public synchronized void setDebugAction(DebugAction debugAction) {
         this.debugAction = debugAction;
+        updDebugArmed();
         if (this.pause) {
             this.debugSP = getSP();
             if ((debugAction == null) || (debugAction != DebugAction.STOP)) {
@@ -503,6 +941,15 @@ public class Z8 implements Runnable {
     }
 
 
+    /*
+     * Ist ein Laufzeitprofil gesetzt, wird es nach jedem Befehl
+     * sowie bei CALL, RET, IRET und der Interrupt-Annahme aktualisiert.
+     */
+    public void setProfiler(Z8Profiler profiler) {
+        this.profiler = profiler;
+    }
+
+
     public void setRegInitZero(boolean state) {
         this.regInitZero = state;
     }
@@ -590,9 +1037,10 @@ public class Z8 implements Runnable {
                     this.flagH = ((v & 0x04) != 0);
                     this.flagD = ((v & 0x08) != 0);
                     this.flagV = ((v & 0x10) != 0);
-                    this.flagS = ((v & 0x20) != 0);
-                    this.flagZ = ((v & 0x40) != 0);
                     this.flagC = ((v & 0x80) != 0);
+                    this.flagVOp = FLAG_OP_NONE;
+                    this.flagHOp = FLAG_OP_NONE;
+                    setFlagsZS((v & 0x40) != 0, (v & 0x20) != 0);
                     break;
 
                 case IMR:
@@ -638,28 +1086,38 @@ public class Z8 implements Runnable {
                     break;
 
                 case PRE0:
+                    syncTimers(this.timerCycles);
                     this.timer0.setPreCounter(v);
                     this.regTMR |= 0x01;
+                    updTimerEventCycles();
                     break;
 
                 case T0:
+                    syncTimers(this.timerCycles);
                     this.timer0.setCounter(v);
                     this.regTMR |= 0x01;
+                    updTimerEventCycles();
                     break;
 
                 case PRE1:
+                    syncTimers(this.timerCycles);
                     this.timer1.setPreCounter(v);
                     this.timer1ExtClock = ((v & 0x02) == 0);
                     this.regTMR |= 0x04;
+                    updTimerEventCycles();
                     break;
 
                 case T1:
+                    syncTimers(this.timerCycles);
                     this.timer1.setCounter(v);
                     this.regTMR |= 0x04;
+                    updTimerEventCycles();
                     break;
 
                 case TMR:
+                    syncTimers(this.timerCycles);
                     this.regTMR = v;
+                    updTimerEventCycles();
                     break;
 
                 case SIO:
@@ -752,13 +1210,44 @@ public class Z8 implements Runnable {
 
     @Override
     public void run() {
-        long cyclesSinceAdjust = 0;
         this.cyclesStartMillis = System.currentTimeMillis();
         this.instCycles = 0;
         this.speedCycles = 0;
         this.totalCycles = 0;
+        this.totalInsts = 0;
+        execLoop(-1);
+    }
+
+
+    /*
+     * Die Methode fuehrt im aufrufenden Thread so lange Befehle aus,
+     * bis mindestens die uebergebene Anzahl an Taktzyklen
+     * abgearbeitet wurde oder fireQuit() aufgerufen wurde.
+     * Im Gegensatz zu run() werden die Zaehler nicht zurueckgesetzt,
+     * sodass die Methode fuer eine schrittweise Ausfuehrung
+     * mehrmals hintereinander aufgerufen werden kann.
+     */
+    public void runCycles(long cycles) {
+        if (cycles > 0) {
+            execLoop(cycles);
+        }
+    }
+
+
+    /* --- private Methoden --- */
+
+    /*
+     * maxCycles < 0: keine Begrenzung der Taktzyklen
+     */
+    private void execLoop(long maxCycles) {
+        long cyclesSinceAdjust = 0;
+        long cyclesLeft = maxCycles;
+        this.portInChanged = true;
+        this.execThread = Thread.currentThread();
+        System.arraycopy(this.portLastOut, 0, this.portOut, 0, this.portOut.length);
         while (!this.quitFired) {
             this.totalCycles += this.instCycles;
+            this.timerCycles += this.instCycles;
 
             // Geschwindigkeit
             cyclesSinceAdjust += this.instCycles;
@@ -774,149 +1263,67 @@ public class Z8 implements Runnable {
                     long plannedMillis = 1000L * this.speedCycles / cyclesPerSecond;
                     long millisToWait = plannedMillis - usedMillis;
                     if (millisToWait > 10) {
+                        long sleepBeg = System.nanoTime();
                         try {
                             Thread.sleep(Math.min(millisToWait, 50));
                         } catch (InterruptedException ignored) {
                         }
+                        this.speedSleepNanos += System.nanoTime() - sleepBeg;
                     }
                     cyclesSinceAdjust = 0;
                 }
             }
 
+            // Begrenzung der Taktzyklen
+            if (maxCycles >= 0) {
+                cyclesLeft -= this.instCycles;
+                if (cyclesLeft <= 0) {
+                    this.instCycles = 0;
+                    break;
+                }
+            }
+
             // Reset?
             if (this.resetFired) {
                 reset(this.powerOn);
-            }
-
-            // Status der Eingangsports zuruecksetzen
-            Arrays.fill(this.portIn, -1);
-
-            // Zwischenspeicher fuer Ausgangsports aktualisieren
-            System.arraycopy(this.portLastOut, 0, this.portOut, 0, this.portOut.length);
-
-            // P30: 1->0 pruefen
-            if (((this.regP3M & 0x40) == 0) && wentP3BitFrom1To0(0x01)) {
-                this.regIRQ |= 0x08;            // IRQ3, wenn SIO inaktiv
-            }
-
-            // P31: 1->0 pruefen
-            boolean p31From1To0 = wentP3BitFrom1To0(0x02);
-            if (p31From1To0) {
-                if ((this.regP3M & 0x20) == 0x20) {        // Handshake Port 2
-                    if ((this.regP2M & 0x80) == 0x80) {        // Eingang
-                        if ((this.portLastOut[3] & 0x40) == 0x40) {
-                            updInputReg2();                // P36=1: uebernehmen
-                            this.portOut[3] &= ~0x40;        // P36=0
-                            this.regIRQ |= 0x04;            // IRQ2
-                        }
-                    } else {                    // Ausgang
-                        this.portOut[3] |= 0x40;            // P36=1
-                        this.regIRQ |= 0x04;            // IRQ2
-                    }
-                } else {
-                    this.regIRQ |= 0x04;                // IRQ2
+                Z8Profiler profiler = this.profiler;
+                if (profiler != null) {
+                    profiler.reset();
                 }
-            }
+                this.portInChanged = true;
 
-            // P32: 1->0 pruefen
-            if (wentP3BitFrom1To0(0x04)) {
-                if ((this.regP3M & 0x04) == 0x04) {        // Handshake Port 0
-                    if ((this.regP01M & 0x03) == 0x01) {        // Eingang
-                        if ((this.portLastOut[3] & 0x20) == 0x20) {
-                            updInputReg0();                // P35=1: uebernehmen
-                            this.portOut[3] &= ~0x20;        // P35=0
-                            this.regIRQ |= 0x01;            // IRQ0
-                        }
-                    } else {                    // Ausgang
-                        this.portOut[3] |= 0x20;            // P35=1
-                        this.regIRQ |= 0x01;            // IRQ0
-                    }
-                } else {
-                    this.regIRQ |= 0x01;                // IRQ0
-                }
+                // Zwischenspeicher fuer Ausgangsports aktualisieren
+                System.arraycopy(this.portLastOut, 0, this.portOut, 0, this.portOut.length);
             }
 
-            // P33: 1->0 pruefen
-            if (wentP3BitFrom1To0(0x08)) {
-                if ((this.regP3M & 0x18) == 0x18) {        // Handshake Port 1
-                    if ((this.regP01M & 0x18) == 0x08) {        // Eingang
-                        if ((this.portLastOut[3] & 0x10) == 0x10) {
-                            updInputReg1();                // P34=1: uebernehmen
-                            this.portOut[3] &= ~0x10;        // P34=0
-                            this.regIRQ |= 0x02;            // IRQ1
-                        }
-                    } else {                    // Ausgang
-                        this.portOut[3] |= 0x10;            // P34=1
-                        this.regIRQ |= 0x02;            // IRQ1
-                    }
-                } else {
-                    this.regIRQ |= 0x02;                // IRQ1
-                }
+            /*
+             * Die Eingangsports werden nur dann neu gelesen
+             * und auf Flanken geprueft, wenn die Z8IO-Implementierung
+             * eine Aenderung gemeldet hat.
+             * Ohne Aenderung kann auch keine Flanke auftreten.
+             * Die Ausgangsports muessen nicht aus portLastOut
+             * kopiert werden, da updPorts() beide abgleicht.
+             */
+            boolean p31From1To0 = false;
+            if (this.portInChanged) {
+                this.portInChanged = false;
+                Arrays.fill(this.portIn, -1);
+                p31From1To0 = checkPort3Edges();
             }
 
             if (!this.pause) {
 
                 // Anhalten?
-                Z8.DebugAction debugAction = null;
-                Z8Breakpoint[] breakpoints = null;
-                int pc = 0;
-                synchronized (this) {
-                    debugAction = this.debugAction;
-                    breakpoints = this.breakpoints;
-                    pc = this.pc;
-                }
-                boolean reqStop = false;
-                if (breakpoints != null) {
-                    for (Z8Breakpoint breakpoint : breakpoints) {
-                        if (breakpoint.matches(this)) {
-                            reqStop = true;
-                            break;
-                        }
-                    }
-                }
-                if (!reqStop) {
-                    if (debugAction != null) {
-                        switch (debugAction) {
-                            case RUN_TO_RET:
-                                int opc = this.memory.getMemByte(pc, false);
-                                if (((opc == 0xAF) || (opc == 0xBF))
-                                        && (getSP() >= this.debugSP)) {
-                                    reqStop = true;
-                                }
-                                break;
-
-                            case STEP_OVER:
-                                if (getSP() >= this.debugSP) {
-                                    reqStop = true;
-                                }
-                                break;
+                if (this.debugArmed) {
+                    checkDebugStop();
 
-                            case STEP_INTO:
-                            case STOP:
-                                reqStop = true;
-                                break;
-                        }
-                    }
-                }
-                if (reqStop) {
-                    synchronized (this.waitMonitor) {
-                        this.pause = true;
-                        statusChanged();
-                        try {
-                            this.waitMonitor.wait();
-                        } catch (IllegalMonitorStateException | InterruptedException ignored) {
-                        }
-                        this.pause = false;
-                        resetSpeed();
-                        statusChanged();
-                    }
-                    synchronized (this) {
-                        debugAction = this.debugAction;
-                    }
-                    if (debugAction == DebugAction.STEP_OVER) {
-                        int opc = this.memory.getMemByte(this.pc, false);
-                        if ((opc != 0xD4) && (opc != 0xD6))
-                            this.debugAction = DebugAction.STEP_INTO;
+                    /*
+                     * Wurde in einem Haltepunkt fireQuit() aufgerufen,
+                     * wird der Befehl nicht mehr ausgefuehrt.
+                     */
+                    if (this.quitFired) {
+                        this.instCycles = 0;
+                        break;
                     }
                 }
 
@@ -927,8 +1334,15 @@ public class Z8 implements Runnable {
                 }
 
                 // Befehl ausfuehren
+                Z8Profiler profiler = this.profiler;
+                int instAddr = this.pc;
                 this.instCycles = 0;
+                this.instExec = true;
                 execNextInst();
+                this.totalInsts++;
+                if (profiler != null) {
+                    profiler.instExecuted(instAddr, this.instCycles);
+                }
             }
 
             /*
@@ -953,17 +1367,27 @@ public class Z8 implements Runnable {
                                 this.regIRQ &= ~m;
                                 this.regIMR &= 0x7F;
                                 this.instCycles = 6;
+                                this.interruptCounts.incrementAndGet(irq);
+                                Z8Profiler profiler = this.profiler;
+                                if (profiler != null) {
+                                    profiler.interrupt(irq, this.pc, getSP(), 6);
+                                }
                                 break;
                             }
                         }
                     }
                 }
             }
+            this.instExec = false;
 
-            // Timer aktualisieren
+            /*
+             * Timer aktualisieren,
+             * bei interner Taktquelle nur beim Erreichen eines Nulldurchgangs
+             */
             boolean sioPulse = false;
-            if ((this.regTMR & 0x02) != 0) {
-                if (this.timer0.update(this.instCycles)) {
+            long timerCycles = this.timerCycles + this.instCycles;
+            if (timerCycles >= this.timerEventCycles) {
+                if (isTimer0Running() && this.timer0.updateTo(timerCycles)) {
                     if ((this.regP3M & 0x40) != 0) {
                         sioPulse = true;
                     } else {
@@ -973,39 +1397,42 @@ public class Z8 implements Runnable {
                         changeP36();
                     }
                 }
+                if (isTimer1Running() && this.timer1.updateTo(timerCycles)) {
+                    this.regIRQ |= 0x20;
+                    if ((this.regTMR & 0xC0) == 0x80) {
+                        changeP36();
+                    }
+                }
+                updTimerEventCycles();
             }
-            if ((this.regTMR & 0x08) != 0) {
+            if (((this.regTMR & 0x08) != 0) && this.timer1ExtClock) {
                 int t1Cycles = 0;
-                if (this.timer1ExtClock) {
-                    if ((this.regP3M & 0x20) == 0) {    // P31: kein Handshake (Port 2)
-                        switch (this.regTMR & 0x30) {
-                            case 0x00:            // P31: externe Taktquelle
-                                if (p31From1To0) {
-                                    t1Cycles = 1;
-                                }
-                                break;
+                if ((this.regP3M & 0x20) == 0) {    // P31: kein Handshake (Port 2)
+                    switch (this.regTMR & 0x30) {
+                        case 0x00:            // P31: externe Taktquelle
+                            if (p31From1To0) {
+                                t1Cycles = 1;
+                            }
+                            break;
 
-                            case 0x10:            // P31: Tor
-                                if ((getPortValue(3) & 0x02) != 0) {
-                                    t1Cycles = this.instCycles;
-                                }
-                                break;
+                        case 0x10:            // P31: Tor
+                            if ((getPortValue(3) & 0x02) != 0) {
+                                t1Cycles = this.instCycles;
+                            }
+                            break;
 
-                            case 0x20:            // Trigger, nicht retriggerbar
-                                if ((this.timer1.getCounter() == 0) && p31From1To0) {
-                                    this.regTMR |= 0x04;
-                                }
-                                break;
+                        case 0x20:            // Trigger, nicht retriggerbar
+                            if ((this.timer1.getCounter() == 0) && p31From1To0) {
+                                this.regTMR |= 0x04;
+                            }
+                            break;
 
-                            case 0x30:            // Trigger, retriggerbar
-                                if (p31From1To0) {
-                                    this.regTMR |= 0x04;
-                                }
-                                break;
-                        }
+                        case 0x30:            // Trigger, retriggerbar
+                            if (p31From1To0) {
+                                this.regTMR |= 0x04;
+                            }
+                            break;
                     }
-                } else {
-                    t1Cycles = this.instCycles;
                 }
                 if (t1Cycles > 0) {
                     if (this.timer1.update(t1Cycles)) {
@@ -1016,13 +1443,17 @@ public class Z8 implements Runnable {
                     }
                 }
             }
-            if ((this.regTMR & 0x01) != 0) {
-                this.timer0.init();
-                this.regTMR &= ~0x01;
-            }
-            if ((this.regTMR & 0x04) != 0) {
-                this.timer1.init();
-                this.regTMR &= ~0x04;
+            if ((this.regTMR & 0x05) != 0) {
+                syncTimers(timerCycles);
+                if ((this.regTMR & 0x01) != 0) {
+                    this.timer0.init();
+                    this.regTMR &= ~0x01;
+                }
+                if ((this.regTMR & 0x04) != 0) {
+                    this.timer1.init();
+                    this.regTMR &= ~0x04;
+                }
+                updTimerEventCycles();
             }
 
             // SIO
@@ -1087,267 +1518,218 @@ public class Z8 implements Runnable {
             }
             updPorts();
         }
-    }
-
-
-    /* --- private Methoden --- */
-
-    private void execNextInst() {
-        int b, r1, r2;
-        int opc = nextByte();
-        int nibbleH = opc & 0xF0;
-        int nibbleL = opc & 0x0F;
-        switch (nibbleL) {
-            case 0x08:                    // LD r1,R2
-                r1 = getWorkingRegNum(opc >> 4);
-                r2 = nextByte();
-                setRegValue(r1, getReg(r2));
-                this.instCycles = 6;
-                break;
-
-            case 0x09:                    // LD R2,r1
-                r1 = getWorkingRegNum(opc >> 4);
-                r2 = nextByte();    // Working Register hier nicht moeglich
-                setReg(r2, getRegValue(r1));
-                this.instCycles = 6;
-                break;
 
-            case 0x0A:                    // DJNZ r1,RA
-                r1 = getWorkingRegNum(opc >> 4);
-                r2 = nextByte();
-                b = (getRegValue(r1) - 1) & 0xFF;
-                setRegValue(r1, b);
-                if (b != 0) {
-                    this.pc = (this.pc + (int) (byte) r2) & 0xFFFF;
-                    this.instCycles = 12;
-                } else {
-                    this.instCycles = 10;
-                }
-                break;
-
-            case 0x0B:                    // JR cc,RA
-                b = nextByte();
-                if (checkCond(opc)) {
-                    this.pc = (this.pc + (int) ((byte) b)) & 0xFFFF;
-                    this.instCycles = 12;
-                } else {
-                    this.instCycles = 10;
-                }
-                break;
-
-            case 0x0C:                    // LD r1,IM
-                setReg(getWorkingRegNum(opc >> 4), nextByte());
-                this.instCycles = 6;
-                break;
-
-            case 0x0D:                    // JP cc,DA
-                r1 = nextByte();
-                r2 = nextByte();
-                if (checkCond(opc)) {
-                    this.pc = (r1 << 8) | r2;
-                    this.instCycles = 12;
-                } else {
-                    this.instCycles = 10;
-                }
-                break;
-
-            case 0x0E:                    // INC r1
-                doInstINC(getWorkingRegNum(opc >> 4));
-                this.instCycles = 6;
-                break;
-
-            default:
-                InstType instType = switch (nibbleH >> 4) {
-                    case 0 -> InstType.ADD;
-                    case 1 -> InstType.ADC;
-                    case 2 -> InstType.SUB;
-                    case 3 -> InstType.SBC;
-                    case 4 -> InstType.OR;
-                    case 5 -> InstType.AND;
-                    case 6 -> InstType.TCM;
-                    case 7 -> InstType.TM;
-                    case 0x0A -> InstType.CP;
-                    case 0x0B -> InstType.XOR;
-                    default -> null;
-                };
-                if ((instType != null) && (nibbleL >= 2) && (nibbleL < 8)) {
-                    execInst(nibbleL, instType);
-                } else {
-                    execRemainingInst(opc);
-                }
-        }
+        // Timer-Register fuer die Anzeige auf den aktuellen Stand bringen
+        syncTimers(this.timerCycles + this.instCycles);
     }
 
 
-    private void execInst(int nibbleL, InstType instType) {
-        int b, r1, r2;
-        switch (nibbleL) {
-            case 0x02:                    // XYZ r1,r2
+    /*
+     * Die Befehlsausfuehrung erfolgt ueber einen einzigen Verteiler
+     * mit dem Operationscode als Index.
+     * Die Taktzyklen werden vorab aus instCycleTab uebernommen
+     * und nur bei ausgefuehrten Spruengen bzw. externem Stack erhoeht.
+     */
+    private void execNextInst() {
+        int a, b, r1, r2;
+        int opc = fetchInst();
+        this.instCycles = instCycleTab[opc];
+        switch (opc) {
+            case 0x02, 0x12, 0x22, 0x32, 0x42,
+                    0x52, 0x62, 0x72, 0xA2, 0xB2:    // XYZ r1,r2
                 b = nextByte();
                 r1 = getWorkingRegNum(b >> 4);
                 r2 = getWorkingRegNum(b);
                 doInstXYZ(
                         r1,
-                        instType,
+                        instTypeTab[opc],
                         getRegValue(r1),
                         getRegValue(r2));
-                this.instCycles = 6;
                 break;
 
-            case 0x03:                    // XYZ r1,Ir2
+            case 0x03, 0x13, 0x23, 0x33, 0x43,
+                    0x53, 0x63, 0x73, 0xA3, 0xB3:    // XYZ r1,Ir2
                 b = nextByte();
                 r1 = getWorkingRegNum(b >> 4);
                 r2 = getRegValue(getWorkingRegNum(b));
                 doInstXYZ(
                         r1,
-                        instType,
+                        instTypeTab[opc],
                         getRegValue(r1),
                         getRegValue(r2));
-                this.instCycles = 6;
                 break;
 
-            case 0x04:                    // XYZ R2,R1
+            case 0x04, 0x14, 0x24, 0x34, 0x44,
+                    0x54, 0x64, 0x74, 0xA4, 0xB4:    // XYZ R2,R1
                 r1 = nextByte();
                 r2 = nextByte();
                 if ((r2 & 0xF0) == 0xE0) {
                     r2 = getWorkingRegNum(r2);
                 }
-                doInstXYZ(r2, instType, getRegValue(r2), getReg(r1));
-                this.instCycles = 10;
+                doInstXYZ(r2, instTypeTab[opc], getRegValue(r2), getReg(r1));
                 break;
 
-            case 0x05:                    // XYZ IR2,R1
+            case 0x05, 0x15, 0x25, 0x35, 0x45,
+                    0x55, 0x65, 0x75, 0xA5, 0xB5:    // XYZ IR2,R1
                 r1 = getIndirectRegNum(nextByte());
                 r2 = nextByte();
                 if ((r2 & 0xF0) == 0xE0) {
                     r2 = getWorkingRegNum(r2);
                 }
-                doInstXYZ(r2, instType, getRegValue(r2), getRegValue(r1));
-                this.instCycles = 10;
+                doInstXYZ(r2, instTypeTab[opc], getRegValue(r2), getRegValue(r1));
                 break;
 
-            case 0x06:                    // XYZ R1,IM
+            case 0x06, 0x16, 0x26, 0x36, 0x46,
+                    0x56, 0x66, 0x76, 0xA6, 0xB6:    // XYZ R1,IM
                 r1 = nextByte();
                 b = nextByte();
                 if ((r1 & 0xF0) == 0xE0) {
                     r1 = getWorkingRegNum(r1);
                 }
-                doInstXYZ(r1, instType, getRegValue(r1), b);
-                this.instCycles = 10;
+                doInstXYZ(r1, instTypeTab[opc], getRegValue(r1), b);
                 break;
 
-            case 0x07:                    // XYZ IR1,IM
+            case 0x07, 0x17, 0x27, 0x37, 0x47,
+                    0x57, 0x67, 0x77, 0xA7, 0xB7:    // XYZ IR1,IM
                 r1 = getIndirectRegNum(nextByte());
                 b = nextByte();
-                doInstXYZ(r1, instType, getRegValue(r1), b);
-                this.instCycles = 10;
+                doInstXYZ(r1, instTypeTab[opc], getRegValue(r1), b);
                 break;
-        }
-    }
 
+            case 0x08, 0x18, 0x28, 0x38, 0x48, 0x58, 0x68, 0x78,
+                    0x88, 0x98, 0xA8, 0xB8, 0xC8, 0xD8, 0xE8, 0xF8:    // LD r1,R2
+                r1 = getWorkingRegNum(opc >> 4);
+                r2 = nextByte();
+                setRegValue(r1, getReg(r2));
+                break;
+
+            case 0x09, 0x19, 0x29, 0x39, 0x49, 0x59, 0x69, 0x79,
+                    0x89, 0x99, 0xA9, 0xB9, 0xC9, 0xD9, 0xE9, 0xF9:    // LD R2,r1
+                r1 = getWorkingRegNum(opc >> 4);
+                r2 = nextByte();    // Working Register hier nicht moeglich
+                setReg(r2, getRegValue(r1));
+                break;
+
+            case 0x0A, 0x1A, 0x2A, 0x3A, 0x4A, 0x5A, 0x6A, 0x7A,
+                    0x8A, 0x9A, 0xAA, 0xBA, 0xCA, 0xDA, 0xEA, 0xFA:    // DJNZ r1,RA
+                r1 = getWorkingRegNum(opc >> 4);
+                r2 = nextByte();
+                b = (getRegValue(r1) - 1) & 0xFF;
+                setRegValue(r1, b);
+                if (b != 0) {
+                    this.pc = (this.pc + (int) (byte) r2) & 0xFFFF;
+                    this.instCycles = 12;
+                }
+                break;
+
+            case 0x0B, 0x1B, 0x2B, 0x3B, 0x4B, 0x5B, 0x6B, 0x7B,
+                    0x8B, 0x9B, 0xAB, 0xBB, 0xCB, 0xDB, 0xEB, 0xFB:    // JR cc,RA
+                b = nextByte();
+                if (checkCond(opc)) {
+                    this.pc = (this.pc + (int) ((byte) b)) & 0xFFFF;
+                    this.instCycles = 12;
+                }
+                break;
+
+            case 0x0C, 0x1C, 0x2C, 0x3C, 0x4C, 0x5C, 0x6C, 0x7C,
+                    0x8C, 0x9C, 0xAC, 0xBC, 0xCC, 0xDC, 0xEC, 0xFC:    // LD r1,IM
+                setReg(getWorkingRegNum(opc >> 4), nextByte());
+                break;
+
+            case 0x0D, 0x1D, 0x2D, 0x3D, 0x4D, 0x5D, 0x6D, 0x7D,
+                    0x8D, 0x9D, 0xAD, 0xBD, 0xCD, 0xDD, 0xED, 0xFD:    // JP cc,DA
+                r1 = nextByte();
+                r2 = nextByte();
+                if (checkCond(opc)) {
+                    this.pc = (r1 << 8) | r2;
+                    this.instCycles = 12;
+                }
+                break;
+
+            case 0x0E, 0x1E, 0x2E, 0x3E, 0x4E, 0x5E, 0x6E, 0x7E,
+                    0x8E, 0x9E, 0xAE, 0xBE, 0xCE, 0xDE, 0xEE, 0xFE:    // INC r1
+                doInstINC(getWorkingRegNum(opc >> 4));
+                break;
 
-    private void execRemainingInst(int opc) {
-        int a, b, r1, r2;
-        switch (opc) {
             case 0x00:                    // DEC R1
                 doInstDEC(getRegNum(nextByte()));
-                this.instCycles = 6;
                 break;
 
             case 0x01:                    // DEC IR1
                 doInstDEC(getIndirectRegNum(nextByte()));
-                this.instCycles = 6;
                 break;
 
             case 0x10:                    // RLC R1
                 doInstRLC(getRegNum(nextByte()));
-                this.instCycles = 6;
                 break;
 
             case 0x11:                    // RLC IR1
                 doInstRLC(getIndirectRegNum(nextByte()));
-                this.instCycles = 6;
                 break;
 
             case 0x20:                    // INC R1
                 doInstINC(getRegNum(nextByte()));
-                this.instCycles = 6;
                 break;
 
             case 0x21:                    // INC IR1
                 doInstINC(getIndirectRegNum(nextByte()));
-                this.instCycles = 6;
                 break;
 
             case 0x30:                    // JP IRR1
                 r1 = (getRegNum(nextByte()) & 0xFE);
                 this.pc = (getRegValue(r1) << 8) | getRegValue(r1 + 1);
-                this.instCycles = 8;
                 break;
 
             case 0x31:                    // SRP IM
                 setRegValue(RP, nextByte() & 0xF0);
-                this.instCycles = 6;
                 break;
 
             case 0x40:                    // DA R1
                 doInstDA(getRegNum(nextByte()));
-                this.instCycles = 8;
                 break;
 
             case 0x41:                    // DA IR1
                 doInstDA(getIndirectRegNum(nextByte()));
-                this.instCycles = 8;
                 break;
 
             case 0x50:                    // POP R1
                 setReg(nextByte(), pop());
-                this.instCycles = 10;
                 break;
 
             case 0x51:                    // POP IR1
                 setRegValue(getIndirectRegNum(nextByte()), pop());
-                this.instCycles = 10;
                 break;
 
             case 0x60:                    // COM R1
                 r1 = nextByte();
                 setReg(r1, updFlagsSVZ(~getReg(r1)));
-                this.instCycles = 6;
                 break;
 
             case 0x61:                    // COM IR1
                 r1 = getIndirectRegNum(nextByte());
                 setRegValue(r1, updFlagsSVZ(~getRegValue(r1)));
-                this.instCycles = 6;
                 break;
 
             case 0x70:                    // PUSH R1
                 push(getReg(nextByte()));
-                if (isInternalStackEnabled()) {
-                    this.instCycles = 10;
-                } else {
-                    this.instCycles = 12;
+                if (!isInternalStackEnabled()) {
+                    this.instCycles += 2;
                 }
                 break;
 
             case 0x71:                    // PUSH IR1
                 push(getReg(getIndirectRegNum(nextByte())));
-                if (isInternalStackEnabled()) {
-                    this.instCycles = 12;
-                } else {
-                    this.instCycles = 14;
+                if (!isInternalStackEnabled()) {
+                    this.instCycles += 2;
                 }
                 break;
 
             case 0x80:                    // DECW RR1
                 doInstDECW(getRegNum(nextByte()));
-                this.instCycles = 10;
                 break;
 
             case 0x81:                    // DECW IR1
                 doInstDECW(getIndirectRegNum(nextByte()));
-                this.instCycles = 10;
                 break;
 
             case 0x82:                    // LDE r1,Irr2
@@ -1358,7 +1740,6 @@ public class Z8 implements Runnable {
                 setRegValue(
                         r1,
                         this.memory.getMemByte(getRegWValue(r2), opc == 0x82));
-                this.instCycles = 12;
                 break;
 
             case 0x83:                    // LDEI Ir1,Irr2
@@ -1371,22 +1752,18 @@ public class Z8 implements Runnable {
                 setRegValue(a, this.memory.getMemByte(b, opc == 0x83));
                 setRegValue(r1, a + 1);
                 setRegWValue(r2, b + 1);
-                this.instCycles = 18;
                 break;
 
             case 0x8F:                    // DI
                 this.regIMR &= 0x7F;
-                this.instCycles = 6;
                 break;
 
             case 0x90:                    // RL R1
                 doInstRL(getRegNum(nextByte()));
-                this.instCycles = 6;
                 break;
 
             case 0x91:                    // RL IR1
                 doInstRL(getIndirectRegNum(nextByte()));
-                this.instCycles = 6;
                 break;
 
             case 0x92:                    // LDE Irr2,r1
@@ -1398,7 +1775,6 @@ public class Z8 implements Runnable {
                         getRegWValue(r2),
                         opc == 0x92,
                         getRegValue(r1));
-                this.instCycles = 12;
                 break;
 
             case 0x93:                    // LDEI Irr2,Ir1
@@ -1411,55 +1787,47 @@ public class Z8 implements Runnable {
                 this.memory.setMemByte(b, opc == 0x93, getRegValue(a));
                 setRegValue(r1, a + 1);
                 setRegWValue(r2, b + 1);
-                this.instCycles = 18;
                 break;
 
             case 0x9F:                    // EI
                 this.regIMR |= 0x80;
                 this.eiExecuted = true;
-                this.instCycles = 6;
                 break;
 
             case 0xA0:                    // INCW RR1
                 doInstINCW(getRegNum(nextByte()));
-                this.instCycles = 10;
                 break;
 
             case 0xA1:                    // INCW IR1
                 doInstINCW(getIndirectRegNum(nextByte()));
-                this.instCycles = 10;
                 break;
 
             case 0xAF:                    // RET
+                profileRet();
                 this.pc = popw();
-                this.instCycles = 14;
                 break;
 
             case 0xB0:                    // CLR R1
                 setReg(nextByte(), 0);
-                this.instCycles = 6;
                 break;
 
             case 0xB1:                    // CLR IR1
                 setRegValue(getIndirectRegNum(nextByte()), 0);
-                this.instCycles = 6;
                 break;
 
             case 0xBF:                    // IRET
+                profileRet();
                 setRegValue(FLAGS, pop());
                 this.regIMR |= 0x80;
                 this.pc = popw();
-                this.instCycles = 16;
                 break;
 
             case 0xC0:                    // RRC R1
                 doInstRRC(getRegNum(nextByte()));
-                this.instCycles = 6;
                 break;
 
             case 0xC1:                    // RRC IR1
                 doInstRRC(getIndirectRegNum(nextByte()));
-                this.instCycles = 6;
                 break;
 
             case 0xC7:                    // LD r1,x(r2)
@@ -1469,29 +1837,25 @@ public class Z8 implements Runnable {
                 setRegValue(
                         r1,
                         getRegValue((getRegValue(r2) + nextByte()) & 0xFF));
-                this.instCycles = 10;
                 break;
 
             case 0xCF:                    // RCF
                 this.flagC = false;
-                this.instCycles = 6;
                 break;
 
             case 0xD0:                    // SRA R1
                 doInstSRA(getRegNum(nextByte()));
-                this.instCycles = 6;
                 break;
 
             case 0xD1:                    // SRA IR1
                 doInstSRA(getIndirectRegNum(nextByte()));
-                this.instCycles = 6;
                 break;
 
             case 0xD4:                    // CALL IRR1
                 r1 = (getRegNum(nextByte()) & 0xFE);
                 pushw(this.pc);
                 this.pc = getRegWValue(r1);
-                this.instCycles = 20;
+                profileCall();
                 break;
 
             case 0xD6:                    // CALL DA
@@ -1499,7 +1863,7 @@ public class Z8 implements Runnable {
                 b = nextByte();
                 pushw(this.pc);
                 this.pc = (a << 8) | b;
-                this.instCycles = 20;
+                profileCall();
                 break;
 
             case 0xD7:                    // LD r2,x(r1)
@@ -1509,22 +1873,18 @@ public class Z8 implements Runnable {
                 setRegValue(
                         (getRegValue(r2) + nextByte()) & 0xFF,
                         getRegValue(r1));
-                this.instCycles = 10;
                 break;
 
             case 0xDF:                    // SCF
                 this.flagC = true;
-                this.instCycles = 6;
                 break;
 
             case 0xE0:                    // RR R1
                 doInstRR(getRegNum(nextByte()));
-                this.instCycles = 6;
                 break;
 
             case 0xE1:                    // RR IR1
                 doInstRR(getIndirectRegNum(nextByte()));
-                this.instCycles = 6;
                 break;
 
             case 0xE3:                    // LD r1,IR2
@@ -1532,48 +1892,40 @@ public class Z8 implements Runnable {
                 r1 = getWorkingRegNum(b >> 4);
                 r2 = getWorkingRegNum(b);
                 setRegValue(r1, getRegValue(getRegValue(r2)));
-                this.instCycles = 6;
                 break;
 
             case 0xE4:                    // LD R2,R1
                 r1 = nextByte();
                 r2 = nextByte();
                 setReg(r2, getReg(r1));
-                this.instCycles = 10;
                 break;
 
             case 0xE5:                    // LD R2,IR1
                 r1 = nextByte();
                 r2 = nextByte();
                 setReg(r2, getRegValue(getIndirectRegNum(r1)));
-                this.instCycles = 10;
                 break;
 
             case 0xE6:                    // LD R1,IM
                 r1 = getRegNum(nextByte());
                 setRegValue(r1, nextByte());
-                this.instCycles = 10;
                 break;
 
             case 0xE7:                    // LD IR1,IM
                 r1 = getIndirectRegNum(nextByte());
                 setRegValue(r1, nextByte());
-                this.instCycles = 10;
                 break;
 
             case 0xEF:                    // CCF
                 this.flagC = !this.flagC;
-                this.instCycles = 6;
                 break;
 
             case 0xF0:                    // SWAP R1
                 doInstSWAP(getRegNum(nextByte()));
-                this.instCycles = 8;
                 break;
 
             case 0xF1:                    // SWAP IR1
                 doInstSWAP(getIndirectRegNum(nextByte()));
-                this.instCycles = 8;
                 break;
 
             case 0xF3:                    // LD Ir1,r2
@@ -1581,14 +1933,12 @@ public class Z8 implements Runnable {
                 r1 = getWorkingRegNum(b >> 4);
                 r2 = getWorkingRegNum(b);
                 setRegValue(getRegValue(r1), getRegValue(r2));
-                this.instCycles = 6;
                 break;
 
             case 0xF5:                    // LD IR2,R1
                 r1 = nextByte();
                 r2 = getIndirectRegNum(nextByte());
                 setReg(r2, getReg(r1));
-                this.instCycles = 10;
                 break;
 
             /*
@@ -1598,7 +1948,6 @@ public class Z8 implements Runnable {
              * wird hier keiner emuliert.
              */
             default:                        // NOP, WDh, WDT
-                this.instCycles = 6;
                 break;
         }
     }
@@ -1607,33 +1956,33 @@ public class Z8 implements Runnable {
     private boolean checkCond(int value) {
         boolean rv = switch (value & 0xF0) {
             case 0x10 ->                    // LT
-                    (this.flagS ^ this.flagV);
+                    (isFlagS() ^ isFlagV());
             case 0x20 ->                    // LE
-                    (this.flagZ || (this.flagS ^ this.flagV));
+                    (isFlagZ() || (isFlagS() ^ isFlagV()));
             case 0x30 ->                    // ULE
-                    (this.flagC || this.flagZ);
+                    (this.flagC || isFlagZ());
             case 0x40 ->                    // OV
-                    this.flagV;
+                    isFlagV();
             case 0x50 ->                    // MI
-                    this.flagS;
+                    isFlagS();
             case 0x60 ->                    // Z, EQ
-                    this.flagZ;
+                    isFlagZ();
             case 0x70 ->                    // C, ULT
                     this.flagC;
             case 0x80 ->                    // ohne Bedingung
                     true;
             case 0x90 ->                    // GE
-                    this.flagS == this.flagV;
+                    isFlagS() == isFlagV();
             case 0xA0 ->                    // GT
-                    !(this.flagZ || (this.flagS ^ this.flagV));
+                    !(isFlagZ() || (isFlagS() ^ isFlagV()));
             case 0xB0 ->                    // UGT
-                    (!this.flagC && !this.flagZ);
+                    (!this.flagC && !isFlagZ());
             case 0xC0 ->                    // NOV
-                    !this.flagV;
+                    !isFlagV();
             case 0xD0 ->                    // PL
-                    !this.flagS;
+                    !isFlagS();
             case 0xE0 ->                    // NZ, NE
-                    !this.flagZ;
+                    !isFlagZ();
             case 0xF0 ->                    // NC, UGE
                     !this.flagC;
             default -> false;
@@ -1642,28 +1991,174 @@ public class Z8 implements Runnable {
     }
 
 
+    /*
+     * Pruefen der Haltepunkte und Debug-Aktionen
+     * sowie ggf. Anhalten der Programmausfuehrung
+     */
+    private void checkDebugStop() {
+        Z8.DebugAction debugAction = null;
+        BreakpointTable breakpointTable = null;
+        int pc = 0;
+        synchronized (this) {
+            debugAction = this.debugAction;
+            breakpointTable = this.breakpointTable;
+            pc = this.pc;
+        }
+        boolean reqStop = false;
+        if (this.memWatchHit) {
+            this.memWatchHit = false;
+            synchronized (this) {
+                updDebugArmed();
+            }
+            reqStop = true;
+        }
+        if (!reqStop && (breakpointTable != null)) {
+            reqStop = breakpointTable.matches(this, pc);
+        }
+        if (!reqStop) {
+            if (debugAction != null) {
+                switch (debugAction) {
+                    case RUN_TO_RET:
+                        int opc = this.memory.getMemByte(pc, false);
+                        if (((opc == 0xAF) || (opc == 0xBF))
+                                && (getSP() >= this.debugSP)) {
+                            reqStop = true;
+                        }
+                        break;
+
+                    case STEP_OVER:
+                        if (getSP() >= this.debugSP) {
+                            reqStop = true;
+                        }
+                        break;
+
+                    case STEP_INTO:
+                    case STOP:
+                        reqStop = true;
+                        break;
+                }
+            }
+        }
+        if (reqStop) {
+            /*
+             * Timer auf den aktuellen Stand bringen,
+             * damit der Debugger die richtigen Werte anzeigt
+             */
+            syncTimers(this.timerCycles);
+            synchronized (this.waitMonitor) {
+                this.pause = true;
+                statusChanged();
+                try {
+                    this.waitMonitor.wait();
+                } catch (IllegalMonitorStateException | InterruptedException ignored) {
+                }
+                this.pause = false;
+                resetSpeed();
+                statusChanged();
+            }
+            synchronized (this) {
+                debugAction = this.debugAction;
+            }
+            if (debugAction == DebugAction.STEP_OVER) {
+                int opc = this.memory.getMemByte(this.pc, false);
+                if ((opc != 0xD4) && (opc != 0xD6)) {
+                    synchronized (this) {
+                        this.debugAction = DebugAction.STEP_INTO;
+                        updDebugArmed();
+                    }
+                }
+            }
+        }
+    }
+
+
+    /*
+     * Pruefen der Eingangsports P30 bis P33 auf eine 1->0-Flanke
+     * und Ausloesen der zugehoerigen Interrupts
+     *
+     * Rueckgabewert: true, wenn P31 von 1 auf 0 gewechselt hat
+     */
+    private boolean checkPort3Edges() {
+        // P30: 1->0 pruefen
+        if (((this.regP3M & 0x40) == 0) && wentP3BitFrom1To0(0x01)) {
+            this.regIRQ |= 0x08;            // IRQ3, wenn SIO inaktiv
+        }
+
+        // P31: 1->0 pruefen
+        boolean p31From1To0 = wentP3BitFrom1To0(0x02);
+        if (p31From1To0) {
+            if ((this.regP3M & 0x20) == 0x20) {        // Handshake Port 2
+                if ((this.regP2M & 0x80) == 0x80) {        // Eingang
+                    if ((this.portLastOut[3] & 0x40) == 0x40) {
+                        updInputReg2();                // P36=1: uebernehmen
+                        this.portOut[3] &= ~0x40;        // P36=0
+                        this.regIRQ |= 0x04;            // IRQ2
+                    }
+                } else {                    // Ausgang
+                    this.portOut[3] |= 0x40;            // P36=1
+                    this.regIRQ |= 0x04;            // IRQ2
+                }
+            } else {
+                this.regIRQ |= 0x04;                // IRQ2
+            }
+        }
+
+        // P32: 1->0 pruefen
+        if (wentP3BitFrom1To0(0x04)) {
+            if ((this.regP3M & 0x04) == 0x04) {        // Handshake Port 0
+                if ((this.regP01M & 0x03) == 0x01) {        // Eingang
+                    if ((this.portLastOut[3] & 0x20) == 0x20) {
+                        updInputReg0();                // P35=1: uebernehmen
+                        this.portOut[3] &= ~0x20;        // P35=0
+                        this.regIRQ |= 0x01;            // IRQ0
+                    }
+                } else {                    // Ausgang
+                    this.portOut[3] |= 0x20;            // P35=1
+                    this.regIRQ |= 0x01;            // IRQ0
+                }
+            } else {
+                this.regIRQ |= 0x01;                // IRQ0
+            }
+        }
+
+        // P33: 1->0 pruefen
+        if (wentP3BitFrom1To0(0x08)) {
+            if ((this.regP3M & 0x18) == 0x18) {        // Handshake Port 1
+                if ((this.regP01M & 0x18) == 0x08) {        // Eingang
+                    if ((this.portLastOut[3] & 0x10) == 0x10) {
+                        updInputReg1();                // P34=1: uebernehmen
+                        this.portOut[3] &= ~0x10;        // P34=0
+                        this.regIRQ |= 0x02;            // IRQ1
+                    }
+                } else {                    // Ausgang
+                    this.portOut[3] |= 0x10;            // P34=1
+                    this.regIRQ |= 0x02;            // IRQ1
+                }
+            } else {
+                this.regIRQ |= 0x02;                // IRQ1
+            }
+        }
+        return p31From1To0;
+    }
+
+
     private int doInstAdd(int v1, int v2, int v3) {
         int m = v1 + v2;
         int rv = m + v3;
-        this.flagV = ((v1 & 0x80) == (v2 & 0x80)) && ((v1 & 0x80) != (m & 0x80));
-        if (!this.flagV) {
-            this.flagV = ((m & 0x80) == (v3 & 0x80)) && ((m & 0x80) != (rv & 0x80));
-        }
         this.flagC = ((rv & 0xFF00) != 0);
-        this.flagZ = ((rv & 0xFF) == 0);
-        this.flagS = ((rv & 0x80) != 0);
         this.flagD = false;
-        this.flagH = ((((v1 & 0x0F) + (v2 & 0x0F) + (v3 & 0x0F)) & 0xF0) != 0);
+        updFlagsSZ(rv);
+        setFlagOps(FLAG_OP_ADD, v1, v2, v3);
+        this.flagHOp = FLAG_OP_ADD;
         return rv & 0xFF;
     }
 
 
     private void doInstCP(int v1, int v2) {
         int m = v1 - v2;
-        this.flagV = ((v1 & 0x80) != (v2 & 0x80)) && ((m & 0x80) == (v2 & 0x80));
         this.flagC = ((m & 0xFF00) != 0);
-        this.flagZ = ((m & 0xFF) == 0);
-        this.flagS = ((m & 0x80) != 0);
+        updFlagsSZ(m);
+        setFlagOps(FLAG_OP_SUB, v1, v2, 0);
     }
 
 
@@ -1671,32 +2166,33 @@ public class Z8 implements Runnable {
         int v = getRegValue(r);
         int h = (v & 0xF0) >> 4;
         int l = v & 0x0F;
+        boolean flagH = isFlagH();
         if (this.flagD) {
-            if (!this.flagC && (h <= 8) && this.flagH && (l >= 6)) {
+            if (!this.flagC && (h <= 8) && flagH && (l >= 6)) {
                 v += 0xFA;
                 this.flagC = false;
-            } else if (this.flagC && (h >= 7) && !this.flagH && (l <= 9)) {
+            } else if (this.flagC && (h >= 7) && !flagH && (l <= 9)) {
                 v += 0xA0;
                 this.flagC = true;
-            } else if (this.flagC && (h >= 6) && this.flagH && (l >= 6)) {
+            } else if (this.flagC && (h >= 6) && flagH && (l >= 6)) {
                 v += 0x9A;
                 this.flagC = true;
             } else {
                 this.flagC = false;
             }
         } else {
-            if ((!this.flagC && (h <= 8) && !this.flagH && (l >= 0x0A))
-                    || (!this.flagC && (h <= 9) && this.flagH && (l <= 3))) {
+            if ((!this.flagC && (h <= 8) && !flagH && (l >= 0x0A))
+                    || (!this.flagC && (h <= 9) && flagH && (l <= 3))) {
                 v += 0x06;
                 this.flagC = false;
-            } else if ((!this.flagC && (h >= 0x0A) && !this.flagH && (l <= 9))
-                    || (this.flagC && (h <= 2) && !this.flagH && (l <= 9))) {
+            } else if ((!this.flagC && (h >= 0x0A) && !flagH && (l <= 9))
+                    || (this.flagC && (h <= 2) && !flagH && (l <= 9))) {
                 v += 0x60;
                 this.flagC = true;
-            } else if ((!this.flagC && (h >= 9) && !this.flagH && (l >= 0x0A))
-                    || (!this.flagC && (h >= 0x0A) && this.flagH && (l <= 3))
-                    || (this.flagC && (h <= 2) && !this.flagH && (l >= 0x0A))
-                    || (this.flagC && (h <= 3) && this.flagH && (l <= 3))) {
+            } else if ((!this.flagC && (h >= 9) && !flagH && (l >= 0x0A))
+                    || (!this.flagC && (h >= 0x0A) && flagH && (l <= 3))
+                    || (this.flagC && (h <= 2) && !flagH && (l >= 0x0A))
+                    || (this.flagC && (h <= 3) && flagH && (l <= 3))) {
                 v += 0x66;
                 this.flagC = true;
             } else {
@@ -1704,8 +2200,7 @@ public class Z8 implements Runnable {
             }
         }
         v &= 0xFF;
-        this.flagZ = (v == 0);
-        this.flagS = ((v & 0x80) != 0);
+        updFlagsSZ(v);
         setRegValue(r, v);
     }
 
@@ -1713,9 +2208,8 @@ public class Z8 implements Runnable {
     private void doInstDEC(int r) {
         int v = getRegValue(r);
         int m = (v - 1) & 0xFF;
-        this.flagZ = (m == 0);
-        this.flagS = ((m & 0x80) != 0);
-        this.flagV = ((m & 0x80) != (v & 0x80));
+        updFlagsSZ(m);
+        setFlagV((m & 0x80) != (v & 0x80));
         setRegValue(r, m);
     }
 
@@ -1724,9 +2218,8 @@ public class Z8 implements Runnable {
         r &= 0xFE;            // Bit 0 der Registeradresse ignorieren
         int v = getRegWValue(r);
         int m = (v - 1) & 0xFFFF;
-        this.flagZ = (m == 0);
-        this.flagS = ((m & 0x8000) != 0);
-        this.flagV = ((m & 0x8000) != (v & 0x8000));
+        setFlagsZS(m == 0, (m & 0x8000) != 0);
+        setFlagV((m & 0x8000) != (v & 0x8000));
         setRegWValue(r, m);
     }
 
@@ -1734,9 +2227,8 @@ public class Z8 implements Runnable {
     private void doInstINC(int r) {
         int v = getRegValue(r);
         int m = (v + 1) & 0xFF;
-        this.flagZ = (m == 0);
-        this.flagS = ((m & 0x80) != 0);
-        this.flagV = ((m & 0x80) != (v & 0x80));
+        updFlagsSZ(m);
+        setFlagV((m & 0x80) != (v & 0x80));
         setRegValue(r, m);
     }
 
@@ -1745,9 +2237,8 @@ public class Z8 implements Runnable {
         r &= 0xFE;            // Bit 0 der Registeradresse ignorieren
         int v = getRegWValue(r);
         int m = (v + 1) & 0xFFFF;
-        this.flagZ = (m == 0);
-        this.flagS = ((m & 0x8000) != 0);
-        this.flagV = ((m & 0x8000) != (v & 0x8000));
+        setFlagsZS(m == 0, (m & 0x8000) != 0);
+        setFlagV((m & 0x8000) != (v & 0x8000));
         setRegWValue(r, m);
     }
 
@@ -1762,9 +2253,8 @@ public class Z8 implements Runnable {
             this.flagC = false;
         }
         m &= 0xFF;
-        this.flagZ = (m == 0);
-        this.flagS = ((m & 0x80) != 0);
-        this.flagV = ((m & 0x80) != (v & 0x80));
+        updFlagsSZ(m);
+        setFlagV((m & 0x80) != (v & 0x80));
         setRegValue(r, m);
     }
 
@@ -1777,9 +2267,8 @@ public class Z8 implements Runnable {
         }
         this.flagC = ((m & 0x100) != 0);
         m &= 0xFF;
-        this.flagZ = (m == 0);
-        this.flagS = ((m & 0x80) != 0);
-        this.flagV = ((m & 0x80) != (v & 0x80));
+        updFlagsSZ(m);
+        setFlagV((m & 0x80) != (v & 0x80));
         setRegValue(r, m);
     }
 
@@ -1791,9 +2280,8 @@ public class Z8 implements Runnable {
         if (this.flagC) {
             m |= 0x80;
         }
-        this.flagZ = (m == 0);
-        this.flagS = this.flagC;
-        this.flagV = (m & 0x80) != (v & 0x80);
+        updFlagsSZ(m);
+        setFlagV((m & 0x80) != (v & 0x80));
         setRegValue(r, m);
     }
 
@@ -1806,9 +2294,8 @@ public class Z8 implements Runnable {
         if (b7) {
             m |= 0x80;
         }
-        this.flagZ = (m == 0);
-        this.flagS = b7;
-        this.flagV = (m & 0x80) != (v & 0x80);
+        updFlagsSZ(m);
+        setFlagV((m & 0x80) != (v & 0x80));
         setRegValue(r, m);
     }
 
@@ -1816,16 +2303,11 @@ public class Z8 implements Runnable {
     private int doInstSub(int v1, int v2, int v3) {
         int m = v1 - v2;
         int rv = m - v3;
-        this.flagV = ((v1 & 0x80) != (v2 & 0x80)) && ((m & 0x80) == (v2 & 0x80));
-        if (!this.flagV) {
-            this.flagV = ((m & 0x80) != (v3 & 0x80))
-                    && ((rv & 0x80) == (v3 & 0x80));
-        }
         this.flagC = ((rv & 0xFF00) != 0);
-        this.flagZ = ((rv & 0xFF) == 0);
-        this.flagS = ((rv & 0x80) != 0);
         this.flagD = true;
-        this.flagH = ((((v1 & 0x0F) - (v2 & 0x0F) - (v3 & 0x0F)) & 0xF0) != 0);
+        updFlagsSZ(rv);
+        setFlagOps(FLAG_OP_SUB, v1, v2, v3);
+        this.flagHOp = FLAG_OP_SUB;
         return rv & 0xFF;
     }
 
@@ -1833,13 +2315,9 @@ public class Z8 implements Runnable {
     private void doInstSRA(int r) {
         int v = getRegValue(r);
         this.flagC = ((v & 0x01) != 0);
-        this.flagS = ((v & 0x80) != 0);
-        v = (v >> 1) & 0xFF;
-        if (this.flagS) {
-            v |= 0x80;
-        }
-        this.flagZ = (v == 0);
-        this.flagV = false;
+        v = (v >> 1) | (v & 0x80);
+        updFlagsSZ(v);
+        setFlagV(false);
         setRegValue(r, v);
     }
 
@@ -1847,8 +2325,7 @@ public class Z8 implements Runnable {
     private void doInstSWAP(int r) {
         int v = getRegValue(r);
         int m = ((v << 4) & 0xF0) | ((v >> 4) & 0x0F);
-        this.flagZ = (m == 0);
-        this.flagS = ((m & 0x80) != 0);
+        updFlagsSZ(m);
         setRegValue(r, m);
     }
 
@@ -1899,6 +2376,88 @@ public class Z8 implements Runnable {
     }
 
 
+    /*
+     * Die Methode liest den Befehl an der aktuellen Adresse
+     * vollstaendig, d.h. einschliesslich seiner Operanden.
+     * Der Operationscode wird zurueckgeliefert,
+     * die Operanden werden mit nextByte() abgeholt.
+     * Liegt der Befehl im Befehls-Cache, wird der Speicher
+     * nicht gelesen.
+     */
+    private int fetchInst() {
+        int pc = this.pc & 0xFFFF;
+        int inst = 0;
+        CodeBlock block = this.curCodeBlock;
+        int idx = this.curCodeIdx;
+        if ((block == null)
+                || (pc != this.curCodeAddr)
+                || (idx >= block.insts.length)
+                || !block.valid) {
+            block = getCodeBlock(pc);
+            idx = 0;
+        }
+        if (block != null) {
+            inst = block.insts[idx++];
+        } else {
+            inst = readInst(pc);
+        }
+        int opc = inst & 0xFF;
+        this.curCodeBlock = block;
+        this.curCodeIdx = idx;
+        this.curCodeAddr = (pc + instLengthTab[opc]) & 0xFFFF;
+        this.instOperands = inst >> 8;
+        this.pc = (pc + 1) & 0xFFFF;
+        return opc;
+    }
+
+
+    /*
+     * Die Methode liefert den an der Adresse beginnenden
+     * Programmabschnitt aus dem Befehls-Cache.
+     * Ist er dort noch nicht vorhanden, wird er angelegt,
+     * sofern der Speicher das zulaesst.
+     */
+    private CodeBlock getCodeBlock(int addr) {
+        CodeBlock block = this.codeBlocks[addr];
+        if ((block == null) && this.memory.isCodeCacheable(addr)) {
+            synchronized (this.codeBlocks) {
+                boolean instExec = this.instExec;
+                this.instExec = false;
+                int[] insts = new int[CODE_BLOCK_MAX_INSTS];
+                int nInsts = 0;
+                int curAddr = addr;
+                while (nInsts < insts.length) {
+                    int opc = this.memory.getMemByte(curAddr, false);
+                    int len = instLengthTab[opc];
+                    if ((curAddr + len > 0x10000)
+                            || !this.memory.isCodeCacheable(curAddr + len - 1)) {
+                        break;
+                    }
+                    insts[nInsts++] = readInst(curAddr);
+                    curAddr += len;
+                    if (instEndsBlockTab[opc]
+                            || (curAddr >= 0x10000)
+                            || !this.memory.isCodeCacheable(curAddr)) {
+                        break;
+                    }
+                }
+                if (nInsts > 0) {
+                    block = new CodeBlock(
+                            addr,
+                            curAddr,
+                            Arrays.copyOf(insts, nInsts));
+                    this.codeBlocks[addr] = block;
+                    for (int seg = addr >> 8; seg <= ((curAddr - 1) >> 8); seg++) {
+                        this.codeSegBlockCounts[seg]++;
+                    }
+                }
+                this.instExec = instExec;
+            }
+        }
+        return block;
+    }
+
+
     private int getIndirectRegNum(int r) {
         if ((r & 0xF0) == 0xE0) {
             r = getWorkingRegNum(r);
@@ -1914,19 +2473,19 @@ public class Z8 implements Runnable {
 
     private int getRegFLAGS() {
         int rv = this.regFLAGS & 0x03;
-        if (this.flagH) {
+        if (isFlagH()) {
             rv |= 0x04;
         }
         if (this.flagD) {
             rv |= 0x08;
         }
-        if (this.flagV) {
+        if (isFlagV()) {
             rv |= 0x10;
         }
-        if (this.flagS) {
+        if (isFlagS()) {
             rv |= 0x20;
         }
-        if (this.flagZ) {
+        if (isFlagZ()) {
             rv |= 0x40;
         }
         if (this.flagC) {
@@ -1936,13 +2495,106 @@ public class Z8 implements Runnable {
     }
 
 
+    /*
+     * Die Operanden des aktuellen Befehls wurden bereits
+     * von fetchInst() gelesen.
+     */
     private int nextByte() {
-        int rv = this.memory.getMemByte(this.pc, false);
+        int rv = this.instOperands & 0xFF;
+        this.instOperands >>= 8;
         this.pc = (this.pc + 1) & 0xFFFF;
         return rv;
     }
 
 
+    // CALL: Rueckkehradresse ist bereits auf dem Stack
+    private void profileCall() {
+        Z8Profiler profiler = this.profiler;
+        if (profiler != null) {
+            profiler.call(this.pc, getSP());
+        }
+    }
+
+
+    // RET, IRET: Rueckkehradresse liegt noch auf dem Stack
+    private void profileRet() {
+        Z8Profiler profiler = this.profiler;
+        if (profiler != null) {
+            profiler.ret(getSP());
+        }
+    }
+
+
+    private boolean isFlagH() {
+        boolean rv = this.flagH;
+        if (this.flagHOp == FLAG_OP_ADD) {
+            rv = ((((this.flagOp1 & 0x0F)
+                    + (this.flagOp2 & 0x0F)
+                    + (this.flagOp3 & 0x0F)) & 0xF0) != 0);
+        } else if (this.flagHOp == FLAG_OP_SUB) {
+            rv = ((((this.flagOp1 & 0x0F)
+                    - (this.flagOp2 & 0x0F)
+                    - (this.flagOp3 & 0x0F)) & 0xF0) != 0);
+        }
+        return rv;
+    }
+
+
+    private boolean isFlagS() {
+        return ((this.flagSResult & 0x80) != 0);
+    }
+
+
+    private boolean isFlagV() {
+        boolean rv = this.flagV;
+        int v1 = this.flagOp1;
+        int v2 = this.flagOp2;
+        int v3 = this.flagOp3;
+        if (this.flagVOp == FLAG_OP_ADD) {
+            int m = v1 + v2;
+            int r = m + v3;
+            rv = ((v1 & 0x80) == (v2 & 0x80)) && ((v1 & 0x80) != (m & 0x80));
+            if (!rv) {
+                rv = ((m & 0x80) == (v3 & 0x80)) && ((m & 0x80) != (r & 0x80));
+            }
+        } else if (this.flagVOp == FLAG_OP_SUB) {
+            int m = v1 - v2;
+            int r = m - v3;
+            rv = ((v1 & 0x80) != (v2 & 0x80)) && ((m & 0x80) == (v2 & 0x80));
+            if (!rv) {
+                rv = ((m & 0x80) != (v3 & 0x80))
+                        && ((r & 0x80) == (v3 & 0x80));
+            }
+        }
+        return rv;
+    }
+
+
+    private boolean isFlagZ() {
+        return ((this.flagZResult & 0xFF) == 0);
+    }
+
+
+    private int getTimerCounter(Z8Timer timer) {
+        syncTimers(this.timerCycles);
+        return timer.getCounter();
+    }
+
+
+    private boolean isTimer0Running() {
+        return ((this.regTMR & 0x02) != 0);
+    }
+
+
+    /*
+     * Timer 1 mit interner Taktquelle,
+     * bei externer Taktquelle wird er nach jedem Befehl aktualisiert
+     */
+    private boolean isTimer1Running() {
+        return ((this.regTMR & 0x08) != 0) && !this.timer1ExtClock;
+    }
+
+
     private int getPortValue(int port) {
         int rv = 0xFF;
         if ((port >= 0) && (port < this.portIn.length)) {
@@ -1958,6 +2610,28 @@ public class Z8 implements Runnable {
     }
 
 
+    private int readInst(int addr) {
+        boolean instExec = this.instExec;
+        this.instExec = false;
+        int rv = this.memory.getMemByte(addr, false);
+        int len = instLengthTab[rv];
+        for (int i = 1; i < len; i++) {
+            rv |= (this.memory.getMemByte((addr + i) & 0xFFFF, false) << (i * 8));
+        }
+        this.instExec = instExec;
+        return rv;
+    }
+
+
+    private void removeCodeBlock(CodeBlock block) {
+        block.valid = false;
+        this.codeBlocks[block.begAddr] = null;
+        for (int seg = block.begAddr >> 8; seg <= ((block.endAddr - 1) >> 8); seg++) {
+            --this.codeSegBlockCounts[seg];
+        }
+    }
+
+
     /*
      * Der Initialwert des Registers P01M (%F8)
      * unterscheidet sich zwischen den einzelnen Z8-Chips:
@@ -2017,6 +2691,59 @@ public class Z8 implements Runnable {
     }
 
 
+    /*
+     * Merkt sich die Operanden fuer die spaetere Berechnung des V-Flags.
+     * Ein noch nicht berechnetes H-Flag wird vorher ermittelt,
+     * da es sich auf die bisherigen Operanden bezieht.
+     */
+    private void setFlagOps(int flagOp, int v1, int v2, int v3) {
+        if (this.flagHOp != FLAG_OP_NONE) {
+            this.flagH = isFlagH();
+            this.flagHOp = FLAG_OP_NONE;
+        }
+        this.flagVOp = flagOp;
+        this.flagOp1 = v1;
+        this.flagOp2 = v2;
+        this.flagOp3 = v3;
+    }
+
+
+    private void setFlagV(boolean state) {
+        this.flagV = state;
+        this.flagVOp = FLAG_OP_NONE;
+    }
+
+
+    private void setFlagsZS(boolean flagZ, boolean flagS) {
+        this.flagSResult = (flagS ? 0x80 : 0);
+        this.flagZResult = (flagZ ? 0 : 0x01);
+    }
+
+
+    private static void setInstInfo(int opc, int len, int cycles) {
+        instLengthTab[opc] = len;
+        instCycleTab[opc] = cycles;
+    }
+
+
+    /*
+     * Die Timer bis zum uebergebenen Taktzyklus weiterzaehlen.
+     * Dabei darf kein Nulldurchgang erreicht werden.
+     */
+    private void syncTimers(long cycles) {
+        if (isTimer0Running()) {
+            this.timer0.updateTo(cycles);
+        } else {
+            this.timer0.setCycleStamp(cycles);
+        }
+        if (isTimer1Running()) {
+            this.timer1.updateTo(cycles);
+        } else {
+            this.timer1.setCycleStamp(cycles);
+        }
+    }
+
+
     private void statusChanged() {
         Z8Listener listener = this.statusListener;
         if (listener != null) {
@@ -2025,10 +2752,27 @@ public class Z8 implements Runnable {
     }
 
 
+    private void updTimerEventCycles() {
+        long eventCycles = Long.MAX_VALUE;
+        if (isTimer0Running()) {
+            eventCycles = this.timer0.getUnderflowCycles();
+        }
+        if (isTimer1Running()) {
+            eventCycles = Math.min(eventCycles, this.timer1.getUnderflowCycles());
+        }
+        this.timerEventCycles = eventCycles;
+    }
+
+
+    private void updFlagsSZ(int v) {
+        this.flagSResult = v;
+        this.flagZResult = v;
+    }
+
+
     private int updFlagsSVZ(int v) {
-        this.flagZ = ((v & 0xFF) == 0);
-        this.flagS = ((v & 0x80) != 0);
-        this.flagV = false;
+        updFlagsSZ(v);
+        setFlagV(false);
         return v;
     }
 
@@ -2129,6 +2873,19 @@ public class Z8 implements Runnable {
     }
 
 
+    /*
+     * Die Methode muss innerhalb eines synchronized-Blocks aufgerufen werden,
+     * damit sich gleichzeitige Aenderungen nicht gegenseitig ueberschreiben.
+     */
+    private void updDebugArmed() {
+        Z8Breakpoint[] breakpoints = this.breakpoints;
+        DebugAction debugAction = this.debugAction;
+        this.debugArmed = ((breakpoints != null) && (breakpoints.length > 0))
+                || ((debugAction != null) && (debugAction != DebugAction.RUN))
+                || this.memWatchHit;
+    }
+
+
     private boolean wentP3BitFrom1To0(int mask) {
         int vOld = this.port3LastIn & mask;
         int vNew = getPortValue(3) & mask;
@@ -10,5 +10,29 @@ package org.jens_mueller.z8;
 
 
 public interface Z8Breakpoint {
+    /*
+     * Rueckgabewert von getPCAddr(),
+     * wenn der Haltepunkt an keine Programmadresse gebunden ist
+     */
+    int ANY_ADDRESS = -1;
+
     boolean matches(Z8 z8);
+
+    /*
+     * Kann der Haltepunkt nur an einer Programmadresse zutreffen,
+     * wird matches(...) auch nur an dieser aufgerufen.
+     */
+    default int getPCAddr() {
+        return ANY_ADDRESS;
+    }
+
+    /*
+     * Rueckgabewert false bedeutet, dass der Haltepunkt
+     * bei dem Operationscode nie zutreffen kann
+     * und matches(...) somit nicht aufgerufen werden muss.
+     * Die Methode wird nur beim Setzen der Haltepunkte aufgerufen.
+     */
+    default boolean matchesOpcode(int opc) {
+        return true;
+    }
 }
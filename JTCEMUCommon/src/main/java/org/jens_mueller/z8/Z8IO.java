@@ -10,6 +10,10 @@ package org.jens_mueller.z8;
 
 
 public interface Z8IO {
+    /*
+     * Aendert sich der Rueckgabewert,
+     * muss Z8.firePortInChanged() aufgerufen werden.
+     */
     int getPortValue(int port);
 
     void setPortValue(int port, int value);
@@ -10,7 +10,35 @@ package org.jens_mueller.z8;
 
 
 public interface Z8Memory {
+    // Bits in den Flags der Speicherueberwachung
+    int MEM_WATCH_READ = 0x01;
+    int MEM_WATCH_WRITE = 0x02;
+
     int getMemByte(int addr, boolean dataMemory);
 
+    /*
+     * Gibt an, ob Befehle von der Adresse im Befehls-Cache
+     * des Z8 abgelegt werden duerfen.
+     * Das ist nur zulaessig, wenn jede Aenderung des Inhalts
+     * an dieser Adresse mit Z8.invalidateCode(...) gemeldet wird.
+     */
+    default boolean isCodeCacheable(int addr) {
+        return false;
+    }
+
     boolean setMemByte(int addr, boolean dataMemory, int value);
+
+    /*
+     * Setzt die zu ueberwachenden Speicherzellen.
+     * flags: je Adresse MEM_WATCH_READ und/oder MEM_WATCH_WRITE,
+     *        null: keine Ueberwachung
+     * Bei einem entsprechenden Zugriff ruft die Implementierung
+     * Z8.memWatchHit() auf.
+     *
+     * Rueckgabewert:
+     *   false: Speicherueberwachung wird nicht unterstuetzt
+     */
+    default boolean setMemWatchFlags(byte[] flags) {
+        return false;
+    }
 }
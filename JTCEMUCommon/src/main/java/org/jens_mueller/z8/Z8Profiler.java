@@ -0,0 +1,370 @@
+/*
+ * Z8 Emulator
+ *
+ * Laufzeitprofil
+ *
+ * Je Befehlsadresse werden die Anzahl der Ausfuehrungen
+ * und die dabei verbrauchten Taktzyklen gezaehlt.
+ * Zusaetzlich wird anhand der CALL-, RET- und IRET-Befehle
+ * sowie der Interrupt-Annahme ein Aufrufbaum gefuehrt,
+ * dessen Knoten die Taktzyklen der jeweiligen Aufrufkette sammeln.
+ * Die Zuordnung zu Unterprogrammen erfolgt ueber Marken,
+ * z.B. aus der Markentabelle des Assemblers.
+ *
+ * Die Zaehlmethoden werden im CPU-Emulations-Thread aufgerufen.
+ * Die Ausgabemethoden duerfen erst aufgerufen werden,
+ * wenn das Profil nicht mehr an einer laufenden CPU haengt.
+ */
+
+package org.jens_mueller.z8;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+public class Z8Profiler {
+    // max. Tiefe des mitgefuehrten Aufrufstapels
+    public static final int MAX_DEPTH = 256;
+
+    private static class Node {
+        private final int id;
+        private final Node parent;
+        private final int addr;
+        private final int irq;        // -1: CALL
+        private long cycles = 0;
+        private long totalCycles = 0;
+
+        private Node(int id, Node parent, int addr, int irq) {
+            this.id = id;
+            this.parent = parent;
+            this.addr = addr;
+            this.irq = irq;
+        }
+    }
+
+    private static class FuncInfo {
+        private final String name;
+        private long insts = 0;
+        private long cycles = 0;
+        private long totalCycles = 0;
+
+        private FuncInfo(String name) {
+            this.name = name;
+        }
+    }
+
+    private final long[] instCounts = new long[0x10000];
+    private final long[] instCycles = new long[0x10000];
+    private final TreeMap<Integer, String> labels = new TreeMap<>();
+    private final Map<Long, Node> nodeMap = new HashMap<>();
+    private final List<Node> nodes = new ArrayList<>();
+    private final Node root = new Node(0, null, -1, -1);
+    private final int[] stackSPs = new int[MAX_DEPTH];
+    private int depth = 0;
+    private Node curNode = this.root;
+
+    /*
+     * Knoten, dem der gerade ausgefuehrte Befehl zugerechnet wird:
+     * bei CALL noch der Aufrufer, bei RET noch das Unterprogramm
+     */
+    private Node instNode = this.root;
+
+
+    public Z8Profiler() {
+        this.nodes.add(this.root);
+    }
+
+
+    /*
+     * Die Methode ordnet einer Adresse einen Namen zu.
+     * Befehle werden der naechsten Marke an oder vor ihrer Adresse
+     * zugerechnet, es sollten deshalb nur Programmmarken
+     * eingetragen werden.
+     * Bei mehreren Marken auf einer Adresse gilt die zuerst eingetragene.
+     */
+    public void addLabel(int addr, String name) {
+        if ((name != null) && !name.isEmpty()) {
+            this.labels.putIfAbsent(addr & 0xFFFF, name);
+        }
+    }
+
+
+    public long getInstCount(int addr) {
+        return this.instCounts[addr & 0xFFFF];
+    }
+
+
+    public long getInstCycles(int addr) {
+        return this.instCycles[addr & 0xFFFF];
+    }
+
+
+    /*
+     * Flaches Profil:
+     * Taktzyklen und Befehle je Marke mit Anteil an der Gesamtzeit
+     * sowie inklusive der aufgerufenen Unterprogramme,
+     * danach die einzelnen Befehlsadressen absteigend nach Taktzyklen
+     */
+    public void writeFlatProfile(Writer out) throws IOException {
+        long totalInsts = 0;
+        long totalCycles = 0;
+        Map<String, FuncInfo> funcMap = new HashMap<>();
+        List<Integer> addrs = new ArrayList<>();
+        for (int addr = 0; addr < this.instCounts.length; addr++) {
+            long n = this.instCounts[addr];
+            if (n > 0) {
+                long cycles = this.instCycles[addr];
+                FuncInfo info = funcMap.computeIfAbsent(
+                        getFuncName(addr),
+                        FuncInfo::new);
+                info.insts += n;
+                info.cycles += cycles;
+                totalInsts += n;
+                totalCycles += cycles;
+                addrs.add(addr);
+            }
+        }
+
+        /*
+         * Inklusive Taktzyklen aus dem Aufrufbaum,
+         * bei Rekursion nur fuer den aeussersten Aufruf
+         */
+        calcTotalCycles();
+        for (Node node : this.nodes) {
+            if ((node != this.root) && (node.totalCycles > 0)) {
+                String name = getFuncName(node.addr);
+                boolean outer = true;
+                Node p = node.parent;
+                while (p != this.root) {
+                    if (getFuncName(p.addr).equals(name)) {
+                        outer = false;
+                        break;
+                    }
+                    p = p.parent;
+                }
+                if (outer) {
+                    funcMap.computeIfAbsent(
+                            name,
+                            FuncInfo::new).totalCycles += node.totalCycles;
+                }
+            }
+        }
+
+        List<FuncInfo> funcs = new ArrayList<>(funcMap.values());
+        funcs.sort((f1, f2) -> {
+            int rv = Long.compare(f2.cycles, f1.cycles);
+            if (rv == 0) {
+                rv = Long.compare(f2.totalCycles, f1.totalCycles);
+            }
+            return rv;
+        });
+        out.write(String.format(
+                "Laufzeitprofil: %d Befehle, %d Taktzyklen\n\n",
+                totalInsts,
+                totalCycles));
+        out.write(String.format(
+                "%7s %14s %12s %14s  %s\n",
+                "Anteil", "Taktzyklen", "Befehle", "inkl. Unterpr.", "Marke"));
+        for (FuncInfo info : funcs) {
+            out.write(String.format(
+                    "%6.2f%% %14d %12d %14d  %s\n",
+                    getPercent(info.cycles, totalCycles),
+                    info.cycles,
+                    info.insts,
+                    info.totalCycles,
+                    info.name));
+        }
+
+        addrs.sort((a1, a2) -> Long.compare(
+                this.instCycles[a2],
+                this.instCycles[a1]));
+        out.write(String.format(
+                "\n%7s %14s %12s  %-5s %s\n",
+                "Anteil", "Taktzyklen", "Befehle", "Adr.", "Marke"));
+        for (Integer addr : addrs) {
+            out.write(String.format(
+                    "%6.2f%% %14d %12d  %04X  %s\n",
+                    getPercent(this.instCycles[addr], totalCycles),
+                    this.instCycles[addr],
+                    this.instCounts[addr],
+                    addr,
+                    getFuncName(addr)));
+        }
+    }
+
+
+    /*
+     * Aufrufketten im "folded stacks"-Format fuer Flame Graphs:
+     * je Zeile die durch Semikolon getrennten Unterprogramme
+     * und die darin selbst verbrauchten Taktzyklen
+     */
+    public void writeFoldedStacks(Writer out) throws IOException {
+        StringBuilder buf = new StringBuilder(256);
+        List<String> frames = new ArrayList<>();
+        for (Node node : this.nodes) {
+            if (node.cycles > 0) {
+                frames.clear();
+                Node p = node;
+                while (p != this.root) {
+                    frames.add(getFrameName(p));
+                    p = p.parent;
+                }
+                buf.setLength(0);
+                buf.append("JTC");
+                for (int i = frames.size() - 1; i >= 0; --i) {
+                    buf.append(';');
+                    buf.append(frames.get(i));
+                }
+                buf.append(' ');
+                buf.append(node.cycles);
+                buf.append('\n');
+                out.append(buf);
+            }
+        }
+    }
+
+
+    /* --- Methoden fuer den CPU-Emulations-Thread --- */
+
+    /*
+     * Ein Befehl wurde ausgefuehrt.
+     */
+    void instExecuted(int addr, int cycles) {
+        addr &= 0xFFFF;
+        this.instCounts[addr]++;
+        this.instCycles[addr] += cycles;
+        this.instNode.cycles += cycles;
+        this.instNode = this.curNode;
+    }
+
+
+    /*
+     * Ein Unterprogramm wurde aufgerufen,
+     * sp ist der Stackpointer nach dem Ablegen der Rueckkehradresse.
+     * Eintraege, deren Stackpointer nicht unterhalb dessen liegt,
+     * wurden ohne RET verlassen (z.B. durch Neusetzen des Stackpointers)
+     * und werden verworfen.
+     */
+    void call(int addr, int sp) {
+        enter(addr, sp, -1);
+    }
+
+
+    /*
+     * Ein Interrupt wurde angenommen,
+     * sp ist der Stackpointer nach dem Ablegen des Flag-Registers.
+     * Die Taktzyklen der Interrupt-Annahme
+     * zaehlen bereits zur Serviceroutine.
+     */
+    void interrupt(int irq, int addr, int sp, int cycles) {
+        enter(addr, sp, irq);
+        this.curNode.cycles += cycles;
+        this.instNode = this.curNode;
+    }
+
+
+    /*
+     * Rueckkehr aus einem Unterprogramm bzw. Interrupt,
+     * sp ist der Stackpointer vor dem Holen der Rueckkehradresse.
+     */
+    void ret(int sp) {
+        unwind(sp);
+    }
+
+
+    void reset() {
+        this.depth = 0;
+        this.curNode = this.root;
+        this.instNode = this.root;
+    }
+
+
+    /* --- private Methoden --- */
+
+    private void calcTotalCycles() {
+        for (Node node : this.nodes) {
+            node.totalCycles = 0;
+        }
+
+        // Kindknoten werden immer nach ihren Elternknoten angelegt.
+        for (int i = this.nodes.size() - 1; i >= 0; --i) {
+            Node node = this.nodes.get(i);
+            node.totalCycles += node.cycles;
+            if (node.parent != null) {
+                node.parent.totalCycles += node.totalCycles;
+            }
+        }
+    }
+
+
+    private void enter(int addr, int sp, int irq) {
+        unwind(sp);
+        if (this.depth < MAX_DEPTH) {
+            this.stackSPs[this.depth++] = sp;
+            long key = ((long) this.curNode.id << 20)
+                    | ((long) (irq + 1) << 16)
+                    | (addr & 0xFFFF);
+            Node node = this.nodeMap.get(key);
+            if (node == null) {
+                node = new Node(
+                        this.nodes.size(),
+                        this.curNode,
+                        addr & 0xFFFF,
+                        irq);
+                this.nodeMap.put(key, node);
+                this.nodes.add(node);
+            }
+            this.curNode = node;
+        }
+    }
+
+
+    private String getFrameName(Node node) {
+        String name = getLabelAt(node.addr);
+        return node.irq >= 0 ?
+                String.format("IRQ%d %s", node.irq, name)
+                : name;
+    }
+
+
+    /*
+     * Befehle unterhalb der ersten Marke
+     * werden je 256-Byte-Seite zusammengefasst.
+     */
+    private String getFuncName(int addr) {
+        Map.Entry<Integer, String> entry = this.labels.floorEntry(addr);
+        return entry != null ?
+                entry.getValue()
+                : String.format("%%%02Xxx", addr >> 8);
+    }
+
+
+    private String getLabelAt(int addr) {
+        Map.Entry<Integer, String> entry = this.labels.floorEntry(addr);
+        if (entry != null) {
+            int offs = addr - entry.getKey();
+            return offs > 0 ?
+                    String.format("%s+%d", entry.getValue(), offs)
+                    : entry.getValue();
+        }
+        return String.format("%%%04X", addr);
+    }
+
+
+    private static double getPercent(long value, long total) {
+        return total > 0 ? (double) value * 100.0 / (double) total : 0.0;
+    }
+
+
+    private void unwind(int sp) {
+        while ((this.depth > 0) && (this.stackSPs[this.depth - 1] <= sp)) {
+            --this.depth;
+            this.curNode = this.curNode.parent;
+        }
+    }
+}
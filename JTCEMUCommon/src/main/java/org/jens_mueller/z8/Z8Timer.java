@@ -17,6 +17,7 @@ public class Z8Timer {
     private int counterInit;
     private boolean loopMode;
     private boolean loopModeInit;
+    private long cycleStamp;
 
 
     public Z8Timer() {
@@ -27,6 +28,7 @@ public class Z8Timer {
         this.counterInit = 0;
         this.loopMode = false;
         this.loopModeInit = false;
+        this.cycleStamp = 0;
     }
 
 
@@ -40,6 +42,26 @@ public class Z8Timer {
     }
 
 
+    /*
+     * Die Methode liefert den Taktzyklus, in dem der Zaehler
+     * das naechste Mal 0 erreicht, oder Long.MAX_VALUE,
+     * wenn der Timer steht.
+     * Der Taktzyklus bezieht sich auf den mit setCycleStamp(...)
+     * bzw. updateTo(...) gesetzten Zeitstempel.
+     */
+    public long getUnderflowCycles() {
+        long rv = Long.MAX_VALUE;
+        if (this.loopMode || (this.counter > 0)) {
+            int pre = (this.preCounter > 0 ? this.preCounter : 64);
+            int preInit = (this.preCounterInit > 0 ? this.preCounterInit : 64);
+            int counter = (this.counter > 0 ? this.counter : 256);
+            long ticks = pre + ((long) (counter - 1) * preInit);
+            rv = this.cycleStamp + this.div4Counter + (4 * (ticks - 1));
+        }
+        return rv;
+    }
+
+
     public void init() {
         this.preCounter = this.preCounterInit;
         this.counter = this.counterInit;
@@ -47,6 +69,15 @@ public class Z8Timer {
     }
 
 
+    /*
+     * Setzt den Zeitstempel, ohne den Timer weiterzuzaehlen,
+     * z.B. wenn der Timer nicht freigegeben ist.
+     */
+    public void setCycleStamp(long cycles) {
+        this.cycleStamp = cycles;
+    }
+
+
     public void setCounter(int value) {
         this.counterInit = value & 0xFF;
     }
@@ -58,6 +89,11 @@ public class Z8Timer {
     }
 
 
+    /*
+     * Laeuft der Timer zu Beginn, werden alle uebergebenen Taktzyklen
+     * gezaehlt, im Einzeldurchlauf also auch die,
+     * die nach dem Nulldurchgang noch zum selben Befehl gehoeren.
+     */
     public boolean update(int cycles) {
         boolean rv = false;
         if (this.loopMode || (this.counter > 0)) {
@@ -78,6 +114,35 @@ public class Z8Timer {
     }
 
 
+    /*
+     * Zaehlt den Timer bis zum uebergebenen Taktzyklus weiter.
+     * Die Taktzyklen bis vor den naechsten Nulldurchgang
+     * werden rechnerisch uebersprungen,
+     * nur der Rest wird wie bei update(...) schrittweise gezaehlt.
+     * Das Ergebnis ist dasselbe, als waere der Timer nach jedem Befehl
+     * mit update(...) weitergezaehlt worden,
+     * sofern ein Nulldurchgang nur im letzten Befehl liegt,
+     * d.h., cycles ist das Ende des Befehls,
+     * in dem getUnderflowCycles() erreicht wird.
+     *
+     * Rueckgabewert: true, wenn der Zaehler dabei 0 erreicht hat
+     */
+    public boolean updateTo(long cycles) {
+        boolean rv = false;
+        if (cycles > this.cycleStamp) {
+            long underflowCycles = getUnderflowCycles();
+            if (cycles < underflowCycles) {
+                skipCycles(cycles - this.cycleStamp);
+            } else {
+                skipCycles(underflowCycles - 1 - this.cycleStamp);
+                rv = update((int) (cycles - underflowCycles + 1));
+            }
+            this.cycleStamp = cycles;
+        }
+        return rv;
+    }
+
+
     /* --- private Methoden --- */
 
     private boolean decPreCounter() {
@@ -91,6 +156,37 @@ public class Z8Timer {
     }
 
 
+    /*
+     * Zaehlt den Timer um die uebergebene Anzahl an Taktzyklen weiter.
+     * Der Zaehler darf dabei nicht 0 erreichen.
+     */
+    private void skipCycles(long cycles) {
+        if ((cycles > 0) && (this.loopMode || (this.counter > 0))) {
+            long ticks = 0;
+            if (cycles >= this.div4Counter) {
+                long m = cycles - this.div4Counter;
+                ticks = 1 + (m / 4);
+                this.div4Counter = 4 - (int) (m % 4);
+            } else {
+                this.div4Counter -= (int) cycles;
+            }
+            if (ticks > 0) {
+                int pre = (this.preCounter > 0 ? this.preCounter : 64);
+                if (ticks < pre) {
+                    this.preCounter = pre - (int) ticks;
+                } else {
+                    int preInit = (this.preCounterInit > 0 ?
+                            this.preCounterInit : 64);
+                    long m = ticks - pre;
+                    long wraps = 1 + (m / preInit);
+                    this.preCounter = (this.preCounterInit - (int) (m % preInit)) & 0x3F;
+                    this.counter = (int) ((this.counter - wraps) & 0xFF);
+                }
+            }
+        }
+    }
+
+
     private boolean decCounter() {
         boolean rv = false;
         this.counter = (this.counter - 1) & 0xFF;
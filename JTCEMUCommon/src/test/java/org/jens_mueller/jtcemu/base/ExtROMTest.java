@@ -0,0 +1,106 @@
+/*
+ * Jugend+Technik-Computer-Emulator
+ *
+ * Tests fuer das Lesen externer ROM-Dateien
+ */
+
+package org.jens_mueller.jtcemu.base;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+class ExtROMTest {
+
+    @TempDir
+    Path tmpDir;
+
+
+    @Test
+    void mapsBytesToBeginAddress() throws IOException {
+        ExtROM rom = new ExtROM(writeROM(new byte[]{1, 2, (byte) 0xF3}), 0x2000);
+        rom.setBegAddr(0x4000);
+
+        assertEquals(0x4000, rom.getBegAddr());
+        assertEquals(0x4002, rom.getEndAddr());
+        assertEquals(3, rom.size());
+        assertEquals(-1, rom.getMappedByte(0x3FFF));
+        assertEquals(1, rom.getMappedByte(0x4000));
+        assertEquals(0xF3, rom.getMappedByte(0x4002));
+        assertEquals(-1, rom.getMappedByte(0x4003));
+        assertEquals(2, rom.getByte(0x4001));
+        assertEquals(0, rom.getByte(0x4003));
+    }
+
+
+    @Test
+    void rejectsTooLargeFile() throws IOException {
+        File file = writeROM(new byte[0x11]);
+        assertThrows(IOException.class, () -> new ExtROM(file, 0x10));
+    }
+
+
+    /*
+     * Waehrend die ROM-Datei wechselnd mit 16 Bytes %11
+     * und 32 Bytes %22 neu geladen wird,
+     * darf ein lesender Thread nie die Adressgrenzen des einen
+     * mit dem Inhalt des anderen Zustands sehen.
+     */
+    @Test
+    void readsConsistentContentWhileReloading() throws Exception {
+        byte[] shortBytes = new byte[16];
+        byte[] longBytes = new byte[32];
+        Arrays.fill(shortBytes, (byte) 0x11);
+        Arrays.fill(longBytes, (byte) 0x22);
+
+        File file = writeROM(shortBytes);
+        ExtROM rom = new ExtROM(file, 0x2000);
+        rom.setBegAddr(0x4000);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger errors = new AtomicInteger();
+        Thread reader = new Thread(() -> {
+            while (running.get()) {
+                int b = rom.getMappedByte(0x4014);
+                if ((b != -1) && (b != 0x22)) {
+                    errors.incrementAndGet();
+                }
+                b = rom.getMappedByte(0x4000);
+                if ((b != 0x11) && (b != 0x22)) {
+                    errors.incrementAndGet();
+                }
+            }
+        });
+        reader.start();
+        try {
+            for (int i = 0; i < 200; i++) {
+                Files.write(file.toPath(), (i & 1) == 0 ? longBytes : shortBytes);
+                rom.reload();
+            }
+        } finally {
+            running.set(false);
+            reader.join();
+        }
+        assertEquals(0, errors.get());
+        assertFalse(reader.isAlive());
+    }
+
+
+    private File writeROM(byte[] fileBytes) throws IOException {
+        Path path = this.tmpDir.resolve("rom.bin");
+        Files.write(path, fileBytes);
+        return path.toFile();
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Jugend+Technik-Computer-Emulator
+ *
+ * Tests fuer den Start der Betriebssysteme ohne Geschwindigkeitsbremse,
+ * wie er auch von den Benchmarks verwendet wird
+ */
+
+package org.jens_mueller.jtcemu.base;
+
+import org.jens_mueller.z8.Z8;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class JTCSysBootTest {
+    private static final long BOOT_CYCLES = 20_000_000L;
+
+
+    @AfterEach
+    void resetProperties() {
+        AppContext.getProperties().remove(
+                AppContext.getPropPrefix() + JTCSys.PROP_RAM_SIZE);
+        AppContext.getProperties().remove(
+                AppContext.getPropPrefix() + JTCSys.PROP_OS);
+    }
+
+
+    @Test
+    void boots2K() throws IOException {
+        assertBoots(JTCSys.OSType.OS2K, "COMP JU+TE");
+    }
+
+
+    @Test
+    void bootsES1988() throws IOException {
+        assertBoots(JTCSys.OSType.ES1988, "EMR-ES 1988");
+    }
+
+
+    @Test
+    void bootsES23() throws IOException {
+        assertBoots(JTCSys.OSType.ES23, "ES2.3");
+    }
+
+
+    @Test
+    void bootsES40() throws IOException {
+        assertBoots(JTCSys.OSType.ES40, "ES4.0");
+    }
+
+
+    private static void assertBoots(
+            JTCSys.OSType osType,
+            String text) throws IOException {
+        AppContext.setProperty(JTCSys.PROP_OS, osType.toString());
+        AppContext.setProperty(JTCSys.PROP_RAM_SIZE, "64K");
+        JTCSys jtcSys = new JTCSys();
+        Z8 z8 = jtcSys.getZ8();
+        z8.setCyclesPerSecond(0);
+        z8.runCycles(BOOT_CYCLES);
+
+        long cycles = z8.getTotalCycles();
+        long insts = z8.getTotalInstructions();
+        assertTrue(cycles >= BOOT_CYCLES);
+        assertTrue((insts > 0) && (insts <= cycles / 6), "Befehle: " + insts);
+        assertTrue(
+                jtcSys.containsScreenText(text),
+                jtcSys.getScreenText());
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Jugend+Technik-Computer-Emulator
+ *
+ * Tests fuer die Speicherueberwachung (Speicherhaltepunkte)
+ */
+
+package org.jens_mueller.jtcemu.base;
+
+import org.jens_mueller.z8.Z8;
+import org.jens_mueller.z8.Z8Memory;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class JTCSysMemWatchTest {
+    private static final int DATA_ADDR = 0x9000;
+
+
+    @Test
+    void stopsAfterWatchedWrite() throws Exception {
+        JTCSys jtcSys = createSystem();
+        assertTrue(jtcSys.setMemWatchFlags(createFlags(DATA_ADDR, Z8Memory.MEM_WATCH_WRITE)));
+
+        // Anhalten nach dem schreibenden Befehl
+        assertEquals(0x800A, runUntilStop(jtcSys));
+        assertEquals(0xAB, jtcSys.getMemByte(DATA_ADDR, false));
+    }
+
+
+    @Test
+    void stopsAfterWatchedRead() throws Exception {
+        JTCSys jtcSys = createSystem();
+        assertTrue(jtcSys.setMemWatchFlags(createFlags(DATA_ADDR, Z8Memory.MEM_WATCH_READ)));
+        assertEquals(0x800C, runUntilStop(jtcSys));
+    }
+
+
+    @Test
+    void ignoresInstructionFetchAndOtherThreads() throws Exception {
+        JTCSys jtcSys = createSystem();
+        byte[] flags = new byte[0x10000];
+        for (int addr = 0x8000; addr < 0x8010; addr++) {
+            flags[addr] = (byte) (Z8Memory.MEM_WATCH_READ | Z8Memory.MEM_WATCH_WRITE);
+        }
+        flags[DATA_ADDR + 1] = (byte) Z8Memory.MEM_WATCH_WRITE;
+        jtcSys.setMemWatchFlags(flags);
+
+        // Zugriff ausserhalb des Emulations-Threads
+        jtcSys.setMemByte(DATA_ADDR + 1, false, 0x11);
+        assertEquals(-1, runUntilStop(jtcSys));
+    }
+
+
+    @Test
+    void removedFlagsDoNotStop() throws Exception {
+        JTCSys jtcSys = createSystem();
+        jtcSys.setMemWatchFlags(createFlags(DATA_ADDR, Z8Memory.MEM_WATCH_WRITE));
+        jtcSys.setMemWatchFlags(null);
+        assertEquals(-1, runUntilStop(jtcSys));
+        assertEquals(0xAB, jtcSys.getMemByte(DATA_ADDR, false));
+    }
+
+
+    private static byte[] createFlags(int addr, int access) {
+        byte[] flags = new byte[0x10000];
+        flags[addr] = (byte) access;
+        return flags;
+    }
+
+
+    /*
+     * Das Programm schreibt %AB nach %9000, liest es wieder
+     * und endet in einer Endlosschleife.
+     */
+    private static JTCSys createSystem() throws IOException {
+        JTCSys jtcSys = JTCTestSystem.bootWithProgram(
+                0x8000,
+                0x31, 0x10,                             // 8000: SRP #%10
+                0x2C, 0x90,                             // 8002: LD r2,#%90
+                0x3C, 0x00,                             // 8004: LD r3,#%00
+                0x4C, 0xAB,                             // 8006: LD r4,#%AB
+                0x92, 0x42,                             // 8008: LDE @rr2,r4
+                0x82, 0x52,                             // 800A: LDE r5,@rr2
+                0x8B, 0xFE);                            // 800C: JR $
+        jtcSys.setMemByte(DATA_ADDR, false, 0);
+        return jtcSys;
+    }
+
+
+    /*
+     * Rueckgabewert: PC beim Anhalten oder -1,
+     * wenn die Emulation nicht angehalten hat
+     */
+    private static int runUntilStop(JTCSys jtcSys) throws InterruptedException {
+        Z8 z8 = jtcSys.getZ8();
+        Thread thread = new Thread(() -> z8.runCycles(100000));
+        thread.start();
+        int pc = -1;
+        long endMillis = System.currentTimeMillis() + 5000;
+        while (thread.isAlive() && (System.currentTimeMillis() < endMillis)) {
+            if (z8.isPause()) {
+                pc = z8.getPC();
+                z8.fireQuit();
+                break;
+            }
+            Thread.sleep(5);
+        }
+        thread.join(5000);
+        assertFalse(thread.isAlive());
+        return pc;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Jugend+Technik-Computer-Emulator
+ *
+ * Tests fuer die Speicheraufteilung des JU+TE-Computers
+ * ueber die Seitentabelle
+ */
+
+package org.jens_mueller.jtcemu.base;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class JTCSysMemoryTest {
+
+    @AfterEach
+    void resetProperties() {
+        AppContext.getProperties().remove(
+                AppContext.getPropPrefix() + JTCSys.PROP_RAM_SIZE);
+        AppContext.getProperties().remove(
+                AppContext.getPropPrefix() + JTCSys.PROP_OS);
+    }
+
+
+    @Test
+    void readsOperatingSystemFromROM() throws IOException {
+        JTCSys jtcSys = new JTCSys();
+        byte[] rom = readResource("/org.jens_mueller/rom/os2k_0800.bin");
+        byte[] mem = new byte[rom.length];
+        for (int i = 0; i < mem.length; i++) {
+            mem[i] = (byte) jtcSys.getMemByte(0x0800 + i, false);
+        }
+        assertArrayEquals(rom, mem);
+    }
+
+
+    @Test
+    void ignoresWritesToROM() throws IOException {
+        JTCSys jtcSys = new JTCSys();
+        int v = jtcSys.getMemByte(0x0812, false);
+        assertFalse(jtcSys.setMemByte(0x0812, false, ~v & 0xFF));
+        assertEquals(v, jtcSys.getMemByte(0x0812, false));
+    }
+
+
+    @Test
+    void writesAndReadsRAM() throws IOException {
+        JTCSys jtcSys = new JTCSys();
+        for (int addr = 0x8000; addr < 0xE000; addr += 0x0123) {
+            assertTrue(jtcSys.setMemByte(addr, false, addr & 0xFF));
+        }
+        for (int addr = 0x8000; addr < 0xE000; addr += 0x0123) {
+            assertEquals(addr & 0xFF, jtcSys.getMemByte(addr, false));
+        }
+    }
+
+
+    @Test
+    void readsUnusedAddressesAsFF() throws IOException {
+        AppContext.setProperty(JTCSys.PROP_RAM_SIZE, "2K");
+        JTCSys jtcSys = new JTCSys();
+        assertFalse(jtcSys.setMemByte(0x9000, false, 0x12));
+        assertEquals(0xFF, jtcSys.getMemByte(0x9000, false));
+    }
+
+
+    @Test
+    void mirrors1KRAM() throws IOException {
+        AppContext.setProperty(JTCSys.PROP_RAM_SIZE, "1K");
+        JTCSys jtcSys = new JTCSys();
+
+        // %E000-%E0FF wiederholt sich alle 1 KByte
+        assertTrue(jtcSys.setMemByte(0xE010, false, 0x5A));
+        assertEquals(0x5A, jtcSys.getMemByte(0xE410, false));
+        assertEquals(0x5A, jtcSys.getMemByte(0xFC10, false));
+
+        // %E100-%E3FF liegt auf dem Bildwiederholspeicher ab %FD00
+        assertTrue(jtcSys.setMemByte(0xFD05, false, 0xA5));
+        assertEquals(0xA5, jtcSys.getMemByte(0xE105, false));
+        assertTrue(jtcSys.setMemByte(0xE506, false, 0x3C));
+        assertEquals(0x3C, jtcSys.getMemByte(0xFD06, false));
+    }
+
+
+    private static byte[] readResource(String resource) throws IOException {
+        try (InputStream in = JTCSysMemoryTest.class.getResourceAsStream(
+                resource)) {
+            assertNotNull(in, resource);
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Jugend+Technik-Computer-Emulator
+ *
+ * Tests fuer die Uebernahme geaenderter Pixelzeilen als Block,
+ * wie sie die JavaFX-Bildschirmanzeige ueber einen PixelWriter vornimmt
+ */
+
+package org.jens_mueller.jtcemu.base;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class JTCSysPixelBandTest {
+
+    @AfterEach
+    void resetProperties() {
+        AppContext.getProperties().remove(
+                AppContext.getPropPrefix() + JTCSys.PROP_OS);
+    }
+
+
+    /*
+     * Beim ES4.0 sind die Farbnummern Indizes in die Farbtabelle.
+     */
+    @Test
+    void colorNumbersIndexColorTable() throws IOException {
+        AppContext.setProperty(JTCSys.PROP_OS, JTCSys.OSType.ES40.toString());
+        JTCSys jtcSys = new JTCSys();
+        assertFalse(jtcSys.isMonochrome());
+
+        // Farbebenen einzeln mit unterschiedlichen Mustern beschreiben
+        int[] selects = {0xE0, 0xD0, 0xB0, 0x70};
+        int[] patterns = {0x0F, 0x33, 0x55, 0xFF};
+        for (int i = 0; i < selects.length; i++) {
+            jtcSys.setMemByte(0x6000 | selects[i], false, 0);
+            for (int idx = 0; idx < 0x2000; idx += 7) {
+                jtcSys.setMemByte(0x4000 + idx, false, patterns[i]);
+            }
+        }
+        jtcSys.updScreenPixels(new long[3]);
+
+        int w = jtcSys.getScreenWidth();
+        int h = jtcSys.getScreenHeight();
+        int nColors = jtcSys.getColorModeRGBs().length;
+        byte[] pixels = jtcSys.getScreenPixels();
+        boolean[] used = new boolean[nColors];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int c = pixels[(y * w) + x];
+                assertTrue((c >= 0) && (c < nColors));
+                assertEquals(jtcSys.getPixelColorNum(x, y), c);
+                used[c] = true;
+            }
+        }
+        int nUsed = 0;
+        for (boolean b : used) {
+            if (b) {
+                nUsed++;
+            }
+        }
+        assertTrue(nUsed > 2, "Farben: " + nUsed);
+    }
+
+
+    /*
+     * Aus der Zeilenmaske ergibt sich der Block von der ersten
+     * bis zur letzten geaenderten Zeile,
+     * der zeilenweise mit der Bildschirmbreite im Bildspeicher liegt.
+     */
+    @Test
+    void changedRowsFormBand() throws IOException {
+        JTCSys jtcSys = new JTCSys();
+        assertTrue(jtcSys.isMonochrome());
+        jtcSys.updScreenPixels(new long[3]);
+
+        // 2K-System: 8 Bytes je Pixelzeile ab %FE00
+        jtcSys.setMemByte(0xFE00 + (5 * 8) + 1, false, 0x81);
+        jtcSys.setMemByte(0xFE00 + (9 * 8) + 7, false, 0x7E);
+        long[] rowMask = new long[3];
+        assertTrue(jtcSys.updScreenPixels(rowMask));
+
+        int y1 = -1;
+        int y2 = -1;
+        for (int y = 0; y < 192; y++) {
+            if ((rowMask[y >> 6] & (1L << (y & 0x3F))) != 0) {
+                if (y1 < 0) {
+                    y1 = y;
+                }
+                y2 = y;
+            }
+        }
+        assertEquals(5, y1);
+        assertEquals(9, y2);
+
+        int w = jtcSys.getScreenWidth();
+        byte[] pixels = jtcSys.getScreenPixels();
+        for (int y = y1; y <= y2; y++) {
+            for (int x = 0; x < w; x++) {
+                int c = pixels[(y * w) + x];
+                assertTrue((c == 0) || (c == 1));
+                assertEquals(jtcSys.getPixelColorNum(x, y), c);
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Jugend+Technik-Computer-Emulator
+ *
+ * Tests fuer die Meldung geaenderter Pixelzeilen an JTCScreen
+ */
+
+package org.jens_mueller.jtcemu.base;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class JTCSysScreenDirtyTest {
+
+    private static class ScreenRecorder implements JTCScreen {
+        private final List<String> calls = new ArrayList<>();
+
+        @Override
+        public void screenConfigChanged() {
+            this.calls.add("config");
+        }
+
+        @Override
+        public void setScreenDirty() {
+            this.calls.add("all");
+        }
+
+        @Override
+        public void setScreenDirty(int y1, int y2) {
+            this.calls.add(y1 + "-" + y2);
+        }
+    }
+
+
+    @AfterEach
+    void resetProperties() {
+        AppContext.getProperties().remove(
+                AppContext.getPropPrefix() + JTCSys.PROP_OS);
+        AppContext.getProperties().remove(
+                AppContext.getPropPrefix() + JTCSys.PROP_RAM_SIZE);
+    }
+
+
+    @Test
+    void reportsRowsOf2KScreen() throws IOException {
+        JTCSys jtcSys = new JTCSys();
+        ScreenRecorder screen = new ScreenRecorder();
+        jtcSys.setScreen(screen);
+
+        // 8 Bytes je Pixelzeile ab %FE00
+        jtcSys.setMemByte(0xFE00, false, 0x01);
+        jtcSys.setMemByte(0xFE47, false, 0x01);
+        jtcSys.setMemByte(0xFFFF, false, 0x01);
+        jtcSys.setMemByte(0xFDFF, false, 0x01);
+        jtcSys.setMemByte(0x9000, false, 0x01);
+        assertEquals(List.of("0-0", "8-8", "63-63"), screen.calls);
+    }
+
+
+    @Test
+    void reportsRowsOfES23Screen() throws IOException {
+        AppContext.setProperty(JTCSys.PROP_OS, JTCSys.OSType.ES23.toString());
+        JTCSys jtcSys = new JTCSys();
+        ScreenRecorder screen = new ScreenRecorder();
+        jtcSys.setScreen(screen);
+
+        // 16 Bytes je Pixelzeile ab %F800
+        jtcSys.setMemByte(0xF80F, false, 0x01);
+        jtcSys.setMemByte(0xF8A0, false, 0x01);
+        jtcSys.setMemByte(0xF7FF, false, 0x01);
+        assertEquals(List.of("0-0", "10-10"), screen.calls);
+    }
+
+
+    @Test
+    void reportsRowsOfES40ColorPlanes() throws IOException {
+        AppContext.setProperty(JTCSys.PROP_OS, JTCSys.OSType.ES40.toString());
+        JTCSys jtcSys = new JTCSys();
+        ScreenRecorder screen = new ScreenRecorder();
+        jtcSys.setScreen(screen);
+
+        // ohne ausgewaehlte Farbebene keine Aenderung
+        jtcSys.setMemByte(0x6000 | 0xF0, false, 0);
+        jtcSys.setMemByte(0x4000, false, 0x01);
+        assertTrue(screen.calls.isEmpty());
+
+        /*
+         * alle Farbebenen auswaehlen,
+         * je 128 Bytes drei Pixelzeilen zu 40 Bytes
+         */
+        jtcSys.setMemByte(0x6000, false, 0);
+        jtcSys.setMemByte(0x4000 + (5 * 128) + 45, false, 0x01);
+        jtcSys.setMemByte(0x4000 + (5 * 128) + 120, false, 0x01);
+        jtcSys.setMemByte(0x4000 + (63 * 128) + 80, false, 0x01);
+        assertEquals(List.of("16-16", "191-191"), screen.calls);
+    }
+
+
+    @Test
+    void reportsMirroredRowsOf1KRAM() throws IOException {
+        AppContext.setProperty(JTCSys.PROP_RAM_SIZE, "1K");
+        JTCSys jtcSys = new JTCSys();
+        ScreenRecorder screen = new ScreenRecorder();
+        jtcSys.setScreen(screen);
+
+        // %E200 entspricht %FE00
+        jtcSys.setMemByte(0xE200, false, 0x01);
+        jtcSys.setMemByte(0xE010, false, 0x01);
+        assertEquals(List.of("0-0"), screen.calls);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Jugend+Technik-Computer-Emulator
+ *
+ * Tests fuer den Bildspeicher mit Merkern fuer geaenderte Pixelzeilen
+ */
+
+package org.jens_mueller.jtcemu.base;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class JTCSysScreenPixelsTest {
+
+    @AfterEach
+    void resetProperties() {
+        AppContext.getProperties().remove(
+                AppContext.getPropPrefix() + JTCSys.PROP_OS);
+    }
+
+
+    @Test
+    void framebufferMatchesPixelColors() throws IOException {
+        for (JTCSys.OSType osType : JTCSys.OSType.values()) {
+            AppContext.setProperty(JTCSys.PROP_OS, osType.toString());
+            JTCSys jtcSys = JTCTestSystem.boot();
+            jtcSys.updScreenPixels(new long[3]);
+            assertArrayEquals(
+                    getPixelColors(jtcSys),
+                    getScreenPixels(jtcSys),
+                    osType.toString());
+        }
+    }
+
+
+    @Test
+    void updatesOnlyChangedRows() throws IOException {
+        JTCSys jtcSys = JTCTestSystem.boot();
+        jtcSys.updScreenPixels(new long[3]);
+
+        long[] rowMask = new long[3];
+        assertFalse(jtcSys.updScreenPixels(rowMask));
+        assertArrayEquals(new long[3], rowMask);
+
+        // 2K-System: 8 Bytes je Pixelzeile ab %FE00
+        jtcSys.setMemByte(0xFE10, false, 0x0F);
+        assertTrue(jtcSys.updScreenPixels(rowMask));
+        assertArrayEquals(new long[]{1L << 2, 0L, 0L}, rowMask);
+        assertArrayEquals(getPixelColors(jtcSys), getScreenPixels(jtcSys));
+    }
+
+
+    @Test
+    void copyKeepsDirtyRows() throws IOException {
+        JTCSys jtcSys = JTCTestSystem.boot();
+        jtcSys.updScreenPixels(new long[3]);
+
+        jtcSys.setMemByte(0xFE18, false, 0xF0);
+        byte[] pixels = new byte[jtcSys.getScreenWidth() * jtcSys.getScreenHeight()];
+        jtcSys.copyScreenPixels(pixels);
+        assertArrayEquals(getPixelColors(jtcSys), pixels);
+
+        long[] rowMask = new long[3];
+        assertTrue(jtcSys.updScreenPixels(rowMask));
+        assertArrayEquals(new long[]{1L << 3, 0L, 0L}, rowMask);
+    }
+
+
+    @Test
+    void ownDirtyRowsAreIndependent() throws IOException {
+        JTCSys jtcSys = JTCTestSystem.boot();
+        jtcSys.updScreenPixels(new long[3]);
+
+        long[] dirtyRows = jtcSys.createScreenDirtyRows();
+        byte[] pixels = new byte[jtcSys.getScreenWidth() * jtcSys.getScreenHeight()];
+        assertTrue(jtcSys.updScreenPixels(pixels, dirtyRows));
+        assertArrayEquals(getPixelColors(jtcSys), pixels);
+        assertFalse(jtcSys.updScreenPixels(pixels, dirtyRows));
+
+        jtcSys.setMemByte(0xFE20, false, 0x3C);
+        assertTrue(jtcSys.updScreenPixels(pixels, dirtyRows));
+        assertArrayEquals(getPixelColors(jtcSys), pixels);
+
+        // Die Merker der Bildschirmanzeige bleiben davon unberuehrt.
+        long[] rowMask = new long[3];
+        assertTrue(jtcSys.updScreenPixels(rowMask));
+        assertEquals(1L << 4, rowMask[0]);
+
+        jtcSys.removeScreenDirtyRows(dirtyRows);
+        jtcSys.setMemByte(0xFE20, false, 0x00);
+        assertArrayEquals(new long[]{0L, 0L, 0L}, dirtyRows);
+    }
+
+
+    private static byte[] getPixelColors(JTCSys jtcSys) {
+        int w = jtcSys.getScreenWidth();
+        int h = jtcSys.getScreenHeight();
+        byte[] pixels = new byte[w * h];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                pixels[(y * w) + x] = (byte) jtcSys.getPixelColorNum(x, y);
+            }
+        }
+        return pixels;
+    }
+
+
+    private static byte[] getScreenPixels(JTCSys jtcSys) {
+        int n = jtcSys.getScreenWidth() * jtcSys.getScreenHeight();
+        byte[] pixels = new byte[n];
+        System.arraycopy(jtcSys.getScreenPixels(), 0, pixels, 0, n);
+        return pixels;
+    }
+}
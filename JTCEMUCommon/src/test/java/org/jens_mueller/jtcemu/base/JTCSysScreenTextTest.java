@@ -0,0 +1,102 @@
+/*
+ * Jugend+Technik-Computer-Emulator
+ *
+ * Tests fuer das Abbild des Zeichenbildschirms
+ */
+
+package org.jens_mueller.jtcemu.base;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class JTCSysScreenTextTest {
+
+    @AfterEach
+    void resetProperties() {
+        AppContext.getProperties().remove(
+                AppContext.getPropPrefix() + JTCSys.PROP_RAM_SIZE);
+    }
+
+
+    @Test
+    void mirrorsBootScreen() throws IOException {
+        JTCSys jtcSys = JTCTestSystem.boot();
+        assertTrue(jtcSys.containsScreenText("COMP JU+TE"), jtcSys.getScreenText());
+
+        // ohne Aenderung wird derselbe Text geliefert
+        String text = jtcSys.getScreenText();
+        assertSame(text, jtcSys.getScreenText());
+    }
+
+
+    @Test
+    void countsOnlyRealChanges() throws IOException {
+        JTCSys jtcSys = JTCTestSystem.boot();
+        jtcSys.getScreenText();
+        long count = jtcSys.getScreenTextChangeCount();
+
+        // ausserhalb des Textbereichs
+        jtcSys.setMemByte(0x9000, false, 'A');
+        assertEquals(count, jtcSys.getScreenTextChangeCount());
+
+        // 2K-System: 13 Zeichen je Zeile, Zeilenabstand 16 Bytes ab %FD00
+        jtcSys.setMemByte(0xFD00 + (7 * 16) + 2, false, 'X');
+        assertEquals(count + 1, jtcSys.getScreenTextChangeCount());
+        assertEquals("X", jtcSys.getScreenText(2, 7, 2, 7));
+
+        // gleiches Zeichen nochmal
+        jtcSys.setMemByte(0xFD00 + (7 * 16) + 2, false, 'X');
+        assertEquals(count + 1, jtcSys.getScreenTextChangeCount());
+    }
+
+
+    @Test
+    void mapsMirrored1KRAM() throws IOException {
+        AppContext.setProperty(JTCSys.PROP_RAM_SIZE, "1K");
+        JTCSys jtcSys = JTCTestSystem.boot();
+        jtcSys.getScreenText();
+        long count = jtcSys.getScreenTextChangeCount();
+
+        // %E050 liegt ausserhalb, %E105 entspricht %FD05
+        jtcSys.setMemByte(0xE050, false, 'A');
+        assertEquals(count, jtcSys.getScreenTextChangeCount());
+        jtcSys.setMemByte(0xE105, false, 'Q');
+        assertEquals(count + 1, jtcSys.getScreenTextChangeCount());
+        assertEquals("Q", jtcSys.getScreenText(5, 0, 5, 0));
+    }
+
+
+    @Test
+    void waiterWakesUpOnChange() throws Exception {
+        JTCSys jtcSys = JTCTestSystem.boot();
+        Thread writer = new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException ignored) {
+            }
+            jtcSys.setMemByte(0xFD00 + (6 * 16), false, 'Q');
+        });
+        long begNanos = System.nanoTime();
+        writer.start();
+        assertTrue(jtcSys.waitForScreenText("Q", Long.MAX_VALUE / 2));
+        long millis = (System.nanoTime() - begNanos) / 1000000L;
+        assertTrue(millis < 2000, millis + " ms");
+        writer.join();
+    }
+
+
+    @Test
+    void waiterReturnsAfterQuit() throws Exception {
+        JTCSys jtcSys = JTCTestSystem.boot();
+        jtcSys.getZ8().fireQuit();
+        assertFalse(jtcSys.waitForScreenText("nicht vorhanden", Long.MAX_VALUE / 2));
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Jugend+Technik-Computer-Emulator
+ *
+ * Tests fuer den Turbo-Modus
+ */
+
+package org.jens_mueller.jtcemu.base;
+
+import org.jens_mueller.z8.Z8;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class JTCSysTurboModeTest {
+
+    /*
+     * Das Programm schaltet P36 und P37 staendig um,
+     * beim 2K-System also den Kassettenausgang.
+     */
+    private static final int[] TOGGLE_PROG = {
+            0xE6, 0x03, 0x00,                   // LD P3,#%00
+            0xE6, 0x03, 0xC0,                   // LD P3,#%C0
+            0x8B, 0xF8};                        // JR %8000
+
+
+    private static class PhaseRecorder implements AudioWriter {
+        private final List<Boolean> phases = new ArrayList<>();
+
+        @Override
+        public void writePhase(boolean phase) {
+            this.phases.add(phase);
+        }
+
+        private int countChanges() {
+            int n = 0;
+            for (int i = 1; i < this.phases.size(); i++) {
+                if (!this.phases.get(i).equals(this.phases.get(i - 1))) {
+                    n++;
+                }
+            }
+            return n;
+        }
+    }
+
+
+    @Test
+    void turboModeRemovesSpeedLimit() throws IOException {
+        JTCSys jtcSys = new JTCSys();
+        Z8 z8 = jtcSys.getZ8();
+        assertFalse(jtcSys.isTurboMode());
+        assertEquals(JTCSys.DEFAULT_Z8_CYCLES_PER_SECOND, z8.getCyclesPerSecond());
+
+        jtcSys.setTurboMode(true);
+        assertTrue(jtcSys.isTurboMode());
+        assertEquals(0, z8.getCyclesPerSecond());
+
+        jtcSys.setTurboMode(false);
+        assertFalse(jtcSys.isTurboMode());
+        assertEquals(JTCSys.DEFAULT_Z8_CYCLES_PER_SECOND, z8.getCyclesPerSecond());
+    }
+
+
+    /*
+     * Ohne Turbo-Modus wird die Phase vor jedem Befehl ausgegeben,
+     * im Turbo-Modus nur bei einem Wechsel.
+     * Die Anzahl der Phasenwechsel muss gleich bleiben.
+     */
+    @Test
+    void turboModeWritesOnlyPhaseChanges() throws IOException {
+        PhaseRecorder normal = runToggleProg(false);
+        PhaseRecorder turbo = runToggleProg(true);
+
+        int changes = normal.countChanges();
+        assertTrue(changes > 100, "Phasenwechsel: " + changes);
+        assertTrue(normal.phases.size() > changes);
+
+        assertEquals(turbo.countChanges() + 1, turbo.phases.size());
+        assertTrue(Math.abs(turbo.phases.size() - changes) <= 1,
+                "Phasenwechsel: " + changes + ", Turbo: " + turbo.phases.size());
+    }
+
+
+    /*
+     * Auch im Turbo-Modus werden geaenderte Pixelzeilen gemeldet,
+     * nur die Bildschirmanzeige drosselt ihre Aktualisierung.
+     */
+    @Test
+    void turboModeReportsScreenRows() throws IOException {
+        JTCSys jtcSys = new JTCSys();
+        List<Integer> rows = new ArrayList<>();
+        jtcSys.setScreen(new JTCScreen() {
+            @Override
+            public void screenConfigChanged() {
+                // leer
+            }
+
+            @Override
+            public void setScreenDirty() {
+                // leer
+            }
+
+            @Override
+            public void setScreenDirty(int y1, int y2) {
+                rows.add(y1);
+                rows.add(y2);
+            }
+        });
+        jtcSys.setTurboMode(true);
+
+        // 2K-System: 8 Bytes je Pixelzeile ab %FE00
+        jtcSys.setMemByte(0xFE10, false, 0x55);
+        assertEquals(List.of(2, 2), rows);
+    }
+
+
+    private static PhaseRecorder runToggleProg(
+            boolean turboMode) throws IOException {
+        JTCSys jtcSys = new JTCSys();
+        for (int i = 0; i < TOGGLE_PROG.length; i++) {
+            jtcSys.setMemByte(0x8000 + i, false, TOGGLE_PROG[i]);
+        }
+        PhaseRecorder recorder = new PhaseRecorder();
+        jtcSys.setTapeWriter(recorder);
+        jtcSys.setTurboMode(turboMode);
+
+        Z8 z8 = jtcSys.getZ8();
+        z8.setCyclesPerSecond(0);
+        z8.setPC(0x8000);
+        z8.runCycles(10000);
+        return recorder;
+    }
+}
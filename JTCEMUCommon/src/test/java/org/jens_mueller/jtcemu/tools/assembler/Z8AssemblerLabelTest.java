@@ -0,0 +1,70 @@
+/*
+ * Jugend+Technik-Computer-Emulator
+ *
+ * Tests fuer die Markentabelle des Assemblers
+ */
+
+package org.jens_mueller.jtcemu.tools.assembler;
+
+import org.jens_mueller.jtcemu.tools.TextOutput;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class Z8AssemblerLabelTest
+{
+  @Test
+  void marksOnlyAddressLabels() throws IOException
+  {
+    StringBuilder errBuf  = new StringBuilder();
+    AsmOptions    options = new AsmOptions();
+    options.setCodeToEmu( false );
+    Z8Assembler asm = new Z8Assembler(
+			"\tORG\t%8000\n"
+				+ "WERT:\tEQU\t%12\n"
+				+ "START:\tLD\t%20,#WERT\n"
+				+ "DATEN:\tDB\t1,2\n"
+				+ "ENDE:\tJR\tENDE\n",
+			"test.asm",
+			null,
+			options,
+			new TextOutput()
+			{
+			  @Override
+			  public void print( String text )
+			  {
+			    errBuf.append( text );
+			  }
+			  @Override
+			  public void println()
+			  {
+			    errBuf.append( '\n' );
+			  }
+			},
+			true,
+			null );
+    assertNotNull( asm.assemble(), errBuf.toString() );
+    assertEquals( 0, asm.getErrorCount() );
+
+    Map<String, AsmLabel> labels = new HashMap<>();
+    for( AsmLabel label : asm.getSortedLabels() ) {
+      labels.put( label.getLabelName(), label );
+    }
+    assertFalse( labels.get( "WERT" ).isAddrLabel() );
+    assertEquals( 0x12, labels.get( "WERT" ).intValue() );
+    assertTrue( labels.get( "START" ).isAddrLabel() );
+    assertEquals( 0x8000, labels.get( "START" ).intValue() );
+    assertTrue( labels.get( "DATEN" ).isAddrLabel() );
+    assertEquals( 0x8003, labels.get( "DATEN" ).intValue() );
+    assertTrue( labels.get( "ENDE" ).isAddrLabel() );
+    assertEquals( 0x8005, labels.get( "ENDE" ).intValue() );
+  }
+}
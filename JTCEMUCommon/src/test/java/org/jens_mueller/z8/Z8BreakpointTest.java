@@ -0,0 +1,148 @@
+/*
+ * Z8 Emulator
+ *
+ * Tests fuer die Auswertung der Haltepunkte
+ */
+
+package org.jens_mueller.z8;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class Z8BreakpointTest {
+
+    /*
+     * Haltepunkt, der nie anhaelt,
+     * sondern nur die Aufrufe von matches(...) mitschreibt
+     */
+    private static class CountingBreakpoint implements Z8Breakpoint {
+        private final int pcAddr;
+        private final int opc;
+        private final List<Integer> pcs = new ArrayList<>();
+        private int opcodeChecks = 0;
+
+        private CountingBreakpoint(int pcAddr, int opc) {
+            this.pcAddr = pcAddr;
+            this.opc = opc;
+        }
+
+        @Override
+        public boolean matches(Z8 z8) {
+            this.pcs.add(z8.getPC());
+            return false;
+        }
+
+        @Override
+        public int getPCAddr() {
+            return this.pcAddr;
+        }
+
+        @Override
+        public boolean matchesOpcode(int opc) {
+            this.opcodeChecks++;
+            return (this.opc < 0) || (opc == this.opc);
+        }
+    }
+
+
+    @Test
+    void callsOnlyRelevantBreakpoints() {
+        Z8TestSystem sys = createLoopSystem();
+        Z8 z8 = sys.getZ8();
+        CountingBreakpoint pcBp = new CountingBreakpoint(0x0013, -1);
+        CountingBreakpoint opcBp = new CountingBreakpoint(Z8Breakpoint.ANY_ADDRESS, 0xE6);
+        CountingBreakpoint anyBp = new CountingBreakpoint(Z8Breakpoint.ANY_ADDRESS, -1);
+        z8.setBreakpoints(new Z8Breakpoint[]{pcBp, opcBp, anyBp});
+        int opcodeChecks = opcBp.opcodeChecks;
+
+        z8.runCycles(1000);
+
+        // Die Schleife wird 5-mal durchlaufen.
+        assertEquals(5, pcBp.pcs.size());
+        for (int pc : pcBp.pcs) {
+            assertEquals(0x0013, pc);
+        }
+        assertEquals(5, opcBp.pcs.size());
+        for (int pc : opcBp.pcs) {
+            assertEquals(0x0010, pc);
+        }
+        assertEquals(z8.getTotalInstructions(), anyBp.pcs.size());
+
+        // matchesOpcode(...) nur beim Setzen
+        assertEquals(opcodeChecks, opcBp.opcodeChecks);
+    }
+
+
+    @Test
+    void removedBreakpointsAreNotCalled() {
+        Z8TestSystem sys = createLoopSystem();
+        Z8 z8 = sys.getZ8();
+        CountingBreakpoint pcBp = new CountingBreakpoint(0x0013, -1);
+        z8.setBreakpoints(new Z8Breakpoint[]{pcBp});
+        z8.setBreakpoints(null);
+        z8.runCycles(1000);
+        assertTrue(pcBp.pcs.isEmpty());
+    }
+
+
+    @Test
+    @Timeout(10)
+    void stopsAtPCBreakpoint() throws InterruptedException {
+        Z8TestSystem sys = createLoopSystem();
+        Z8 z8 = sys.getZ8();
+        boolean[] hit = new boolean[1];
+        z8.setBreakpoints(new Z8Breakpoint[]{
+                new Z8Breakpoint() {
+                    @Override
+                    public boolean matches(Z8 z8) {
+                        boolean rv = !hit[0];
+                        hit[0] = true;
+                        return rv;
+                    }
+
+                    @Override
+                    public int getPCAddr() {
+                        return 0x0017;
+                    }
+                }});
+
+        Thread thread = new Thread(() -> z8.runCycles(Long.MAX_VALUE / 2));
+        thread.start();
+        while (!z8.isPause()) {
+            Thread.sleep(10);
+        }
+        assertEquals(0x0017, z8.getPC());
+        assertEquals(0xFB, z8.getRegValue(0x22));
+
+        z8.setDebugAction(Z8.DebugAction.RUN);
+        z8.fireQuit();
+        thread.join();
+        assertFalse(z8.isPause());
+    }
+
+
+    /*
+     * SRP #%10 / LD r0,#5 / LD %21,#%55 / DEC %22 / DJNZ r0 / JR $
+     */
+    private static Z8TestSystem createLoopSystem() {
+        Z8TestSystem sys = new Z8TestSystem();
+        sys.load(
+                0x000C,
+                0x31, 0x10,                     // SRP #%10
+                0x0C, 0x05,                     // LD r0,#5
+                0xE6, 0x21, 0x55,               // LD %21,#%55
+                0x00, 0x22,                     // DEC %22
+                0x0A, 0xF9,                     // DJNZ r0,%0010
+                0x8B, 0xFE);                    // JR $
+        sys.getZ8().setRegValue(0x22, 0);
+        return sys;
+    }
+}
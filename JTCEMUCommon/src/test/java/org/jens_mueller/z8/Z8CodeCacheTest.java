@@ -0,0 +1,196 @@
+/*
+ * Z8 Emulator
+ *
+ * Tests fuer den Zwischenspeicher der vorab gelesenen Programmabschnitte
+ */
+
+package org.jens_mueller.z8;
+
+import org.jens_mueller.jtcemu.base.AppContext;
+import org.jens_mueller.jtcemu.base.JTCSys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+class Z8CodeCacheTest {
+
+    @AfterEach
+    void resetProperties() {
+        AppContext.getProperties().remove(
+                AppContext.getPropPrefix() + JTCSys.PROP_RAM_SIZE);
+    }
+
+
+    /*
+     * Ein bereits zwischengespeichertes Unterprogramm
+     * wird vom Programm selbst geaendert und erneut aufgerufen.
+     */
+    @Test
+    void executesModifiedSubroutine() {
+        Z8TestSystem sys = new Z8TestSystem(true);
+        sys.load(
+                0x000C,
+                0x31, 0x10,                     // SRP #%10
+                0xE6, 0xFF, 0x80,               // LD SPL,#%80
+                0x2C, 0x01,                     // LD r2,#%01
+                0x3C, 0x01,                     // LD r3,#%01
+                0xD6, 0x01, 0x00,               // CALL %0100
+                0xE4, 0x10, 0x20,               // LD %20,%10
+                0x1C, 0x22,                     // LD r1,#%22
+                0xD2, 0x12,                     // LDC @RR2,r1
+                0xD6, 0x01, 0x00,               // CALL %0100
+                0xE4, 0x10, 0x21,               // LD %21,%10
+                0x8B, 0xFE);                    // JR $
+        sys.load(
+                0x0100,
+                0x0C, 0x11,                     // LD r0,#%11
+                0xAF);                          // RET
+        Z8 z8 = sys.getZ8();
+        z8.runCycles(500);
+
+        assertEquals(0x0025, z8.getPC());
+        assertEquals(0x11, z8.getRegValue(0x20));
+        assertEquals(0x22, z8.getRegValue(0x21));
+    }
+
+
+    /*
+     * Der Programmabschnitt aendert den Operanden
+     * eines seiner eigenen nachfolgenden Befehle.
+     */
+    @Test
+    void executesModifiedInstructionInSameBlock() {
+        Z8TestSystem sys = new Z8TestSystem(true);
+        sys.load(
+                0x000C,
+                0x31, 0x10,                     // SRP #%10
+                0x1C, 0x33,                     // LD r1,#%33
+                0x2C, 0x00,                     // LD r2,#%00
+                0x3C, 0x17,                     // LD r3,#%17
+                0xD2, 0x12,                     // LDC @RR2,r1
+                0x0C, 0x44,                     // LD r0,#%44
+                0x8B, 0xFE);                    // JR $
+        Z8 z8 = sys.getZ8();
+        z8.runCycles(200);
+
+        assertEquals(0x0018, z8.getPC());
+        assertEquals(0x33, z8.getRegValue(0x10));
+    }
+
+
+    /*
+     * Eine Aenderung von aussen, z.B. durch Laden einer Datei,
+     * wird beim naechsten Durchlauf beruecksichtigt.
+     */
+    @Test
+    void executesExternallyModifiedLoop() {
+        Z8TestSystem sys = new Z8TestSystem(true);
+        sys.load(
+                0x000C,
+                0x31, 0x10,                     // SRP #%10
+                0x0C, 0x01,                     // LOOP: LD r0,#1
+                0x8B, 0xFC);                    // JR LOOP
+        Z8 z8 = sys.getZ8();
+        z8.runCycles(200);
+        assertEquals(0x01, z8.getRegValue(0x10));
+
+        sys.setMemByte(0x000F, false, 0x02);
+        z8.runCycles(200);
+        assertEquals(0x02, z8.getRegValue(0x10));
+    }
+
+
+    /*
+     * Wie oben, jedoch aendert ein anderer Thread den Speicher,
+     * der nicht ohne Sperre auf den Befehls-Cache zugreifen darf.
+     */
+    @Test
+    void executesLoopModifiedByOtherThread() throws InterruptedException {
+        Z8TestSystem sys = new Z8TestSystem(true);
+        sys.load(
+                0x000C,
+                0x31, 0x10,                     // SRP #%10
+                0x0C, 0x01,                     // LOOP: LD r0,#1
+                0x8B, 0xFC);                    // JR LOOP
+        Z8 z8 = sys.getZ8();
+        z8.runCycles(200);
+        assertEquals(0x01, z8.getRegValue(0x10));
+
+        Thread thread = new Thread(() -> sys.setMemByte(0x000F, false, 0x02));
+        thread.start();
+        thread.join();
+        z8.runCycles(200);
+        assertEquals(0x02, z8.getRegValue(0x10));
+    }
+
+
+    /*
+     * Mit und ohne Zwischenspeicher muessen
+     * alle Register gleich belegt sein.
+     */
+    @Test
+    void cachedAndUncachedRunsAreEqual() {
+        Z8TestSystem sys1 = new Z8TestSystem(false);
+        Z8TestSystem sys2 = new Z8TestSystem(true);
+        for (Z8TestSystem sys : new Z8TestSystem[]{sys1, sys2}) {
+            sys.load(
+                    0x000C,
+                    0xE6, 0xFF, 0x80,           // LD SPL,#%80
+                    0x31, 0x10,                 // SRP #%10
+                    0x2C, 0x10,                 // LD r2,#%10
+                    0x0C, 0x01,                 // LOOP: LD r0,#1
+                    0x02, 0x10,                 // ADD r1,r0
+                    0x90, 0xE1,                 // RL r1
+                    0xD6, 0x01, 0x00,           // CALL %0100
+                    0x2A, 0xF5,                 // DJNZ r2,LOOP
+                    0x8B, 0xFE);                // JR $
+            sys.load(
+                    0x0100,
+                    0x60, 0xE1,                 // COM r1
+                    0xB0, 0xE3,                 // CLR r3
+                    0xAF);                      // RET
+        }
+        sys1.getZ8().runCycles(5000);
+        sys2.getZ8().runCycles(5000);
+        for (int r = 0; r < 0x100; r++) {
+            assertEquals(
+                    sys1.getZ8().viewRegValue(r),
+                    sys2.getZ8().viewRegValue(r),
+                    String.format("Register %%%02X", r));
+        }
+        assertEquals(sys1.getZ8().getPC(), sys2.getZ8().getPC());
+        assertEquals(sys1.getZ8().getTotalCycles(), sys2.getZ8().getTotalCycles());
+    }
+
+
+    /*
+     * Bei 1 KByte RAM ist %E400 eine Spiegelung von %E000.
+     * Ein Schreibzugriff auf %E002 aendert deshalb
+     * auch den Befehl auf %E400.
+     */
+    @Test
+    void executesCodeChangedThroughRAMMirror() throws IOException {
+        AppContext.setProperty(JTCSys.PROP_RAM_SIZE, "1K");
+        JTCSys jtcSys = new JTCSys();
+        int[] code = {
+                0xE6, 0x20, 0x01,               // LOOP: LD %20,#%01
+                0x8B, 0xFB};                    // JR LOOP
+        for (int i = 0; i < code.length; i++) {
+            jtcSys.setMemByte(0xE400 + i, false, code[i]);
+        }
+        Z8 z8 = jtcSys.getZ8();
+        z8.setCyclesPerSecond(0);
+        z8.setRegValue(0xFB, 0);                // IMR
+        z8.setPC(0xE400);
+        z8.runCycles(200);
+        assertEquals(0x01, z8.getRegValue(0x20));
+
+        jtcSys.setMemByte(0xE002, false, 0x02);
+        z8.runCycles(200);
+        assertEquals(0x02, z8.getRegValue(0x20));
+    }
+}
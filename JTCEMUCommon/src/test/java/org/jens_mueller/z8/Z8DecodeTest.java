@@ -0,0 +1,74 @@
+/*
+ * Z8 Emulator
+ *
+ * Tests fuer die Befehlsdekodierung ueber die vorberechneten Tabellen
+ */
+
+package org.jens_mueller.z8;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+class Z8DecodeTest {
+
+    @Test
+    void instLengths() {
+        assertEquals(2, Z8.getInstLength(0x00));        // DEC R
+        assertEquals(2, Z8.getInstLength(0x02));        // ADD r,r
+        assertEquals(3, Z8.getInstLength(0x04));        // ADD R,R
+        assertEquals(3, Z8.getInstLength(0x06));        // ADD R,IM
+        assertEquals(2, Z8.getInstLength(0x08));        // LD r,R
+        assertEquals(2, Z8.getInstLength(0x0A));        // DJNZ r,RA
+        assertEquals(2, Z8.getInstLength(0x0B));        // JR cc,RA
+        assertEquals(2, Z8.getInstLength(0x0C));        // LD r,IM
+        assertEquals(3, Z8.getInstLength(0x0D));        // JP cc,DA
+        assertEquals(1, Z8.getInstLength(0x0E));        // INC r
+        assertEquals(2, Z8.getInstLength(0x30));        // JP @RR
+        assertEquals(2, Z8.getInstLength(0x31));        // SRP IM
+        assertEquals(2, Z8.getInstLength(0x80));        // DECW RR
+        assertEquals(1, Z8.getInstLength(0xAF));        // RET
+        assertEquals(1, Z8.getInstLength(0xBF));        // IRET
+        assertEquals(2, Z8.getInstLength(0xC2));        // LDC r,Irr
+        assertEquals(3, Z8.getInstLength(0xC7));        // LD r,x(r)
+        assertEquals(2, Z8.getInstLength(0xD4));        // CALL @RR
+        assertEquals(3, Z8.getInstLength(0xD6));        // CALL DA
+        assertEquals(3, Z8.getInstLength(0xE4));        // LD R,R
+        assertEquals(3, Z8.getInstLength(0xE6));        // LD R,IM
+        assertEquals(1, Z8.getInstLength(0xFF));        // NOP
+    }
+
+
+    @Test
+    void executesAddressingModes() {
+        Z8TestSystem sys = new Z8TestSystem();
+        sys.load(
+                0x000C,
+                0xE6, 0xFF, 0x80,               // LD SPL,#%80
+                0x31, 0x10,                     // SRP #%10
+                0x0C, 0x05,                     // LD r0,#5
+                0x1C, 0x07,                     // LD r1,#7
+                0x02, 0x01,                     // ADD r0,r1
+                0xE6, 0x30, 0xAA,               // LD %30,#%AA
+                0xE4, 0x30, 0x31,               // LD %31,%30
+                0x3C, 0x04,                     // LD r3,#4
+                0x0E,                           // LOOP: INC r0
+                0x3A, 0xFD,                     // DJNZ r3,LOOP
+                0xD6, 0x01, 0x00,               // CALL %0100
+                0x8B, 0xFE);                    // JR $
+        sys.load(
+                0x0100,
+                0x5C, 0x99,                     // LD r5,#%99
+                0xAF);                          // RET
+        Z8 z8 = sys.getZ8();
+        z8.runCycles(1000);
+
+        assertEquals(5 + 7 + 4, z8.getRegValue(0x10));
+        assertEquals(0, z8.getRegValue(0x13));
+        assertEquals(0xAA, z8.getRegValue(0x31));
+        assertEquals(0x99, z8.getRegValue(0x15));
+        assertEquals(0x80, z8.getRegValue(0xFF));
+        assertEquals(0x0025, z8.getPC());
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Z8 Emulator
+ *
+ * Tests fuer die erst bei Bedarf berechneten Flags
+ */
+
+package org.jens_mueller.z8;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+class Z8FlagsTest {
+    private static final int FLAGS = 0xFC;
+
+    private static final int FLAG_C = 0x80;
+    private static final int FLAG_Z = 0x40;
+    private static final int FLAG_S = 0x20;
+    private static final int FLAG_V = 0x10;
+    private static final int FLAG_D = 0x08;
+    private static final int FLAG_H = 0x04;
+
+    private Z8TestSystem sys;
+
+
+    @BeforeEach
+    void setUp() {
+        this.sys = new Z8TestSystem();
+    }
+
+
+    @Test
+    void addWithOverflow() {
+        run(0x0C, 0x7F,                         // LD r0,#%7F
+                0x06, 0xE0, 0x01);              // ADD r0,#1
+        assertEquals(0x80, this.sys.getZ8().getRegValue(0x10));
+        assertEquals(FLAG_S | FLAG_V | FLAG_H, getFlags());
+    }
+
+
+    @Test
+    void addWithCarry() {
+        run(0x0C, 0xFF,                         // LD r0,#%FF
+                0x06, 0xE0, 0x01);              // ADD r0,#1
+        assertEquals(0x00, this.sys.getZ8().getRegValue(0x10));
+        assertEquals(FLAG_C | FLAG_Z | FLAG_H, getFlags());
+    }
+
+
+    @Test
+    void subWithBorrow() {
+        run(0x0C, 0x00,                         // LD r0,#0
+                0x26, 0xE0, 0x01);              // SUB r0,#1
+        assertEquals(0xFF, this.sys.getZ8().getRegValue(0x10));
+        assertEquals(FLAG_C | FLAG_S | FLAG_D | FLAG_H, getFlags());
+    }
+
+
+    @Test
+    void subWithOverflow() {
+        run(0x0C, 0x80,                         // LD r0,#%80
+                0x26, 0xE0, 0x01);              // SUB r0,#1
+        assertEquals(0x7F, this.sys.getZ8().getRegValue(0x10));
+        assertEquals(FLAG_V | FLAG_D | FLAG_H, getFlags());
+    }
+
+
+    @Test
+    void decimalAdjustAfterAdd() {
+        run(0x0C, 0x15,                         // LD r0,#%15
+                0x06, 0xE0, 0x27,               // ADD r0,#%27
+                0x40, 0xE0);                    // DA r0
+        assertEquals(0x42, this.sys.getZ8().getRegValue(0x10));
+        assertEquals(0, getFlags() & (FLAG_C | FLAG_Z | FLAG_D));
+    }
+
+
+    @Test
+    void programReadsSameFlagsAsDebugger() {
+        run(0x0C, 0x7F,                         // LD r0,#%7F
+                0x06, 0xE0, 0x01,               // ADD r0,#1
+                0xE4, 0xFC, 0x20);              // LD %20,FLAGS
+        assertEquals(getFlags(), this.sys.getZ8().getRegValue(0x20));
+    }
+
+
+    @Test
+    void writtenCarryIsUsedByAdc() {
+        run(0x0C, 0x05,                         // LD r0,#5
+                0xE6, 0xFC, FLAG_C,             // LD FLAGS,#%80
+                0x16, 0xE0, 0x00);              // ADC r0,#0
+        assertEquals(0x06, this.sys.getZ8().getRegValue(0x10));
+        assertEquals(0, getFlags() & FLAG_C);
+    }
+
+
+    @Test
+    void debuggerWritesFlags() {
+        Z8 z8 = this.sys.getZ8();
+        run(0x0C, 0x7F,                         // LD r0,#%7F
+                0x06, 0xE0, 0x01);              // ADD r0,#1
+        z8.setRegValue(FLAGS, FLAG_Z | 0x03);
+        assertEquals(FLAG_Z | 0x03, getFlags());
+
+        // Befehle, die die Flags nicht veraendern, lassen sie unberuehrt.
+        z8.runCycles(50);
+        assertEquals(FLAG_Z | 0x03, getFlags());
+    }
+
+
+    private int getFlags() {
+        return this.sys.getZ8().getRegValue(FLAGS);
+    }
+
+
+    /*
+     * Die Befehle werden mit den Arbeitsregistern ab %10
+     * bis zur abschliessenden Endlosschleife ausgefuehrt.
+     */
+    private void run(int... code) {
+        this.sys.load(0x000C, 0x31, 0x10);      // SRP #%10
+        this.sys.load(0x000E, code);
+        this.sys.load(0x000E + code.length, 0x8B, 0xFE);        // JR $
+        Z8 z8 = this.sys.getZ8();
+        z8.runCycles(200);
+        assertEquals(0x000E + code.length, z8.getPC());
+    }
+}
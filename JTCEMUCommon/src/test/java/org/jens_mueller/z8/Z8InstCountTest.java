@@ -0,0 +1,51 @@
+/*
+ * Z8 Emulator
+ *
+ * Tests fuer die Befehls- und Taktzyklenzaehler,
+ * auf denen die Benchmarks aufbauen
+ */
+
+package org.jens_mueller.z8;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+class Z8InstCountTest {
+
+    @Test
+    void countsInstructionsAndCycles() {
+        Z8TestSystem sys = new Z8TestSystem();
+        sys.load(
+                0x000C,
+                0xFF,                           // NOP: 6 Takte
+                0xFF,                           // NOP
+                0xFF,                           // NOP
+                0x8B, 0xFE);                    // JR $: 12 Takte
+        Z8 z8 = sys.getZ8();
+
+        z8.runCycles(18);
+        assertEquals(3, z8.getTotalInstructions());
+        assertEquals(18, z8.getTotalCycles());
+        assertEquals(0x000F, z8.getPC());
+
+        z8.runCycles(12 * 10);
+        assertEquals(13, z8.getTotalInstructions());
+        assertEquals(18 + (12 * 10), z8.getTotalCycles());
+        assertEquals(0x000F, z8.getPC());
+    }
+
+
+    @Test
+    void resetTotalCyclesKeepsInstructionCount() {
+        Z8TestSystem sys = new Z8TestSystem();
+        sys.load(0x000C, 0x8B, 0xFE);           // JR $
+        Z8 z8 = sys.getZ8();
+
+        z8.runCycles(120);
+        z8.resetTotalCycles();
+        assertEquals(0, z8.getTotalCycles());
+        assertEquals(10, z8.getTotalInstructions());
+    }
+}
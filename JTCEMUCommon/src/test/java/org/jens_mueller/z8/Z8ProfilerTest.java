@@ -0,0 +1,120 @@
+/*
+ * Z8 Emulator
+ *
+ * Tests fuer das Laufzeitprofil
+ */
+
+package org.jens_mueller.z8;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class Z8ProfilerTest {
+
+    @Test
+    void countsInstructionsPerAddress() {
+        Z8Profiler profiler = runProgram();
+        assertEquals(1, profiler.getInstCount(0x000C));
+        assertEquals(1, profiler.getInstCount(0x000F));
+        assertEquals(2, profiler.getInstCount(0x0020));
+        assertEquals(2, profiler.getInstCount(0x0030));
+        assertEquals(2, profiler.getInstCount(0x0031));
+        assertEquals(0, profiler.getInstCount(0x0040));
+        assertEquals(2 * 6, profiler.getInstCycles(0x0030));    // NOP
+        assertEquals(
+                profiler.getInstCount(0x0015) * 12,             // JR
+                profiler.getInstCycles(0x0015));
+    }
+
+
+    @Test
+    void writesCallChainsAsFoldedStacks() throws IOException {
+        Z8Profiler profiler = runProgram();
+        StringWriter out = new StringWriter();
+        profiler.writeFoldedStacks(out);
+        List<String> lines = Arrays.asList(out.toString().split("\n"));
+
+        // Das Unterprogramm zaehlt bis einschliesslich RET.
+        long sub2Cycles = profiler.getInstCycles(0x0030)
+                + profiler.getInstCycles(0x0031);
+        long sub1Cycles = profiler.getInstCycles(0x0020)
+                + profiler.getInstCycles(0x0023);
+        assertTrue(lines.contains("JTC;SUB1;SUB2 " + sub2Cycles), lines.toString());
+        assertTrue(lines.contains("JTC;SUB1 " + sub1Cycles), lines.toString());
+        assertTrue(lines.get(0).startsWith("JTC "), lines.toString());
+        assertEquals(3, lines.size());
+    }
+
+
+    @Test
+    void writesFlatProfilePerLabel() throws IOException {
+        Z8Profiler profiler = runProgram();
+        StringWriter out = new StringWriter();
+        profiler.writeFlatProfile(out);
+        String text = out.toString();
+        assertTrue(text.startsWith("Laufzeitprofil: "), text);
+
+        // SUB1 inklusive SUB2
+        long sub1Total = profiler.getInstCycles(0x0020)
+                + profiler.getInstCycles(0x0023)
+                + profiler.getInstCycles(0x0030)
+                + profiler.getInstCycles(0x0031);
+        // erste Tabelle: Anteil, Taktzyklen, Befehle, inkl. Unterpr., Marke
+        String funcTable = text.split("\n\n")[1];
+        boolean found = false;
+        for (String line : funcTable.split("\n")) {
+            String[] items = line.trim().split("\\s+");
+            if ((items.length == 5) && items[4].equals("SUB1")) {
+                assertEquals(
+                        Long.toString(profiler.getInstCycles(0x0020)
+                                + profiler.getInstCycles(0x0023)),
+                        items[1],
+                        line);
+                assertEquals(Long.toString(sub1Total), items[3], line);
+                found = true;
+            }
+        }
+        assertTrue(found, text);
+    }
+
+
+    /*
+     * MAIN ruft zweimal SUB1 auf, das wiederum SUB2 aufruft.
+     */
+    private static Z8Profiler runProgram() {
+        Z8TestSystem sys = new Z8TestSystem();
+        sys.load(
+                0x000C,
+                0xE6, 0xFF, 0x80,               // 000C: LD SPL,#%80
+                0xD6, 0x00, 0x20,               // 000F: CALL SUB1
+                0xD6, 0x00, 0x20,               // 0012: CALL SUB1
+                0x8B, 0xFE);                    // 0015: JR $
+        sys.load(
+                0x0020,
+                0xD6, 0x00, 0x30,               // 0020: CALL SUB2
+                0xAF);                          // 0023: RET
+        sys.load(
+                0x0030,
+                0xFF,                           // 0030: NOP
+                0xAF);                          // 0031: RET
+
+        Z8Profiler profiler = new Z8Profiler();
+        profiler.addLabel(0x000C, "MAIN");
+        profiler.addLabel(0x0020, "SUB1");
+        profiler.addLabel(0x0030, "SUB2");
+        profiler.addLabel(0x0040, "");
+        Z8 z8 = sys.getZ8();
+        z8.setProfiler(profiler);
+        z8.runCycles(1000);
+        z8.setProfiler(null);
+        return profiler;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Z8 Emulator
+ *
+ * Tests fuer die Befehlsschleife
+ */
+
+package org.jens_mueller.z8;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class Z8RunTest {
+    private static final int REG_IRQ = 0xFA;
+
+
+    @Test
+    void runCyclesKeepsCounters() {
+        Z8TestSystem sys = new Z8TestSystem();
+        sys.load(0x000C, 0x8B, 0xFE);           // JR $
+        Z8 z8 = sys.getZ8();
+
+        z8.runCycles(1000);
+        long cycles = z8.getTotalCycles();
+        assertTrue((cycles >= 1000) && (cycles < 1100), "Taktzyklen: " + cycles);
+
+        z8.runCycles(1000);
+        cycles = z8.getTotalCycles();
+        assertTrue((cycles >= 2000) && (cycles < 2100), "Taktzyklen: " + cycles);
+        assertEquals(0x000C, z8.getPC());
+        assertFalse(z8.wasQuitFired());
+    }
+
+
+    @Test
+    void reportedPortChangeRaisesIRQ3() {
+        Z8TestSystem sys = new Z8TestSystem();
+        sys.load(0x000C, 0x8B, 0xFE);           // JR $
+        Z8 z8 = sys.getZ8();
+
+        z8.runCycles(100);
+        assertEquals(0, z8.getRegValue(REG_IRQ) & 0x08);
+
+        // P30: 1->0
+        sys.setPortInValue(3, 0xFE);
+        z8.runCycles(100);
+        assertEquals(0x08, z8.getRegValue(REG_IRQ) & 0x08);
+    }
+
+
+    @Test
+    void reportedPortChangeIsReadByProgram() {
+        Z8TestSystem sys = new Z8TestSystem();
+        sys.load(
+                0x000C,
+                0xE4, 0x03, 0x20,               // LD %20,P3
+                0x8B, 0xFB);                    // JR %000C
+        Z8 z8 = sys.getZ8();
+
+        z8.runCycles(100);
+        assertEquals(0xFF, z8.getRegValue(0x20));
+
+        sys.setPortInValue(3, 0x5A);
+        z8.runCycles(100);
+        assertEquals(0x0A, z8.getRegValue(0x20) & 0x0F);     // P30-P33
+    }
+
+
+    @Test
+    void fireQuitStopsRun() throws InterruptedException {
+        Z8TestSystem sys = new Z8TestSystem();
+        sys.load(0x000C, 0x8B, 0xFE);           // JR $
+        Z8 z8 = sys.getZ8();
+
+        Thread thread = new Thread(z8);
+        thread.start();
+        Thread.sleep(50);
+        z8.fireQuit();
+        thread.join(5000);
+        assertFalse(thread.isAlive());
+        assertTrue(z8.getTotalCycles() > 0);
+    }
+}
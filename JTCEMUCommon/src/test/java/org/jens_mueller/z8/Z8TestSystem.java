@@ -0,0 +1,97 @@
+/*
+ * Z8 Emulator
+ *
+ * Minimales System fuer Tests der CPU-Emulation:
+ * 64 KByte RAM und frei setzbare Eingangsports
+ */
+
+package org.jens_mueller.z8;
+
+import java.util.Arrays;
+
+
+class Z8TestSystem implements Z8IO, Z8Memory {
+    private final byte[] mem = new byte[0x10000];
+    private final int[] portValues = new int[4];
+    private final int[] portOutValues = new int[4];
+    private final boolean codeCacheable;
+    private final Z8 z8;
+
+
+    Z8TestSystem() {
+        this(false);
+    }
+
+
+    Z8TestSystem(boolean codeCacheable) {
+        this.codeCacheable = codeCacheable;
+        Arrays.fill(this.portValues, 0xFF);
+        Arrays.fill(this.portOutValues, 0xFF);
+        this.z8 = new Z8(true, this, this);
+    }
+
+
+    Z8 getZ8() {
+        return this.z8;
+    }
+
+
+    /*
+     * Die Methode legt Befehlsbytes ab der uebergebenen Adresse ab.
+     */
+    void load(int addr, int... bytes) {
+        for (int b : bytes) {
+            this.mem[addr++ & 0xFFFF] = (byte) b;
+        }
+        this.z8.invalidateCode();
+    }
+
+
+    int getPortOutValue(int port) {
+        return this.portOutValues[port];
+    }
+
+
+    void setPortInValue(int port, int value) {
+        this.portValues[port] = value;
+        this.z8.firePortInChanged();
+    }
+
+
+    /* --- Z8IO --- */
+
+    @Override
+    public int getPortValue(int port) {
+        return this.portValues[port];
+    }
+
+
+    @Override
+    public void setPortValue(int port, int value) {
+        this.portOutValues[port] = value;
+    }
+
+
+    /* --- Z8Memory --- */
+
+    @Override
+    public int getMemByte(int addr, boolean dataMemory) {
+        return this.mem[addr & 0xFFFF] & 0xFF;
+    }
+
+
+    @Override
+    public boolean isCodeCacheable(int addr) {
+        return this.codeCacheable;
+    }
+
+
+    @Override
+    public boolean setMemByte(int addr, boolean dataMemory, int value) {
+        this.mem[addr & 0xFFFF] = (byte) value;
+        if (this.z8 != null) {
+            this.z8.invalidateCode(addr & 0xFFFF);
+        }
+        return true;
+    }
+}
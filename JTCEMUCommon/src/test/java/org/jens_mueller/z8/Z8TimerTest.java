@@ -0,0 +1,232 @@
+/*
+ * Z8 Emulator
+ *
+ * Tests fuer die Timer, die nur zum Nulldurchgang
+ * bzw. beim Registerzugriff weitergezaehlt werden
+ */
+
+package org.jens_mueller.z8;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class Z8TimerTest {
+
+    /*
+     * Timer, wie er vor der Umstellung auf updateTo(...)
+     * nach jedem Befehl weitergezaehlt wurde:
+     * Laeuft er zu Beginn des Befehls, zaehlt er alle Taktzyklen
+     * des Befehls, auch nach einem Nulldurchgang im Einzeldurchlauf.
+     */
+    private static class ReferenceTimer {
+        private int div4Counter = 4;
+        private int preCounter = 0;
+        private int preCounterInit = 0;
+        private int counter = 0;
+        private int counterInit = 0;
+        private boolean loopMode = false;
+        private boolean loopModeInit = false;
+
+        private void init() {
+            this.preCounter = this.preCounterInit;
+            this.counter = this.counterInit;
+            this.loopMode = this.loopModeInit;
+        }
+
+        private void setCounter(int value) {
+            this.counterInit = value & 0xFF;
+        }
+
+        private void setPreCounter(int value) {
+            this.preCounterInit = (value >> 2) & 0x3F;
+            this.loopModeInit = ((value & 0x01) != 0);
+        }
+
+        private boolean update(int cycles) {
+            boolean rv = false;
+            if (this.loopMode || (this.counter > 0)) {
+                while (cycles > 0) {
+                    if (cycles >= this.div4Counter) {
+                        cycles -= this.div4Counter;
+                        this.div4Counter = 4;
+                        this.preCounter = (this.preCounter - 1) & 0x3F;
+                        if (this.preCounter == 0) {
+                            this.counter = (this.counter - 1) & 0xFF;
+                            if (this.counter == 0) {
+                                rv = true;
+                                if (this.loopMode) {
+                                    this.counter = this.counterInit;
+                                }
+                            }
+                            this.preCounter = this.preCounterInit;
+                        }
+                    } else {
+                        this.div4Counter -= cycles;
+                        cycles = 0;
+                    }
+                }
+            }
+            return rv;
+        }
+    }
+
+
+    /*
+     * Der Z8 hat die Timer urspruenglich nach jedem Befehl
+     * mit update(instCycles) weitergezaehlt.
+     * Das rechnerische Weiterzaehlen mit updateTo(...)
+     * nur beim Nulldurchgang und bei Registerzugriffen
+     * muss dieselben Nulldurchgaenge und Zaehlerstaende liefern,
+     * auch im Einzeldurchlauf, beim Nachladen
+     * und beim Anhalten und Starten ueber TMR zwischen den Befehlen.
+     */
+    @Test
+    void updateToMatchesUpdatePerInstruction() {
+        Random random = new Random(4711);
+        for (int n = 0; n < 300; n++) {
+            ReferenceTimer timer1 = new ReferenceTimer();
+            Z8Timer timer2 = new Z8Timer();
+            boolean running = false;
+            long cycles = 0;
+            long eventCycles = Long.MAX_VALUE;
+            for (int i = 0; i < 3000; i++) {
+                String msg = String.format("Lauf %d Befehl %d", n, i);
+
+                // Registerzugriffe waehrend des Befehls
+                boolean reload = false;
+                int action = random.nextInt(100);
+                if (action < 3) {
+                    int v = randomPreValue(random);
+                    syncTimer(timer2, running, cycles);
+                    timer1.setPreCounter(v);
+                    timer2.setPreCounter(v);
+                    reload = true;
+                } else if (action < 6) {
+                    int v = (random.nextBoolean() ?
+                            random.nextInt(4) : random.nextInt(0x100));
+                    syncTimer(timer2, running, cycles);
+                    timer1.setCounter(v);
+                    timer2.setCounter(v);
+                    reload = true;
+                } else if (action < 8) {
+                    syncTimer(timer2, running, cycles);
+                    running = !running;
+                    reload = random.nextBoolean();
+                } else if (action < 20) {
+                    syncTimer(timer2, running, cycles);
+                    assertEquals(timer1.counter, timer2.getCounter(), msg);
+                    assertEquals(timer1.preCounter, timer2.getPreCounter(), msg);
+                }
+                if (action < 8) {
+                    eventCycles = running ?
+                            timer2.getUnderflowCycles() : Long.MAX_VALUE;
+                }
+
+                // Befehlsende
+                int instCycles = 6 + random.nextInt(15);
+                cycles += instCycles;
+                boolean underflow1 = running && timer1.update(instCycles);
+                boolean underflow2 = false;
+                if (cycles >= eventCycles) {
+                    underflow2 = running && timer2.updateTo(cycles);
+                    eventCycles = running ?
+                            timer2.getUnderflowCycles() : Long.MAX_VALUE;
+                }
+                assertEquals(underflow1, underflow2, msg);
+                if (reload) {
+                    syncTimer(timer2, running, cycles);
+                    timer1.init();
+                    timer2.init();
+                    eventCycles = running ?
+                            timer2.getUnderflowCycles() : Long.MAX_VALUE;
+                }
+            }
+        }
+    }
+
+
+    @Test
+    void underflowCyclesPredictsUnderflow() {
+        Z8Timer timer = createTimer((5 << 2) | 0x01, 3);
+        long underflowCycles = timer.getUnderflowCycles();
+        assertEquals(4 * 5 * 3, underflowCycles);
+        assertEquals(false, timer.updateTo(underflowCycles - 1));
+        assertEquals(true, timer.updateTo(underflowCycles));
+
+        // Dauerbetrieb: naechster Nulldurchgang nach derselben Zeit
+        assertEquals(2 * underflowCycles, timer.getUnderflowCycles());
+    }
+
+
+    @Test
+    void stoppedTimerHasNoUnderflow() {
+        Z8Timer timer = createTimer(5 << 2, 1);
+        assertTrue(timer.updateTo(4 * 5));
+        assertEquals(Long.MAX_VALUE, timer.getUnderflowCycles());
+        assertEquals(false, timer.updateTo(100000));
+    }
+
+
+    /*
+     * Timer 0 im Dauerbetrieb mit Vorteiler 4 und Zaehler 25
+     * loest alle 4 * 4 * 25 = 400 Taktzyklen IRQ4 aus.
+     */
+    @Test
+    void timer0RaisesPeriodicInterrupts() {
+        Z8TestSystem sys = new Z8TestSystem();
+        sys.load(0x0008, 0x01, 0x00);           // IRQ4 -> %0100
+        sys.load(
+                0x000C,
+                0xE6, 0xFF, 0x80,               // LD SPL,#%80
+                0xE6, 0xF9, 0x01,               // LD IPR,#%01
+                0xE6, 0xFB, 0x10,               // LD IMR,#%10
+                0xE6, 0xF5, (4 << 2) | 0x01,    // LD PRE0,#%11
+                0xE6, 0xF4, 25,                 // LD T0,#25
+                0xE6, 0xF1, 0x03,               // LD TMR,#%03
+                0x9F,                           // EI
+                0x8B, 0xFE);                    // JR $
+        sys.load(0x0100, 0xBF);                 // IRET
+        Z8 z8 = sys.getZ8();
+
+        z8.runCycles(40000);
+        long n = z8.getInterruptCount(4);
+        assertTrue((n >= 98) && (n <= 100), "Interrupts: " + n);
+        assertEquals(0, z8.getInterruptCount(5));
+    }
+
+
+    /*
+     * meist kleine Vorteiler,
+     * damit der Einzeldurchlauf innerhalb eines Befehls
+     * nach dem Nulldurchgang weiterzaehlt
+     */
+    private static int randomPreValue(Random random) {
+        int pre = (random.nextBoolean() ?
+                random.nextInt(4) : random.nextInt(0x40));
+        return (pre << 2) | random.nextInt(2);
+    }
+
+
+    private static void syncTimer(Z8Timer timer, boolean running, long cycles) {
+        if (running) {
+            timer.updateTo(cycles);
+        } else {
+            timer.setCycleStamp(cycles);
+        }
+    }
+
+
+    private static Z8Timer createTimer(int preValue, int counterValue) {
+        Z8Timer timer = new Z8Timer();
+        timer.setPreCounter(preValue);
+        timer.setCounter(counterValue);
+        timer.init();
+        timer.setCycleStamp(0);
+        return timer;
+    }
+}
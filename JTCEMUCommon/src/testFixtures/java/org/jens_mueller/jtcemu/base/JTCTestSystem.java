@@ -0,0 +1,62 @@
+/*
+ * Jugend+Technik-Computer-Emulator
+ *
+ * Gemeinsame Hilfsmethoden fuer Tests mit einem hochgefahrenen
+ * JU+TE-Computer in der aktuell eingestellten Konfiguration
+ */
+
+package org.jens_mueller.jtcemu.base;
+
+import org.jens_mueller.z8.Z8;
+
+import java.io.IOException;
+
+
+public final class JTCTestSystem {
+
+    // reicht bei allen Betriebssystemen fuer das Hochfahren
+    public static final int BOOT_CYCLES = 8000000;
+
+
+    /*
+     * Die Methode laesst das System ohne Geschwindigkeitsbremse
+     * hochfahren.
+     */
+    public static JTCSys boot() throws IOException {
+        JTCSys jtcSys = new JTCSys();
+        Z8 z8 = jtcSys.getZ8();
+        z8.setCyclesPerSecond(0);
+        z8.runCycles(BOOT_CYCLES);
+        return jtcSys;
+    }
+
+
+    /*
+     * Nach dem Hochfahren werden die Interrupts gesperrt,
+     * das Programm geladen und der PC auf dessen Anfang gesetzt.
+     */
+    public static JTCSys bootWithProgram(int addr, int... prog) throws IOException {
+        JTCSys jtcSys = boot();
+        Z8 z8 = jtcSys.getZ8();
+        z8.setRegValue(0xFB, 0);                        // IMR
+        for (int i = 0; i < prog.length; i++) {
+            jtcSys.setMemByte(addr + i, false, prog[i]);
+        }
+        z8.setPC(addr);
+        return jtcSys;
+    }
+
+
+    /*
+     * Nach dem Hochfahren laeuft eine Endlosschleife ohne Interrupts,
+     * sodass sich der Speicher nur durch den Test aendert.
+     */
+    public static JTCSys bootIdle() throws IOException {
+        return bootWithProgram(0x8000, 0x8B, 0xFE);     // JR $
+    }
+
+
+    private JTCTestSystem() {
+        // Klasse nicht instanziierbar
+    }
+}
@@ -8,10 +8,13 @@
 
 package org.jens_mueller.jtcemu.platform.fx.base;
 
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.geometry.Point2D;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
 import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.paint.Color;
@@ -20,6 +23,7 @@ import org.jens_mueller.jtcemu.base.CharRaster;
 import org.jens_mueller.jtcemu.base.JTCScreen;
 import org.jens_mueller.jtcemu.base.JTCSys;
 import org.jens_mueller.jtcemu.platform.fx.JTCEMUApplication;
+import java.nio.ByteBuffer;
 
 
 public class ScreenNode extends Canvas implements JTCScreen
@@ -44,14 +48,24 @@ public class ScreenNode extends Canvas implements JTCScreen
   private int                 selectionCharX2;
   private int                 selectionCharY1;
   private int                 selectionCharY2;
-  private java.util.TimerTask refreshTask;
+  private AnimationTimer      refreshTimer;
   private long                refreshMillis;
-  private volatile int        pendingUpdScreenEvents;
+  private long                lastRefreshNanos;
+  private WritableImage       screenImg;
+  private boolean             screenImgMonochrome;
+  private long[]              screenImgRowMask;
+  private int                 screenImgDirtyY1;
+  private int                 screenImgDirtyY2;
+  private PixelFormat<ByteBuffer> colorPixelFormat;
+  private PixelFormat<ByteBuffer> monoPixelFormat;
   private int                 margin;
   private int                 screenScale;
+  private int                 screenXOffs;
+  private int                 screenYOffs;
   private boolean             useMinPrefSize;
   private boolean             screenOutputEnabled;
   private volatile boolean    dirty;
+  private volatile boolean    rowsDirty;
 
 
   public ScreenNode(JTCEMUApplication JTCEMUApplication, JTCNode jtcNode )
@@ -60,7 +74,15 @@ public class ScreenNode extends Canvas implements JTCScreen
     this.jtcNode                = jtcNode;
     this.jtcSys                 = null;
     this.colors                 = null;
-    this.refreshTask            = null;
+    this.refreshTimer           = null;
+    this.lastRefreshNanos       = 0L;
+    this.screenImg              = null;
+    this.screenImgMonochrome    = false;
+    this.screenImgRowMask       = null;
+    this.screenImgDirtyY1       = -1;
+    this.screenImgDirtyY2       = -1;
+    this.colorPixelFormat       = null;
+    this.monoPixelFormat        = null;
     this.markColor              = new Color( 0.75, 0.5, 0.0, 0.5 );
     this.charRaster             = null;
     this.dragStart              = null;
@@ -70,12 +92,14 @@ public class ScreenNode extends Canvas implements JTCScreen
     this.selectionCharY1        = -1;
     this.selectionCharX2        = -1;
     this.selectionCharY2        = -1;
-    this.pendingUpdScreenEvents = 0;
     this.margin                 = getMargin();
     this.screenScale            = 1;
+    this.screenXOffs            = 0;
+    this.screenYOffs            = 0;
     this.screenOutputEnabled    = false;
     this.useMinPrefSize         = false;
     this.dirty                  = true;
+    this.rowsDirty              = false;
     updRefreshMillis();
     setOnMouseDragged( e->mouseDragged( e ) );
     setOnMousePressed( e->mousePressed( e ) );
@@ -143,12 +167,10 @@ public class ScreenNode extends Canvas implements JTCScreen
   }
 
 
-  public synchronized void reinstallRefreshTimer()
+  public void reinstallRefreshTimer()
   {
-    if( this.refreshTask != null ) {
-      this.refreshTask.cancel();
-      JTCEMUApplication.getTimer().purge();
-      installRefreshTask();
+    if( this.refreshTimer != null ) {
+      startRefreshTimer();
     }
   }
 
@@ -167,8 +189,10 @@ public class ScreenNode extends Canvas implements JTCScreen
   {
     this.jtcSys = jtcSys;
 
-    int[] rgbs  = jtcSys.getColorModeRGBs();
-    this.colors = new Color[ rgbs.length ];
+    int[] rgbs      = jtcSys.getColorModeRGBs();
+    int[] colorARGB = new int[ 256 ];
+    int[] monoARGB  = new int[ 256 ];
+    this.colors     = new Color[ rgbs.length ];
     for( int i = 0; i < colors.length; i++ ) {
       int rgb          = rgbs[ i ];
       this.colors[ i ] = new Color(
@@ -177,13 +201,19 @@ public class ScreenNode extends Canvas implements JTCScreen
 				(double) (rgb & 0xFF) / 255.0,
 				1F );
     }
+    for( int i = 0; i < colorARGB.length; i++ ) {
+      colorARGB[ i ] = 0xFF000000 | rgbs[ i & 0x0F ];
+      monoARGB[ i ]  = (i > 0 ? 0xFFFFFFFF : 0xFF000000);
+    }
+    this.colorPixelFormat = PixelFormat.createByteIndexedInstance( colorARGB );
+    this.monoPixelFormat  = PixelFormat.createByteIndexedInstance( monoARGB );
     int screenScale = AppContext.getIntProperty( PROP_SCREEN_SCALE, 0 );
     if( screenScale > 0 ) {
       this.screenScale = screenScale;
     } else {
       this.screenScale = getDefaultScreenScale( jtcSys.getOSType() );
     }
-    installRefreshTask();
+    startRefreshTimer();
   }
 
 
@@ -212,6 +242,17 @@ public class ScreenNode extends Canvas implements JTCScreen
   }
 
 
+  /*
+   * Welche Pixelzeilen neu zu zeichnen sind,
+   * wird in updScreen() ueber JTCSys.updScreenPixels(...) ermittelt.
+   */
+  @Override
+  public void setScreenDirty( int y1, int y2 )
+  {
+    this.rowsDirty = true;
+  }
+
+
 	/* --- ueberschriebene Methoden --- */
 
   @Override
@@ -251,26 +292,6 @@ public class ScreenNode extends Canvas implements JTCScreen
 
 	/* --- private Methoden --- */
 
-  private void fireUpdScreen()
-  {
-    /*
-     * Wenn die Rechenleistung nicht ausreicht, kann es vorkommen,
-     * dass die Events langsamer abgearbeitet werden,
-     * als die Refresh-Rate ist und
-     * es dadurch zum einer Ueberflutung der Event-Queue kommt.
-     * Aus diesem Grund wird geprueft, dass nicht zuviele 
-     * Events Refresh-Anforderungen in der Queue sind.
-     * Es werden aber trotzdem mehrere Refresh-Anforderungen
-     * in der Queue zugelassen, damit die Anzeige nicht
-     * wegen einem verloren gegangenen Event stehen bleibt.
-     */
-    if( this.pendingUpdScreenEvents < 10 ) {
-      Platform.runLater( ()->updScreen() );
-      this.pendingUpdScreenEvents++;
-    }
-  }
-
-
   public int getMargin()
   {
     int m = AppContext.getIntProperty(
@@ -280,24 +301,6 @@ public class ScreenNode extends Canvas implements JTCScreen
   }
 
 
-  private synchronized void installRefreshTask()
-  {
-    this.refreshTask = new java.util.TimerTask()
-					{
-					  @Override
-					  public void run()
-					  {
-					    fireUpdScreen();
-					  }
-					};
-    updRefreshMillis();
-    JTCEMUApplication.getTimer().scheduleAtFixedRate(
-				this.refreshTask,
-				this.refreshMillis,
-				this.refreshMillis );
-  }
-
-
   private void mouseDragged( MouseEvent e )
   {
     if( this.dragStart == null ) {
@@ -328,6 +331,43 @@ public class ScreenNode extends Canvas implements JTCScreen
   }
 
 
+  /*
+   * Die Bildschirmaktualisierung ist an den Pulse von JavaFX gekoppelt
+   * und erfolgt hoechstens im Abstand der eingestellten Refresh-Zeit.
+   */
+  private void startRefreshTimer()
+  {
+    if( Platform.isFxApplicationThread() ) {
+      if( this.refreshTimer == null ) {
+	this.refreshTimer = new AnimationTimer()
+				{
+				  @Override
+				  public void handle( long now )
+				  {
+				    refreshTimerHandle( now );
+				  }
+				};
+      } else {
+	this.refreshTimer.stop();
+      }
+      updRefreshMillis();
+      this.lastRefreshNanos = 0L;
+      this.refreshTimer.start();
+    } else {
+      Platform.runLater( ()->startRefreshTimer() );
+    }
+  }
+
+
+  private void refreshTimerHandle( long now )
+  {
+    if( (now - this.lastRefreshNanos) >= (this.refreshMillis * 1000000L) ) {
+      this.lastRefreshNanos = now;
+      updScreen();
+    }
+  }
+
+
   private void updRefreshMillis()
   {
     this.refreshMillis = AppContext.getIntProperty(
@@ -336,10 +376,123 @@ public class ScreenNode extends Canvas implements JTCScreen
   }
 
 
+  /*
+   * Die Methode uebernimmt die geaenderten Pixelzeilen
+   * aus dem Bildspeicher des Emulators in das Bildschirmabbild.
+   * Bei geaenderter Bildschirmkonfiguration wird das Abbild
+   * neu angelegt und vollstaendig gefuellt.
+   *
+   * Rueckgabewert: true, wenn sich das Abbild geaendert hat
+   */
+  private boolean updScreenImg()
+  {
+    boolean rv         = false;
+    int     w          = this.jtcSys.getScreenWidth();
+    int     h          = this.jtcSys.getScreenHeight();
+    boolean monochrome = this.jtcSys.isMonochrome();
+    this.screenImgDirtyY1 = -1;
+    this.screenImgDirtyY2 = -1;
+    if( (w > 0) && (h > 0) && (this.colorPixelFormat != null) ) {
+      long[]        rowMask   = this.screenImgRowMask;
+      WritableImage screenImg = this.screenImg;
+      if( (screenImg == null)
+	  || ((int) screenImg.getWidth() != w)
+	  || ((int) screenImg.getHeight() != h)
+	  || (monochrome != this.screenImgMonochrome) )
+      {
+	screenImg                = new WritableImage( w, h );
+	this.screenImg           = screenImg;
+	this.screenImgMonochrome = monochrome;
+	rowMask                  = new long[ (h + 63) / 64 ];
+	this.screenImgRowMask    = rowMask;
+	this.jtcSys.updScreenPixels( rowMask );
+	java.util.Arrays.fill( rowMask, -1L );
+	this.dirty = true;
+      } else {
+	this.jtcSys.updScreenPixels( rowMask );
+      }
+      byte[] pixels = this.jtcSys.getScreenPixels();
+      for( int i = 0; i < rowMask.length; i++ ) {
+	long bits = rowMask[ i ];
+	while( bits != 0L ) {
+	  int y = (i * 64) + Long.numberOfTrailingZeros( bits );
+	  if( y < h ) {
+	    if( this.screenImgDirtyY1 < 0 ) {
+	      this.screenImgDirtyY1 = y;
+	    }
+	    this.screenImgDirtyY2 = y;
+	  }
+	  bits &= (bits - 1L);
+	}
+	rowMask[ i ] = 0L;
+      }
+      int y1 = this.screenImgDirtyY1;
+      int y2 = this.screenImgDirtyY2;
+      if( (y1 >= 0) && ((y2 + 1) * w <= pixels.length) ) {
+	screenImg.getPixelWriter().setPixels(
+			0,
+			y1,
+			w,
+			y2 - y1 + 1,
+			monochrome ? this.monoPixelFormat
+				   : this.colorPixelFormat,
+			pixels,
+			y1 * w,
+			w );
+	rv = true;
+      }
+    }
+    return rv;
+  }
+
+
   private void updScreen()
   {
+    boolean rowsChanged = false;
+    if( this.rowsDirty || this.dirty || (this.screenImg == null) ) {
+      this.rowsDirty = false;
+      rowsChanged    = updScreenImg();
+    }
+
+    /*
+     * Ein markierter Text ist halbtransparent ueberlagert
+     * und laesst sich deshalb nicht zeilenweise neu zeichnen.
+     */
+    if( rowsChanged
+	&& (this.dragStart != null)
+	&& (this.dragEnd != null) )
+    {
+      this.dirty = true;
+    }
+
     boolean screenOutputEnabled = this.jtcSys.isScreenOutputEnabled();
-    if( (screenOutputEnabled != this.screenOutputEnabled) || this.dirty ) {
+    if( (screenOutputEnabled == this.screenOutputEnabled)
+	&& !this.dirty
+	&& screenOutputEnabled
+	&& rowsChanged )
+    {
+      // nur die geaenderten Pixelzeilen neu zeichnen
+      GraphicsContext gc = getGraphicsContext2D();
+      if( (gc != null) && (this.screenImg != null) ) {
+	int scale = this.screenScale;
+	int wBase = (int) this.screenImg.getWidth();
+	int y1    = this.screenImgDirtyY1;
+	int nRows = this.screenImgDirtyY2 - y1 + 1;
+	gc.setImageSmoothing( false );
+	gc.drawImage(
+		this.screenImg,
+		0,
+		y1,
+		wBase,
+		nRows,
+		this.screenXOffs,
+		this.screenYOffs + (y1 * scale),
+		wBase * scale,
+		nRows * scale );
+      }
+    } else if( (screenOutputEnabled != this.screenOutputEnabled)
+	       || this.dirty )
+    {
       this.screenOutputEnabled = screenOutputEnabled;
 
       GraphicsContext gc = getGraphicsContext2D();
@@ -386,45 +539,16 @@ public class ScreenNode extends Canvas implements JTCScreen
 	    yOffs = 0;
 	  }
 
-	  /*
-	   * Aus Gruenden der Performance werden nebeneinander liegende
-	   * Punkte zusammengefasst und als Linie gezeichnet.
-	   */
-	  for( int y = 0; y < hBase; y++ ) {
-	    Color lastColor = null;
-	    int   xColorBeg = -1;
-	    for( int x = 0; x < wBase; x++ ) {
-	      int   pixel = this.jtcSys.getPixelColorNum( x, y );
-	      Color color = (this.jtcSys.isMonochrome() ?
-				(pixel > 0 ? Color.WHITE : Color.BLACK)
-				: this.colors[ pixel & 0x0F ]);
-	      if( (color != null) && (color != lastColor) ) {
-		if( (lastColor != null)
-		    && (lastColor != bgColor)
-		    && (xColorBeg >= 0) )
-		{
-		  gc.setFill( lastColor );
-		  gc.fillRect(
-			xOffs + (xColorBeg * scale),
-			yOffs + (y * scale),
-			(x - xColorBeg) * scale,
-			scale );
-		}
-		xColorBeg = x;
-		lastColor = color;
-	      }
-	    }
-	    if( (lastColor != null)
-		 && (lastColor != bgColor)
-		&& (xColorBeg >= 0) )
-	    {
-	      gc.setFill( lastColor );
-	      gc.fillRect(
-			xOffs + (xColorBeg * scale),
-			yOffs + (y * scale),
-			(wBase - xColorBeg) * scale,
-			scale );
-	    }
+	  this.screenXOffs = xOffs;
+	  this.screenYOffs = yOffs;
+	  if( this.screenImg != null ) {
+	    gc.setImageSmoothing( false );
+	    gc.drawImage(
+			this.screenImg,
+			xOffs,
+			yOffs,
+			this.screenImg.getWidth() * scale,
+			this.screenImg.getHeight() * scale );
 	  }
 
 	  // Markierter Text
@@ -558,6 +682,5 @@ public class ScreenNode extends Canvas implements JTCScreen
 	}
       }
     }
-    --this.pendingUpdScreenEvents;
   }
 }
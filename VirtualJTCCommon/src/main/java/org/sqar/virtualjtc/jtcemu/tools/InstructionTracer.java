@@ -4,33 +4,186 @@
  * Jugend+Technik-Computer-Emulator
  *
  * Instruction Tracer
+ *
+ * Im CPU-Emulations-Thread wird je Befehl nur ein binaerer Eintrag
+ * (Taktzyklenzahl, PC, Befehlsbytes, RP, FLAGS) in einen Ringpuffer
+ * fester Groesse geschrieben.
+ * Reassembliert wird erst beim Anzeigen bzw. Speichern.
+ * Ist der Ringpuffer voll, werden die aeltesten Eintraege ueberschrieben.
+ * Der Ringpuffer (bei DEFAULT_CAPACITY 64 MByte) wird erst
+ * beim Start der ersten Aufzeichnung angelegt.
  */
 
 package org.sqar.virtualjtc.jtcemu.tools;
 
 import org.sqar.virtualjtc.z8.Z8;
+import org.sqar.virtualjtc.z8.Z8Memory;
 import org.sqar.virtualjtc.z8.Z8PCListener;
 import org.sqar.virtualjtc.z8.Z8Reassembler;
 
+import java.io.IOException;
+import java.io.Writer;
+
 public class InstructionTracer implements Z8PCListener
 {
-  private LineAppendable appendable;
-  private Z8Reassembler z8Reass;
+  // Anzahl der Befehle im Ringpuffer (Zweierpotenz)
+  public static final int DEFAULT_CAPACITY = 0x400000;
+
+  // Ein Z8-Befehl ist hoechstens 3 Bytes lang.
+  private static final int MAX_INST_LEN = 3;
+
+  private static final int REG_FLAGS = 0xFC;
+  private static final int REG_RP    = 0xFD;
+
+  /*
+   * Je Befehl zwei Eintraege:
+   *   [0]: Taktzyklenzahl
+   *   [1]: Bit 48-63: PC
+   *        Bit 24-47: Befehlsbytes
+   *        Bit 8-15:  RP
+   *        Bit 0-7:   FLAGS
+   */
+  private long[]        entries;
+  private final int     mask;
+  private volatile long count;
+
+
+  /*
+   * Speicher fuer den Reassembler,
+   * der die aufgezeichneten Befehlsbytes liefert
+   */
+  private static class TraceMemory implements Z8Memory
+  {
+    private int  pc;
+    private long codeBytes;
+
+    @Override
+    public int getMemByte(int addr, boolean dataMemory)
+    {
+      int idx = (addr - this.pc) & 0xFFFF;
+      return idx < MAX_INST_LEN ?
+		(int) (this.codeBytes >> (16 - (idx * 8))) & 0xFF
+		: 0xFF;
+    }
+
+    @Override
+    public boolean setMemByte(int addr, boolean dataMemory, int value)
+    {
+      return false;
+    }
+  }
+
+
+  public InstructionTracer(int capacity)
+  {
+    int n = Integer.highestOneBit( Math.max( capacity, 1 ) );
+    this.entries = null;
+    this.mask    = n - 1;
+    this.count   = 0;
+  }
+
+
+  /*
+   * Die Methode muss vor jeder Aufzeichnung aufgerufen werden
+   * und legt beim ersten Mal den Ringpuffer an.
+   * Sie darf nur aufgerufen werden, wenn keine Aufzeichnung laeuft.
+   */
+  public void clear()
+  {
+    if( this.entries == null ) {
+      this.entries = new long[ (this.mask + 1) * 2 ];
+    }
+    this.count = 0;
+  }
 
 
-  public InstructionTracer(Z8 z8, LineAppendable appendable)
+  // Anzahl der insgesamt aufgezeichneten Befehle
+  public long getTotalCount()
   {
-    this.z8Reass    = new Z8Reassembler( z8.getMemory() );
-    this.appendable = appendable;
+    return this.count;
   }
 
+
+  // Anzahl der im Ringpuffer noch vorhandenen Befehle
+  public int size()
+  {
+    return (int) Math.min( this.count, (long) this.mask + 1 );
+  }
+
+
+  /*
+   * Die Methode reassembliert die Befehle ab dem uebergebenen Index
+   * (0: aeltester noch vorhandener Befehl)
+   * und gibt sie zeilenweise aus.
+   */
+  public void appendLines(LineAppendable appendable, int begIdx, int n)
+  {
+    Reass         reass = new Reass();
+    StringBuilder buf   = new StringBuilder( 128 );
+    long          first = this.count - size();
+    int           end   = Math.min( begIdx + n, size() );
+    for( int i = Math.max( begIdx, 0 ); i < end; i++ ) {
+      buf.setLength( 0 );
+      reass.appendTo( buf, first + i );
+      appendable.appendLine( buf.toString() );
+    }
+  }
+
+
+  public void writeTo(Writer out) throws IOException
+  {
+    Reass         reass = new Reass();
+    StringBuilder buf   = new StringBuilder( 128 );
+    long          end   = this.count;
+    for( long i = end - size(); i < end; i++ ) {
+      buf.setLength( 0 );
+      reass.appendTo( buf, i );
+      buf.append( '\n' );
+      out.append( buf );
+    }
+  }
+
+
+	/* --- Z8PCListener --- */
+
   @Override
   public void z8PCUpdate(Z8 z8, int pc)
   {
-    StringBuilder buf  = new StringBuilder( 128 );
-    z8Reass.reassemble(buf, pc);
-    
-    appendable.appendLine(String.format("0x%04X", pc) + "\t" + buf.toString());
+    long cnt       = this.count;
+    int  pos       = ((int) cnt & this.mask) << 1;
+    long codeBytes = 0;
+    for( int i = 0; i < MAX_INST_LEN; i++ ) {
+      codeBytes = (codeBytes << 8)
+			| (z8.getMemByte( (pc + i) & 0xFFFF, false ) & 0xFF);
+    }
+    this.entries[ pos ]     = z8.getTotalCycles();
+    this.entries[ pos + 1 ] = ((long) (pc & 0xFFFF) << 48)
+				| (codeBytes << 24)
+				| ((z8.viewRegValue( REG_RP ) & 0xFF) << 8)
+				| (z8.viewRegValue( REG_FLAGS ) & 0xFF);
+    this.count = cnt + 1;
   }
 
+
+	/* --- private Klassen --- */
+
+  private class Reass
+  {
+    private TraceMemory   memory  = new TraceMemory();
+    private Z8Reassembler z8Reass = new Z8Reassembler( this.memory );
+
+    private void appendTo(StringBuilder buf, long idx)
+    {
+      int  pos   = ((int) idx & mask) << 1;
+      long value = entries[ pos + 1 ];
+      this.memory.pc        = (int) (value >>> 48);
+      this.memory.codeBytes = (value >> 24) & 0xFFFFFFL;
+      buf.append( String.format( "%12d\t", entries[ pos ] ) );
+      this.z8Reass.reassemble( buf, this.memory.pc );
+      buf.append( String.format(
+			"\tRP=%02X FLAGS=%02X",
+			(int) (value >> 8) & 0xFF,
+			(int) value & 0xFF ) );
+    }
+  }
 }
@@ -24,6 +24,7 @@ import java.awt.event.ActionListener;
 import java.awt.event.InputEvent;
 import java.awt.event.KeyEvent;
 import java.io.*;
+import java.text.MessageFormat;
 import java.util.Locale;
 import java.util.ResourceBundle;
 
@@ -37,6 +38,12 @@ public class InstructionTracerFrm extends AbstractTextFrm implements
 
     private static final String FILE_GROUP_TRACE = "trace";
 
+    /*
+     * Im Fenster werden nur die letzten Befehle angezeigt,
+     * gespeichert wird dagegen der komplette Ringpuffer.
+     */
+    private static final int VIEW_MAX_LINES = 0x4000;
+
     private static InstructionTracerFrm instance = null;
 
     private InstructionTracer instructionTracer;
@@ -56,7 +63,7 @@ public class InstructionTracerFrm extends AbstractTextFrm implements
     private JButton btnRun;
     private JButton btnStop;
 
-    private StringBuilder trace = new StringBuilder();
+    private StringBuilder trace = null;
 
 
     public static void close() {
@@ -130,7 +137,9 @@ public class InstructionTracerFrm extends AbstractTextFrm implements
     protected boolean doClose() {
         boolean rv = super.doClose();
         if (rv) {
-            this.z8.removePCListener(Z8PCListener.ALL_ADDRESSES, this.instructionTracer);
+            if (this.instructionTracer != null) {
+                this.z8.removePCListener(Z8PCListener.ALL_ADDRESSES, this.instructionTracer);
+            }
 
             instance = null;
         }
@@ -151,7 +160,7 @@ public class InstructionTracerFrm extends AbstractTextFrm implements
         this.lastFile = null;
         this.selectionFld = null;
 
-        this.instructionTracer = new InstructionTracer(z8, this);
+        this.instructionTracer = null;
 
         // Menu
         JMenuBar mnuBar = new JMenuBar();
@@ -293,6 +302,11 @@ public class InstructionTracerFrm extends AbstractTextFrm implements
         this.btnRun.setEnabled(false);
         this.btnStop.setEnabled(true);
 
+        if (this.instructionTracer == null) {
+            this.instructionTracer = new InstructionTracer(InstructionTracer.DEFAULT_CAPACITY);
+        }
+        this.instructionTracer.clear();
+
         this.z8.addPCListener(Z8PCListener.ALL_ADDRESSES, this.instructionTracer);
 
         setText(instructionTracerFrmResourceBundle.getString("startTracing.message"));
@@ -321,11 +335,11 @@ public class InstructionTracerFrm extends AbstractTextFrm implements
 
             @Override
             public void run() {
-                InstructionTracerFrm.this.setText(InstructionTracerFrm.this.trace.toString());
+                InstructionTracerFrm.this.setText(createTraceView());
 
                 InstructionTracerFrm.this.textArea.requestFocus();
 
-                if (InstructionTracerFrm.this.trace.length() > 0) {
+                if (InstructionTracerFrm.this.instructionTracer.size() > 0) {
                     InstructionTracerFrm.this.mnuSaveAs.setEnabled(true);
                     InstructionTracerFrm.this.mnuPrint.setEnabled(true);
                     InstructionTracerFrm.this.mnuSelectAll.setEnabled(true);
@@ -335,12 +349,32 @@ public class InstructionTracerFrm extends AbstractTextFrm implements
         });
     }
 
+    /*
+     * Erst hier werden die angezeigten Befehle reassembliert.
+     * Gespeichert werden koennen alle noch im Ringpuffer
+     * vorhandenen Befehle.
+     */
+    private String createTraceView() {
+        InstructionTracer tracer = this.instructionTracer;
+        int nAll = tracer.size();
+        int nView = Math.min(nAll, VIEW_MAX_LINES);
+        this.trace = new StringBuilder(nView * 64);
+        long nHidden = tracer.getTotalCount() - nView;
+        if (nHidden > 0) {
+            appendLine(MessageFormat.format(instructionTracerFrmResourceBundle.getString("stopTracing.linesHidden.messageformat"), nHidden, nAll));
+        }
+        tracer.appendLines(this, nAll - nView, nView);
+        String text = this.trace.toString();
+        this.trace = null;
+        return text;
+    }
+
     /* (non-Javadoc)
      * @see org.sqar.virtualjtc.jtcemu.tools.Appendable#appendLine(java.lang.String)
      */
     @Override
     public void appendLine(String line) {
-        this.trace = this.trace.append(line).append("\n");
+        this.trace.append(line).append("\n");
     }
 
 
@@ -365,7 +399,7 @@ public class InstructionTracerFrm extends AbstractTextFrm implements
                 Writer out = null;
                 try {
                     out = new BufferedWriter(new FileWriter(file));
-                    this.textArea.write(out);
+                    this.instructionTracer.writeTo(out);
                     out.close();
                     out = null;
                     this.lastFile = file;
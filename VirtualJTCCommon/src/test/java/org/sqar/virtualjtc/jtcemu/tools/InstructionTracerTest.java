@@ -0,0 +1,127 @@
+/*
+ * Jugend+Technik-Computer-Emulator
+ *
+ * Tests fuer den Instruction Tracer
+ */
+
+package org.sqar.virtualjtc.jtcemu.tools;
+
+import org.junit.jupiter.api.Test;
+import org.sqar.virtualjtc.z8.Z8;
+import org.sqar.virtualjtc.z8.Z8IO;
+import org.sqar.virtualjtc.z8.Z8Memory;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InstructionTracerTest
+{
+  private final byte[] mem = new byte[ 0x10000 ];
+
+  private final Z8 z8 = new Z8(
+		true,
+		new Z8Memory()
+		{
+		  @Override
+		  public int getMemByte(int addr, boolean dataMemory)
+		  {
+		    return mem[ addr & 0xFFFF ] & 0xFF;
+		  }
+
+		  @Override
+		  public boolean setMemByte(int addr, boolean dataMemory, int value)
+		  {
+		    mem[ addr & 0xFFFF ] = (byte) value;
+		    return true;
+		  }
+		},
+		new Z8IO()
+		{
+		  @Override
+		  public int getPortValue(int port)
+		  {
+		    return 0xFF;
+		  }
+
+		  @Override
+		  public void setPortValue(int port, int value)
+		  {
+		    // leer
+		  }
+		} );
+
+
+  @Test
+  void keepsOnlyLastEntries()
+  {
+    InstructionTracer tracer = new InstructionTracer( 6 );
+    tracer.clear();
+    for( int i = 0; i < 10; i++ ) {
+      this.mem[ 0x100 + i ] = (byte) 0xFF;		// NOP
+      tracer.z8PCUpdate( this.z8, 0x100 + i );
+    }
+
+    // Kapazitaet auf Zweierpotenz abgerundet
+    assertEquals( 10, tracer.getTotalCount() );
+    assertEquals( 4, tracer.size() );
+
+    List<String> lines = getLines( tracer );
+    assertEquals( 4, lines.size() );
+    for( int i = 0; i < 4; i++ ) {
+      assertTrue(
+		lines.get( i ).contains( String.format( "%04X", 0x106 + i ) ),
+		lines.get( i ) );
+    }
+
+    tracer.clear();
+    assertEquals( 0, tracer.getTotalCount() );
+    assertEquals( 0, tracer.size() );
+  }
+
+
+  @Test
+  void showsCodeAndRegistersAtTraceTime() throws IOException
+  {
+    InstructionTracer tracer = new InstructionTracer( 16 );
+    tracer.clear();
+    this.z8.setRegValue( 0xFD, 0x10 );			// RP
+    this.mem[ 0x200 ] = (byte) 0xE6;			// LD %20,#%55
+    this.mem[ 0x201 ] = (byte) 0x20;
+    this.mem[ 0x202 ] = (byte) 0x55;
+    tracer.z8PCUpdate( this.z8, 0x200 );
+
+    // Die Aenderung danach darf die Aufzeichnung nicht beeinflussen.
+    this.mem[ 0x200 ] = (byte) 0xFF;
+    this.z8.setRegValue( 0xFD, 0x20 );
+    tracer.z8PCUpdate( this.z8, 0x200 );
+
+    List<String> lines = getLines( tracer );
+    assertEquals( 2, lines.size() );
+    assertTrue( lines.get( 0 ).contains( "LD" ), lines.get( 0 ) );
+    assertTrue( lines.get( 0 ).contains( "55" ), lines.get( 0 ) );
+    assertTrue( lines.get( 0 ).contains( "RP=10" ), lines.get( 0 ) );
+    assertTrue( lines.get( 1 ).contains( "NOP" ), lines.get( 1 ) );
+    assertTrue( lines.get( 1 ).contains( "RP=20" ), lines.get( 1 ) );
+
+    StringWriter out = new StringWriter();
+    tracer.writeTo( out );
+    assertEquals(
+		String.join( "\n", lines ) + "\n",
+		out.toString() );
+  }
+
+
+	/* --- private Methoden --- */
+
+  private static List<String> getLines(InstructionTracer tracer)
+  {
+    List<String> lines = new ArrayList<>();
+    tracer.appendLines( lines::add, 0, tracer.size() );
+    return lines;
+  }
+}
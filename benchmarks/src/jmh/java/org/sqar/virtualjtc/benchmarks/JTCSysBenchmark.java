@@ -0,0 +1,103 @@
+/*
+ * Jugend+Technik-Computer-Emulator
+ *
+ * Benchmarks fuer das komplette System:
+ * Z8 mit JTCSys ohne Geschwindigkeitsbremse und ohne Bildschirmausgabe
+ */
+
+package org.sqar.virtualjtc.benchmarks;
+
+import org.jens_mueller.jtcemu.base.AppContext;
+import org.jens_mueller.jtcemu.base.JTCSys;
+import org.jens_mueller.z8.Z8;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JTCSysBenchmark {
+    /*
+     * Taktzyklen bis zum Erreichen der Eingabeaufforderung
+     * des jeweiligen Betriebssystems
+     */
+    private static final long BOOT_CYCLES = 20_000_000L;
+
+    // Taktzyklen pro Benchmark-Aufruf (entspricht 0,25 s bei 4 MHz)
+    private static final long CYCLES_PER_OP = 1_000_000L;
+
+    @Param({"OS2K", "ES1988", "ES23", "ES40"})
+    public String os;
+
+    private JTCSys jtcSys;
+    private Z8 z8;
+
+
+    /*
+     * Die Werte werden von JMH als Raten pro Sekunde ausgegeben,
+     * d.h. als emulierte Taktzyklen und Befehle pro Sekunde Rechenzeit.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long cycles;
+        public long instructions;
+    }
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        AppContext.setProperty(JTCSys.PROP_OS, this.os);
+        AppContext.setProperty(JTCSys.PROP_RAM_SIZE, "64K");
+        AppContext.setProperty(JTCSys.PROP_Z8_REG_INIT_ZERO, true);
+        this.jtcSys = new JTCSys();
+        this.z8 = this.jtcSys.getZ8();
+        this.z8.setCyclesPerSecond(0);
+        this.z8.runCycles(BOOT_CYCLES);
+    }
+
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void runSystem(Counters counters) {
+        long cycles = this.z8.getTotalCycles();
+        long insts = this.z8.getTotalInstructions();
+        this.z8.runCycles(CYCLES_PER_OP);
+        counters.cycles += this.z8.getTotalCycles() - cycles;
+        counters.instructions += this.z8.getTotalInstructions() - insts;
+    }
+
+
+    /*
+     * Lesen des gesamten Adressraums,
+     * d.h. ROM, RAM, Bildwiederholspeicher, Tastatur und ggf. ROM-Baenke
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int getMemByte() {
+        JTCSys jtcSys = this.jtcSys;
+        int rv = 0;
+        for (int addr = 0; addr < 0x10000; addr++) {
+            rv += jtcSys.getMemByte(addr, false);
+        }
+        return rv;
+    }
+}
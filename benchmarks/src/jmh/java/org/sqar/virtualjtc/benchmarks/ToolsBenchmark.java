@@ -0,0 +1,81 @@
+/*
+ * Jugend+Technik-Computer-Emulator
+ *
+ * Benchmarks fuer den Assembler und den BASIC-Parser
+ */
+
+package org.sqar.virtualjtc.benchmarks;
+
+import org.jens_mueller.jtcemu.base.AppContext;
+import org.jens_mueller.jtcemu.base.JTCSys;
+import org.jens_mueller.jtcemu.tools.BasicParser;
+import org.jens_mueller.jtcemu.tools.TextOutput;
+import org.jens_mueller.jtcemu.tools.assembler.AsmOptions;
+import org.jens_mueller.jtcemu.tools.assembler.Z8Assembler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ToolsBenchmark {
+    private static final String BASIC_SOURCE = String.join(
+            "\n",
+            "10 LET A=1,I=1",
+            "20 LET A=A+I*2",
+            "30 IF A>1000 THEN LET A=A-1000",
+            "40 PRINT A",
+            "50 GOSUB 100",
+            "60 LET I=I+1",
+            "70 IF I<100 THEN GOTO 20",
+            "80 END",
+            "100 PRINTHEX A",
+            "110 RETURN",
+            "");
+
+    private JTCSys jtcSys;
+    private TextOutput nullOut;
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        AppContext.setProperty(JTCSys.PROP_OS, "ES40");
+        this.jtcSys = new JTCSys();
+        this.nullOut = Z8Benchmark.createNullOutput();
+    }
+
+
+    @Benchmark
+    public byte[] assemble() throws IOException {
+        return new Z8Assembler(
+                Z8Benchmark.ASM_SOURCE,
+                "ToolsBenchmark",
+                null,
+                new AsmOptions(),
+                this.nullOut,
+                true,
+                null).assemble();
+    }
+
+
+    @Benchmark
+    public byte[] parseBasic() {
+        return BasicParser.parse(this.jtcSys, 0xE000, BASIC_SOURCE, this.nullOut);
+    }
+}
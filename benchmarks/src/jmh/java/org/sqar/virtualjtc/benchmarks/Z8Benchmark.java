@@ -0,0 +1,140 @@
+/*
+ * Jugend+Technik-Computer-Emulator
+ *
+ * Benchmark fuer die Befehlsausfuehrung des Z8
+ * ohne die JTC-spezifische Hardware
+ */
+
+package org.sqar.virtualjtc.benchmarks;
+
+import org.jens_mueller.jtcemu.tools.TextOutput;
+import org.jens_mueller.jtcemu.tools.assembler.AsmOptions;
+import org.jens_mueller.jtcemu.tools.assembler.Z8Assembler;
+import org.jens_mueller.z8.Z8;
+import org.jens_mueller.z8.Z8Memory;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+
+/*
+ * Da execNextInst() privat ist, wird die Befehlsausfuehrung
+ * ueber Z8.runCycles() mit wenigen Taktzyklen pro Aufruf gemessen.
+ * Das Programm ab der Reset-Adresse %000C laeuft in einer Endlosschleife
+ * und enthaelt eine Mischung aus Lade-, Arithmetik-, Schiebe-,
+ * Sprung- und Stack-Befehlen.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class Z8Benchmark {
+    private static final int CYCLES_PER_OP = 1000;
+
+    static final String ASM_SOURCE = String.join(
+            "\n",
+            "\tORG\t%000C",
+            "\tLD\tSPL,#%80",
+            "START:\tLD\tR4,#%10",
+            "LOOP1:\tLD\tR6,#HIGH(TABLE)",
+            "\tLD\tR7,#LOW(TABLE)",
+            "\tLD\tR2,#8",
+            "LOOP2:\tLDC\tR3,@RR6",
+            "\tADD\tR5,R3",
+            "\tINCW\tRR6",
+            "\tDJNZ\tR2,LOOP2",
+            "\tCALL\tSUB1",
+            "\tDJNZ\tR4,LOOP1",
+            "\tJP\tSTART",
+            "SUB1:\tPUSH\tR5",
+            "\tSWAP\tR5",
+            "\tRL\tR5",
+            "\tCP\tR5,#%80",
+            "\tJR\tC,SUB2",
+            "\tSUB\tR5,#%40",
+            "SUB2:\tPOP\tR5",
+            "\tRET",
+            "TABLE:\tDB\t1,2,3,4,5,6,7,8",
+            "");
+
+    private Z8 z8;
+
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long instructions;
+    }
+
+
+    static TextOutput createNullOutput() {
+        return new TextOutput() {
+            @Override
+            public void print(String text) {
+                // leer
+            }
+
+            @Override
+            public void println() {
+                // leer
+            }
+        };
+    }
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Z8Assembler asm = new Z8Assembler(
+                ASM_SOURCE,
+                "Z8Benchmark",
+                null,
+                new AsmOptions(),
+                createNullOutput(),
+                true,
+                null);
+        byte[] code = asm.assemble();
+        if ((code == null) || (asm.getErrorCount() > 0)) {
+            throw new IOException("Benchmark-Programm fehlerhaft");
+        }
+        final byte[] mem = new byte[0x10000];
+        System.arraycopy(code, 0, mem, asm.getBegAddr(), code.length);
+        this.z8 = new Z8(
+                true,
+                new Z8Memory() {
+                    @Override
+                    public int getMemByte(int addr, boolean dataMemory) {
+                        return mem[addr & 0xFFFF] & 0xFF;
+                    }
+
+                    @Override
+                    public boolean setMemByte(int addr, boolean dataMemory, int v) {
+                        mem[addr & 0xFFFF] = (byte) v;
+                        return true;
+                    }
+                },
+                null);
+        this.z8.setCyclesPerSecond(0);
+    }
+
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void execInstructions(Counters counters) {
+        long insts = this.z8.getTotalInstructions();
+        this.z8.runCycles(CYCLES_PER_OP);
+        counters.instructions += this.z8.getTotalInstructions() - insts;
+    }
+}